@@ -0,0 +1,130 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.activities.client;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Cost of {@link #LOOKUPS} navigations, a quarter of them matching no rule :
+ * with the table of the {@link CanvasNavigationManager}, with the map keyed
+ * by <code>view + ":" + request</code> it replaced, and with that map looked
+ * up once per wildcard combination, as it would have to be to resolve the
+ * same rules.
+ * 
+ * @author François LAROCHE
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NavigationBenchmark {
+
+	/**
+	 * the number of navigations per invocation
+	 */
+	private static final int LOOKUPS = 1000;
+	/**
+	 * the number of requests each view answers
+	 */
+	private static final int REQUESTS = 4;
+
+	/**
+	 * the number of views
+	 */
+	@Param({ "10", "100" })
+	public int views;
+
+	/**
+	 * the navigation compared
+	 */
+	private CanvasNavigationManager navigation;
+	/**
+	 * the rules, keyed by view and request as before the table
+	 */
+	private Map<String, String> legacy;
+	/**
+	 * the views navigated from
+	 */
+	private String[] origins;
+	/**
+	 * the requests made
+	 */
+	private String[] requests;
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(42);
+		this.navigation = new CanvasNavigationManager();
+		this.legacy = new HashMap<String, String>();
+		for (int view = 0; view < this.views; view++) {
+			for (int request = 0; request < REQUESTS; request++) {
+				String to = "view" + random.nextInt(this.views);
+				this.navigation.registerNavigation("view" + view, "request" + request, to);
+				this.legacy.put("view" + view + ":request" + request, to);
+			}
+		}
+		this.origins = new String[LOOKUPS];
+		this.requests = new String[LOOKUPS];
+		for (int i = 0; i < LOOKUPS; i++) {
+			// built at run time, as the keys of the pages and the requests
+			this.origins[i] = new StringBuilder("view").append(random.nextInt(this.views)).toString();
+			this.requests[i] = new StringBuilder("request").append(random.nextInt(REQUESTS + 1)).toString();
+		}
+		// compiles the table
+		this.navigation.computeNextState(this.origins[0], this.requests[0]);
+	}
+
+	@Benchmark
+	public void table(Blackhole hole) {
+		for (int i = 0; i < LOOKUPS; i++) {
+			hole.consume(this.navigation.computeNextState(this.origins[i], this.requests[i]));
+		}
+	}
+
+	@Benchmark
+	public void concatenatedKey(Blackhole hole) {
+		for (int i = 0; i < LOOKUPS; i++) {
+			String next = this.legacy.get(this.origins[i] + ":" + this.requests[i]);
+			hole.consume(next != null ? next : this.origins[i]);
+		}
+	}
+
+	@Benchmark
+	public void concatenatedKeyWithWildcards(Blackhole hole) {
+		String any = CanvasNavigationManager.WILDCARD;
+		for (int i = 0; i < LOOKUPS; i++) {
+			String origin = this.origins[i];
+			String request = this.requests[i];
+			String next = this.legacy.get(origin + ":" + request);
+			if (next == null) {
+				next = this.legacy.get(origin + ":" + any);
+			}
+			if (next == null) {
+				next = this.legacy.get(any + ":" + request);
+			}
+			if (next == null) {
+				next = this.legacy.get(any + ":" + any);
+			}
+			hole.consume(next != null ? next : origin);
+		}
+	}
+}
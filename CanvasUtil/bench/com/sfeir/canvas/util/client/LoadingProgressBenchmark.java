@@ -0,0 +1,101 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.util.client;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of the loading percentage while resources report their bytes : the
+ * running totals of the {@link LoadingProgress}, against summing all the
+ * resources on each progress event as a percentage computed from scratch
+ * does.
+ * 
+ * @author François LAROCHE
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoadingProgressBenchmark {
+
+	/**
+	 * the number of resources loading
+	 */
+	@Param({ "100", "1000" })
+	public int resources;
+
+	/**
+	 * the running totals
+	 */
+	private LoadingProgress progress;
+	/**
+	 * the bytes expected, by resource
+	 */
+	private double[] expected;
+	/**
+	 * the bytes loaded, by resource
+	 */
+	private double[] loaded;
+	/**
+	 * the resource reporting bytes next
+	 */
+	private int next;
+
+	@Setup
+	public void setUp() {
+		this.progress = new LoadingProgress();
+		this.expected = new double[this.resources];
+		this.loaded = new double[this.resources];
+		for (int i = 0; i < this.resources; i++) {
+			this.expected[i] = 1e12;
+			this.progress.add(this.expected[i], 0);
+		}
+	}
+
+	@Benchmark
+	public float runningTotals() {
+		int i = this.next();
+		this.loaded[i] += 1;
+		this.progress.update(0, 1);
+		return this.progress.sample();
+	}
+
+	@Benchmark
+	public float summedOnEachEvent() {
+		int i = this.next();
+		this.loaded[i] += 1;
+		double expected = 0;
+		double loaded = 0;
+		for (int j = 0; j < this.resources; j++) {
+			expected += this.expected[j];
+			loaded += this.loaded[j];
+		}
+		return (float) (loaded / expected);
+	}
+
+	/**
+	 * Gets the resource reporting bytes next, in turn
+	 * 
+	 * @return the index of the resource
+	 */
+	private int next() {
+		int i = this.next;
+		this.next = i + 1 == this.resources ? 0 : i + 1;
+		return i;
+	}
+}
@@ -0,0 +1,100 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.util.client.pool;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Cost of a frame creating short-lived objects : allocated each time, or
+ * obtained from an {@link ObjectPool} and released at the end of the frame.
+ * Outside of a browser the pool runs as in development mode, checking the
+ * objects released, so this is the upper bound of its cost.
+ * 
+ * @author François LAROCHE
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ObjectPoolBenchmark {
+
+	/**
+	 * Short-lived object of a frame, such as a particle or an event
+	 */
+	static class Particle {
+		/**
+		 * the state of the particle
+		 */
+		double x, y, vx, vy;
+	}
+
+	/**
+	 * the number of objects used per frame
+	 */
+	@Param({ "100", "1000" })
+	public int objects;
+
+	/**
+	 * the pool of the particles
+	 */
+	private ObjectPool<Particle> pool;
+	/**
+	 * the particles of the frame
+	 */
+	private Particle[] frame;
+
+	@Setup
+	public void setUp() {
+		this.pool = new ObjectPool<Particle>(new ObjectPool.Factory<Particle>() {
+			@Override
+			public Particle create() {
+				return new Particle();
+			}
+
+			@Override
+			public void reset(Particle object) {
+				object.x = object.y = object.vx = object.vy = 0;
+			}
+		}, this.objects, 0);
+		this.frame = new Particle[this.objects];
+	}
+
+	@Benchmark
+	public void allocate(Blackhole hole) {
+		for (int i = 0; i < this.objects; i++) {
+			Particle particle = new Particle();
+			particle.x = i;
+			this.frame[i] = particle;
+		}
+		hole.consume(this.frame);
+	}
+
+	@Benchmark
+	public void pooled(Blackhole hole) {
+		for (int i = 0; i < this.objects; i++) {
+			Particle particle = this.pool.obtain();
+			particle.x = i;
+			this.frame[i] = particle;
+		}
+		hole.consume(this.frame);
+		for (int i = 0; i < this.objects; i++) {
+			this.pool.release(this.frame[i]);
+		}
+	}
+}
@@ -0,0 +1,210 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.util.client.spatial;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Cost of a frame of a game : every object moves a little, then
+ * {@link #QUERIES} areas and points are looked up, such as the neighbours of
+ * the objects colliding or the objects under the pointer. The
+ * {@link QuadTree} and the {@link UniformGrid} are compared to a scan of all
+ * the objects, which costs nothing to keep up to date.
+ * 
+ * @author François LAROCHE
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpatialIndexBenchmark {
+
+	/**
+	 * the width and height of the area
+	 */
+	private static final double SIZE = 4000;
+	/**
+	 * the maximum width and height of the objects
+	 */
+	private static final double OBJECT_SIZE = 16;
+	/**
+	 * the width and height of the areas looked up
+	 */
+	private static final double QUERY_SIZE = 100;
+	/**
+	 * the number of areas and points looked up per frame
+	 */
+	private static final int QUERIES = 100;
+
+	/**
+	 * the number of objects
+	 */
+	@Param({ "1000", "10000", "50000" })
+	public int objects;
+
+	/**
+	 * the objects indexed
+	 */
+	private Integer[] items;
+	/**
+	 * the x coordinates of the objects
+	 */
+	private double[] x;
+	/**
+	 * the y coordinates of the objects
+	 */
+	private double[] y;
+	/**
+	 * the widths of the objects
+	 */
+	private double[] width;
+	/**
+	 * the heights of the objects
+	 */
+	private double[] height;
+	/**
+	 * the x coordinates of the queries
+	 */
+	private double[] queryX;
+	/**
+	 * the y coordinates of the queries
+	 */
+	private double[] queryY;
+	/**
+	 * the number of the frame, deciding where the objects move
+	 */
+	private int frame;
+	/**
+	 * the tree compared
+	 */
+	private QuadTree<Integer> quadTree;
+	/**
+	 * the grid compared
+	 */
+	private UniformGrid<Integer> grid;
+	/**
+	 * the objects found
+	 */
+	private List<Integer> results;
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(42);
+		this.items = new Integer[this.objects];
+		this.x = new double[this.objects];
+		this.y = new double[this.objects];
+		this.width = new double[this.objects];
+		this.height = new double[this.objects];
+		this.quadTree = new QuadTree<Integer>(SIZE, SIZE);
+		this.grid = new UniformGrid<Integer>(SIZE, SIZE, OBJECT_SIZE * 2);
+		for (int i = 0; i < this.objects; i++) {
+			this.items[i] = Integer.valueOf(i);
+			this.x[i] = random.nextDouble() * (SIZE - OBJECT_SIZE);
+			this.y[i] = random.nextDouble() * (SIZE - OBJECT_SIZE);
+			this.width[i] = 1 + random.nextDouble() * (OBJECT_SIZE - 1);
+			this.height[i] = 1 + random.nextDouble() * (OBJECT_SIZE - 1);
+			this.quadTree.insert(this.items[i], this.x[i], this.y[i], this.width[i], this.height[i]);
+			this.grid.insert(this.items[i], this.x[i], this.y[i], this.width[i], this.height[i]);
+		}
+		this.queryX = new double[QUERIES];
+		this.queryY = new double[QUERIES];
+		for (int i = 0; i < QUERIES; i++) {
+			this.queryX[i] = random.nextDouble() * (SIZE - QUERY_SIZE);
+			this.queryY[i] = random.nextDouble() * (SIZE - QUERY_SIZE);
+		}
+		this.results = new ArrayList<Integer>();
+	}
+
+	/**
+	 * Moves the objects a little, back and forth every other frame
+	 * 
+	 * @param index
+	 *            the index to update, null for none
+	 */
+	private void move(SpatialIndex<Integer> index) {
+		double step = (this.frame++ & 1) == 0 ? 2 : -2;
+		for (int i = 0; i < this.objects; i++) {
+			this.x[i] += step;
+			this.y[i] += step;
+			if (index != null) {
+				index.update(this.items[i], this.x[i], this.y[i], this.width[i], this.height[i]);
+			}
+		}
+	}
+
+	@Benchmark
+	public void bruteForce(Blackhole hole) {
+		this.move(null);
+		int found = 0;
+		for (int q = 0; q < QUERIES; q++) {
+			double left = this.queryX[q];
+			double top = this.queryY[q];
+			double right = left + QUERY_SIZE;
+			double bottom = top + QUERY_SIZE;
+			double px = left + QUERY_SIZE / 2;
+			double py = top + QUERY_SIZE / 2;
+			this.results.clear();
+			for (int i = 0; i < this.objects; i++) {
+				double x = this.x[i];
+				double y = this.y[i];
+				if (x <= right && left <= x + this.width[i] && y <= bottom && top <= y + this.height[i]) {
+					this.results.add(this.items[i]);
+				}
+				if (x <= px && px <= x + this.width[i] && y <= py && py <= y + this.height[i]) {
+					found++;
+				}
+			}
+			found += this.results.size();
+		}
+		hole.consume(found);
+	}
+
+	@Benchmark
+	public void quadTree(Blackhole hole) {
+		this.move(this.quadTree);
+		hole.consume(this.query(this.quadTree));
+	}
+
+	@Benchmark
+	public void uniformGrid(Blackhole hole) {
+		this.move(this.grid);
+		hole.consume(this.query(this.grid));
+	}
+
+	/**
+	 * Looks up the areas and points of a frame
+	 * 
+	 * @param index
+	 *            the index
+	 * @return the number of objects found
+	 */
+	private int query(SpatialIndex<Integer> index) {
+		int found = 0;
+		for (int q = 0; q < QUERIES; q++) {
+			this.results.clear();
+			found += index.query(this.queryX[q], this.queryY[q], QUERY_SIZE, QUERY_SIZE, this.results);
+			found += index.queryPoint(this.queryX[q] + QUERY_SIZE / 2, this.queryY[q] + QUERY_SIZE / 2,
+					this.results);
+		}
+		return found;
+	}
+}
@@ -1,48 +1,87 @@
-/**
- * 
- */
-package com.sfeir.canvas.activities.client;
-
-import java.util.Map;
-
-import com.google.gwt.event.dom.client.BlurEvent;
-import com.google.gwt.event.dom.client.ClickEvent;
-import com.google.gwt.event.dom.client.FocusEvent;
-import com.google.gwt.event.dom.client.KeyDownEvent;
-import com.google.gwt.event.dom.client.KeyPressEvent;
-import com.google.gwt.event.dom.client.MouseMoveEvent;
-
-/**
- * Abstract activity, extending it prevents from having to redefine all handlers, 
- * only override the ones you need.
- * 
- * @author François LAROCHE
- *
- */
-public abstract class AbstractCanvasActivity implements CanvasActivity {
-
-	@Override
-	public void onClick(ClickEvent event) {}
-
-	@Override
-	public void onFocus(FocusEvent event) {}
-
-	@Override
-	public void onBlur(BlurEvent event) {}
-
-	@Override
-	public void onKeyPress(KeyPressEvent event) {}
-
-	@Override
-	public void onKeyDown(KeyDownEvent event) {}
-
-	@Override
-	public void onMouseMove(MouseMoveEvent event) {}
-
-	@Override
-	public void stop() {}
-
-	@Override
-	public void init(Map<String, Object> context) {}
-
-}
+/**
+ * 
+ */
+package com.sfeir.canvas.activities.client;
+
+import java.util.Map;
+
+import com.google.gwt.canvas.dom.client.Context2d;
+import com.google.gwt.event.dom.client.BlurEvent;
+import com.google.gwt.event.dom.client.ClickEvent;
+import com.google.gwt.event.dom.client.FocusEvent;
+import com.google.gwt.event.dom.client.KeyDownEvent;
+import com.google.gwt.event.dom.client.KeyPressEvent;
+import com.google.gwt.event.dom.client.MouseDownEvent;
+import com.google.gwt.event.dom.client.MouseMoveEvent;
+import com.google.gwt.event.dom.client.MouseUpEvent;
+import com.google.gwt.event.dom.client.MouseWheelEvent;
+import com.google.gwt.event.dom.client.TouchCancelEvent;
+import com.google.gwt.event.dom.client.TouchEndEvent;
+import com.google.gwt.event.dom.client.TouchMoveEvent;
+import com.google.gwt.event.dom.client.TouchStartEvent;
+import com.sfeir.canvas.activities.client.input.InputBuffer;
+
+/**
+ * Abstract activity, extending it prevents from having to redefine all handlers, 
+ * only override the ones you need.
+ * 
+ * @author François LAROCHE
+ *
+ */
+public abstract class AbstractCanvasActivity implements CanvasActivity {
+
+	@Override
+	public void onClick(ClickEvent event) {}
+
+	@Override
+	public void onFocus(FocusEvent event) {}
+
+	@Override
+	public void onBlur(BlurEvent event) {}
+
+	@Override
+	public void onKeyPress(KeyPressEvent event) {}
+
+	@Override
+	public void onKeyDown(KeyDownEvent event) {}
+
+	@Override
+	public void onMouseMove(MouseMoveEvent event) {}
+
+	@Override
+	public void onMouseDown(MouseDownEvent event) {}
+
+	@Override
+	public void onMouseUp(MouseUpEvent event) {}
+
+	@Override
+	public void onMouseWheel(MouseWheelEvent event) {}
+
+	@Override
+	public void onTouchStart(TouchStartEvent event) {}
+
+	@Override
+	public void onTouchMove(TouchMoveEvent event) {}
+
+	@Override
+	public void onTouchEnd(TouchEndEvent event) {}
+
+	@Override
+	public void onTouchCancel(TouchCancelEvent event) {}
+
+	@Override
+	public void onInput(InputBuffer input) {}
+
+	@Override
+	public void stop() {}
+
+	@Override
+	public void init(Map<String, Object> context) {}
+
+	@Override
+	public void update(double dt) {}
+
+	@Override
+	public void render(Context2d ctx, double alpha) {}
+
+}
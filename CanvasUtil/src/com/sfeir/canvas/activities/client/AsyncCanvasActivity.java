@@ -0,0 +1,40 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.activities.client;
+
+import java.util.Map;
+
+import com.google.gwt.core.client.Callback;
+
+/**
+ * Activity initialized asynchronously, for instance because it fetches data
+ * or decodes assets.<br>
+ * The {@link CanvasActivityManager} calls
+ * {@link #initAsync(Map, Callback)} instead of {@link #init(Map)}, displays
+ * its {@link CanvasActivityManager#setLoadingActivity(CanvasActivity)
+ * loading activity} meanwhile, and starts this activity once the callback
+ * succeeds. If the page changes again before that, the initialization is
+ * {@link #cancel() cancelled} and its callback ignored.
+ * 
+ * @author François LAROCHE
+ */
+public interface AsyncCanvasActivity extends CanvasActivity {
+
+	/**
+	 * Initializes the activity with the data given from previous ones
+	 * 
+	 * @param context
+	 *            parameters provided from the old activity
+	 * @param callback
+	 *            the callback to notify once the activity is ready to start,
+	 *            or failed to initialize
+	 */
+	public void initAsync(Map<String, Object> context, Callback<Void, Throwable> callback);
+
+	/**
+	 * Called when the page changes before the initialization completes. The
+	 * activity should abort what it was doing, it won't be started.
+	 */
+	public void cancel();
+}
@@ -1,38 +1,60 @@
-/**
- * 
- */
-package com.sfeir.canvas.activities.client;
-
-import java.util.Map;
-
-import com.google.gwt.canvas.client.Canvas;
-import com.google.web.bindery.event.shared.EventBus;
-
-/**
- * Activity for Canvas elements
- * 
- * @author François LAROCHE
- */
-public interface CanvasActivity extends CanvasPresenter {
-
-	/**
-	 * Start this activity
-	 * 
-	 * @param ctx the context on which to write
-	 * @param bus the bus on which to send or receive events
-	 */
-	public void start(Canvas canvas, EventBus bus);
-	
-	/**
-	 * called when the activity is unloaded
-	 */
-	public void stop();
-	
-	/**
-	 * Initialize the activity with the data given from previous ones
-	 * 
-	 * @param context parameters provided from the old activity
-	 */
-	public void init(Map<String, Object>  context);
-
-}
+/**
+ * 
+ */
+package com.sfeir.canvas.activities.client;
+
+import java.util.Map;
+
+import com.google.gwt.canvas.client.Canvas;
+import com.google.gwt.canvas.dom.client.Context2d;
+import com.google.web.bindery.event.shared.EventBus;
+
+/**
+ * Activity for Canvas elements
+ * 
+ * @author François LAROCHE
+ */
+public interface CanvasActivity extends CanvasPresenter {
+
+	/**
+	 * Start this activity
+	 * 
+	 * @param ctx the context on which to write
+	 * @param bus the bus on which to send or receive events
+	 */
+	public void start(Canvas canvas, EventBus bus);
+	
+	/**
+	 * called when the activity is unloaded
+	 */
+	public void stop();
+	
+	/**
+	 * Initialize the activity with the data given from previous ones
+	 * 
+	 * @param context parameters provided from the old activity
+	 */
+	public void init(Map<String, Object>  context);
+
+	/**
+	 * Updates the state of the activity. Called by the
+	 * {@link CanvasActivityManager} for each fixed step of the game loop, so
+	 * the activity doesn't need to run its own timer.
+	 * 
+	 * @param dt the duration of the step, in milliseconds
+	 */
+	public void update(double dt);
+
+	/**
+	 * Renders the activity. Called by the {@link CanvasActivityManager} once
+	 * per frame, after the updates. A
+	 * {@link com.sfeir.canvas.activities.client.render.DirtyRectLayer} allows
+	 * redrawing only what changed.
+	 * 
+	 * @param ctx the context on which to draw
+	 * @param alpha the interpolation factor between the previous state and the
+	 *            current one, between 0 and 1
+	 */
+	public void render(Context2d ctx, double alpha);
+
+}
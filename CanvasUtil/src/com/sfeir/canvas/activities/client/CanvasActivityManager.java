@@ -1,191 +1,1671 @@
-/**
- * 
- */
-package com.sfeir.canvas.activities.client;
-
-import java.util.HashMap;
-import java.util.Map;
-
-import com.google.gwt.canvas.client.Canvas;
-import com.google.gwt.event.dom.client.BlurEvent;
-import com.google.gwt.event.dom.client.BlurHandler;
-import com.google.gwt.event.dom.client.ClickEvent;
-import com.google.gwt.event.dom.client.ClickHandler;
-import com.google.gwt.event.dom.client.FocusEvent;
-import com.google.gwt.event.dom.client.FocusHandler;
-import com.google.gwt.event.dom.client.KeyDownEvent;
-import com.google.gwt.event.dom.client.KeyDownHandler;
-import com.google.gwt.event.dom.client.KeyPressEvent;
-import com.google.gwt.event.dom.client.KeyPressHandler;
-import com.google.gwt.event.dom.client.MouseMoveEvent;
-import com.google.gwt.event.dom.client.MouseMoveHandler;
-import com.google.web.bindery.event.shared.EventBus;
-import com.sfeir.canvas.activities.client.event.PageChangeEvent;
-import com.sfeir.canvas.activities.client.event.PageChangeEventHandler;
-
-/**
- * Simple manager for Canvas Activities.<br>
- * It will manage the different {@link CanvasActivity} registered on it.<br>
- * To navigate from a {@link CanvasActivity} to another, you juste have to fire
- * a {@link PageChangeEvent} on the bus, and the manager will do the rest,
- * depending on the state given by the {@link CanvasNavigationManager}.
- * 
- * @author François LAROCHE
- */
-public class CanvasActivityManager {
-	/**
-	 * Key for the default activity
-	 */
-	private static final String DEFAULT_ACTIVITY = "default";
-
-	/**
-	 * key in map for the current activity
-	 */
-	private String currentActivityKey;
-	/**
-	 * Current activity
-	 */
-	private CanvasActivity currentActivity;
-	/**
-	 * Workflow manager, to handle navigation
-	 */
-	private final CanvasNavigationManager manager;
-	/**
-	 * the bus on which to receive events
-	 */
-	private final EventBus bus;
-	/**
-	 * the different activities configured
-	 */
-	private final Map<String, CanvasActivity> activities;
-	/**
-	 * the view containing the canvas
-	 */
-	private final CanvasView view;
-
-	/**
-	 * Constructor initializing this {@link CanvasActivityManager}
-	 * 
-	 * @param bus
-	 *            the event bus from which to receive events
-	 * @param manager
-	 *            the navigation manager
-	 * @param view
-	 *            the view containing the canvas on which to write
-	 */
-	public CanvasActivityManager(EventBus bus, CanvasNavigationManager manager, CanvasView view) {
-		this.currentActivityKey = DEFAULT_ACTIVITY;
-		this.manager = manager;
-		this.view = view;
-		this.bus = bus;
-		this.activities = new HashMap<String, CanvasActivity>();
-		this.bus.addHandler(PageChangeEvent.TYPE, new PageChangeEventHandler() {
-			@Override
-			public void handlePageChange(PageChangeEvent event) {
-				changePage(event.getRequest(), event.getContext());
-			}
-		});
-	}
-
-	/**
-	 * Change the page
-	 * 
-	 * @param request
-	 *            the request (next, previous, and so on)
-	 * @param context
-	 *            a map with objects passed from an activity to another
-	 */
-	private void changePage(String request, Map<String, Object> context) {
-		if (this.currentActivity != null) {
-			this.currentActivity.stop();
-		}
-		if (this.currentActivityKey == null || "".equals(this.currentActivityKey)) {
-			this.currentActivityKey = DEFAULT_ACTIVITY;
-		}
-		this.currentActivityKey = this.manager.computeNextState(this.currentActivityKey, request);
-		this.currentActivity = this.activities.get(this.currentActivityKey);
-		if (currentActivity != null) {
-			this.setEvents();
-			this.currentActivity.init(context);
-			this.currentActivity.start(this.view.getCanvas(), this.bus);
-		}
-	}
-
-	/**
-	 * Register an activity
-	 * 
-	 * @param key
-	 *            the key under which to register the activity
-	 * @param activity
-	 *            the activity to register
-	 */
-	public void registerActivity(String key, CanvasActivity activity) {
-		this.activities.put(key, activity);
-	}
-
-	/**
-	 * Sets the default activity
-	 * 
-	 * @param activity
-	 *            the activity to use as default
-	 */
-	public void setDefaultActivity(CanvasActivity activity) {
-		this.activities.put(DEFAULT_ACTIVITY, activity);
-	}
-
-	/**
-	 * Start this CanvasActivityManager and display the default activity
-	 */
-	public void start() {
-		this.currentActivity = this.activities.get(this.currentActivityKey);
-		if (this.currentActivity != null) {
-			this.currentActivity.start(this.view.getCanvas(), this.bus);
-		}
-	}
-
-	/**
-	 * set events of the canvas to the current activity
-	 */
-	private void setEvents() {
-		final Canvas canvas = this.view.getCanvas();
-		canvas.addClickHandler(new ClickHandler() {
-			@Override
-			public void onClick(ClickEvent event) {
-				currentActivity.onClick(event);
-			}
-		});
-		canvas.addFocusHandler(new FocusHandler() {
-
-			@Override
-			public void onFocus(FocusEvent event) {
-				currentActivity.onFocus(event);
-			}
-		});
-		canvas.addBlurHandler(new BlurHandler() {
-			@Override
-			public void onBlur(BlurEvent event) {
-				currentActivity.onBlur(event);
-				canvas.setFocus(true);
-			}
-		});
-		canvas.addKeyPressHandler(new KeyPressHandler() {
-			@Override
-			public void onKeyPress(KeyPressEvent event) {
-				currentActivity.onKeyPress(event);
-			}
-		});
-		canvas.addKeyDownHandler(new KeyDownHandler() {
-			@Override
-			public void onKeyDown(KeyDownEvent event) {
-				currentActivity.onKeyDown(event);
-			}
-		});
-
-		canvas.addMouseMoveHandler(new MouseMoveHandler() {
-			@Override
-			public void onMouseMove(MouseMoveEvent event) {
-				currentActivity.onMouseMove(event);
-			}
-		});
-	}
-}
+/**
+ * 
+ */
+package com.sfeir.canvas.activities.client;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gwt.canvas.client.Canvas;
+import com.google.gwt.core.client.Callback;
+import com.google.gwt.core.client.Duration;
+import com.google.gwt.core.client.GWT;
+import com.google.gwt.core.client.JsArray;
+import com.google.gwt.dom.client.Element;
+import com.google.gwt.dom.client.NativeEvent;
+import com.google.gwt.dom.client.Touch;
+import com.google.gwt.event.dom.client.BlurEvent;
+import com.google.gwt.event.dom.client.BlurHandler;
+import com.google.gwt.event.dom.client.ClickEvent;
+import com.google.gwt.event.dom.client.ClickHandler;
+import com.google.gwt.event.dom.client.FocusEvent;
+import com.google.gwt.event.dom.client.FocusHandler;
+import com.google.gwt.event.dom.client.KeyDownEvent;
+import com.google.gwt.event.dom.client.KeyDownHandler;
+import com.google.gwt.event.dom.client.KeyPressEvent;
+import com.google.gwt.event.dom.client.KeyPressHandler;
+import com.google.gwt.event.dom.client.MouseDownEvent;
+import com.google.gwt.event.dom.client.MouseDownHandler;
+import com.google.gwt.event.dom.client.MouseMoveEvent;
+import com.google.gwt.event.dom.client.MouseMoveHandler;
+import com.google.gwt.event.dom.client.MouseUpEvent;
+import com.google.gwt.event.dom.client.MouseUpHandler;
+import com.google.gwt.event.dom.client.MouseWheelEvent;
+import com.google.gwt.event.dom.client.MouseWheelHandler;
+import com.google.gwt.event.dom.client.TouchCancelEvent;
+import com.google.gwt.event.dom.client.TouchCancelHandler;
+import com.google.gwt.event.dom.client.TouchEndEvent;
+import com.google.gwt.event.dom.client.TouchEndHandler;
+import com.google.gwt.event.dom.client.TouchMoveEvent;
+import com.google.gwt.event.dom.client.TouchMoveHandler;
+import com.google.gwt.event.dom.client.TouchStartEvent;
+import com.google.gwt.event.dom.client.TouchStartHandler;
+import com.google.gwt.event.shared.HandlerRegistration;
+import com.google.web.bindery.event.shared.EventBus;
+import com.sfeir.canvas.activities.client.FrameScheduler.FrameHandler;
+import com.sfeir.canvas.activities.client.NavigationHistory.EvictionHandler;
+import com.sfeir.canvas.activities.client.NavigationHistory.Page;
+import com.sfeir.canvas.activities.client.event.PageChangeEvent;
+import com.sfeir.canvas.activities.client.event.PageChangeEventHandler;
+import com.sfeir.canvas.activities.client.input.InputBuffer;
+import com.sfeir.canvas.activities.client.input.InputRecord;
+import com.sfeir.canvas.activities.client.render.Canvas2dSpriteRenderer;
+import com.sfeir.canvas.activities.client.render.SpriteRenderer;
+import com.sfeir.canvas.activities.client.render.WebGLSpriteRenderer;
+import com.sfeir.canvas.util.client.ResourceManager;
+import com.sfeir.canvas.util.client.event.ResourceGroupLoadedEvent;
+import com.sfeir.canvas.util.client.event.ResourceGroupLoadedHandler;
+import com.sfeir.canvas.util.client.metrics.Histogram;
+import com.sfeir.canvas.util.client.metrics.Instrumentation;
+import com.sfeir.canvas.util.client.metrics.Metrics;
+import com.sfeir.canvas.util.client.metrics.MetricsOverlay;
+import com.sfeir.canvas.util.client.spatial.SpatialIndex;
+
+/**
+ * Simple manager for Canvas Activities.<br>
+ * It will manage the different {@link CanvasActivity} registered on it.<br>
+ * To navigate from a {@link CanvasActivity} to another, you juste have to fire
+ * a {@link PageChangeEvent} on the bus, and the manager will do the rest,
+ * depending on the state given by the {@link CanvasNavigationManager}.<br>
+ * The manager also runs the game loop : once started, it calls
+ * {@link CanvasActivity#update(double)} and
+ * {@link CanvasActivity#render(com.google.gwt.canvas.dom.client.Context2d, double)}
+ * on the current activity, through its {@link FrameScheduler}.<br>
+ * When input buffering is enabled, the input received from the canvas is
+ * recorded in an {@link InputBuffer} and given to the current activity once
+ * per frame, instead of being dispatched as soon as it is received.<br>
+ * Activities can declare the {@link ResourceManager} groups they need : these
+ * groups are loaded before the activity is started, and released once it is
+ * stopped, unless the next activity needs them too.<br>
+ * When the view is a {@link LayeredCanvasView} and the activity a
+ * {@link LayeredCanvasActivity}, each layer is redrawn at its own
+ * {@link #setLayerCadence(int, int) cadence}, so that static layers aren't
+ * redrawn every frame.<br>
+ * The {@link #createSpriteRenderer(Canvas) sprite renderers} it creates draw
+ * with WebGL when it is enabled and available, and with the 2D context
+ * otherwise.
+ * 
+ * @author François LAROCHE
+ */
+public class CanvasActivityManager {
+	/**
+	 * Key for the default activity
+	 */
+	private static final String DEFAULT_ACTIVITY = "default";
+
+	/**
+	 * key in map for the current activity
+	 */
+	private String currentActivityKey;
+	/**
+	 * Current activity
+	 */
+	private CanvasActivity currentActivity;
+	/**
+	 * Workflow manager, to handle navigation
+	 */
+	private final CanvasNavigationManager manager;
+	/**
+	 * the bus on which to receive events
+	 */
+	private final EventBus bus;
+	/**
+	 * the different activities configured
+	 */
+	private final Map<String, CanvasActivity> activities;
+	/**
+	 * the view containing the canvas
+	 */
+	private final CanvasView view;
+	/**
+	 * the scheduler running the game loop
+	 */
+	private final FrameScheduler scheduler;
+	/**
+	 * the canvas on which the input handlers are currently registered
+	 */
+	private Canvas boundCanvas;
+	/**
+	 * the registrations of the input handlers on the bound canvas
+	 */
+	private final List<HandlerRegistration> registrations;
+	/**
+	 * the buffer recording the input, null if input isn't buffered
+	 */
+	private InputBuffer inputBuffer;
+	/**
+	 * the resource groups needed by the activities, by activity key
+	 */
+	private final Map<String, String[]> activityGroups;
+	/**
+	 * the resource manager loading the groups of the activities, may be null
+	 */
+	private ResourceManager resources;
+	/**
+	 * the activity waiting for its resource groups before being started
+	 */
+	private CanvasActivity pendingActivity;
+	/**
+	 * the context given to the pending activity
+	 */
+	private Map<String, Object> pendingContext;
+	/**
+	 * whether the pending activity needs to be initialized before starting
+	 */
+	private boolean pendingInit;
+	/**
+	 * whether the pending activity is being initialized asynchronously
+	 */
+	private boolean pendingAsync;
+	/**
+	 * the number of page changes, to ignore the callbacks of the cancelled
+	 * ones
+	 */
+	private int transition;
+	/**
+	 * the requests made since the last frame
+	 */
+	private final List<String> queuedRequests;
+	/**
+	 * the context of the page requested since the last frame
+	 */
+	private Map<String, Object> queuedContext;
+	/**
+	 * the activity displayed while the next one isn't ready, may be null
+	 */
+	private CanvasActivity loadingActivity;
+	/**
+	 * the page displayed or being started
+	 */
+	private Page currentEntry;
+	/**
+	 * the pages left
+	 */
+	private final NavigationHistory history;
+	/**
+	 * the metrics of the application
+	 */
+	private final Metrics metrics;
+	/**
+	 * the histograms of the frames : total, update, render and input
+	 */
+	private final Histogram frameTime, updateTime, renderTime, inputTime;
+	/**
+	 * the histograms of the page changes and the lifecycle of the activities
+	 */
+	private final Histogram transitionTime, lifecycleTime;
+	/**
+	 * the times at which the current frame began, and its updates began
+	 */
+	private double frameStart, updateStart;
+	/**
+	 * the overlay drawing the metrics, null if it isn't displayed
+	 */
+	private MetricsOverlay overlay;
+	/**
+	 * the number of frames between two redraws, by layer, for the layers
+	 * not redrawn every frame
+	 */
+	private final Map<Integer, Integer> layerCadences;
+	/**
+	 * the number of frames rendered since the current activity started
+	 */
+	private int layerFrame;
+	/**
+	 * whether all the layers must be redrawn on the next frame
+	 */
+	private boolean layersInvalid;
+	/**
+	 * whether sprite renderers use WebGL when available
+	 */
+	private boolean webGL;
+	/**
+	 * the WebGL renderers created, by canvas : these canvases have no 2D
+	 * context
+	 */
+	private final Map<Canvas, SpriteRenderer> webGLRenderers;
+	/**
+	 * whether clicks and mouse moves are resolved to the shapes of the
+	 * current activity
+	 */
+	private boolean hitTesting;
+	/**
+	 * the shapes found by the last hit test, reused from one to another
+	 */
+	private final List<Object> hits;
+	/**
+	 * whether the activities reachable from the current one are prepared
+	 * while idle
+	 */
+	private boolean preloading;
+	/**
+	 * the keys of the activities prepared and not started since. A key is
+	 * forgotten when its activity is stopped or one of its groups released,
+	 * so that it is prepared again.
+	 */
+	private final List<String> preparedKeys;
+	/**
+	 * the groups loaded for activities reachable from the current one
+	 */
+	private final List<String> preloadedGroups;
+	/**
+	 * whether an idle callback is requested
+	 */
+	private boolean idleRequested;
+	/**
+	 * the time at which the current transition started, negative if the
+	 * current activity has already been rendered
+	 */
+	private double transitionStart;
+	/**
+	 * the duration of the last transition, negative if none has been measured
+	 */
+	private double transitionLatency;
+
+	/**
+	 * Constructor initializing this {@link CanvasActivityManager}
+	 * 
+	 * @param bus
+	 *            the event bus from which to receive events
+	 * @param manager
+	 *            the navigation manager
+	 * @param view
+	 *            the view containing the canvas on which to write
+	 */
+	public CanvasActivityManager(EventBus bus, CanvasNavigationManager manager, CanvasView view) {
+		this.currentActivityKey = DEFAULT_ACTIVITY;
+		this.manager = manager;
+		this.view = view;
+		this.bus = bus;
+		this.activities = new HashMap<String, CanvasActivity>();
+		this.registrations = new ArrayList<HandlerRegistration>();
+		this.activityGroups = new HashMap<String, String[]>();
+		this.layerCadences = new HashMap<Integer, Integer>();
+		this.webGLRenderers = new HashMap<Canvas, SpriteRenderer>();
+		this.hits = new ArrayList<Object>();
+		this.queuedRequests = new ArrayList<String>();
+		this.history = new NavigationHistory(manager, new EvictionHandler() {
+			@Override
+			public void onEvict(Page page) {
+				evict(page);
+			}
+		});
+		this.preparedKeys = new ArrayList<String>();
+		this.preloadedGroups = new ArrayList<String>();
+		this.transitionStart = -1;
+		this.transitionLatency = -1;
+		this.metrics = Instrumentation.get();
+		this.frameTime = this.metrics.getHistogram(Metrics.FRAME_TIME);
+		this.updateTime = this.metrics.getHistogram(Metrics.UPDATE_TIME);
+		this.renderTime = this.metrics.getHistogram(Metrics.RENDER_TIME);
+		this.inputTime = this.metrics.getHistogram(Metrics.INPUT_TIME);
+		this.transitionTime = this.metrics.getHistogram(Metrics.TRANSITION_TIME);
+		this.lifecycleTime = this.metrics.getHistogram(Metrics.LIFECYCLE_TIME);
+		this.bus.addHandler(PageChangeEvent.TYPE, new PageChangeEventHandler() {
+			@Override
+			public void handlePageChange(PageChangeEvent event) {
+				queuePageChange(event.getRequest(), event.getContext());
+			}
+		});
+		this.bus.addHandler(ResourceGroupLoadedEvent.TYPE, new ResourceGroupLoadedHandler() {
+			@Override
+			public void onResourceGroupLoaded(ResourceGroupLoadedEvent event) {
+				startPendingActivity();
+			}
+		});
+		this.scheduler = new FrameScheduler(new FrameHandler() {
+			@Override
+			public void beginFrame() {
+				if (metrics.isEnabled()) {
+					frameStart = Duration.currentTimeMillis();
+				}
+				flushPageChange();
+				flushInput();
+				if (metrics.isEnabled()) {
+					updateStart = Duration.currentTimeMillis();
+				}
+			}
+
+			@Override
+			public void update(double dt) {
+				if (currentActivity != null) {
+					currentActivity.update(dt);
+				}
+			}
+
+			@Override
+			public void render(double alpha) {
+				double renderStart = 0;
+				if (metrics.isEnabled()) {
+					renderStart = Duration.currentTimeMillis();
+					updateTime.record(renderStart - updateStart);
+				}
+				if (currentActivity != null) {
+					renderActivity(alpha);
+					if (transitionStart >= 0 && currentActivity != loadingActivity) {
+						transitionLatency = Duration.currentTimeMillis() - transitionStart;
+						transitionStart = -1;
+						if (metrics.isEnabled()) {
+							transitionTime.record(transitionLatency);
+						}
+					}
+				}
+				if (metrics.isEnabled()) {
+					double now = Duration.currentTimeMillis();
+					renderTime.record(now - renderStart);
+					frameTime.record(now - frameStart);
+					Canvas overlayCanvas = getOverlayCanvas();
+					if (overlay != null && overlayCanvas != null) {
+						overlay.draw(overlayCanvas.getContext2d(), 0, 0);
+					}
+				}
+			}
+		}, null);
+	}
+
+	/**
+	 * Queues a page change, to be made on the next frame. The page changes
+	 * requested during the same frame are coalesced : the navigation goes
+	 * through all the requests, but only the last page is started. When the
+	 * game loop isn't running, the page is changed right away.
+	 * 
+	 * @param request
+	 *            the request (next, previous, and so on)
+	 * @param context
+	 *            a map with objects passed from an activity to another
+	 */
+	private void queuePageChange(String request, Map<String, Object> context) {
+		if (this.queuedRequests.isEmpty()) {
+			this.transitionStart = Duration.currentTimeMillis();
+		}
+		this.queuedRequests.add(request);
+		this.queuedContext = context;
+		if (!this.scheduler.isRunning()) {
+			this.flushPageChange();
+		}
+	}
+
+	/**
+	 * Makes the page change queued since the last frame, if any. With the
+	 * history enabled, {@link PageChangeEvent#BACK} and
+	 * {@link PageChangeEvent#FORWARD} move in the history rather than
+	 * following the navigation rules, when there is a page to move to.
+	 */
+	private void flushPageChange() {
+		if (this.queuedRequests.isEmpty()) {
+			return;
+		}
+		Page entry = this.currentEntry;
+		if (entry == null) {
+			String key = this.currentActivityKey;
+			entry = new Page(key == null || "".equals(key) ? DEFAULT_ACTIVITY : key, null);
+		}
+		entry = this.history.navigate(entry, this.queuedRequests, this.queuedContext);
+		this.queuedRequests.clear();
+		this.queuedContext = null;
+		if (entry != this.currentEntry) {
+			this.changePage(entry);
+		} else {
+			// back and forth in the same frame, nothing to do
+			this.transitionStart = -1;
+		}
+		this.history.trim();
+	}
+
+	/**
+	 * Change the page
+	 * 
+	 * @param next
+	 *            the next page
+	 */
+	private void changePage(Page next) {
+		this.cancelPendingActivity();
+		this.leaveCurrentActivity(next);
+		// the same activity can't be suspended while displayed
+		this.stopSuspended(next);
+		if (this.inputBuffer != null) {
+			// input was meant for the previous activity
+			this.inputBuffer.clear();
+		}
+		String previousKey = this.currentActivityKey;
+		this.currentActivityKey = next.getKey();
+		this.currentEntry = next;
+		this.releaseGroups(previousKey, this.currentActivityKey);
+		this.activateGroups(previousKey, this.currentActivityKey);
+		CanvasActivity activity = this.activities.get(this.currentActivityKey);
+		if (next.isSuspended() && activity instanceof SuspendableActivity) {
+			next.setSuspended(false);
+			this.hideLoadingActivity();
+			this.bindCanvas();
+			this.currentActivity = activity;
+			this.invalidateLayers();
+			this.layerFrame = 0;
+			double start = 0;
+			if (this.metrics.isEnabled()) {
+				start = Duration.currentTimeMillis();
+			}
+			((SuspendableActivity) activity).resume(this.view.getCanvas(), this.bus);
+			if (this.metrics.isEnabled()) {
+				this.lifecycleTime.record(Duration.currentTimeMillis() - start);
+			}
+			this.requestIdle();
+			return;
+		}
+		next.setSuspended(false);
+		this.setPendingActivity(activity, next.getContext(), true);
+		if (this.pendingActivity != null) {
+			this.bindCanvas();
+			this.loadGroups(this.currentActivityKey);
+			this.startPendingActivity();
+		} else {
+			this.hideLoadingActivity();
+		}
+	}
+
+	/**
+	 * Leaves the current activity : suspends it if it is kept in the history,
+	 * stops it otherwise
+	 * 
+	 * @param next
+	 *            the next page
+	 */
+	private void leaveCurrentActivity(Page next) {
+		if (this.currentActivity == null || this.currentActivity == this.loadingActivity) {
+			return;
+		}
+		double start = 0;
+		if (this.metrics.isEnabled()) {
+			start = Duration.currentTimeMillis();
+		}
+		Page entry = this.currentEntry;
+		if (entry != null && this.currentActivity instanceof SuspendableActivity
+				&& !entry.getKey().equals(next.getKey()) && this.history.contains(entry)) {
+			((SuspendableActivity) this.currentActivity).suspend();
+			entry.setSuspended(true);
+		} else {
+			this.stopActivity(this.currentActivityKey);
+		}
+		this.currentActivity = null;
+		if (this.metrics.isEnabled()) {
+			this.lifecycleTime.record(Duration.currentTimeMillis() - start);
+		}
+	}
+
+	/**
+	 * Stops the suspended activities of the history having the same key as a
+	 * page
+	 * 
+	 * @param next
+	 *            the page
+	 */
+	private void stopSuspended(Page next) {
+		for (int i = 0, n = this.history.getPageCount(); i < n; i++) {
+			Page page = this.history.getPage(i);
+			if (page != next && page.isSuspended() && page.getKey().equals(next.getKey())) {
+				this.stopActivity(page.getKey());
+				page.setSuspended(false);
+			}
+		}
+	}
+
+	/**
+	 * Drops a page from the history, stopping its activity if it is
+	 * suspended and releasing the groups nothing else needs
+	 * 
+	 * @param entry
+	 *            the page dropped
+	 */
+	private void evict(Page entry) {
+		if (!entry.isSuspended()) {
+			return;
+		}
+		entry.setSuspended(false);
+		this.stopActivity(entry.getKey());
+		String[] groups = this.activityGroups.get(entry.getKey());
+		if (this.resources == null || groups == null) {
+			return;
+		}
+		String[] current = this.activityGroups.get(this.currentActivityKey);
+		for (String group : groups) {
+			if (!contains(current, group) && !this.preloadedGroups.contains(group) && !this.isHeldByHistory(group)) {
+				this.releaseGroup(group);
+			}
+		}
+	}
+
+	/**
+	 * Checks whether a suspended activity of the history needs a group
+	 * 
+	 * @param group
+	 *            the name of the group
+	 * @return true if the group must stay loaded
+	 */
+	private boolean isHeldByHistory(String group) {
+		for (int i = 0, n = this.history.getPageCount(); i < n; i++) {
+			Page page = this.history.getPage(i);
+			if (page.isSuspended() && contains(this.activityGroups.get(page.getKey()), group)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Sets the maximum number of pages kept in the navigation history. The
+	 * pages left are remembered with their context, so that
+	 * {@link PageChangeEvent#BACK} and {@link PageChangeEvent#FORWARD} return
+	 * to them ; the {@link SuspendableActivity suspendable} ones are
+	 * suspended rather than stopped, and resumed as they were. The pages
+	 * beyond the limit are dropped, their activities stopped.
+	 * 
+	 * @param historySize
+	 *            the maximum number of pages, 0 to disable the history
+	 */
+	public void setHistorySize(int historySize) {
+		this.history.setSize(historySize);
+	}
+
+	/**
+	 * Gets the maximum number of pages kept in the navigation history
+	 * 
+	 * @return the maximum number of pages, 0 if the history is disabled
+	 */
+	public int getHistorySize() {
+		return this.history.getSize();
+	}
+
+	/**
+	 * Checks whether there is a page to go back to
+	 * 
+	 * @return true if {@link PageChangeEvent#BACK} moves in the history
+	 */
+	public boolean canGoBack() {
+		return this.history.canGoBack();
+	}
+
+	/**
+	 * Checks whether there is a page to go forward to
+	 * 
+	 * @return true if {@link PageChangeEvent#FORWARD} moves in the history
+	 */
+	public boolean canGoForward() {
+		return this.history.canGoForward();
+	}
+
+	/**
+	 * Sets the activity to start once its groups are loaded, preparing it if
+	 * it hasn't been
+	 * 
+	 * @param activity
+	 *            the activity, may be null
+	 * @param context
+	 *            the context with which to initialize it
+	 * @param init
+	 *            whether to initialize it
+	 */
+	private void setPendingActivity(CanvasActivity activity, Map<String, Object> context, boolean init) {
+		this.pendingActivity = activity;
+		this.pendingContext = context;
+		this.pendingInit = init;
+		if (activity instanceof PreparableActivity && !this.preparedKeys.remove(this.currentActivityKey)) {
+			((PreparableActivity) activity).prepare();
+		}
+	}
+
+	/**
+	 * Forgets the pending activity, cancelling its initialization if it is in
+	 * progress. It is prepared again before being started.
+	 */
+	private void cancelPendingActivity() {
+		this.transition++;
+		if (this.pendingAsync) {
+			this.pendingAsync = false;
+			((AsyncCanvasActivity) this.pendingActivity).cancel();
+		}
+		if (this.pendingActivity != null) {
+			this.preparedKeys.remove(this.currentActivityKey);
+		}
+		this.pendingActivity = null;
+		this.pendingContext = null;
+	}
+
+	/**
+	 * Starts the pending activity, if all its resource groups are loaded and
+	 * it is initialized. The loading activity is displayed until then.
+	 */
+	private void startPendingActivity() {
+		if (this.pendingActivity == null || this.pendingAsync) {
+			return;
+		}
+		if (!this.areGroupsLoaded(this.currentActivityKey)) {
+			this.showLoadingActivity();
+			return;
+		}
+		CanvasActivity activity = this.pendingActivity;
+		if (this.pendingInit && activity instanceof AsyncCanvasActivity) {
+			this.initAsync((AsyncCanvasActivity) activity);
+			return;
+		}
+		Map<String, Object> context = this.pendingContext;
+		boolean init = this.pendingInit;
+		this.pendingActivity = null;
+		this.pendingContext = null;
+		this.hideLoadingActivity();
+		this.currentActivity = activity;
+		this.invalidateLayers();
+		this.layerFrame = 0;
+		double start = 0;
+		if (this.metrics.isEnabled()) {
+			start = Duration.currentTimeMillis();
+		}
+		if (init) {
+			activity.init(context);
+		}
+		activity.start(this.view.getCanvas(), this.bus);
+		if (this.metrics.isEnabled()) {
+			this.lifecycleTime.record(Duration.currentTimeMillis() - start);
+		}
+		this.requestIdle();
+	}
+
+	/**
+	 * Initializes the pending activity asynchronously, then starts it
+	 * 
+	 * @param activity
+	 *            the pending activity
+	 */
+	private void initAsync(final AsyncCanvasActivity activity) {
+		final int initTransition = this.transition;
+		this.pendingAsync = true;
+		this.showLoadingActivity();
+		activity.initAsync(this.pendingContext, new Callback<Void, Throwable>() {
+			@Override
+			public void onSuccess(Void result) {
+				if (initTransition == transition && pendingAsync) {
+					pendingAsync = false;
+					pendingInit = false;
+					startPendingActivity();
+				}
+			}
+
+			@Override
+			public void onFailure(Throwable reason) {
+				if (initTransition == transition && pendingAsync) {
+					GWT.log("Activity " + currentActivityKey + " failed to initialize", reason);
+					pendingAsync = false;
+					pendingActivity = null;
+					pendingContext = null;
+					hideLoadingActivity();
+				}
+			}
+		});
+	}
+
+	/**
+	 * Sets the activity displayed while the next one loads its resource
+	 * groups or is initialized asynchronously. It is started when the wait
+	 * begins, and stopped when the next activity starts.
+	 * 
+	 * @param activity
+	 *            the loading activity, null to display nothing
+	 */
+	public void setLoadingActivity(CanvasActivity activity) {
+		this.hideLoadingActivity();
+		this.loadingActivity = activity;
+	}
+
+	/**
+	 * Starts the loading activity, if there is one and no activity is
+	 * displayed
+	 */
+	private void showLoadingActivity() {
+		if (this.loadingActivity == null || this.currentActivity != null) {
+			return;
+		}
+		this.currentActivity = this.loadingActivity;
+		this.invalidateLayers();
+		this.layerFrame = 0;
+		this.loadingActivity.start(this.view.getCanvas(), this.bus);
+	}
+
+	/**
+	 * Stops the loading activity, if it is displayed
+	 */
+	private void hideLoadingActivity() {
+		if (this.currentActivity != null && this.currentActivity == this.loadingActivity) {
+			this.loadingActivity.stop();
+			this.currentActivity = null;
+		}
+	}
+
+	/**
+	 * Enables or disables preloading. When enabled, once an activity has
+	 * started, the activities it can lead to according to the
+	 * {@link CanvasNavigationManager} are prepared while the browser is idle,
+	 * one at a time : their resource groups are loaded, and the
+	 * {@link PreparableActivity preparable} ones are prepared.
+	 * 
+	 * @param preloading
+	 *            whether to prepare the next activities
+	 */
+	public void setPreloading(boolean preloading) {
+		this.preloading = preloading;
+		this.requestIdle();
+	}
+
+	/**
+	 * Checks whether the next activities are prepared while idle
+	 * 
+	 * @return true if preloading is enabled
+	 */
+	public boolean isPreloading() {
+		return preloading;
+	}
+
+	/**
+	 * Displays or hides the metrics over the canvas, in the top left corner.
+	 * Only effective when the metrics are enabled in the module. The overlay
+	 * is drawn on the top layer not drawn with WebGL, and replaces what is
+	 * under it until the layer is redrawn : the layers are all redrawn once
+	 * it is hidden.
+	 * 
+	 * @param visible
+	 *            whether to display the metrics
+	 * @see Metrics
+	 */
+	public void setMetricsOverlay(boolean visible) {
+		if (!visible && this.overlay != null) {
+			this.invalidateLayers();
+		}
+		this.overlay = visible ? new MetricsOverlay(this.metrics) : null;
+	}
+
+	/**
+	 * Gets the duration of the last page change : from the
+	 * {@link PageChangeEvent} to the first rendering of the next activity,
+	 * including the loading of its resources
+	 * 
+	 * @return the duration, in milliseconds, negative if no page change has
+	 *         completed yet
+	 */
+	public double getLastTransitionLatency() {
+		return transitionLatency;
+	}
+
+	/**
+	 * Prepares the next activity reachable from the current one which isn't
+	 * prepared yet, then waits for the next idle period to prepare the
+	 * following one
+	 */
+	private void prepareNext() {
+		this.idleRequested = false;
+		if (!this.preloading || this.currentActivity == null || this.pendingActivity != null) {
+			return;
+		}
+		for (String key : this.manager.getPossibleNextStates(this.currentActivityKey)) {
+			CanvasActivity activity = this.activities.get(key);
+			if (activity == null) {
+				continue;
+			}
+			boolean prepared = this.preloadGroups(key);
+			if (activity instanceof PreparableActivity && !this.preparedKeys.contains(key)) {
+				((PreparableActivity) activity).prepare();
+				this.preparedKeys.add(key);
+				prepared = true;
+			}
+			if (prepared) {
+				this.requestIdle();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Loads the groups of an activity reachable from the current one
+	 * 
+	 * @param key
+	 *            the key of the activity
+	 * @return true if groups were not loaded before
+	 */
+	private boolean preloadGroups(String key) {
+		String[] groups = this.activityGroups.get(key);
+		if (this.resources == null || groups == null) {
+			return false;
+		}
+		String[] current = this.activityGroups.get(this.currentActivityKey);
+		boolean loaded = false;
+		for (String group : groups) {
+			if (!contains(current, group) && !this.preloadedGroups.contains(group)) {
+				this.resources.loadGroup(group);
+				this.preloadedGroups.add(group);
+				loaded = true;
+			}
+		}
+		return loaded;
+	}
+
+	/**
+	 * Requests a call to {@link #prepareNext()} when the browser is idle, if
+	 * preloading is enabled and none is already requested
+	 */
+	private void requestIdle() {
+		if (this.preloading && !this.idleRequested && this.currentActivity != null && this.pendingActivity == null) {
+			this.idleRequested = true;
+			this.scheduleIdle();
+		}
+	}
+
+	/**
+	 * Calls {@link #prepareNext()} when the browser is idle, or after a short
+	 * delay when it doesn't tell
+	 */
+	private native void scheduleIdle() /*-{
+		var self = this;
+		var callback = $entry(function() {
+			self.@com.sfeir.canvas.activities.client.CanvasActivityManager::prepareNext()();
+		});
+		if ($wnd.requestIdleCallback) {
+			$wnd.requestIdleCallback(callback);
+		} else {
+			$wnd.setTimeout(callback, 50);
+		}
+	}-*/;
+
+	/**
+	 * Renders the current activity, layer by layer when possible
+	 * 
+	 * @param alpha
+	 *            the interpolation factor between the last two steps
+	 */
+	private void renderActivity(double alpha) {
+		if (!(this.view instanceof LayeredCanvasView) || !(this.currentActivity instanceof LayeredCanvasActivity)) {
+			Canvas canvas = this.view.getCanvas();
+			SpriteRenderer renderer = this.webGLRenderers.get(canvas);
+			if (renderer == null) {
+				this.currentActivity.render(canvas.getContext2d(), alpha);
+			} else if (this.currentActivity instanceof SpriteLayerActivity) {
+				((SpriteLayerActivity) this.currentActivity).renderSprites(0, renderer, alpha);
+			}
+			return;
+		}
+		LayeredCanvasView layers = (LayeredCanvasView) this.view;
+		LayeredCanvasActivity activity = (LayeredCanvasActivity) this.currentActivity;
+		for (int i = 0; i < layers.getLayerCount(); i++) {
+			int cadence = this.getLayerCadence(i);
+			if (this.layersInvalid || (cadence > 0 && this.layerFrame % cadence == 0) || activity.isLayerDirty(i)) {
+				Canvas layer = layers.getLayer(i);
+				SpriteRenderer renderer = this.webGLRenderers.get(layer);
+				if (renderer == null) {
+					activity.renderLayer(i, layer.getContext2d(), alpha);
+				} else if (activity instanceof SpriteLayerActivity) {
+					((SpriteLayerActivity) activity).renderSprites(i, renderer, alpha);
+				}
+			}
+		}
+		this.layersInvalid = false;
+		this.layerFrame++;
+	}
+
+	/**
+	 * Gets the canvas on which the metrics overlay is drawn : the top layer
+	 * drawn in 2D when the view is a {@link LayeredCanvasView}, so that the
+	 * overlay is hidden by as few layers as possible
+	 * 
+	 * @return the canvas of the overlay, null if every canvas is drawn with
+	 *         WebGL
+	 */
+	private Canvas getOverlayCanvas() {
+		if (this.view instanceof LayeredCanvasView) {
+			LayeredCanvasView layers = (LayeredCanvasView) this.view;
+			for (int i = layers.getLayerCount() - 1; i >= 0; i--) {
+				Canvas layer = layers.getLayer(i);
+				if (!this.webGLRenderers.containsKey(layer)) {
+					return layer;
+				}
+			}
+			return null;
+		}
+		Canvas canvas = this.view.getCanvas();
+		return this.webGLRenderers.containsKey(canvas) ? null : canvas;
+	}
+
+	/**
+	 * Sets the cadence at which a layer of a {@link LayeredCanvasView} is
+	 * redrawn. By default, all layers are redrawn every frame.
+	 * 
+	 * @param layer
+	 *            the index of the layer, 0 being the bottom one
+	 * @param frames
+	 *            the number of frames between two redraws : 1 to redraw the
+	 *            layer every frame, 0 to redraw it only when the activity
+	 *            starts or marks it as dirty
+	 */
+	public void setLayerCadence(int layer, int frames) {
+		if (frames < 0) {
+			throw new IllegalArgumentException("frames must be positive");
+		}
+		this.layerCadences.put(Integer.valueOf(layer), Integer.valueOf(frames));
+	}
+
+	/**
+	 * Gets the cadence at which a layer is redrawn
+	 * 
+	 * @param layer
+	 *            the index of the layer
+	 * @return the number of frames between two redraws, 0 if the layer is
+	 *         redrawn only on demand
+	 */
+	public int getLayerCadence(int layer) {
+		Integer frames = this.layerCadences.get(Integer.valueOf(layer));
+		return frames == null ? 1 : frames.intValue();
+	}
+
+	/**
+	 * Forces all the layers to be redrawn on the next frame, for instance
+	 * after the view has been resized
+	 */
+	public void invalidateLayers() {
+		this.layersInvalid = true;
+	}
+
+	/**
+	 * Enables or disables WebGL for the sprite renderers created afterwards
+	 * 
+	 * @param webGL
+	 *            whether to draw the sprites with WebGL when available
+	 * @see #createSpriteRenderer(Canvas)
+	 */
+	public void setWebGLEnabled(boolean webGL) {
+		this.webGL = webGL;
+	}
+
+	/**
+	 * Checks whether sprite renderers use WebGL when available
+	 * 
+	 * @return true if WebGL is enabled
+	 */
+	public boolean isWebGLEnabled() {
+		return webGL;
+	}
+
+	/**
+	 * Creates the renderer drawing the sprites of a
+	 * {@link com.sfeir.canvas.activities.client.render.SpriteBatch} on a
+	 * canvas : a {@link WebGLSpriteRenderer} if WebGL is enabled and
+	 * available, a {@link Canvas2dSpriteRenderer} otherwise. A canvas drawn
+	 * with WebGL can't be drawn in 2D anymore, so with a
+	 * {@link LayeredCanvasView} the sprites are best given a layer of their
+	 * own. Such a canvas is no longer rendered in 2D : it is given to the
+	 * activities implementing {@link SpriteLayerActivity}, with its renderer.
+	 * 
+	 * @param canvas
+	 *            the canvas on which to draw the sprites
+	 * @return the renderer
+	 * @throws IllegalStateException
+	 *             if no resource manager has been set
+	 */
+	public SpriteRenderer createSpriteRenderer(Canvas canvas) {
+		if (this.resources == null) {
+			throw new IllegalStateException("No resource manager has been set");
+		}
+		if (this.webGL && WebGLSpriteRenderer.isSupported()) {
+			try {
+				SpriteRenderer renderer = new WebGLSpriteRenderer(canvas, this.resources);
+				this.setWebGLRenderer(canvas, renderer);
+				return renderer;
+			} catch (IllegalStateException e) {
+				// the canvas already has a 2D context, or WebGL failed
+			}
+		}
+		return new Canvas2dSpriteRenderer(canvas.getContext2d(), this.resources);
+	}
+
+	/**
+	 * Records that a canvas is drawn with WebGL, and has no 2D context
+	 * 
+	 * @param canvas
+	 *            the canvas
+	 * @param renderer
+	 *            the renderer drawing on the canvas
+	 */
+	void setWebGLRenderer(Canvas canvas, SpriteRenderer renderer) {
+		this.webGLRenderers.put(canvas, renderer);
+	}
+
+	/**
+	 * Asks the resource manager to load the groups of an activity
+	 * 
+	 * @param key
+	 *            the key of the activity
+	 */
+	private void loadGroups(String key) {
+		String[] groups = this.activityGroups.get(key);
+		if (this.resources == null || groups == null) {
+			return;
+		}
+		for (String group : groups) {
+			this.resources.loadGroup(group);
+		}
+	}
+
+	/**
+	 * Checks whether all the groups of an activity are loaded
+	 * 
+	 * @param key
+	 *            the key of the activity
+	 * @return true if the activity can be started
+	 */
+	private boolean areGroupsLoaded(String key) {
+		String[] groups = this.activityGroups.get(key);
+		if (this.resources == null || groups == null) {
+			return true;
+		}
+		for (String group : groups) {
+			if (!this.resources.isGroupLoaded(group)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Releases the groups of the previous activity that the next one doesn't
+	 * need, and the groups preloaded for activities the next one can't lead
+	 * to
+	 * 
+	 * @param previousKey
+	 *            the key of the previous activity
+	 * @param nextKey
+	 *            the key of the next activity
+	 */
+	private void releaseGroups(String previousKey, String nextKey) {
+		if (this.resources == null) {
+			this.preloadedGroups.clear();
+			return;
+		}
+		String[] kept = this.activityGroups.get(nextKey);
+		List<String> reachable = new ArrayList<String>();
+		if (this.preloading) {
+			for (String key : this.manager.getPossibleNextStates(nextKey)) {
+				String[] next = this.activityGroups.get(key);
+				if (next != null) {
+					for (String group : next) {
+						reachable.add(group);
+					}
+				}
+			}
+		}
+		for (Iterator<String> it = this.preloadedGroups.iterator(); it.hasNext();) {
+			String group = it.next();
+			if (contains(kept, group)) {
+				// now needed by the current activity
+				it.remove();
+			} else if (!reachable.contains(group)) {
+				if (!this.isHeldByHistory(group)) {
+					this.releaseGroup(group);
+				}
+				it.remove();
+			}
+		}
+		String[] groups = this.activityGroups.get(previousKey);
+		if (groups != null) {
+			for (String group : groups) {
+				if (contains(kept, group) || this.preloadedGroups.contains(group) || this.isHeldByHistory(group)) {
+					continue;
+				}
+				if (reachable.contains(group)) {
+					// the next activity can lead back, keep it warm
+					this.preloadedGroups.add(group);
+				} else {
+					this.releaseGroup(group);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Releases a resource group, and forgets that the activities using it are
+	 * prepared : they may have prepared with its resources
+	 * 
+	 * @param group
+	 *            the name of the group
+	 */
+	private void releaseGroup(String group) {
+		this.resources.releaseGroup(group);
+		for (Iterator<String> it = this.preparedKeys.iterator(); it.hasNext();) {
+			if (contains(this.activityGroups.get(it.next()), group)) {
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Stops an activity, which must then be prepared again before its next
+	 * start
+	 * 
+	 * @param key
+	 *            the key of the activity
+	 */
+	private void stopActivity(String key) {
+		this.activities.get(key).stop();
+		this.preparedKeys.remove(key);
+	}
+
+	/**
+	 * Marks the groups of the current activity as active in the
+	 * {@link ResourceManager}, so that they are never evicted, and the ones
+	 * of the previous activity it doesn't use as inactive
+	 * 
+	 * @param previousKey
+	 *            the key of the previous activity, may be null
+	 * @param nextKey
+	 *            the key of the current activity
+	 */
+	private void activateGroups(String previousKey, String nextKey) {
+		if (this.resources == null) {
+			return;
+		}
+		String[] next = this.activityGroups.get(nextKey);
+		String[] previous = this.activityGroups.get(previousKey);
+		if (previous != null) {
+			for (String group : previous) {
+				if (!contains(next, group)) {
+					this.resources.setGroupActive(group, false);
+				}
+			}
+		}
+		if (next != null) {
+			for (String group : next) {
+				this.resources.setGroupActive(group, true);
+			}
+		}
+	}
+
+	/**
+	 * Checks whether an array contains a value
+	 * 
+	 * @param array
+	 *            the array, may be null
+	 * @param value
+	 *            the value to look for
+	 * @return true if the value is in the array
+	 */
+	private static boolean contains(String[] array, String value) {
+		if (array != null) {
+			for (String item : array) {
+				if (item.equals(value)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Register an activity
+	 * 
+	 * @param key
+	 *            the key under which to register the activity
+	 * @param activity
+	 *            the activity to register
+	 */
+	public void registerActivity(String key, CanvasActivity activity) {
+		this.activities.put(key, activity);
+	}
+
+	/**
+	 * Register an activity, with the resource groups it needs
+	 * 
+	 * @param key
+	 *            the key under which to register the activity
+	 * @param activity
+	 *            the activity to register
+	 * @param groups
+	 *            the names of the {@link ResourceManager} groups to load
+	 *            before starting the activity, and to release after stopping
+	 *            it
+	 * @see #setResourceManager(ResourceManager)
+	 */
+	public void registerActivity(String key, CanvasActivity activity, String... groups) {
+		this.activities.put(key, activity);
+		this.activityGroups.put(key, groups);
+	}
+
+	/**
+	 * Sets the resource manager used to load and release the groups of the
+	 * activities. Without it, the groups given when registering the
+	 * activities are ignored.
+	 * 
+	 * @param resources
+	 *            the resource manager, firing its events on the same bus as
+	 *            this manager
+	 */
+	public void setResourceManager(ResourceManager resources) {
+		this.resources = resources;
+	}
+
+	/**
+	 * Sets the default activity
+	 * 
+	 * @param activity
+	 *            the activity to use as default
+	 */
+	public void setDefaultActivity(CanvasActivity activity) {
+		this.activities.put(DEFAULT_ACTIVITY, activity);
+	}
+
+	/**
+	 * Start this CanvasActivityManager, display the default activity once its
+	 * resource groups are loaded and start the game loop
+	 */
+	public void start() {
+		if (!GWT.isProdMode()) {
+			for (String problem : this.validateNavigation()) {
+				GWT.log("Navigation : " + problem);
+			}
+		}
+		this.bindCanvas();
+		this.currentEntry = new Page(this.currentActivityKey, null);
+		this.setPendingActivity(this.activities.get(this.currentActivityKey), null, false);
+		if (this.pendingActivity != null) {
+			this.loadGroups(this.currentActivityKey);
+			this.activateGroups(null, this.currentActivityKey);
+			this.startPendingActivity();
+		}
+		this.scheduler.start();
+	}
+
+	/**
+	 * Checks the rules of the navigation manager against the activities
+	 * registered. Done when starting in development mode.
+	 * 
+	 * @return the problems found, empty if there is none
+	 * @see CanvasNavigationManager#validate(String, java.util.Collection)
+	 */
+	public List<String> validateNavigation() {
+		return this.manager.validate(DEFAULT_ACTIVITY, this.activities.keySet());
+	}
+
+	/**
+	 * Stop the game loop. The current activity is not stopped, it just isn't
+	 * updated nor rendered anymore.
+	 */
+	public void stop() {
+		this.scheduler.stop();
+	}
+
+	/**
+	 * Enables or disables input buffering. When enabled, the mouse, keyboard
+	 * and touch input of the canvas is recorded, consecutive moves are
+	 * coalesced, and the whole batch is given to
+	 * {@link CanvasPresenter#onInput(InputBuffer)} once per frame, before the
+	 * updates. Focus and blur events are always dispatched immediately.
+	 * 
+	 * @param buffering
+	 *            whether to buffer the input or not
+	 */
+	public void setInputBuffering(boolean buffering) {
+		this.setInputBuffering(buffering, InputBuffer.DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Enables or disables input buffering
+	 * 
+	 * @see #setInputBuffering(boolean)
+	 * 
+	 * @param buffering
+	 *            whether to buffer the input or not
+	 * @param capacity
+	 *            the maximum number of records kept between two frames
+	 */
+	public void setInputBuffering(boolean buffering, int capacity) {
+		if (!buffering) {
+			this.inputBuffer = null;
+		} else if (this.inputBuffer == null || this.inputBuffer.getCapacity() != capacity) {
+			this.inputBuffer = new InputBuffer(capacity);
+		}
+	}
+
+	/**
+	 * Checks whether the input is buffered
+	 * 
+	 * @return true if the input is given to the activities once per frame
+	 */
+	public boolean isInputBuffering() {
+		return this.inputBuffer != null;
+	}
+
+	/**
+	 * Gives the input buffered since the last frame to the current activity
+	 */
+	private void flushInput() {
+		InputBuffer buffer = this.inputBuffer;
+		if (buffer == null || buffer.isEmpty()) {
+			return;
+		}
+		double start = 0;
+		if (this.metrics.isEnabled()) {
+			start = Duration.currentTimeMillis();
+		}
+		if (this.currentActivity != null) {
+			if (this.hitTesting) {
+				for (int i = 0, n = buffer.size(); i < n; i++) {
+					InputRecord record = buffer.get(i);
+					if (record.getType() == InputRecord.CLICK || record.getType() == InputRecord.MOUSE_MOVE) {
+						this.hitTest(record.getType(), record.getX(), record.getY());
+					}
+				}
+			}
+			this.currentActivity.onInput(buffer);
+		}
+		buffer.clear();
+		if (this.metrics.isEnabled()) {
+			this.inputTime.record(Duration.currentTimeMillis() - start);
+		}
+	}
+
+	/**
+	 * Enables or disables hit testing. When enabled, and the current activity
+	 * is a {@link HitTestActivity}, each click and mouse move is resolved to
+	 * the shapes of its index before the activity receives the event.
+	 * 
+	 * @param hitTesting
+	 *            whether to resolve the pointer to shapes
+	 */
+	public void setHitTesting(boolean hitTesting) {
+		this.hitTesting = hitTesting;
+	}
+
+	/**
+	 * Checks whether hit testing is enabled
+	 * 
+	 * @return true if the pointer is resolved to shapes
+	 */
+	public boolean isHitTesting() {
+		return hitTesting;
+	}
+
+	/**
+	 * Resolves the pointer to the shapes of the current activity, if hit
+	 * testing is enabled and the activity supports it
+	 * 
+	 * @param type
+	 *            the type of the event, {@link InputRecord#CLICK} or
+	 *            {@link InputRecord#MOUSE_MOVE}
+	 * @param x
+	 *            the x coordinate of the pointer on the canvas
+	 * @param y
+	 *            the y coordinate of the pointer on the canvas
+	 */
+	private void hitTest(int type, int x, int y) {
+		if (this.hitTesting && this.currentActivity instanceof HitTestActivity<?>) {
+			this.hitTest((HitTestActivity<?>) this.currentActivity, type, x, y);
+		}
+	}
+
+	/**
+	 * Resolves the pointer to the shapes of an activity
+	 * 
+	 * @param activity
+	 *            the activity
+	 * @param type
+	 *            the type of the event
+	 * @param x
+	 *            the x coordinate of the pointer on the canvas
+	 * @param y
+	 *            the y coordinate of the pointer on the canvas
+	 */
+	@SuppressWarnings("unchecked")
+	private <T> void hitTest(HitTestActivity<T> activity, int type, int x, int y) {
+		SpatialIndex<T> index = activity.getHitIndex();
+		if (index == null) {
+			return;
+		}
+		// the list only ever holds shapes of the activity being tested
+		List<T> shapes = (List<T>) (List<?>) this.hits;
+		try {
+			index.queryPoint(x, y, shapes);
+			if (type == InputRecord.MOUSE_MOVE) {
+				activity.onShapeHover(shapes, x, y);
+			} else if (!shapes.isEmpty()) {
+				activity.onShapeClick(shapes, x, y);
+			}
+		} finally {
+			shapes.clear();
+		}
+	}
+
+	/**
+	 * Gets the scheduler running the game loop, in order to configure it
+	 * 
+	 * @return the frame scheduler of this manager
+	 */
+	public FrameScheduler getFrameScheduler() {
+		return scheduler;
+	}
+
+	/**
+	 * Registers the input handlers on the canvas of the view. The handlers are
+	 * registered only once per canvas, and route the events to whichever
+	 * activity is current when they are fired. If the view now holds another
+	 * canvas, the handlers are removed from the previous one first.
+	 */
+	private void bindCanvas() {
+		Canvas canvas = this.view.getCanvas();
+		if (canvas == this.boundCanvas) {
+			return;
+		}
+		this.unbindCanvas();
+		if (canvas != null) {
+			this.setEvents(canvas);
+			this.boundCanvas = canvas;
+		}
+	}
+
+	/**
+	 * Removes the input handlers from the bound canvas, if any
+	 */
+	private void unbindCanvas() {
+		for (HandlerRegistration registration : this.registrations) {
+			registration.removeHandler();
+		}
+		this.registrations.clear();
+		this.boundCanvas = null;
+	}
+
+	/**
+	 * set events of the canvas, routing them to the current activity, or to
+	 * the input buffer if there is one
+	 * 
+	 * @param canvas
+	 *            the canvas on which to listen to the events
+	 */
+	private void setEvents(final Canvas canvas) {
+		final Element element = canvas.getElement();
+		this.registrations.add(canvas.addClickHandler(new ClickHandler() {
+			@Override
+			public void onClick(ClickEvent event) {
+				if (inputBuffer != null) {
+					inputBuffer.recordMouse(InputRecord.CLICK, event.getRelativeX(element),
+							event.getRelativeY(element), event.getNativeButton(), modifiers(event.getNativeEvent()));
+				} else if (currentActivity != null) {
+					hitTest(InputRecord.CLICK, event.getRelativeX(element), event.getRelativeY(element));
+					currentActivity.onClick(event);
+				}
+			}
+		}));
+		this.registrations.add(canvas.addFocusHandler(new FocusHandler() {
+
+			@Override
+			public void onFocus(FocusEvent event) {
+				if (currentActivity != null) {
+					currentActivity.onFocus(event);
+				}
+			}
+		}));
+		this.registrations.add(canvas.addBlurHandler(new BlurHandler() {
+			@Override
+			public void onBlur(BlurEvent event) {
+				if (currentActivity != null) {
+					currentActivity.onBlur(event);
+				}
+				canvas.setFocus(true);
+			}
+		}));
+		this.registrations.add(canvas.addKeyPressHandler(new KeyPressHandler() {
+			@Override
+			public void onKeyPress(KeyPressEvent event) {
+				if (inputBuffer != null) {
+					inputBuffer.recordKey(InputRecord.KEY_PRESS, 0, event.getCharCode(),
+							modifiers(event.getNativeEvent()));
+				} else if (currentActivity != null) {
+					currentActivity.onKeyPress(event);
+				}
+			}
+		}));
+		this.registrations.add(canvas.addKeyDownHandler(new KeyDownHandler() {
+			@Override
+			public void onKeyDown(KeyDownEvent event) {
+				if (inputBuffer != null) {
+					inputBuffer.recordKey(InputRecord.KEY_DOWN, event.getNativeKeyCode(), 0,
+							modifiers(event.getNativeEvent()));
+				} else if (currentActivity != null) {
+					currentActivity.onKeyDown(event);
+				}
+			}
+		}));
+
+		this.registrations.add(canvas.addMouseMoveHandler(new MouseMoveHandler() {
+			@Override
+			public void onMouseMove(MouseMoveEvent event) {
+				if (inputBuffer != null) {
+					inputBuffer.recordMouse(InputRecord.MOUSE_MOVE, event.getRelativeX(element),
+							event.getRelativeY(element), event.getNativeButton(), modifiers(event.getNativeEvent()));
+				} else if (currentActivity != null) {
+					hitTest(InputRecord.MOUSE_MOVE, event.getRelativeX(element), event.getRelativeY(element));
+					currentActivity.onMouseMove(event);
+				}
+			}
+		}));
+		this.registrations.add(canvas.addMouseDownHandler(new MouseDownHandler() {
+			@Override
+			public void onMouseDown(MouseDownEvent event) {
+				if (inputBuffer != null) {
+					inputBuffer.recordMouse(InputRecord.MOUSE_DOWN, event.getRelativeX(element),
+							event.getRelativeY(element), event.getNativeButton(), modifiers(event.getNativeEvent()));
+				} else if (currentActivity != null) {
+					currentActivity.onMouseDown(event);
+				}
+			}
+		}));
+		this.registrations.add(canvas.addMouseUpHandler(new MouseUpHandler() {
+			@Override
+			public void onMouseUp(MouseUpEvent event) {
+				if (inputBuffer != null) {
+					inputBuffer.recordMouse(InputRecord.MOUSE_UP, event.getRelativeX(element),
+							event.getRelativeY(element), event.getNativeButton(), modifiers(event.getNativeEvent()));
+				} else if (currentActivity != null) {
+					currentActivity.onMouseUp(event);
+				}
+			}
+		}));
+		this.registrations.add(canvas.addMouseWheelHandler(new MouseWheelHandler() {
+			@Override
+			public void onMouseWheel(MouseWheelEvent event) {
+				if (inputBuffer != null) {
+					inputBuffer.recordWheel(event.getRelativeX(element), event.getRelativeY(element),
+							event.getDeltaY(), modifiers(event.getNativeEvent()));
+				} else if (currentActivity != null) {
+					currentActivity.onMouseWheel(event);
+				}
+			}
+		}));
+
+		this.registrations.add(canvas.addTouchStartHandler(new TouchStartHandler() {
+			@Override
+			public void onTouchStart(TouchStartEvent event) {
+				if (inputBuffer != null) {
+					recordTouches(InputRecord.TOUCH_START, event.getChangedTouches(), element);
+				} else if (currentActivity != null) {
+					currentActivity.onTouchStart(event);
+				}
+			}
+		}));
+		this.registrations.add(canvas.addTouchMoveHandler(new TouchMoveHandler() {
+			@Override
+			public void onTouchMove(TouchMoveEvent event) {
+				if (inputBuffer != null) {
+					recordTouches(InputRecord.TOUCH_MOVE, event.getChangedTouches(), element);
+				} else if (currentActivity != null) {
+					currentActivity.onTouchMove(event);
+				}
+			}
+		}));
+		this.registrations.add(canvas.addTouchEndHandler(new TouchEndHandler() {
+			@Override
+			public void onTouchEnd(TouchEndEvent event) {
+				if (inputBuffer != null) {
+					recordTouches(InputRecord.TOUCH_END, event.getChangedTouches(), element);
+				} else if (currentActivity != null) {
+					currentActivity.onTouchEnd(event);
+				}
+			}
+		}));
+		this.registrations.add(canvas.addTouchCancelHandler(new TouchCancelHandler() {
+			@Override
+			public void onTouchCancel(TouchCancelEvent event) {
+				// a cancelled touch is an ended touch for the buffer
+				if (inputBuffer != null) {
+					recordTouches(InputRecord.TOUCH_END, event.getChangedTouches(), element);
+				} else if (currentActivity != null) {
+					currentActivity.onTouchCancel(event);
+				}
+			}
+		}));
+	}
+
+	/**
+	 * Records the touches of a touch event in the input buffer
+	 * 
+	 * @param type
+	 *            the type of the records
+	 * @param touches
+	 *            the touches that changed
+	 * @param element
+	 *            the element relative to which the positions are computed
+	 */
+	private void recordTouches(int type, JsArray<Touch> touches, Element element) {
+		for (int i = 0; i < touches.length(); i++) {
+			Touch touch = touches.get(i);
+			this.inputBuffer.recordTouch(type, touch.getIdentifier(), touch.getRelativeX(element),
+					touch.getRelativeY(element));
+		}
+	}
+
+	/**
+	 * Computes the modifiers of an event
+	 * 
+	 * @param event
+	 *            the native event
+	 * @return the modifiers, as flags of {@link InputRecord}
+	 */
+	private static int modifiers(NativeEvent event) {
+		int modifiers = 0;
+		if (event.getShiftKey()) {
+			modifiers |= InputRecord.SHIFT;
+		}
+		if (event.getCtrlKey()) {
+			modifiers |= InputRecord.CTRL;
+		}
+		if (event.getAltKey()) {
+			modifiers |= InputRecord.ALT;
+		}
+		if (event.getMetaKey()) {
+			modifiers |= InputRecord.META;
+		}
+		return modifiers;
+	}
+}
@@ -1,55 +1,264 @@
-/**
- * 
- */
-package com.sfeir.canvas.activities.client;
-
-import java.util.HashMap;
-import java.util.Map;
-/**
- * Navigation manager for canvas
- * 
- * @author François LAROCHE
- */
-public class CanvasNavigationManager {
-
-	/**
-	 * Map holding all the navigation cases
-	 */
-	private final Map<String, String> workflows;
-
-	/**
-	 * Default constructor
-	 */
-	public CanvasNavigationManager() {
-		this.workflows = new HashMap<String, String>();
-	}
-	
-	/**
-	 * Register a navigation rule
-	 * 
-	 * @param from the code of the "current" activity
-	 * @param action the action made from the activity
-	 * @param to the view to redirect to
-	 */
-	public void registerNavigation(String from, String action, String to) {
-		this.workflows.put(from + ":" + action, to);
-	}
-
-	/**
-	 * Computes the key of the next view.
-	 * <br>
-	 * If no view can be resolved, the default view is returned
-	 * 
-	 * @param origin the view that asked for a view change
-	 * @param request the request made by the view
-	 * @return the key for the next view
-	 */
-	public String computeNextState(String origin, String request) {
-		String result = this.workflows.get(origin + ":" + request);
-		if(result != null) {
-			return result;
-		}
-		// if no state could be resolved stay on origin
-		return origin;
-	}
-}
+/**
+ * 
+ */
+package com.sfeir.canvas.activities.client;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+/**
+ * Navigation manager for canvas
+ * <br>
+ * The rules are compiled into a table indexed by view and request, so that
+ * computing the next view only costs two map lookups and a few array reads.
+ * {@link #WILDCARD} matches any view or any request ; the most specific rule
+ * applies first.
+ * 
+ * @author François LAROCHE
+ */
+public class CanvasNavigationManager {
+
+	/**
+	 * View or request matching any other, in a navigation rule
+	 */
+	public static final String WILDCARD = "*";
+
+	/**
+	 * A navigation rule
+	 * 
+	 * @author François LAROCHE
+	 */
+	private static class Transition {
+		/**
+		 * the code of the view, or the wildcard
+		 */
+		private final String from;
+		/**
+		 * the request, or the wildcard
+		 */
+		private final String action;
+		/**
+		 * the view to redirect to
+		 */
+		private final String to;
+		/**
+		 * the condition of the rule, may be null
+		 */
+		private final NavigationGuard guard;
+
+		/**
+		 * Constructor initializing the rule
+		 * 
+		 * @param from the code of the view
+		 * @param action the request
+		 * @param to the view to redirect to
+		 * @param guard the condition of the rule, may be null
+		 */
+		public Transition(String from, String action, String to, NavigationGuard guard) {
+			this.from = from;
+			this.action = action;
+			this.to = to;
+			this.guard = guard;
+		}
+	}
+
+	/**
+	 * Map holding all the navigation cases, by view and request
+	 */
+	private final Map<String, Transition> workflows;
+	/**
+	 * the indexes of the views having rules, null until compiled
+	 */
+	private Map<String, Integer> states;
+	/**
+	 * the indexes of the requests having rules, null until compiled
+	 */
+	private Map<String, Integer> actions;
+	/**
+	 * the rules, by index of view then of request. The last row holds the
+	 * rules from any view, the last column the rules for any request.
+	 */
+	private Transition[][] table;
+
+	/**
+	 * Default constructor
+	 */
+	public CanvasNavigationManager() {
+		this.workflows = new LinkedHashMap<String, Transition>();
+	}
+	
+	/**
+	 * Register a navigation rule
+	 * 
+	 * @param from the code of the "current" activity, or {@link #WILDCARD}
+	 * @param action the action made from the activity, or {@link #WILDCARD}
+	 * @param to the view to redirect to
+	 */
+	public void registerNavigation(String from, String action, String to) {
+		this.registerNavigation(from, action, to, null);
+	}
+
+	/**
+	 * Register a navigation rule applying only when a condition is met
+	 * 
+	 * @param from the code of the "current" activity, or {@link #WILDCARD}
+	 * @param action the action made from the activity, or {@link #WILDCARD}
+	 * @param to the view to redirect to
+	 * @param guard the condition of the rule, null to always apply it
+	 */
+	public void registerNavigation(String from, String action, String to, NavigationGuard guard) {
+		this.workflows.put(from + ":" + action, new Transition(from, action, to, guard));
+		// compiled again on the next navigation
+		this.table = null;
+	}
+
+	/**
+	 * Computes the key of the next view.
+	 * <br>
+	 * The rules are tried from the most specific to the least : this view and
+	 * this request, this view and any request, any view and this request, any
+	 * view and any request. A rule whose guard refuses the navigation is
+	 * skipped. If no view can be resolved, the origin is returned.
+	 * 
+	 * @param origin the view that asked for a view change
+	 * @param request the request made by the view
+	 * @return the key for the next view
+	 */
+	public String computeNextState(String origin, String request) {
+		if (this.table == null) {
+			this.compile();
+		}
+		Transition[][] table = this.table;
+		Integer state = this.states.get(origin);
+		Integer action = this.actions.get(request);
+		int any = table.length - 1;
+		int anyAction = table[any].length - 1;
+		int s = state == null ? any : state.intValue();
+		int a = action == null ? anyAction : action.intValue();
+		Transition transition = accept(table[s][a], origin, request);
+		if (transition == null && a != anyAction) {
+			transition = accept(table[s][anyAction], origin, request);
+		}
+		if (transition == null && s != any) {
+			transition = accept(table[any][a], origin, request);
+			if (transition == null && a != anyAction) {
+				transition = accept(table[any][anyAction], origin, request);
+			}
+		}
+		if(transition != null) {
+			return transition.to;
+		}
+		// if no state could be resolved stay on origin
+		return origin;
+	}
+
+	/**
+	 * Gets the views that can be reached from a view, whatever the request
+	 * 
+	 * @param origin the view from which to navigate
+	 * @return the keys of the views reachable, without duplicates nor the origin itself
+	 */
+	public List<String> getPossibleNextStates(String origin) {
+		List<String> states = new ArrayList<String>();
+		for (Transition transition : this.workflows.values()) {
+			String state = transition.to;
+			if ((transition.from.equals(origin) || WILDCARD.equals(transition.from)) && !state.equals(origin)
+					&& !states.contains(state)) {
+				states.add(state);
+			}
+		}
+		return states;
+	}
+
+	/**
+	 * Checks the navigation rules against the views registered : reports the
+	 * rules leading to a view which isn't registered, and the views which
+	 * can't be reached from the initial one. Guards are considered as
+	 * possibly accepting.
+	 * 
+	 * @param initial the view displayed first
+	 * @param views the keys of the views registered
+	 * @return the problems found, empty if there is none
+	 */
+	public List<String> validate(String initial, Collection<String> views) {
+		List<String> problems = new ArrayList<String>();
+		for (Transition transition : this.workflows.values()) {
+			if (!views.contains(transition.to)) {
+				problems.add("Rule " + transition.from + ":" + transition.action + " leads to the unregistered view "
+						+ transition.to);
+			}
+			if (!WILDCARD.equals(transition.from) && !views.contains(transition.from)) {
+				problems.add("Rule " + transition.from + ":" + transition.action + " starts from the unregistered view "
+						+ transition.from);
+			}
+		}
+		List<String> reached = new ArrayList<String>();
+		reached.add(initial);
+		for (int i = 0; i < reached.size(); i++) {
+			for (String state : this.getPossibleNextStates(reached.get(i))) {
+				if (!reached.contains(state)) {
+					reached.add(state);
+				}
+			}
+		}
+		for (String view : views) {
+			if (!reached.contains(view)) {
+				problems.add("View " + view + " can't be reached from " + initial);
+			}
+		}
+		return problems;
+	}
+
+	/**
+	 * Builds the table of the rules
+	 */
+	private void compile() {
+		Map<String, Integer> states = new HashMap<String, Integer>();
+		Map<String, Integer> actions = new HashMap<String, Integer>();
+		for (Transition transition : this.workflows.values()) {
+			intern(states, transition.from);
+			intern(actions, transition.action);
+		}
+		Transition[][] table = new Transition[states.size() + 1][actions.size() + 1];
+		for (Transition transition : this.workflows.values()) {
+			Integer state = states.get(transition.from);
+			Integer action = actions.get(transition.action);
+			int s = state == null ? states.size() : state.intValue();
+			int a = action == null ? actions.size() : action.intValue();
+			table[s][a] = transition;
+		}
+		this.states = states;
+		this.actions = actions;
+		this.table = table;
+	}
+
+	/**
+	 * Gives an index to a view or a request, unless it is the wildcard
+	 * 
+	 * @param indexes the indexes given so far
+	 * @param key the view or request
+	 */
+	private static void intern(Map<String, Integer> indexes, String key) {
+		if (!WILDCARD.equals(key) && !indexes.containsKey(key)) {
+			indexes.put(key, Integer.valueOf(indexes.size()));
+		}
+	}
+
+	/**
+	 * Checks whether a rule applies
+	 * 
+	 * @param transition the rule, may be null
+	 * @param origin the view that asked for a view change
+	 * @param request the request made by the view
+	 * @return the rule if it applies, null otherwise
+	 */
+	private static Transition accept(Transition transition, String origin, String request) {
+		if (transition == null || (transition.guard != null && !transition.guard.canNavigate(origin, request))) {
+			return null;
+		}
+		return transition;
+	}
+}
@@ -1,61 +1,132 @@
-/**
- * 
- */
-package com.sfeir.canvas.activities.client;
-
-import com.google.gwt.event.dom.client.BlurEvent;
-import com.google.gwt.event.dom.client.ClickEvent;
-import com.google.gwt.event.dom.client.FocusEvent;
-import com.google.gwt.event.dom.client.KeyDownEvent;
-import com.google.gwt.event.dom.client.KeyPressEvent;
-import com.google.gwt.event.dom.client.MouseMoveEvent;
-
-/**
- * Activity presenter, holding the different handlers for events
- * 
- * @author François LAROCHE
- */
-public interface CanvasPresenter {
-
-	/**
-	 * Action called on clicks from the canvas
-	 * 
-	 * @param event the click event from the canvas
-	 */
-	public void onClick(ClickEvent event);
-
-	/**
-	 * Action called on the focus event
-	 * 
-	 * @param event the event generated from the canvas
-	 */
-	public void onFocus(FocusEvent event);
-
-	/**
-	 * Action called on the blur event
-	 * 
-	 * @param event the event generated from the canvas
-	 */
-	public void onBlur(BlurEvent event);
-
-	/**
-	 * Event called when a key is pressed
-	 * 
-	 * @param event the event generated from the canvas
-	 */
-	public void onKeyPress(KeyPressEvent event);
-
-	/**
-	 * Event called on the key down event
-	 * 
-	 * @param event the event generated from the canvas
-	 */
-	public void onKeyDown(KeyDownEvent event);
-
-	/**
-	 * Event called when the mouse is moved
-	 * 
-	 * @param event the event generated from the canvas
-	 */
-	public void onMouseMove(MouseMoveEvent event);
-}
+/**
+ * 
+ */
+package com.sfeir.canvas.activities.client;
+
+import com.google.gwt.event.dom.client.BlurEvent;
+import com.google.gwt.event.dom.client.ClickEvent;
+import com.google.gwt.event.dom.client.FocusEvent;
+import com.google.gwt.event.dom.client.KeyDownEvent;
+import com.google.gwt.event.dom.client.KeyPressEvent;
+import com.google.gwt.event.dom.client.MouseDownEvent;
+import com.google.gwt.event.dom.client.MouseMoveEvent;
+import com.google.gwt.event.dom.client.MouseUpEvent;
+import com.google.gwt.event.dom.client.MouseWheelEvent;
+import com.google.gwt.event.dom.client.TouchCancelEvent;
+import com.google.gwt.event.dom.client.TouchEndEvent;
+import com.google.gwt.event.dom.client.TouchMoveEvent;
+import com.google.gwt.event.dom.client.TouchStartEvent;
+import com.sfeir.canvas.activities.client.input.InputBuffer;
+
+/**
+ * Activity presenter, holding the different handlers for events<br>
+ * By default, the events are given to the presenter as soon as they are
+ * received. When the {@link CanvasActivityManager} buffers the input, they are
+ * instead recorded and given once per frame to
+ * {@link #onInput(InputBuffer)}, and the other handlers, apart from the focus
+ * and blur ones, aren't called.
+ * 
+ * @author François LAROCHE
+ */
+public interface CanvasPresenter {
+
+	/**
+	 * Action called on clicks from the canvas
+	 * 
+	 * @param event the click event from the canvas
+	 */
+	public void onClick(ClickEvent event);
+
+	/**
+	 * Action called on the focus event
+	 * 
+	 * @param event the event generated from the canvas
+	 */
+	public void onFocus(FocusEvent event);
+
+	/**
+	 * Action called on the blur event
+	 * 
+	 * @param event the event generated from the canvas
+	 */
+	public void onBlur(BlurEvent event);
+
+	/**
+	 * Event called when a key is pressed
+	 * 
+	 * @param event the event generated from the canvas
+	 */
+	public void onKeyPress(KeyPressEvent event);
+
+	/**
+	 * Event called on the key down event
+	 * 
+	 * @param event the event generated from the canvas
+	 */
+	public void onKeyDown(KeyDownEvent event);
+
+	/**
+	 * Event called when the mouse is moved
+	 * 
+	 * @param event the event generated from the canvas
+	 */
+	public void onMouseMove(MouseMoveEvent event);
+
+	/**
+	 * Event called when a mouse button is pressed
+	 * 
+	 * @param event the event generated from the canvas
+	 */
+	public void onMouseDown(MouseDownEvent event);
+
+	/**
+	 * Event called when a mouse button is released
+	 * 
+	 * @param event the event generated from the canvas
+	 */
+	public void onMouseUp(MouseUpEvent event);
+
+	/**
+	 * Event called when the mouse wheel is turned
+	 * 
+	 * @param event the event generated from the canvas
+	 */
+	public void onMouseWheel(MouseWheelEvent event);
+
+	/**
+	 * Event called when a touch starts
+	 * 
+	 * @param event the event generated from the canvas
+	 */
+	public void onTouchStart(TouchStartEvent event);
+
+	/**
+	 * Event called when a touch moves
+	 * 
+	 * @param event the event generated from the canvas
+	 */
+	public void onTouchMove(TouchMoveEvent event);
+
+	/**
+	 * Event called when a touch ends
+	 * 
+	 * @param event the event generated from the canvas
+	 */
+	public void onTouchEnd(TouchEndEvent event);
+
+	/**
+	 * Event called when a touch is cancelled by the browser
+	 * 
+	 * @param event the event generated from the canvas
+	 */
+	public void onTouchCancel(TouchCancelEvent event);
+
+	/**
+	 * Called once per frame, before the updates, with the input received
+	 * since the previous frame, when input buffering is enabled in the
+	 * {@link CanvasActivityManager}
+	 * 
+	 * @param input the input recorded, only valid during this call
+	 */
+	public void onInput(InputBuffer input);
+}
@@ -0,0 +1,301 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.activities.client;
+
+import com.google.gwt.animation.client.AnimationScheduler;
+import com.google.gwt.animation.client.AnimationScheduler.AnimationCallback;
+import com.google.gwt.animation.client.AnimationScheduler.AnimationHandle;
+import com.google.gwt.core.client.Duration;
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.dom.client.Element;
+
+/**
+ * Frame scheduler driving a fixed time step game loop.<br>
+ * Frames are requested through requestAnimationFrame (the
+ * {@link AnimationScheduler} falls back on a timer when the browser doesn't
+ * support it), the elapsed time is accumulated and consumed by steps of a
+ * fixed duration, and the scene is rendered once per frame with the
+ * interpolation factor between the last two steps.<br>
+ * The loop is paused while the page is hidden.
+ * 
+ * @author François LAROCHE
+ */
+public class FrameScheduler {
+
+	/**
+	 * Interface defining the objects called on each frame
+	 * 
+	 * @author François LAROCHE
+	 */
+	public static interface FrameHandler {
+		/**
+		 * Called once at the beginning of each frame, before the updates
+		 */
+		public void beginFrame();
+
+		/**
+		 * Called for each fixed step
+		 * 
+		 * @param dt
+		 *            the duration of the step, in milliseconds
+		 */
+		public void update(double dt);
+
+		/**
+		 * Called once per frame, after the updates
+		 * 
+		 * @param alpha
+		 *            the interpolation factor between the previous step and
+		 *            the current one, between 0 and 1
+		 */
+		public void render(double alpha);
+	}
+
+	/**
+	 * Default duration of a step : 60 updates per second
+	 */
+	public static final double DEFAULT_STEP = 1000d / 60d;
+	/**
+	 * Default maximum number of steps run in a single frame
+	 */
+	public static final int DEFAULT_MAX_STEPS = 5;
+
+	/**
+	 * the handler called on each frame
+	 */
+	private final FrameHandler handler;
+	/**
+	 * the element on which the animation is displayed, may be null
+	 */
+	private final Element element;
+	/**
+	 * the callback given to the animation scheduler
+	 */
+	private final AnimationCallback callback;
+	/**
+	 * the accounting of the fixed steps
+	 */
+	private final StepClock clock;
+	/**
+	 * the handle of the next requested frame, null if none is requested
+	 */
+	private AnimationHandle handle;
+	/**
+	 * whether the loop is running or not
+	 */
+	private boolean running;
+	/**
+	 * whether the page is currently hidden
+	 */
+	private boolean hidden;
+	/**
+	 * the listener of the visibility changes of the page, null while the loop
+	 * isn't running
+	 */
+	private JavaScriptObject visibilityListener;
+
+	/**
+	 * Constructor initializing the scheduler
+	 * 
+	 * @param handler
+	 *            the handler called on each frame
+	 * @param element
+	 *            the element on which the animation is displayed, used as a
+	 *            hint by the browser. Can be null.
+	 */
+	public FrameScheduler(FrameHandler handler, Element element) {
+		this.handler = handler;
+		this.element = element;
+		this.clock = new StepClock(DEFAULT_STEP, DEFAULT_MAX_STEPS);
+		this.callback = new AnimationCallback() {
+			@Override
+			public void execute(double timestamp) {
+				onFrame();
+			}
+		};
+	}
+
+	/**
+	 * Starts the loop, if it isn't already running
+	 */
+	public void start() {
+		if (this.running) {
+			return;
+		}
+		this.running = true;
+		this.hidden = isPageHidden();
+		this.visibilityListener = this.addVisibilityListener();
+		this.resetClock();
+		this.requestFrame();
+	}
+
+	/**
+	 * Stops the loop, and stops listening to the visibility of the page
+	 */
+	public void stop() {
+		this.running = false;
+		this.cancelFrame();
+		if (this.visibilityListener != null) {
+			removeVisibilityListener(this.visibilityListener);
+			this.visibilityListener = null;
+		}
+	}
+
+	/**
+	 * Returns whether the loop is running. A loop paused because the page is
+	 * hidden is still considered as running.
+	 * 
+	 * @return true if the loop is running
+	 */
+	public boolean isRunning() {
+		return running;
+	}
+
+	/**
+	 * Sets the duration of a fixed step
+	 * 
+	 * @param step
+	 *            the duration of a step, in milliseconds. Must be positive.
+	 */
+	public void setStep(double step) {
+		this.clock.setStep(step);
+	}
+
+	/**
+	 * Gets the duration of a fixed step
+	 * 
+	 * @return the duration of a step, in milliseconds
+	 */
+	public double getStep() {
+		return this.clock.getStep();
+	}
+
+	/**
+	 * Sets the maximum number of steps run in a single frame. When the loop
+	 * is late by more steps than that, the remaining time is dropped instead
+	 * of being caught up.
+	 * 
+	 * @param maxSteps
+	 *            the maximum number of steps per frame, at least 1
+	 */
+	public void setMaxSteps(int maxSteps) {
+		this.clock.setMaxSteps(maxSteps);
+	}
+
+	/**
+	 * Gets the maximum number of steps run in a single frame
+	 * 
+	 * @return the maximum number of steps per frame
+	 */
+	public int getMaxSteps() {
+		return this.clock.getMaxSteps();
+	}
+
+	/**
+	 * Runs a frame : consumes the elapsed time by fixed steps, then renders
+	 */
+	private void onFrame() {
+		this.handle = null;
+		if (!this.running || this.hidden) {
+			return;
+		}
+		int steps = this.clock.advance(Duration.currentTimeMillis());
+
+		this.handler.beginFrame();
+		double step = this.clock.getStep();
+		for (int i = 0; i < steps; i++) {
+			this.handler.update(step);
+		}
+		this.handler.render(this.clock.getAlpha());
+
+		this.requestFrame();
+	}
+
+	/**
+	 * Requests the next frame, if none is already requested
+	 */
+	private void requestFrame() {
+		if (this.handle == null && this.running && !this.hidden) {
+			this.handle = AnimationScheduler.get().requestAnimationFrame(this.callback, this.element);
+		}
+	}
+
+	/**
+	 * Cancels the frame requested, if any
+	 */
+	private void cancelFrame() {
+		if (this.handle != null) {
+			this.handle.cancel();
+			this.handle = null;
+		}
+	}
+
+	/**
+	 * Forget the time elapsed so far, so that the next frame doesn't try to
+	 * catch up
+	 */
+	private void resetClock() {
+		this.clock.reset();
+	}
+
+	/**
+	 * Called when the visibility of the page changes
+	 */
+	private void onVisibilityChange() {
+		this.hidden = isPageHidden();
+		if (this.hidden) {
+			this.cancelFrame();
+		} else {
+			this.resetClock();
+			this.requestFrame();
+		}
+	}
+
+	/**
+	 * Listen to the page visibility API, when supported
+	 * 
+	 * @return the listener added, to be given to
+	 *         {@link #removeVisibilityListener(JavaScriptObject)}
+	 */
+	private native JavaScriptObject addVisibilityListener() /*-{
+		var self = this;
+		var listener = $entry(function() {
+			self.@com.sfeir.canvas.activities.client.FrameScheduler::onVisibilityChange()();
+		});
+		var doc = $doc;
+		if (doc.addEventListener) {
+			doc.addEventListener("visibilitychange", listener, false);
+			doc.addEventListener("webkitvisibilitychange", listener, false);
+			doc.addEventListener("mozvisibilitychange", listener, false);
+			doc.addEventListener("msvisibilitychange", listener, false);
+		}
+		return listener;
+	}-*/;
+
+	/**
+	 * Stops listening to the page visibility API
+	 * 
+	 * @param listener
+	 *            the listener returned by {@link #addVisibilityListener()}
+	 */
+	private static native void removeVisibilityListener(JavaScriptObject listener) /*-{
+		var doc = $doc;
+		if (doc.removeEventListener) {
+			doc.removeEventListener("visibilitychange", listener, false);
+			doc.removeEventListener("webkitvisibilitychange", listener, false);
+			doc.removeEventListener("mozvisibilitychange", listener, false);
+			doc.removeEventListener("msvisibilitychange", listener, false);
+		}
+	}-*/;
+
+	/**
+	 * Checks whether the page is hidden, using the page visibility API
+	 * 
+	 * @return true if the page is known to be hidden
+	 */
+	private static native boolean isPageHidden() /*-{
+		var doc = $doc;
+		return !!(doc.hidden || doc.webkitHidden || doc.mozHidden || doc.msHidden);
+	}-*/;
+}
@@ -0,0 +1,61 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.activities.client;
+
+import java.util.List;
+
+import com.sfeir.canvas.util.client.spatial.SpatialIndex;
+
+/**
+ * Activity whose shapes are resolved from the pointer by the
+ * {@link CanvasActivityManager}.<br>
+ * The activity keeps its shapes in a {@link SpatialIndex}, updating them as
+ * they move. When {@link CanvasActivityManager#setHitTesting(boolean) hit
+ * testing} is enabled, the manager queries this index for each click and
+ * mouse move, and gives the shapes found to the activity before calling
+ * {@link #onClick(com.google.gwt.event.dom.client.ClickEvent)} and
+ * {@link #onMouseMove(com.google.gwt.event.dom.client.MouseMoveEvent)}, or
+ * {@link #onInput(com.sfeir.canvas.activities.client.input.InputBuffer)}
+ * when the input is buffered.
+ * 
+ * @author François LAROCHE
+ * 
+ * @param <T>
+ *            the type of the shapes
+ */
+public interface HitTestActivity<T> extends CanvasActivity {
+
+	/**
+	 * Gets the index of the shapes that can be hit
+	 * 
+	 * @return the index, in the coordinates of the canvas. May be null.
+	 */
+	public SpatialIndex<T> getHitIndex();
+
+	/**
+	 * Called when a click hits shapes
+	 * 
+	 * @param shapes
+	 *            the shapes under the pointer, never empty. The list is
+	 *            reused, and must not be kept.
+	 * @param x
+	 *            the x coordinate of the click on the canvas
+	 * @param y
+	 *            the y coordinate of the click on the canvas
+	 */
+	public void onShapeClick(List<T> shapes, int x, int y);
+
+	/**
+	 * Called when the mouse moves over the canvas
+	 * 
+	 * @param shapes
+	 *            the shapes under the pointer, empty if there is none. The
+	 *            list is reused, and must not be kept.
+	 * @param x
+	 *            the x coordinate of the pointer on the canvas
+	 * @param y
+	 *            the y coordinate of the pointer on the canvas
+	 */
+	public void onShapeHover(List<T> shapes, int x, int y);
+}
@@ -0,0 +1,45 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.activities.client;
+
+import com.google.gwt.canvas.dom.client.Context2d;
+
+/**
+ * Activity drawing on the layers of a {@link LayeredCanvasView}.<br>
+ * When the view has layers, the {@link CanvasActivityManager} calls
+ * {@link #renderLayer(int, Context2d, double)} instead of
+ * {@link #render(Context2d, double)}, only for the layers that need to be
+ * redrawn : all of them when the activity starts, the ones whose
+ * {@link CanvasActivityManager#setLayerCadence(int, int) cadence} is reached,
+ * and the ones the activity {@link #isLayerDirty(int) marks as dirty}.
+ * Layers not redrawn keep their content, so a static background is drawn
+ * only once.
+ * 
+ * @author François LAROCHE
+ */
+public interface LayeredCanvasActivity extends CanvasActivity {
+
+	/**
+	 * Checks whether a layer must be redrawn on this frame, whatever its
+	 * cadence
+	 * 
+	 * @param layer
+	 *            the index of the layer
+	 * @return true if the layer has changed
+	 */
+	public boolean isLayerDirty(int layer);
+
+	/**
+	 * Renders a layer. The layer is not cleared before.
+	 * 
+	 * @param layer
+	 *            the index of the layer, 0 being the bottom one
+	 * @param ctx
+	 *            the context of the layer
+	 * @param alpha
+	 *            the interpolation factor between the previous state and the
+	 *            current one, between 0 and 1
+	 */
+	public void renderLayer(int layer, Context2d ctx, double alpha);
+}
@@ -0,0 +1,84 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.activities.client;
+
+import com.google.gwt.canvas.client.Canvas;
+import com.google.gwt.dom.client.Style.Position;
+import com.google.gwt.dom.client.Style.Unit;
+import com.google.gwt.user.client.ui.FlowPanel;
+import com.google.gwt.user.client.ui.Widget;
+
+/**
+ * Default {@link LayeredCanvasView} : canvases of the same size, positioned
+ * on top of each other in a panel.
+ * 
+ * @author François LAROCHE
+ */
+public class LayeredCanvasPanel implements LayeredCanvasView {
+
+	/**
+	 * the panel holding the layers
+	 */
+	private final FlowPanel panel;
+	/**
+	 * the layers, from the bottom one to the top one
+	 */
+	private final Canvas[] layers;
+
+	/**
+	 * Constructor creating the layers
+	 * 
+	 * @param width
+	 *            the width of the layers, in pixels
+	 * @param height
+	 *            the height of the layers, in pixels
+	 * @param layerCount
+	 *            the number of layers, at least 1
+	 * @throws IllegalStateException
+	 *             if the browser doesn't support canvas
+	 */
+	public LayeredCanvasPanel(int width, int height, int layerCount) {
+		if (layerCount < 1) {
+			throw new IllegalArgumentException("layerCount must be at least 1");
+		}
+		this.panel = new FlowPanel();
+		this.panel.getElement().getStyle().setPosition(Position.RELATIVE);
+		this.panel.setPixelSize(width, height);
+		this.layers = new Canvas[layerCount];
+		for (int i = 0; i < layerCount; i++) {
+			Canvas canvas = Canvas.createIfSupported();
+			if (canvas == null) {
+				throw new IllegalStateException("Canvas is not supported by this browser");
+			}
+			canvas.setCoordinateSpaceWidth(width);
+			canvas.setCoordinateSpaceHeight(height);
+			canvas.setPixelSize(width, height);
+			canvas.getElement().getStyle().setPosition(Position.ABSOLUTE);
+			canvas.getElement().getStyle().setLeft(0, Unit.PX);
+			canvas.getElement().getStyle().setTop(0, Unit.PX);
+			this.layers[i] = canvas;
+			this.panel.add(canvas);
+		}
+	}
+
+	@Override
+	public Widget asWidget() {
+		return this.panel;
+	}
+
+	@Override
+	public Canvas getCanvas() {
+		return this.layers[this.layers.length - 1];
+	}
+
+	@Override
+	public int getLayerCount() {
+		return this.layers.length;
+	}
+
+	@Override
+	public Canvas getLayer(int index) {
+		return this.layers[index];
+	}
+}
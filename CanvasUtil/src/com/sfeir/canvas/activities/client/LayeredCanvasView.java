@@ -0,0 +1,32 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.activities.client;
+
+import com.google.gwt.canvas.client.Canvas;
+
+/**
+ * View made of several canvases stacked on each other, the layers. Layer 0 is
+ * the bottom one. {@link #getCanvas()} gives the top layer, which receives the
+ * input for the whole view.
+ * 
+ * @author François LAROCHE
+ */
+public interface LayeredCanvasView extends CanvasView {
+
+	/**
+	 * Gets the number of layers
+	 * 
+	 * @return the number of layers, at least 1
+	 */
+	public int getLayerCount();
+
+	/**
+	 * Gets a layer
+	 * 
+	 * @param index
+	 *            the index of the layer, 0 being the bottom one
+	 * @return the canvas of the layer
+	 */
+	public Canvas getLayer(int index);
+}
@@ -0,0 +1,24 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.activities.client;
+
+/**
+ * Condition of a navigation rule, checked each time the rule applies
+ * 
+ * @author François LAROCHE
+ */
+public interface NavigationGuard {
+
+	/**
+	 * Checks whether the navigation is allowed. When it isn't, the less
+	 * specific rules are tried, and if none applies the view doesn't change.
+	 * 
+	 * @param origin
+	 *            the view that asked for a view change
+	 * @param request
+	 *            the request made by the view
+	 * @return true to navigate to the view of the rule
+	 */
+	public boolean canNavigate(String origin, String request);
+}
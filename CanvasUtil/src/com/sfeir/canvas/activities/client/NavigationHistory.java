@@ -0,0 +1,262 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.activities.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.sfeir.canvas.activities.client.event.PageChangeEvent;
+
+/**
+ * Bounded history of the pages left, walked by the navigation requests.<br>
+ * {@link PageChangeEvent#BACK} and {@link PageChangeEvent#FORWARD} move in
+ * the history when there is a page to move to ; the other requests follow
+ * the rules of the {@link CanvasNavigationManager}, and clear the pages
+ * ahead. The history only holds keys and contexts : what the pages mean to
+ * the activities is left to the {@link CanvasActivityManager}, notified of
+ * the pages dropped.
+ * 
+ * @author François LAROCHE
+ */
+public class NavigationHistory {
+
+	/**
+	 * Handler notified when a page drops out of the history
+	 * 
+	 * @author François LAROCHE
+	 */
+	public static interface EvictionHandler {
+		/**
+		 * Called when a page is dropped
+		 * 
+		 * @param page
+		 *            the page dropped
+		 */
+		public void onEvict(Page page);
+	}
+
+	/**
+	 * A page of the history
+	 * 
+	 * @author François LAROCHE
+	 */
+	public static class Page {
+		/**
+		 * the key of the activity
+		 */
+		private final String key;
+		/**
+		 * the context the activity was initialized with
+		 */
+		private final Map<String, Object> context;
+		/**
+		 * whether the activity is suspended, rather than stopped
+		 */
+		private boolean suspended;
+
+		/**
+		 * Constructor initializing the page
+		 * 
+		 * @param key
+		 *            the key of the activity
+		 * @param context
+		 *            the context the activity is initialized with
+		 */
+		public Page(String key, Map<String, Object> context) {
+			this.key = key;
+			this.context = context;
+		}
+
+		public String getKey() {
+			return key;
+		}
+
+		public Map<String, Object> getContext() {
+			return context;
+		}
+
+		public boolean isSuspended() {
+			return suspended;
+		}
+
+		public void setSuspended(boolean suspended) {
+			this.suspended = suspended;
+		}
+	}
+
+	/**
+	 * the navigation rules
+	 */
+	private final CanvasNavigationManager navigation;
+	/**
+	 * the handler notified of the pages dropped
+	 */
+	private final EvictionHandler handler;
+	/**
+	 * the pages left, from the oldest to the latest
+	 */
+	private final List<Page> back;
+	/**
+	 * the pages left by going back, from the furthest to the closest
+	 */
+	private final List<Page> forward;
+	/**
+	 * the maximum number of pages kept, 0 to disable the history
+	 */
+	private int size;
+
+	/**
+	 * Constructor initializing a disabled history
+	 * 
+	 * @param navigation
+	 *            the navigation rules
+	 * @param handler
+	 *            the handler notified of the pages dropped
+	 */
+	public NavigationHistory(CanvasNavigationManager navigation, EvictionHandler handler) {
+		this.navigation = navigation;
+		this.handler = handler;
+		this.back = new ArrayList<Page>();
+		this.forward = new ArrayList<Page>();
+	}
+
+	/**
+	 * Walks the history through a series of requests. The pages crossed on
+	 * the way are never displayed : they are not recorded, so that going back
+	 * leads to the page displayed before the requests.
+	 * 
+	 * @param origin
+	 *            the page displayed
+	 * @param requests
+	 *            the requests made, in order
+	 * @param context
+	 *            the context of the new pages
+	 * @return the page to display, the origin itself if the requests lead
+	 *         back to it
+	 */
+	public Page navigate(Page origin, List<String> requests, Map<String, Object> context) {
+		boolean recording = this.size > 0;
+		Page page = origin;
+		// whether the page has been displayed, which the new pages crossed
+		// by the requests are not
+		boolean displayed = true;
+		for (int i = 0, n = requests.size(); i < n; i++) {
+			String request = requests.get(i);
+			if (recording && PageChangeEvent.BACK.equals(request) && !this.back.isEmpty()) {
+				if (displayed) {
+					this.forward.add(page);
+				}
+				page = this.back.remove(this.back.size() - 1);
+				displayed = true;
+			} else if (recording && PageChangeEvent.FORWARD.equals(request) && !this.forward.isEmpty()) {
+				if (displayed) {
+					this.back.add(page);
+				}
+				page = this.forward.remove(this.forward.size() - 1);
+				displayed = true;
+			} else {
+				String key = this.navigation.computeNextState(page.key, request);
+				if (!key.equals(page.key)) {
+					if (recording && displayed) {
+						this.back.add(page);
+					}
+					while (recording && !this.forward.isEmpty()) {
+						this.handler.onEvict(this.forward.remove(this.forward.size() - 1));
+					}
+					displayed = false;
+				}
+				page = new Page(key, context);
+			}
+		}
+		return page;
+	}
+
+	/**
+	 * Drops the oldest pages beyond the limit
+	 */
+	public void trim() {
+		while (this.back.size() > this.size) {
+			this.handler.onEvict(this.back.remove(0));
+		}
+		if (this.size == 0) {
+			while (!this.forward.isEmpty()) {
+				this.handler.onEvict(this.forward.remove(this.forward.size() - 1));
+			}
+		}
+	}
+
+	/**
+	 * Sets the maximum number of pages kept, dropping the pages beyond
+	 * 
+	 * @param size
+	 *            the maximum number of pages, 0 to disable the history
+	 */
+	public void setSize(int size) {
+		if (size < 0) {
+			throw new IllegalArgumentException("size can't be negative");
+		}
+		this.size = size;
+		this.trim();
+	}
+
+	/**
+	 * Gets the maximum number of pages kept
+	 * 
+	 * @return the maximum number of pages, 0 if the history is disabled
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Checks whether there is a page to go back to
+	 * 
+	 * @return true if {@link PageChangeEvent#BACK} moves in the history
+	 */
+	public boolean canGoBack() {
+		return this.size > 0 && !this.back.isEmpty();
+	}
+
+	/**
+	 * Checks whether there is a page to go forward to
+	 * 
+	 * @return true if {@link PageChangeEvent#FORWARD} moves in the history
+	 */
+	public boolean canGoForward() {
+		return this.size > 0 && !this.forward.isEmpty();
+	}
+
+	/**
+	 * Gets the number of pages in the history, behind and ahead
+	 * 
+	 * @return the number of pages
+	 */
+	public int getPageCount() {
+		return this.back.size() + this.forward.size();
+	}
+
+	/**
+	 * Gets a page of the history
+	 * 
+	 * @param index
+	 *            the index of the page, the pages behind coming first
+	 * @return the page
+	 */
+	public Page getPage(int index) {
+		int behind = this.back.size();
+		return index < behind ? this.back.get(index) : this.forward.get(index - behind);
+	}
+
+	/**
+	 * Checks whether a page is in the history
+	 * 
+	 * @param page
+	 *            the page
+	 * @return true if the page is behind or ahead
+	 */
+	public boolean contains(Page page) {
+		return this.back.contains(page) || this.forward.contains(page);
+	}
+}
@@ -0,0 +1,26 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.activities.client;
+
+/**
+ * Activity with heavy work that doesn't depend on the context given by the
+ * previous activity, done ahead of time.<br>
+ * When {@link CanvasActivityManager#setPreloading(boolean) preloading} is
+ * enabled, the {@link CanvasActivityManager} prepares the activities the
+ * current one can lead to while the browser is idle, so that
+ * {@link #init(java.util.Map)} and
+ * {@link #start(com.google.gwt.canvas.client.Canvas, com.google.web.bindery.event.shared.EventBus)}
+ * are quick when the page changes. An activity which hasn't been prepared is
+ * prepared right before its initialization.
+ * 
+ * @author François LAROCHE
+ */
+public interface PreparableActivity extends CanvasActivity {
+
+	/**
+	 * Prepares the activity. Called once before each start, possibly long
+	 * before it, and without knowing whether the activity will be started.
+	 */
+	public void prepare();
+}
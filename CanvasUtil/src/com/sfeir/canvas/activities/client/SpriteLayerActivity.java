@@ -0,0 +1,37 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.activities.client;
+
+import com.google.gwt.canvas.dom.client.Context2d;
+import com.sfeir.canvas.activities.client.render.SpriteRenderer;
+
+/**
+ * Activity drawing canvases with WebGL.<br>
+ * A canvas given to a WebGL {@link SpriteRenderer} by
+ * {@link CanvasActivityManager#createSpriteRenderer(com.google.gwt.canvas.client.Canvas)}
+ * has no 2D context : instead of {@link #render(Context2d, double)} or
+ * {@link #renderLayer(int, Context2d, double)}, the manager calls
+ * {@link #renderSprites(int, SpriteRenderer, double)} with the renderer of
+ * the canvas. An activity not implementing this interface isn't asked to
+ * render such a canvas.
+ * 
+ * @author François LAROCHE
+ */
+public interface SpriteLayerActivity extends LayeredCanvasActivity {
+
+	/**
+	 * Renders a canvas drawn with WebGL, at the same moments as the layers
+	 * drawn in 2D
+	 * 
+	 * @param layer
+	 *            the index of the layer, 0 being the bottom one, and 0 when
+	 *            the view has no layers
+	 * @param renderer
+	 *            the renderer drawing on the canvas
+	 * @param alpha
+	 *            the interpolation factor between the previous state and the
+	 *            current one, between 0 and 1
+	 */
+	public void renderSprites(int layer, SpriteRenderer renderer, double alpha);
+}
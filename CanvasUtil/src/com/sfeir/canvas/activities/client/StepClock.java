@@ -0,0 +1,136 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.activities.client;
+
+/**
+ * Fixed time step accounting of the game loop, independent of the browser :
+ * the time elapsed between frames is accumulated and consumed by steps of a
+ * fixed duration, the remaining fraction of a step giving the interpolation
+ * factor of the rendering.
+ * 
+ * @author François LAROCHE
+ * @see FrameScheduler
+ */
+public class StepClock {
+
+	/**
+	 * the duration of a step, in milliseconds
+	 */
+	private double step;
+	/**
+	 * the maximum number of steps to run in a single frame
+	 */
+	private int maxSteps;
+	/**
+	 * the time not consumed yet by steps
+	 */
+	private double accumulator;
+	/**
+	 * the time of the last frame, negative if no frame was run since the
+	 * clock has been reset
+	 */
+	private double lastTime;
+
+	/**
+	 * Constructor initializing the clock
+	 * 
+	 * @param step
+	 *            the duration of a step, in milliseconds
+	 * @param maxSteps
+	 *            the maximum number of steps to run in a single frame
+	 */
+	public StepClock(double step, int maxSteps) {
+		this.setStep(step);
+		this.setMaxSteps(maxSteps);
+		this.lastTime = -1;
+	}
+
+	/**
+	 * Accounts for a new frame
+	 * 
+	 * @param now
+	 *            the time of the frame, in milliseconds
+	 * @return the number of steps to run in this frame. When the loop is late
+	 *         by more steps than the maximum, the remaining time is dropped
+	 *         instead of being caught up.
+	 */
+	public int advance(double now) {
+		if (this.lastTime >= 0) {
+			this.accumulator += now - this.lastTime;
+		}
+		this.lastTime = now;
+		int steps = 0;
+		while (this.accumulator >= this.step && steps < this.maxSteps) {
+			this.accumulator -= this.step;
+			steps++;
+		}
+		if (this.accumulator >= this.step) {
+			// too late to catch up, drop the remaining time
+			this.accumulator = this.accumulator % this.step;
+		}
+		return steps;
+	}
+
+	/**
+	 * Gets the interpolation factor between the last two steps
+	 * 
+	 * @return the fraction of a step not consumed yet, between 0 and 1
+	 */
+	public double getAlpha() {
+		return this.accumulator / this.step;
+	}
+
+	/**
+	 * Forget the time elapsed so far, so that the next frame doesn't try to
+	 * catch up
+	 */
+	public void reset() {
+		this.accumulator = 0;
+		this.lastTime = -1;
+	}
+
+	/**
+	 * Sets the duration of a fixed step
+	 * 
+	 * @param step
+	 *            the duration of a step, in milliseconds. Must be positive.
+	 */
+	public void setStep(double step) {
+		if (step <= 0) {
+			throw new IllegalArgumentException("step must be positive");
+		}
+		this.step = step;
+	}
+
+	/**
+	 * Gets the duration of a fixed step
+	 * 
+	 * @return the duration of a step, in milliseconds
+	 */
+	public double getStep() {
+		return step;
+	}
+
+	/**
+	 * Sets the maximum number of steps run in a single frame
+	 * 
+	 * @param maxSteps
+	 *            the maximum number of steps per frame, at least 1
+	 */
+	public void setMaxSteps(int maxSteps) {
+		if (maxSteps < 1) {
+			throw new IllegalArgumentException("maxSteps must be at least 1");
+		}
+		this.maxSteps = maxSteps;
+	}
+
+	/**
+	 * Gets the maximum number of steps run in a single frame
+	 * 
+	 * @return the maximum number of steps per frame
+	 */
+	public int getMaxSteps() {
+		return maxSteps;
+	}
+}
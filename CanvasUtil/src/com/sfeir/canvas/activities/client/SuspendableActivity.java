@@ -0,0 +1,39 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.activities.client;
+
+import com.google.gwt.canvas.client.Canvas;
+import com.google.web.bindery.event.shared.EventBus;
+
+/**
+ * Activity kept alive in the navigation history of the
+ * {@link CanvasActivityManager}.<br>
+ * When the {@link CanvasActivityManager#setHistorySize(int) history} is
+ * enabled, leaving this activity suspends it instead of stopping it, so that
+ * navigating {@link com.sfeir.canvas.activities.client.event.PageChangeEvent#BACK
+ * back} to it resumes it as it was, without calling
+ * {@link #init(java.util.Map)} and {@link #start(Canvas, EventBus)} again.
+ * It is stopped when it drops out of the history.
+ * 
+ * @author François LAROCHE
+ */
+public interface SuspendableActivity extends CanvasActivity {
+
+	/**
+	 * Called when the activity is left but kept in the history. It isn't
+	 * updated nor rendered until resumed, and should release what it doesn't
+	 * need meanwhile.
+	 */
+	public void suspend();
+
+	/**
+	 * Called when the activity is displayed again
+	 * 
+	 * @param canvas
+	 *            the canvas on which to write
+	 * @param bus
+	 *            the bus on which to send or receive events
+	 */
+	public void resume(Canvas canvas, EventBus bus);
+}
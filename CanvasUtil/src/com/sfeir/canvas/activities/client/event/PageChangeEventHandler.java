@@ -1,16 +1,16 @@
-/**
- * 
- */
-package com.sfeir.canvas.activities.client.event;
-
-import com.google.gwt.event.shared.EventHandler;
-
-/**
- * @author François LAROCHE
- *
- */
-public interface PageChangeEventHandler extends EventHandler {
-
-	public void handlePageChange(PageChangeEvent event);
-
-}
+/**
+ * 
+ */
+package com.sfeir.canvas.activities.client.event;
+
+import com.google.gwt.event.shared.EventHandler;
+
+/**
+ * @author François LAROCHE
+ *
+ */
+public interface PageChangeEventHandler extends EventHandler {
+
+	public void handlePageChange(PageChangeEvent event);
+
+}
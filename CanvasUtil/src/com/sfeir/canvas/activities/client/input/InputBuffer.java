@@ -0,0 +1,271 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.activities.client.input;
+
+/**
+ * Ring buffer recording the input received between two frames.<br>
+ * All the records are allocated once, when the buffer is created, and are
+ * reused afterwards. Consecutive mouse moves, and the moves of a touch
+ * between its other inputs, are coalesced into a single record holding the
+ * last position.
+ * When the buffer is full, the oldest records are dropped.
+ * 
+ * @author François LAROCHE
+ */
+public class InputBuffer {
+
+	/**
+	 * Default number of records of a buffer
+	 */
+	public static final int DEFAULT_CAPACITY = 128;
+
+	/**
+	 * the records, used as a ring
+	 */
+	private final InputRecord[] records;
+	/**
+	 * index of the oldest record
+	 */
+	private int head;
+	/**
+	 * number of records currently held
+	 */
+	private int size;
+	/**
+	 * number of records dropped because the buffer was full
+	 */
+	private int dropped;
+
+	/**
+	 * Constructor creating a buffer with the default capacity
+	 */
+	public InputBuffer() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructor allocating all the records of the buffer
+	 * 
+	 * @param capacity
+	 *            the maximum number of records held between two frames
+	 */
+	public InputBuffer(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("capacity must be at least 1");
+		}
+		this.records = new InputRecord[capacity];
+		for (int i = 0; i < capacity; i++) {
+			this.records[i] = new InputRecord();
+		}
+	}
+
+	/**
+	 * Records a mouse input : click, move, button down or up. Consecutive
+	 * moves are coalesced.
+	 * 
+	 * @param type
+	 *            the type of the input
+	 * @param x
+	 *            the x coordinate relative to the canvas
+	 * @param y
+	 *            the y coordinate relative to the canvas
+	 * @param button
+	 *            the button concerned
+	 * @param modifiers
+	 *            the modifiers pressed
+	 */
+	public void recordMouse(int type, int x, int y, int button, int modifiers) {
+		InputRecord record = null;
+		if (type == InputRecord.MOUSE_MOVE) {
+			record = this.last(InputRecord.MOUSE_MOVE);
+		}
+		if (record == null) {
+			record = this.next(type);
+		}
+		record.x = x;
+		record.y = y;
+		record.button = button;
+		record.modifiers = modifiers;
+	}
+
+	/**
+	 * Records a mouse wheel input
+	 * 
+	 * @param x
+	 *            the x coordinate relative to the canvas
+	 * @param y
+	 *            the y coordinate relative to the canvas
+	 * @param delta
+	 *            the vertical delta of the wheel
+	 * @param modifiers
+	 *            the modifiers pressed
+	 */
+	public void recordWheel(int x, int y, int delta, int modifiers) {
+		InputRecord record = this.next(InputRecord.MOUSE_WHEEL);
+		record.x = x;
+		record.y = y;
+		record.delta = delta;
+		record.modifiers = modifiers;
+	}
+
+	/**
+	 * Records a keyboard input
+	 * 
+	 * @param type
+	 *            the type of the input
+	 * @param keyCode
+	 *            the code of the key, for key down
+	 * @param charCode
+	 *            the character typed, for key press
+	 * @param modifiers
+	 *            the modifiers pressed
+	 */
+	public void recordKey(int type, int keyCode, int charCode, int modifiers) {
+		InputRecord record = this.next(type);
+		record.keyCode = keyCode;
+		record.charCode = charCode;
+		record.modifiers = modifiers;
+	}
+
+	/**
+	 * Records a touch input. A move is coalesced with the latest move of the
+	 * same touch, as long as no other input of this touch came in between,
+	 * even if other touches moved meanwhile.
+	 * 
+	 * @param type
+	 *            the type of the input
+	 * @param touchId
+	 *            the identifier of the touch
+	 * @param x
+	 *            the x coordinate relative to the canvas
+	 * @param y
+	 *            the y coordinate relative to the canvas
+	 */
+	public void recordTouch(int type, int touchId, int x, int y) {
+		InputRecord record = null;
+		if (type == InputRecord.TOUCH_MOVE) {
+			record = this.lastTouch(touchId);
+			if (record != null && record.type != InputRecord.TOUCH_MOVE) {
+				record = null;
+			}
+		}
+		if (record == null) {
+			record = this.next(type);
+		}
+		record.touchId = touchId;
+		record.x = x;
+		record.y = y;
+	}
+
+	/**
+	 * Gets the number of records held
+	 * 
+	 * @return the number of records
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Checks whether the buffer holds any record
+	 * 
+	 * @return true if there is no record
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Gets a record, in the order the input was received
+	 * 
+	 * @param index
+	 *            the index of the record, between 0 and {@link #size()}
+	 * @return the record
+	 */
+	public InputRecord get(int index) {
+		if (index < 0 || index >= this.size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+		}
+		return this.records[(this.head + index) % this.records.length];
+	}
+
+	/**
+	 * Removes all the records. The records themselves are kept for reuse.
+	 */
+	public void clear() {
+		this.head = 0;
+		this.size = 0;
+	}
+
+	/**
+	 * Gets the number of records that could be held
+	 * 
+	 * @return the capacity of the buffer
+	 */
+	public int getCapacity() {
+		return records.length;
+	}
+
+	/**
+	 * Gets the number of records dropped because the buffer was full, since
+	 * the creation of the buffer
+	 * 
+	 * @return the number of records dropped
+	 */
+	public int getDropped() {
+		return dropped;
+	}
+
+	/**
+	 * Gets the last record if it is of the given type
+	 * 
+	 * @param type
+	 *            the type wanted
+	 * @return the last record, or null if there is none or of another type
+	 */
+	private InputRecord last(int type) {
+		if (this.size == 0) {
+			return null;
+		}
+		InputRecord record = this.records[(this.head + this.size - 1) % this.records.length];
+		return record.type == type ? record : null;
+	}
+
+	/**
+	 * Gets the latest record of a touch
+	 * 
+	 * @param touchId
+	 *            the identifier of the touch
+	 * @return the latest record of the touch, or null if there is none
+	 */
+	private InputRecord lastTouch(int touchId) {
+		for (int i = this.size - 1; i >= 0; i--) {
+			InputRecord record = this.records[(this.head + i) % this.records.length];
+			if (record.touchId == touchId && record.type >= InputRecord.TOUCH_START
+					&& record.type <= InputRecord.TOUCH_END) {
+				return record;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Gets the next free record, dropping the oldest one if the buffer is full
+	 * 
+	 * @param type
+	 *            the type of the record
+	 * @return the record to fill
+	 */
+	private InputRecord next(int type) {
+		if (this.size == this.records.length) {
+			this.head = (this.head + 1) % this.records.length;
+			this.size--;
+			this.dropped++;
+		}
+		InputRecord record = this.records[(this.head + this.size) % this.records.length];
+		this.size++;
+		record.reset(type);
+		return record;
+	}
+}
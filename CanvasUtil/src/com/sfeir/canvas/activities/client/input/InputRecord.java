@@ -0,0 +1,196 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.activities.client.input;
+
+/**
+ * A single input recorded by an {@link InputBuffer}.<br>
+ * Records are owned and reused by the buffer : they must not be kept once the
+ * batch they belong to has been handled.
+ * 
+ * @author François LAROCHE
+ */
+public final class InputRecord {
+
+	/**
+	 * Click on the canvas
+	 */
+	public static final int CLICK = 1;
+	/**
+	 * Mouse moved over the canvas
+	 */
+	public static final int MOUSE_MOVE = 2;
+	/**
+	 * Mouse button pressed
+	 */
+	public static final int MOUSE_DOWN = 3;
+	/**
+	 * Mouse button released
+	 */
+	public static final int MOUSE_UP = 4;
+	/**
+	 * Mouse wheel turned
+	 */
+	public static final int MOUSE_WHEEL = 5;
+	/**
+	 * Key pressed down
+	 */
+	public static final int KEY_DOWN = 6;
+	/**
+	 * Character typed
+	 */
+	public static final int KEY_PRESS = 7;
+	/**
+	 * Touch started
+	 */
+	public static final int TOUCH_START = 8;
+	/**
+	 * Touch moved
+	 */
+	public static final int TOUCH_MOVE = 9;
+	/**
+	 * Touch ended or cancelled
+	 */
+	public static final int TOUCH_END = 10;
+
+	/**
+	 * Flag for the shift key
+	 */
+	public static final int SHIFT = 1;
+	/**
+	 * Flag for the control key
+	 */
+	public static final int CTRL = 2;
+	/**
+	 * Flag for the alt key
+	 */
+	public static final int ALT = 4;
+	/**
+	 * Flag for the meta key
+	 */
+	public static final int META = 8;
+
+	int type;
+	int x;
+	int y;
+	int button;
+	int delta;
+	int keyCode;
+	int charCode;
+	int touchId;
+	int modifiers;
+
+	/**
+	 * Records are only created by the {@link InputBuffer}
+	 */
+	InputRecord() {}
+
+	/**
+	 * Resets all the fields of this record
+	 * 
+	 * @param type the new type of the record
+	 */
+	void reset(int type) {
+		this.type = type;
+		this.x = 0;
+		this.y = 0;
+		this.button = 0;
+		this.delta = 0;
+		this.keyCode = 0;
+		this.charCode = 0;
+		this.touchId = 0;
+		this.modifiers = 0;
+	}
+
+	/**
+	 * Gets the type of the input, one of the constants of this class
+	 * 
+	 * @return the type of the input
+	 */
+	public int getType() {
+		return type;
+	}
+
+	/**
+	 * Gets the horizontal position of the pointer, relative to the canvas
+	 * 
+	 * @return the x coordinate of the pointer, for mouse and touch inputs
+	 */
+	public int getX() {
+		return x;
+	}
+
+	/**
+	 * Gets the vertical position of the pointer, relative to the canvas
+	 * 
+	 * @return the y coordinate of the pointer, for mouse and touch inputs
+	 */
+	public int getY() {
+		return y;
+	}
+
+	/**
+	 * Gets the mouse button, as given by NativeEvent.getButton()
+	 * 
+	 * @return the button, for click and mouse down/up inputs
+	 */
+	public int getButton() {
+		return button;
+	}
+
+	/**
+	 * Gets the vertical delta of the mouse wheel
+	 * 
+	 * @return the delta, for wheel inputs
+	 */
+	public int getDelta() {
+		return delta;
+	}
+
+	/**
+	 * Gets the code of the key
+	 * 
+	 * @return the key code, for key down inputs
+	 */
+	public int getKeyCode() {
+		return keyCode;
+	}
+
+	/**
+	 * Gets the character typed
+	 * 
+	 * @return the char code, for key press inputs
+	 */
+	public char getCharCode() {
+		return (char) charCode;
+	}
+
+	/**
+	 * Gets the identifier of the touch
+	 * 
+	 * @return the touch identifier, for touch inputs
+	 */
+	public int getTouchId() {
+		return touchId;
+	}
+
+	/**
+	 * Gets the modifiers pressed when the input happened
+	 * 
+	 * @return a combination of {@link #SHIFT}, {@link #CTRL}, {@link #ALT}
+	 *         and {@link #META}
+	 */
+	public int getModifiers() {
+		return modifiers;
+	}
+
+	/**
+	 * Checks whether a modifier was pressed
+	 * 
+	 * @param modifier the modifier flag to check
+	 * @return true if the modifier was pressed
+	 */
+	public boolean isModifierDown(int modifier) {
+		return (modifiers & modifier) != 0;
+	}
+}
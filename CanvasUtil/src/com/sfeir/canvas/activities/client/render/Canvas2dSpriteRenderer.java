@@ -0,0 +1,128 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.activities.client.render;
+
+import com.google.gwt.canvas.dom.client.Context2d;
+import com.google.gwt.dom.client.CanvasElement;
+import com.google.gwt.dom.client.Element;
+import com.google.gwt.dom.client.ImageElement;
+import com.sfeir.canvas.util.client.ResourceManager;
+
+/**
+ * {@link SpriteRenderer} drawing on a 2D context. The images rasterized by
+ * the {@link ResourceManager} are used when available.
+ * 
+ * @author François LAROCHE
+ */
+public class Canvas2dSpriteRenderer implements SpriteRenderer {
+
+	/**
+	 * the context on which to draw
+	 */
+	private final Context2d ctx;
+	/**
+	 * the resources holding the images
+	 */
+	private final ResourceManager resources;
+	/**
+	 * the image bound, when rasterized
+	 */
+	private CanvasElement canvasSource;
+	/**
+	 * the image bound, when not rasterized
+	 */
+	private ImageElement imageSource;
+	/**
+	 * the width of the image bound, in pixels
+	 */
+	private double textureWidth;
+	/**
+	 * the height of the image bound, in pixels
+	 */
+	private double textureHeight;
+
+	/**
+	 * Constructor initializing the renderer
+	 * 
+	 * @param ctx
+	 *            the context on which to draw
+	 * @param resources
+	 *            the resources holding the images
+	 */
+	public Canvas2dSpriteRenderer(Context2d ctx, ResourceManager resources) {
+		this.ctx = ctx;
+		this.resources = resources;
+	}
+
+	@Override
+	public void begin() {
+		this.ctx.save();
+	}
+
+	@Override
+	public boolean bindTexture(String key) {
+		this.canvasSource = null;
+		this.imageSource = null;
+		Element source = this.resources.getImageSource(key);
+		if (source == null) {
+			return false;
+		}
+		if (CanvasElement.TAG.equalsIgnoreCase(source.getTagName())) {
+			this.canvasSource = source.<CanvasElement> cast();
+			this.textureWidth = this.canvasSource.getWidth();
+			this.textureHeight = this.canvasSource.getHeight();
+		} else {
+			// the size the image is displayed with doesn't matter, the source
+			// rectangles are given in the pixels of its file
+			this.imageSource = ImageElement.as(source);
+			this.textureWidth = ResourceManager.getNaturalWidth(this.imageSource);
+			this.textureHeight = ResourceManager.getNaturalHeight(this.imageSource);
+		}
+		// an image not loaded yet has no size, it is skipped as by the WebGL
+		// renderer
+		return this.textureWidth > 0;
+	}
+
+	@Override
+	public double getTextureWidth() {
+		return this.textureWidth;
+	}
+
+	@Override
+	public double getTextureHeight() {
+		return this.textureHeight;
+	}
+
+	@Override
+	public void setAlpha(double alpha) {
+		this.ctx.setGlobalAlpha(alpha);
+	}
+
+	@Override
+	public void draw(double sx, double sy, double sw, double sh, double dx, double dy, double dw, double dh,
+			double rotation) {
+		double x = dx;
+		double y = dy;
+		if (rotation != 0) {
+			this.ctx.save();
+			this.ctx.translate(dx + dw / 2, dy + dh / 2);
+			this.ctx.rotate(rotation);
+			x = -dw / 2;
+			y = -dh / 2;
+		}
+		if (this.canvasSource != null) {
+			this.ctx.drawImage(this.canvasSource, sx, sy, sw, sh, x, y, dw, dh);
+		} else {
+			this.ctx.drawImage(this.imageSource, sx, sy, sw, sh, x, y, dw, dh);
+		}
+		if (rotation != 0) {
+			this.ctx.restore();
+		}
+	}
+
+	@Override
+	public void end() {
+		this.ctx.restore();
+	}
+}
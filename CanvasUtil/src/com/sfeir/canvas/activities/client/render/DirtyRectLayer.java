@@ -0,0 +1,286 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.activities.client.render;
+
+import com.google.gwt.canvas.client.Canvas;
+import com.google.gwt.canvas.dom.client.Context2d;
+
+/**
+ * Rendering layer redrawing only the dirty regions of a canvas.<br>
+ * The activity {@link #invalidate(double, double, double, double)
+ * invalidates} the bounds of what changed, old and new positions of the
+ * moving objects, while updating. When rendering, it draws the scene between
+ * {@link #begin()} and {@link #end()} : the dirty regions are cleared, and
+ * the drawing is clipped to them, so that the other pixels are left
+ * untouched. {@link #intersects(double, double, double, double)} allows
+ * skipping the objects out of the dirty regions. The regions invalidated
+ * while a frame is drawn are redrawn by the next frame.
+ * 
+ * <pre>
+ * public void render(Context2d ctx, double alpha) {
+ * 	if (layer.begin()) {
+ * 		// draw the scene as usual
+ * 		layer.end();
+ * 	}
+ * }
+ * </pre>
+ * 
+ * Statistics on the pixels redrawn help tuning the scenes.
+ * 
+ * @author François LAROCHE
+ */
+public class DirtyRectLayer {
+
+	/**
+	 * the canvas drawn
+	 */
+	private final Canvas canvas;
+	/**
+	 * the dirty regions of the canvas, to redraw on the next frame
+	 */
+	private final DirtyRegion region;
+	/**
+	 * the dirty regions redrawn by the current frame
+	 */
+	private final DirtyRegion drawn;
+	/**
+	 * whether a frame is being drawn, between {@link #begin()} and
+	 * {@link #end()}
+	 */
+	private boolean drawing;
+	/**
+	 * whether the state of the context has been saved by {@link #begin()},
+	 * to clip the drawing
+	 */
+	private boolean saved;
+	/**
+	 * the number of pixels redrawn by the last frame
+	 */
+	private int lastPixels;
+	/**
+	 * the number of rectangles redrawn by the last frame
+	 */
+	private int lastRects;
+	/**
+	 * the number of pixels redrawn since the statistics were reset
+	 */
+	private double totalPixels;
+	/**
+	 * the number of frames since the statistics were reset
+	 */
+	private int frames;
+	/**
+	 * the number of frames that redrew nothing
+	 */
+	private int skippedFrames;
+	/**
+	 * the number of frames that redrew the whole canvas
+	 */
+	private int fullFrames;
+
+	/**
+	 * Constructor initializing the layer. The whole canvas is initially
+	 * dirty.
+	 * 
+	 * @param canvas
+	 *            the canvas to draw
+	 */
+	public DirtyRectLayer(Canvas canvas) {
+		this.canvas = canvas;
+		this.region = new DirtyRegion(canvas.getCoordinateSpaceWidth(), canvas.getCoordinateSpaceHeight());
+		this.drawn = new DirtyRegion(canvas.getCoordinateSpaceWidth(), canvas.getCoordinateSpaceHeight());
+		this.drawn.clear();
+	}
+
+	/**
+	 * Marks a rectangle of the canvas as needing to be redrawn
+	 * 
+	 * @param x
+	 *            the x coordinate of the rectangle
+	 * @param y
+	 *            the y coordinate of the rectangle
+	 * @param width
+	 *            the width of the rectangle
+	 * @param height
+	 *            the height of the rectangle
+	 */
+	public void invalidate(double x, double y, double width, double height) {
+		this.region.invalidate(x, y, width, height);
+	}
+
+	/**
+	 * Marks the whole canvas as needing to be redrawn
+	 */
+	public void invalidateAll() {
+		this.region.invalidateAll();
+	}
+
+	/**
+	 * Checks whether a rectangle will be redrawn by the current frame, or by
+	 * the next one outside of a frame
+	 * 
+	 * @param x
+	 *            the x coordinate of the rectangle
+	 * @param y
+	 *            the y coordinate of the rectangle
+	 * @param width
+	 *            the width of the rectangle
+	 * @param height
+	 *            the height of the rectangle
+	 * @return true if the rectangle is at least partly redrawn
+	 */
+	public boolean intersects(double x, double y, double width, double height) {
+		DirtyRegion dirty = this.drawing ? this.drawn : this.region;
+		return dirty.intersects(x, y, width, height);
+	}
+
+	/**
+	 * Begins a frame : clears the dirty regions and clips the drawing to
+	 * them. The canvas must be drawn, then {@link #end()} called, only if
+	 * this returns true. From then on, the invalidated regions are kept for
+	 * the next frame.
+	 * 
+	 * @return true if there is something to redraw, false if the canvas is
+	 *         clean
+	 */
+	public boolean begin() {
+		int width = this.canvas.getCoordinateSpaceWidth();
+		int height = this.canvas.getCoordinateSpaceHeight();
+		if (width != this.region.getSurfaceWidth() || height != this.region.getSurfaceHeight()) {
+			// resized canvases are cleared by the browser
+			this.region.setSize(width, height);
+		}
+		this.frames++;
+		if (this.region.isEmpty()) {
+			this.skippedFrames++;
+			this.lastPixels = 0;
+			this.lastRects = 0;
+			return false;
+		}
+		this.drawn.set(this.region);
+		this.region.clear();
+		Context2d ctx = this.canvas.getContext2d();
+		this.lastPixels = this.drawn.getDirtyArea();
+		this.lastRects = this.drawn.getRectCount();
+		this.totalPixels += this.lastPixels;
+		if (this.drawn.isFull()) {
+			this.fullFrames++;
+			ctx.clearRect(0, 0, width, height);
+		} else {
+			ctx.save();
+			this.saved = true;
+			ctx.beginPath();
+			for (int i = 0; i < this.lastRects; i++) {
+				int x = this.drawn.getX(i);
+				int y = this.drawn.getY(i);
+				int w = this.drawn.getWidth(i);
+				int h = this.drawn.getHeight(i);
+				ctx.clearRect(x, y, w, h);
+				ctx.rect(x, y, w, h);
+			}
+			ctx.clip();
+		}
+		this.drawing = true;
+		return true;
+	}
+
+	/**
+	 * Ends a frame begun by {@link #begin()} : removes the clipping. The
+	 * regions redrawn are clean, the ones invalidated meanwhile stay dirty.
+	 */
+	public void end() {
+		if (!this.drawing) {
+			return;
+		}
+		this.drawing = false;
+		if (this.saved) {
+			this.saved = false;
+			this.canvas.getContext2d().restore();
+		}
+		this.drawn.clear();
+	}
+
+	/**
+	 * Gets the dirty regions of the canvas, to redraw on the next frame
+	 * 
+	 * @return the dirty regions
+	 */
+	public DirtyRegion getRegion() {
+		return region;
+	}
+
+	/**
+	 * Gets the number of pixels redrawn by the last frame
+	 * 
+	 * @return the number of pixels
+	 */
+	public int getLastPixels() {
+		return lastPixels;
+	}
+
+	/**
+	 * Gets the number of rectangles redrawn by the last frame
+	 * 
+	 * @return the number of rectangles, 1 for a full redraw
+	 */
+	public int getLastRects() {
+		return lastRects;
+	}
+
+	/**
+	 * Gets the average number of pixels redrawn per frame
+	 * 
+	 * @return the average number of pixels
+	 */
+	public double getAveragePixels() {
+		return this.frames == 0 ? 0 : this.totalPixels / this.frames;
+	}
+
+	/**
+	 * Gets the average part of the canvas redrawn per frame
+	 * 
+	 * @return the average part of the canvas, between 0 and 1
+	 */
+	public double getAverageRedrawRatio() {
+		double area = (double) this.canvas.getCoordinateSpaceWidth() * this.canvas.getCoordinateSpaceHeight();
+		return area == 0 ? 0 : this.getAveragePixels() / area;
+	}
+
+	/**
+	 * Gets the number of frames since the statistics were reset
+	 * 
+	 * @return the number of frames
+	 */
+	public int getFrames() {
+		return frames;
+	}
+
+	/**
+	 * Gets the number of frames that redrew nothing
+	 * 
+	 * @return the number of frames
+	 */
+	public int getSkippedFrames() {
+		return skippedFrames;
+	}
+
+	/**
+	 * Gets the number of frames that redrew the whole canvas
+	 * 
+	 * @return the number of frames
+	 */
+	public int getFullFrames() {
+		return fullFrames;
+	}
+
+	/**
+	 * Resets the statistics
+	 */
+	public void resetStats() {
+		this.totalPixels = 0;
+		this.frames = 0;
+		this.skippedFrames = 0;
+		this.fullFrames = 0;
+	}
+}
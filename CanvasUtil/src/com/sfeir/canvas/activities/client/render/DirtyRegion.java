@@ -0,0 +1,418 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.activities.client.render;
+
+/**
+ * Set of the regions of a surface that need to be redrawn.<br>
+ * Invalidated rectangles are snapped to whole pixels and clipped to the
+ * surface. A rectangle overlapping or touching an existing one is merged
+ * with it, so that no pixel is counted twice, and when there are too many
+ * rectangles, the two whose union grows the least are merged. Once the
+ * dirty area exceeds a {@link #setFullRedrawThreshold(double) threshold} of
+ * the surface, the whole surface is considered dirty, as redrawing it is
+ * then cheaper than clipping.<br>
+ * The rectangles are stored in preallocated arrays, so invalidating doesn't
+ * create garbage.
+ * 
+ * @author François LAROCHE
+ */
+public class DirtyRegion {
+
+	/**
+	 * Default maximum number of rectangles kept before merging them
+	 */
+	public static final int DEFAULT_MAX_RECTS = 16;
+	/**
+	 * Default part of the surface above which the whole surface is redrawn
+	 */
+	public static final double DEFAULT_FULL_REDRAW_THRESHOLD = 0.6;
+
+	/**
+	 * the left coordinates of the rectangles
+	 */
+	private final int[] left;
+	/**
+	 * the top coordinates of the rectangles
+	 */
+	private final int[] top;
+	/**
+	 * the right coordinates of the rectangles, excluded
+	 */
+	private final int[] right;
+	/**
+	 * the bottom coordinates of the rectangles, excluded
+	 */
+	private final int[] bottom;
+	/**
+	 * the number of rectangles
+	 */
+	private int count;
+	/**
+	 * whether the whole surface is dirty
+	 */
+	private boolean full;
+	/**
+	 * the width of the surface
+	 */
+	private int width;
+	/**
+	 * the height of the surface
+	 */
+	private int height;
+	/**
+	 * the part of the surface above which the whole surface is dirty
+	 */
+	private double fullRedrawThreshold;
+
+	/**
+	 * Constructor creating a region keeping at most
+	 * {@link #DEFAULT_MAX_RECTS} rectangles
+	 * 
+	 * @param width
+	 *            the width of the surface
+	 * @param height
+	 *            the height of the surface
+	 */
+	public DirtyRegion(int width, int height) {
+		this(width, height, DEFAULT_MAX_RECTS);
+	}
+
+	/**
+	 * Constructor initializing the region. The whole surface is initially
+	 * dirty.
+	 * 
+	 * @param width
+	 *            the width of the surface
+	 * @param height
+	 *            the height of the surface
+	 * @param maxRects
+	 *            the maximum number of rectangles kept before merging them,
+	 *            at least 1
+	 */
+	public DirtyRegion(int width, int height, int maxRects) {
+		if (maxRects < 1) {
+			throw new IllegalArgumentException("maxRects must be at least 1");
+		}
+		this.left = new int[maxRects + 1];
+		this.top = new int[maxRects + 1];
+		this.right = new int[maxRects + 1];
+		this.bottom = new int[maxRects + 1];
+		this.fullRedrawThreshold = DEFAULT_FULL_REDRAW_THRESHOLD;
+		this.setSize(width, height);
+	}
+
+	/**
+	 * Changes the size of the surface, which makes it entirely dirty
+	 * 
+	 * @param width
+	 *            the width of the surface
+	 * @param height
+	 *            the height of the surface
+	 */
+	public void setSize(int width, int height) {
+		this.width = width;
+		this.height = height;
+		this.invalidateAll();
+	}
+
+	/**
+	 * Marks a rectangle as dirty
+	 * 
+	 * @param x
+	 *            the x coordinate of the rectangle
+	 * @param y
+	 *            the y coordinate of the rectangle
+	 * @param w
+	 *            the width of the rectangle
+	 * @param h
+	 *            the height of the rectangle
+	 */
+	public void invalidate(double x, double y, double w, double h) {
+		if (this.full) {
+			return;
+		}
+		// snap to whole pixels, so that antialiased edges are redrawn too
+		int l = Math.max(0, (int) Math.floor(x));
+		int t = Math.max(0, (int) Math.floor(y));
+		int r = Math.min(this.width, (int) Math.ceil(x + w));
+		int b = Math.min(this.height, (int) Math.ceil(y + h));
+		if (l >= r || t >= b) {
+			return;
+		}
+		// absorb the rectangles touching the new one, until none is left
+		int i = 0;
+		while (i < this.count) {
+			if (this.left[i] <= r && l <= this.right[i] && this.top[i] <= b && t <= this.bottom[i]) {
+				l = Math.min(l, this.left[i]);
+				t = Math.min(t, this.top[i]);
+				r = Math.max(r, this.right[i]);
+				b = Math.max(b, this.bottom[i]);
+				this.removeRect(i);
+				i = 0;
+			} else {
+				i++;
+			}
+		}
+		this.left[this.count] = l;
+		this.top[this.count] = t;
+		this.right[this.count] = r;
+		this.bottom[this.count] = b;
+		this.count++;
+		if (this.count > this.left.length - 1) {
+			this.mergeClosest();
+		}
+		if (this.getDirtyArea() > this.fullRedrawThreshold * this.width * this.height) {
+			this.invalidateAll();
+		}
+	}
+
+	/**
+	 * Marks the whole surface as dirty
+	 */
+	public void invalidateAll() {
+		this.full = true;
+		this.count = 0;
+	}
+
+	/**
+	 * Marks the whole surface as clean, once it has been redrawn
+	 */
+	public void clear() {
+		this.full = false;
+		this.count = 0;
+	}
+
+	/**
+	 * Makes this region a copy of another one : same surface, same dirty
+	 * rectangles. The threshold of this region is kept.
+	 * 
+	 * @param other
+	 *            the region to copy, keeping at most as many rectangles as
+	 *            this one
+	 */
+	public void set(DirtyRegion other) {
+		if (other.count > this.left.length - 1) {
+			throw new IllegalArgumentException("the region copied has more rectangles than this one can keep");
+		}
+		this.width = other.width;
+		this.height = other.height;
+		this.full = other.full;
+		this.count = other.count;
+		System.arraycopy(other.left, 0, this.left, 0, other.count);
+		System.arraycopy(other.top, 0, this.top, 0, other.count);
+		System.arraycopy(other.right, 0, this.right, 0, other.count);
+		System.arraycopy(other.bottom, 0, this.bottom, 0, other.count);
+	}
+
+	/**
+	 * Checks whether nothing needs to be redrawn
+	 * 
+	 * @return true if the surface is clean
+	 */
+	public boolean isEmpty() {
+		return !this.full && this.count == 0;
+	}
+
+	/**
+	 * Checks whether the whole surface needs to be redrawn
+	 * 
+	 * @return true if the whole surface is dirty
+	 */
+	public boolean isFull() {
+		return full;
+	}
+
+	/**
+	 * Checks whether a rectangle intersects the dirty region, to skip drawing
+	 * what won't be redrawn anyway
+	 * 
+	 * @param x
+	 *            the x coordinate of the rectangle
+	 * @param y
+	 *            the y coordinate of the rectangle
+	 * @param w
+	 *            the width of the rectangle
+	 * @param h
+	 *            the height of the rectangle
+	 * @return true if the rectangle is at least partly dirty
+	 */
+	public boolean intersects(double x, double y, double w, double h) {
+		if (this.full) {
+			return true;
+		}
+		for (int i = 0; i < this.count; i++) {
+			if (this.left[i] < x + w && x < this.right[i] && this.top[i] < y + h && y < this.bottom[i]) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Gets the number of dirty pixels
+	 * 
+	 * @return the dirty area
+	 */
+	public int getDirtyArea() {
+		if (this.full) {
+			return this.width * this.height;
+		}
+		int area = 0;
+		for (int i = 0; i < this.count; i++) {
+			area += (this.right[i] - this.left[i]) * (this.bottom[i] - this.top[i]);
+		}
+		return area;
+	}
+
+	/**
+	 * Gets the number of dirty rectangles, 1 when the whole surface is dirty
+	 * 
+	 * @return the number of rectangles
+	 */
+	public int getRectCount() {
+		return this.full ? 1 : this.count;
+	}
+
+	/**
+	 * Gets the x coordinate of a dirty rectangle
+	 * 
+	 * @param index
+	 *            the index of the rectangle, lower than
+	 *            {@link #getRectCount()}
+	 * @return the x coordinate
+	 */
+	public int getX(int index) {
+		return this.full ? 0 : this.left[index];
+	}
+
+	/**
+	 * Gets the y coordinate of a dirty rectangle
+	 * 
+	 * @param index
+	 *            the index of the rectangle, lower than
+	 *            {@link #getRectCount()}
+	 * @return the y coordinate
+	 */
+	public int getY(int index) {
+		return this.full ? 0 : this.top[index];
+	}
+
+	/**
+	 * Gets the width of a dirty rectangle
+	 * 
+	 * @param index
+	 *            the index of the rectangle, lower than
+	 *            {@link #getRectCount()}
+	 * @return the width
+	 */
+	public int getWidth(int index) {
+		return this.full ? this.width : this.right[index] - this.left[index];
+	}
+
+	/**
+	 * Gets the height of a dirty rectangle
+	 * 
+	 * @param index
+	 *            the index of the rectangle, lower than
+	 *            {@link #getRectCount()}
+	 * @return the height
+	 */
+	public int getHeight(int index) {
+		return this.full ? this.height : this.bottom[index] - this.top[index];
+	}
+
+	/**
+	 * Sets the part of the surface above which the whole surface is redrawn
+	 * 
+	 * @param threshold
+	 *            the part of the surface, between 0 and 1
+	 */
+	public void setFullRedrawThreshold(double threshold) {
+		if (threshold < 0 || threshold > 1) {
+			throw new IllegalArgumentException("threshold must be between 0 and 1");
+		}
+		this.fullRedrawThreshold = threshold;
+	}
+
+	/**
+	 * Gets the part of the surface above which the whole surface is redrawn
+	 * 
+	 * @return the part of the surface, between 0 and 1
+	 */
+	public double getFullRedrawThreshold() {
+		return fullRedrawThreshold;
+	}
+
+	/**
+	 * Gets the width of the surface
+	 * 
+	 * @return the width of the surface
+	 */
+	public int getSurfaceWidth() {
+		return width;
+	}
+
+	/**
+	 * Gets the height of the surface
+	 * 
+	 * @return the height of the surface
+	 */
+	public int getSurfaceHeight() {
+		return height;
+	}
+
+	/**
+	 * Merges the two rectangles whose union is the closest to their areas
+	 */
+	private void mergeClosest() {
+		int bestI = 0;
+		int bestJ = 1;
+		long bestCost = Long.MAX_VALUE;
+		for (int i = 0; i < this.count; i++) {
+			for (int j = i + 1; j < this.count; j++) {
+				long union = (long) (Math.max(this.right[i], this.right[j]) - Math.min(this.left[i], this.left[j]))
+						* (Math.max(this.bottom[i], this.bottom[j]) - Math.min(this.top[i], this.top[j]));
+				long cost = union - this.area(i) - this.area(j);
+				if (cost < bestCost) {
+					bestCost = cost;
+					bestI = i;
+					bestJ = j;
+				}
+			}
+		}
+		int l = Math.min(this.left[bestI], this.left[bestJ]);
+		int t = Math.min(this.top[bestI], this.top[bestJ]);
+		int r = Math.max(this.right[bestI], this.right[bestJ]);
+		int b = Math.max(this.bottom[bestI], this.bottom[bestJ]);
+		this.removeRect(bestJ);
+		this.removeRect(bestI);
+		// the union may now touch other rectangles
+		this.invalidate(l, t, r - l, b - t);
+	}
+
+	/**
+	 * Gets the area of a rectangle
+	 * 
+	 * @param i
+	 *            the index of the rectangle
+	 * @return the area
+	 */
+	private long area(int i) {
+		return (long) (this.right[i] - this.left[i]) * (this.bottom[i] - this.top[i]);
+	}
+
+	/**
+	 * Removes a rectangle, replacing it with the last one
+	 * 
+	 * @param i
+	 *            the index of the rectangle
+	 */
+	private void removeRect(int i) {
+		this.count--;
+		this.left[i] = this.left[this.count];
+		this.top[i] = this.top[this.count];
+		this.right[i] = this.right[this.count];
+		this.bottom[i] = this.bottom[this.count];
+	}
+}
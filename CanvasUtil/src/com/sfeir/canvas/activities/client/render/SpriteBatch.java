@@ -0,0 +1,551 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.activities.client.render;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.google.gwt.canvas.dom.client.Context2d;
+import com.sfeir.canvas.util.client.ResourceManager;
+import com.sfeir.canvas.util.client.SpriteFrame;
+
+/**
+ * Batched sprite renderer.<br>
+ * Instead of drawing each sprite directly, draw commands are recorded, each
+ * referencing its image by its key in the {@link ResourceManager}. On
+ * {@link #flush(Context2d)}, the commands are sorted by depth, then by image
+ * and alpha, and drawn, changing the state of the context only when needed.
+ * They can also be drawn by another {@link SpriteRenderer}, such as the
+ * {@link WebGLSpriteRenderer}, with {@link #flush(SpriteRenderer)}.
+ * Sprites of the same depth may thus be drawn in any order : sprites that
+ * must overlap in a given order need different depths.<br>
+ * The commands are stored in preallocated arrays, one per field, reused from
+ * one frame to the next, so recording them doesn't create garbage.
+ * 
+ * <pre>
+ * batch.setDepth(0);
+ * batch.draw("background", 0, 0);
+ * batch.setDepth(1);
+ * batch.drawSprite("atlas", "hero.png", heroX, heroY);
+ * batch.flush(ctx);
+ * </pre>
+ * 
+ * @author François LAROCHE
+ */
+public class SpriteBatch {
+
+	/**
+	 * Default number of commands the batch holds before growing
+	 */
+	public static final int DEFAULT_CAPACITY = 512;
+
+	/**
+	 * the resources holding the images
+	 */
+	private final ResourceManager resources;
+	/**
+	 * the renderer drawing on a 2D context, reused from one flush to the
+	 * next
+	 */
+	private Canvas2dSpriteRenderer canvasRenderer;
+	/**
+	 * the context of the 2D renderer
+	 */
+	private Context2d canvasContext;
+	/**
+	 * the ids of the image keys
+	 */
+	private final Map<String, Integer> textureIds;
+	/**
+	 * the image keys, by id
+	 */
+	private String[] textureKeys;
+	/**
+	 * the image of each command, as an id
+	 */
+	private int[] texture;
+	/**
+	 * the depth of each command
+	 */
+	private int[] depth;
+	/**
+	 * the x coordinate of the source rectangle of each command, the whole
+	 * image being drawn when the source width is negative
+	 */
+	private double[] sx;
+	/**
+	 * the y coordinate of the source rectangle of each command
+	 */
+	private double[] sy;
+	/**
+	 * the width of the source rectangle of each command
+	 */
+	private double[] sw;
+	/**
+	 * the height of the source rectangle of each command
+	 */
+	private double[] sh;
+	/**
+	 * the x coordinate of the destination of each command
+	 */
+	private double[] dx;
+	/**
+	 * the y coordinate of the destination of each command
+	 */
+	private double[] dy;
+	/**
+	 * the width of the destination of each command
+	 */
+	private double[] dw;
+	/**
+	 * the height of the destination of each command
+	 */
+	private double[] dh;
+	/**
+	 * the alpha of each command
+	 */
+	private double[] alpha;
+	/**
+	 * the rotation of each command, around the center of its destination
+	 */
+	private double[] rotation;
+	/**
+	 * the indexes of the commands, in drawing order
+	 */
+	private int[] order;
+	/**
+	 * buffer used to sort the commands
+	 */
+	private int[] sortBuffer;
+	/**
+	 * the number of commands recorded
+	 */
+	private int count;
+	/**
+	 * the depth of the next commands
+	 */
+	private int currentDepth;
+	/**
+	 * the alpha of the next commands
+	 */
+	private double currentAlpha;
+	/**
+	 * the rotation of the next commands
+	 */
+	private double currentRotation;
+	/**
+	 * the number of drawImage calls of the last flush
+	 */
+	private int lastDrawCalls;
+	/**
+	 * the number of image changes of the last flush
+	 */
+	private int lastTextureSwitches;
+	/**
+	 * the number of context state changes of the last flush
+	 */
+	private int lastStateChanges;
+
+	/**
+	 * Constructor initializing a batch of {@link #DEFAULT_CAPACITY} commands
+	 * 
+	 * @param resources
+	 *            the resources holding the images
+	 */
+	public SpriteBatch(ResourceManager resources) {
+		this(resources, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructor initializing the batch
+	 * 
+	 * @param resources
+	 *            the resources holding the images
+	 * @param capacity
+	 *            the number of commands the batch holds before growing
+	 */
+	public SpriteBatch(ResourceManager resources, int capacity) {
+		this.resources = resources;
+		this.textureIds = new HashMap<String, Integer>();
+		this.textureKeys = new String[16];
+		this.allocate(Math.max(capacity, 1));
+		this.currentAlpha = 1;
+	}
+
+	/**
+	 * Sets the depth of the next commands. Commands with a lower depth are
+	 * drawn first.
+	 * 
+	 * @param depth
+	 *            the depth
+	 */
+	public void setDepth(int depth) {
+		this.currentDepth = depth;
+	}
+
+	/**
+	 * Sets the alpha of the next commands
+	 * 
+	 * @param alpha
+	 *            the alpha, between 0 and 1
+	 */
+	public void setAlpha(double alpha) {
+		this.currentAlpha = alpha;
+	}
+
+	/**
+	 * Sets the rotation of the next commands, around the center of their
+	 * destination
+	 * 
+	 * @param rotation
+	 *            the rotation, in radians
+	 */
+	public void setRotation(double rotation) {
+		this.currentRotation = rotation;
+	}
+
+	/**
+	 * Records the drawing of a whole image, at its natural size
+	 * 
+	 * @param key
+	 *            the key of the image in the {@link ResourceManager}
+	 * @param x
+	 *            the x coordinate where to draw the image
+	 * @param y
+	 *            the y coordinate where to draw the image
+	 */
+	public void draw(String key, double x, double y) {
+		this.add(key, 0, 0, -1, -1, x, y, -1, -1);
+	}
+
+	/**
+	 * Records the drawing of a part of an image
+	 * 
+	 * @param key
+	 *            the key of the image in the {@link ResourceManager}
+	 * @param sx
+	 *            the x coordinate of the part of the image
+	 * @param sy
+	 *            the y coordinate of the part of the image
+	 * @param sw
+	 *            the width of the part of the image
+	 * @param sh
+	 *            the height of the part of the image
+	 * @param dx
+	 *            the x coordinate where to draw it
+	 * @param dy
+	 *            the y coordinate where to draw it
+	 * @param dw
+	 *            the width to draw it with
+	 * @param dh
+	 *            the height to draw it with
+	 */
+	public void draw(String key, double sx, double sy, double sw, double sh, double dx, double dy, double dw,
+			double dh) {
+		this.add(key, sx, sy, sw, sh, dx, dy, dw, dh);
+	}
+
+	/**
+	 * Records the drawing of a frame of a sprite atlas, at its natural size.
+	 * Nothing is recorded if the frame is unknown.
+	 * 
+	 * @param atlasKey
+	 *            the key of the atlas in the {@link ResourceManager}
+	 * @param frame
+	 *            the name of the frame
+	 * @param x
+	 *            the x coordinate where to draw the frame
+	 * @param y
+	 *            the y coordinate where to draw the frame
+	 */
+	public void drawSprite(String atlasKey, String frame, double x, double y) {
+		SpriteFrame sprite = this.resources.getSprite(atlasKey, frame);
+		if (sprite != null) {
+			this.add(atlasKey, sprite.getX(), sprite.getY(), sprite.getWidth(), sprite.getHeight(), x, y,
+					sprite.getWidth(), sprite.getHeight());
+		}
+	}
+
+	/**
+	 * Draws the commands recorded since the last flush on a 2D context, and
+	 * forgets them
+	 * 
+	 * @param ctx
+	 *            the context on which to draw
+	 */
+	public void flush(Context2d ctx) {
+		if (this.canvasRenderer == null || this.canvasContext != ctx) {
+			this.canvasRenderer = new Canvas2dSpriteRenderer(ctx, this.resources);
+			this.canvasContext = ctx;
+		}
+		this.flush(this.canvasRenderer);
+	}
+
+	/**
+	 * Draws the commands recorded since the last flush with a renderer, and
+	 * forgets them
+	 * 
+	 * @param renderer
+	 *            the renderer drawing the sprites
+	 */
+	public void flush(SpriteRenderer renderer) {
+		this.sort();
+		int drawCalls = 0;
+		int textureSwitches = 0;
+		int stateChanges = 0;
+		int boundTexture = -1;
+		boolean bound = false;
+		double boundAlpha = -1;
+
+		renderer.begin();
+		for (int n = 0; n < this.count; n++) {
+			int i = this.order[n];
+			if (this.texture[i] != boundTexture) {
+				boundTexture = this.texture[i];
+				textureSwitches++;
+				bound = renderer.bindTexture(this.textureKeys[boundTexture]);
+			}
+			if (!bound) {
+				// not loaded yet
+				continue;
+			}
+			if (this.alpha[i] != boundAlpha) {
+				boundAlpha = this.alpha[i];
+				renderer.setAlpha(boundAlpha);
+				stateChanges++;
+			}
+			if (this.rotation[i] != 0) {
+				stateChanges++;
+			}
+			double sw = this.sw[i];
+			double sh = this.sh[i];
+			if (sw < 0) {
+				// the whole image
+				sw = renderer.getTextureWidth();
+				sh = renderer.getTextureHeight();
+			}
+			double dw = this.dw[i] < 0 ? sw : this.dw[i];
+			double dh = this.dh[i] < 0 ? sh : this.dh[i];
+			renderer.draw(this.sw[i] < 0 ? 0 : this.sx[i], this.sw[i] < 0 ? 0 : this.sy[i], sw, sh, this.dx[i],
+					this.dy[i], dw, dh, this.rotation[i]);
+			drawCalls++;
+		}
+		renderer.end();
+
+		this.lastDrawCalls = drawCalls;
+		this.lastTextureSwitches = textureSwitches;
+		this.lastStateChanges = stateChanges;
+		this.count = 0;
+	}
+
+	/**
+	 * Forgets the commands recorded since the last flush, without drawing
+	 * them
+	 */
+	public void clear() {
+		this.count = 0;
+	}
+
+	/**
+	 * Gets the number of commands recorded since the last flush
+	 * 
+	 * @return the number of commands
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * Gets the number of commands the batch holds before growing
+	 * 
+	 * @return the capacity
+	 */
+	public int getCapacity() {
+		return this.texture.length;
+	}
+
+	/**
+	 * Gets the number of images drawn by the last flush
+	 * 
+	 * @return the number of drawImage calls
+	 */
+	public int getLastDrawCalls() {
+		return lastDrawCalls;
+	}
+
+	/**
+	 * Gets the number of times the image changed during the last flush
+	 * 
+	 * @return the number of image changes
+	 */
+	public int getLastTextureSwitches() {
+		return lastTextureSwitches;
+	}
+
+	/**
+	 * Gets the number of alpha and transform changes of the last flush
+	 * 
+	 * @return the number of state changes
+	 */
+	public int getLastStateChanges() {
+		return lastStateChanges;
+	}
+
+	/**
+	 * Records a command with the current depth, alpha and rotation
+	 * 
+	 * @param key
+	 *            the key of the image
+	 * @param sx
+	 *            the x coordinate of the source rectangle
+	 * @param sy
+	 *            the y coordinate of the source rectangle
+	 * @param sw
+	 *            the width of the source rectangle, negative for the whole
+	 *            image
+	 * @param sh
+	 *            the height of the source rectangle
+	 * @param dx
+	 *            the x coordinate of the destination
+	 * @param dy
+	 *            the y coordinate of the destination
+	 * @param dw
+	 *            the width of the destination, negative for the natural size
+	 * @param dh
+	 *            the height of the destination
+	 */
+	private void add(String key, double sx, double sy, double sw, double sh, double dx, double dy, double dw,
+			double dh) {
+		if (this.count == this.texture.length) {
+			this.grow();
+		}
+		int i = this.count++;
+		this.texture[i] = this.textureId(key);
+		this.depth[i] = this.currentDepth;
+		this.alpha[i] = this.currentAlpha;
+		this.rotation[i] = this.currentRotation;
+		this.sx[i] = sx;
+		this.sy[i] = sy;
+		this.sw[i] = sw;
+		this.sh[i] = sh;
+		this.dx[i] = dx;
+		this.dy[i] = dy;
+		this.dw[i] = dw;
+		this.dh[i] = dh;
+	}
+
+	/**
+	 * Gets the id of an image key, creating it the first time
+	 * 
+	 * @param key
+	 *            the key of the image
+	 * @return the id of the key
+	 */
+	private int textureId(String key) {
+		Integer id = this.textureIds.get(key);
+		if (id == null) {
+			id = Integer.valueOf(this.textureIds.size());
+			this.textureIds.put(key, id);
+			if (id.intValue() == this.textureKeys.length) {
+				String[] keys = new String[this.textureKeys.length * 2];
+				System.arraycopy(this.textureKeys, 0, keys, 0, this.textureKeys.length);
+				this.textureKeys = keys;
+			}
+			this.textureKeys[id.intValue()] = key;
+		}
+		return id.intValue();
+	}
+
+	/**
+	 * Compares two commands : by depth, then by image, then by alpha, then by
+	 * recording order
+	 */
+	private int compare(int a, int b) {
+		if (this.depth[a] != this.depth[b]) {
+			return this.depth[a] < this.depth[b] ? -1 : 1;
+		}
+		if (this.texture[a] != this.texture[b]) {
+			return this.texture[a] < this.texture[b] ? -1 : 1;
+		}
+		if (this.alpha[a] != this.alpha[b]) {
+			return this.alpha[a] < this.alpha[b] ? -1 : 1;
+		}
+		return a - b;
+	}
+
+	/**
+	 * Sorts the commands in drawing order, with a merge sort on their indexes
+	 * not to box them
+	 */
+	private void sort() {
+		for (int i = 0; i < this.count; i++) {
+			this.order[i] = i;
+		}
+		int[] from = this.order;
+		int[] to = this.sortBuffer;
+		for (int width = 1; width < this.count; width *= 2) {
+			for (int lo = 0; lo < this.count; lo += 2 * width) {
+				int mid = Math.min(lo + width, this.count);
+				int hi = Math.min(lo + 2 * width, this.count);
+				int a = lo;
+				int b = mid;
+				for (int k = lo; k < hi; k++) {
+					if (a < mid && (b >= hi || this.compare(from[a], from[b]) <= 0)) {
+						to[k] = from[a++];
+					} else {
+						to[k] = from[b++];
+					}
+				}
+			}
+			int[] swap = from;
+			from = to;
+			to = swap;
+		}
+		if (from != this.order) {
+			System.arraycopy(from, 0, this.order, 0, this.count);
+		}
+	}
+
+	/**
+	 * Doubles the capacity of the batch
+	 */
+	private void grow() {
+		int previous = this.count;
+		int[] texture = this.texture;
+		int[] depth = this.depth;
+		double[][] doubles = { this.sx, this.sy, this.sw, this.sh, this.dx, this.dy, this.dw, this.dh, this.alpha,
+				this.rotation };
+		this.allocate(this.texture.length * 2);
+		System.arraycopy(texture, 0, this.texture, 0, previous);
+		System.arraycopy(depth, 0, this.depth, 0, previous);
+		double[][] grown = { this.sx, this.sy, this.sw, this.sh, this.dx, this.dy, this.dw, this.dh, this.alpha,
+				this.rotation };
+		for (int i = 0; i < doubles.length; i++) {
+			System.arraycopy(doubles[i], 0, grown[i], 0, previous);
+		}
+	}
+
+	/**
+	 * Allocates the arrays of the commands
+	 * 
+	 * @param capacity
+	 *            the number of commands
+	 */
+	private void allocate(int capacity) {
+		this.texture = new int[capacity];
+		this.depth = new int[capacity];
+		this.sx = new double[capacity];
+		this.sy = new double[capacity];
+		this.sw = new double[capacity];
+		this.sh = new double[capacity];
+		this.dx = new double[capacity];
+		this.dy = new double[capacity];
+		this.dw = new double[capacity];
+		this.dh = new double[capacity];
+		this.alpha = new double[capacity];
+		this.rotation = new double[capacity];
+		this.order = new int[capacity];
+		this.sortBuffer = new int[capacity];
+	}
+}
@@ -0,0 +1,87 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.activities.client.render;
+
+/**
+ * Backend drawing the commands of a {@link SpriteBatch}.<br>
+ * The batch calls {@link #begin()}, then, in drawing order,
+ * {@link #bindTexture(String)} when the image changes,
+ * {@link #setAlpha(double)} when the alpha changes and
+ * {@link #draw(double, double, double, double, double, double, double, double, double)}
+ * for each sprite, and finally {@link #end()}. Whatever the backend, the
+ * batch emits the same calls for the same commands.
+ * 
+ * @author François LAROCHE
+ */
+public interface SpriteRenderer {
+
+	/**
+	 * Begins a frame
+	 */
+	public void begin();
+
+	/**
+	 * Sets the image of the next sprites
+	 * 
+	 * @param key
+	 *            the key of the image in the
+	 *            {@link com.sfeir.canvas.util.client.ResourceManager}
+	 * @return false if the image isn't loaded, in which case its sprites are
+	 *         skipped
+	 */
+	public boolean bindTexture(String key);
+
+	/**
+	 * Gets the width of the image bound
+	 * 
+	 * @return the width of the image, in pixels
+	 */
+	public double getTextureWidth();
+
+	/**
+	 * Gets the height of the image bound
+	 * 
+	 * @return the height of the image, in pixels
+	 */
+	public double getTextureHeight();
+
+	/**
+	 * Sets the alpha of the next sprites
+	 * 
+	 * @param alpha
+	 *            the alpha, between 0 and 1
+	 */
+	public void setAlpha(double alpha);
+
+	/**
+	 * Draws a part of the image bound
+	 * 
+	 * @param sx
+	 *            the x coordinate of the part of the image
+	 * @param sy
+	 *            the y coordinate of the part of the image
+	 * @param sw
+	 *            the width of the part of the image
+	 * @param sh
+	 *            the height of the part of the image
+	 * @param dx
+	 *            the x coordinate where to draw it
+	 * @param dy
+	 *            the y coordinate where to draw it
+	 * @param dw
+	 *            the width to draw it with
+	 * @param dh
+	 *            the height to draw it with
+	 * @param rotation
+	 *            the rotation around the center of the destination, in
+	 *            radians
+	 */
+	public void draw(double sx, double sy, double sw, double sh, double dx, double dy, double dw, double dh,
+			double rotation);
+
+	/**
+	 * Ends the frame, drawing what may still be pending
+	 */
+	public void end();
+}
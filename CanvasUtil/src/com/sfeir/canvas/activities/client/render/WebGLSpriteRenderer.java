@@ -0,0 +1,378 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.activities.client.render;
+
+import com.google.gwt.canvas.client.Canvas;
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.dom.client.CanvasElement;
+import com.google.gwt.dom.client.Element;
+import com.sfeir.canvas.util.client.ResourceManager;
+
+/**
+ * {@link SpriteRenderer} drawing with WebGL.<br>
+ * Each image is uploaded once as a texture, and the sprites are drawn as
+ * textured quads, accumulated in a vertex buffer and drawn in a single call
+ * for each run of sprites sharing the same image.<br>
+ * A canvas can't have a 2D context and a WebGL one at the same time : the
+ * canvas given to this renderer must not be drawn in 2D. Unlike the 2D
+ * renderer, it is cleared at the beginning of each frame.
+ * 
+ * @author François LAROCHE
+ */
+public class WebGLSpriteRenderer implements SpriteRenderer {
+
+	/**
+	 * Maximum number of sprites drawn by a single draw call
+	 */
+	public static final int MAX_QUADS = 2048;
+
+	/**
+	 * the canvas on which to draw
+	 */
+	private final Canvas canvas;
+	/**
+	 * the resources holding the images
+	 */
+	private final ResourceManager resources;
+	/**
+	 * the WebGL state : context, program, buffers and textures
+	 */
+	private final JavaScriptObject gl;
+	/**
+	 * the width of the image bound
+	 */
+	private double textureWidth;
+	/**
+	 * the height of the image bound
+	 */
+	private double textureHeight;
+	/**
+	 * the alpha of the next sprites
+	 */
+	private double alpha;
+
+	/**
+	 * Constructor initializing the renderer
+	 * 
+	 * @param canvas
+	 *            the canvas on which to draw, not drawn in 2D
+	 * @param resources
+	 *            the resources holding the images
+	 * @throws IllegalStateException
+	 *             if WebGL isn't available on the canvas
+	 */
+	public WebGLSpriteRenderer(Canvas canvas, ResourceManager resources) {
+		this.canvas = canvas;
+		this.resources = resources;
+		this.gl = init(canvas.getCanvasElement(), MAX_QUADS);
+		if (this.gl == null) {
+			throw new IllegalStateException("WebGL is not available");
+		}
+		this.alpha = 1;
+	}
+
+	/**
+	 * Checks whether the browser supports WebGL
+	 * 
+	 * @return true if WebGL is supported
+	 */
+	public static native boolean isSupported() /*-{
+		if (!$wnd.WebGLRenderingContext) {
+			return false;
+		}
+		try {
+			var canvas = $doc.createElement("canvas");
+			return !!(canvas.getContext("webgl") || canvas.getContext("experimental-webgl"));
+		} catch (e) {
+			return false;
+		}
+	}-*/;
+
+	@Override
+	public void begin() {
+		begin(this.gl, this.canvas.getCoordinateSpaceWidth(), this.canvas.getCoordinateSpaceHeight());
+		this.alpha = 1;
+	}
+
+	@Override
+	public boolean bindTexture(String key) {
+		Element source = this.resources.getImageSource(key);
+		if (source == null) {
+			return false;
+		}
+		if (width(source) <= 0) {
+			// not loaded yet, it can't be uploaded
+			return false;
+		}
+		bind(this.gl, key, source);
+		this.textureWidth = width(source);
+		this.textureHeight = height(source);
+		return true;
+	}
+
+	@Override
+	public double getTextureWidth() {
+		return textureWidth;
+	}
+
+	@Override
+	public double getTextureHeight() {
+		return textureHeight;
+	}
+
+	@Override
+	public void setAlpha(double alpha) {
+		this.alpha = alpha;
+	}
+
+	@Override
+	public void draw(double sx, double sy, double sw, double sh, double dx, double dy, double dw, double dh,
+			double rotation) {
+		double u0 = sx / this.textureWidth;
+		double v0 = sy / this.textureHeight;
+		double u1 = (sx + sw) / this.textureWidth;
+		double v1 = (sy + sh) / this.textureHeight;
+		if (rotation == 0) {
+			quad(this.gl, dx, dy, dx + dw, dy, dx, dy + dh, dx + dw, dy + dh, u0, v0, u1, v1, this.alpha);
+			return;
+		}
+		// rotate the corners around the center of the destination
+		double cos = Math.cos(rotation);
+		double sin = Math.sin(rotation);
+		double cx = dx + dw / 2;
+		double cy = dy + dh / 2;
+		double hw = dw / 2;
+		double hh = dh / 2;
+		quad(this.gl, cx - hw * cos + hh * sin, cy - hw * sin - hh * cos, cx + hw * cos + hh * sin, cy + hw * sin
+				- hh * cos, cx - hw * cos - hh * sin, cy - hw * sin + hh * cos, cx + hw * cos - hh * sin, cy + hw
+				* sin + hh * cos, u0, v0, u1, v1, this.alpha);
+	}
+
+	@Override
+	public void end() {
+		flush(this.gl);
+	}
+
+	/**
+	 * Forgets the texture of an image, so that it is uploaded again the next
+	 * time it is drawn
+	 * 
+	 * @param key
+	 *            the key of the image
+	 */
+	public void releaseTexture(String key) {
+		release(this.gl, key);
+	}
+
+	/**
+	 * Gets the width of an image or a canvas
+	 * 
+	 * @param source
+	 *            the image or canvas
+	 * @return the width, in pixels
+	 */
+	private static native double width(Element source) /*-{
+		return source.naturalWidth || source.width;
+	}-*/;
+
+	/**
+	 * Gets the height of an image or a canvas
+	 * 
+	 * @param source
+	 *            the image or canvas
+	 * @return the height, in pixels
+	 */
+	private static native double height(Element source) /*-{
+		return source.naturalHeight || source.height;
+	}-*/;
+
+	/**
+	 * Creates the WebGL state of a canvas
+	 * 
+	 * @param canvas
+	 *            the canvas
+	 * @param maxQuads
+	 *            the maximum number of sprites per draw call
+	 * @return the state, or null if WebGL isn't available
+	 */
+	private static native JavaScriptObject init(CanvasElement canvas, int maxQuads) /*-{
+		var gl = null;
+		try {
+			gl = canvas.getContext("webgl") || canvas.getContext("experimental-webgl");
+		} catch (e) {
+		}
+		if (!gl) {
+			return null;
+		}
+		var compile = function(type, source) {
+			var shader = gl.createShader(type);
+			gl.shaderSource(shader, source);
+			gl.compileShader(shader);
+			return shader;
+		};
+		var program = gl.createProgram();
+		gl.attachShader(program, compile(gl.VERTEX_SHADER,
+				"attribute vec2 a_position; attribute vec2 a_texcoord; attribute float a_alpha;"
+				+ "uniform vec2 u_resolution; varying vec2 v_texcoord; varying float v_alpha;"
+				+ "void main() { vec2 clip = a_position / u_resolution * 2.0 - 1.0;"
+				+ " gl_Position = vec4(clip.x, -clip.y, 0.0, 1.0); v_texcoord = a_texcoord; v_alpha = a_alpha; }"));
+		gl.attachShader(program, compile(gl.FRAGMENT_SHADER,
+				"precision mediump float; uniform sampler2D u_texture; varying vec2 v_texcoord; varying float v_alpha;"
+				+ "void main() { vec4 color = texture2D(u_texture, v_texcoord);"
+				+ " gl_FragColor = vec4(color.rgb, color.a * v_alpha); }"));
+		gl.linkProgram(program);
+		if (!gl.getProgramParameter(program, gl.LINK_STATUS)) {
+			return null;
+		}
+		gl.useProgram(program);
+
+		// 6 vertices per quad, 5 floats per vertex : x, y, u, v, alpha
+		var state = {
+			gl : gl,
+			vertices : new Float32Array(maxQuads * 30),
+			maxQuads : maxQuads,
+			quads : 0,
+			buffer : gl.createBuffer(),
+			resolution : gl.getUniformLocation(program, "u_resolution"),
+			textures : {},
+			bound : null
+		};
+		var position = gl.getAttribLocation(program, "a_position");
+		var texcoord = gl.getAttribLocation(program, "a_texcoord");
+		var alpha = gl.getAttribLocation(program, "a_alpha");
+		gl.bindBuffer(gl.ARRAY_BUFFER, state.buffer);
+		gl.bufferData(gl.ARRAY_BUFFER, state.vertices.byteLength, gl.DYNAMIC_DRAW);
+		gl.enableVertexAttribArray(position);
+		gl.vertexAttribPointer(position, 2, gl.FLOAT, false, 20, 0);
+		gl.enableVertexAttribArray(texcoord);
+		gl.vertexAttribPointer(texcoord, 2, gl.FLOAT, false, 20, 8);
+		gl.enableVertexAttribArray(alpha);
+		gl.vertexAttribPointer(alpha, 1, gl.FLOAT, false, 20, 16);
+		gl.uniform1i(gl.getUniformLocation(program, "u_texture"), 0);
+		gl.activeTexture(gl.TEXTURE0);
+		gl.enable(gl.BLEND);
+		gl.blendFunc(gl.SRC_ALPHA, gl.ONE_MINUS_SRC_ALPHA);
+		return state;
+	}-*/;
+
+	/**
+	 * Begins a frame : sets the viewport and clears the canvas
+	 * 
+	 * @param state
+	 *            the WebGL state
+	 * @param width
+	 *            the width of the canvas
+	 * @param height
+	 *            the height of the canvas
+	 */
+	private static native void begin(JavaScriptObject state, int width, int height) /*-{
+		var gl = state.gl;
+		gl.viewport(0, 0, width, height);
+		gl.uniform2f(state.resolution, width, height);
+		gl.clearColor(0, 0, 0, 0);
+		gl.clear(gl.COLOR_BUFFER_BIT);
+		state.quads = 0;
+		state.bound = null;
+	}-*/;
+
+	/**
+	 * Binds the texture of an image, uploading it the first time, or when
+	 * the element of the image has changed
+	 * 
+	 * @param state
+	 *            the WebGL state
+	 * @param key
+	 *            the key of the image
+	 * @param source
+	 *            the image or canvas holding the image
+	 */
+	private static native void bind(JavaScriptObject state, String key, Element source) /*-{
+		var gl = state.gl;
+		var entry = state.textures[key];
+		if (entry && entry.source === source && state.bound === entry) {
+			return;
+		}
+		@com.sfeir.canvas.activities.client.render.WebGLSpriteRenderer::flush(Lcom/google/gwt/core/client/JavaScriptObject;)(state);
+		if (!entry || entry.source !== source) {
+			if (entry) {
+				gl.deleteTexture(entry.texture);
+			}
+			entry = {
+				source : source,
+				texture : gl.createTexture()
+			};
+			gl.bindTexture(gl.TEXTURE_2D, entry.texture);
+			gl.texImage2D(gl.TEXTURE_2D, 0, gl.RGBA, gl.RGBA, gl.UNSIGNED_BYTE, source);
+			// no mipmaps, so that images of any size can be used
+			gl.texParameteri(gl.TEXTURE_2D, gl.TEXTURE_WRAP_S, gl.CLAMP_TO_EDGE);
+			gl.texParameteri(gl.TEXTURE_2D, gl.TEXTURE_WRAP_T, gl.CLAMP_TO_EDGE);
+			gl.texParameteri(gl.TEXTURE_2D, gl.TEXTURE_MIN_FILTER, gl.LINEAR);
+			gl.texParameteri(gl.TEXTURE_2D, gl.TEXTURE_MAG_FILTER, gl.LINEAR);
+			state.textures[key] = entry;
+		} else {
+			gl.bindTexture(gl.TEXTURE_2D, entry.texture);
+		}
+		state.bound = entry;
+	}-*/;
+
+	/**
+	 * Forgets the texture of an image
+	 * 
+	 * @param state
+	 *            the WebGL state
+	 * @param key
+	 *            the key of the image
+	 */
+	private static native void release(JavaScriptObject state, String key) /*-{
+		var entry = state.textures[key];
+		if (entry) {
+			@com.sfeir.canvas.activities.client.render.WebGLSpriteRenderer::flush(Lcom/google/gwt/core/client/JavaScriptObject;)(state);
+			state.gl.deleteTexture(entry.texture);
+			delete state.textures[key];
+			if (state.bound === entry) {
+				state.bound = null;
+			}
+		}
+	}-*/;
+
+	/**
+	 * Adds a quad to the vertex buffer, drawing the buffer first if it is
+	 * full. The corners are given as top-left, top-right, bottom-left and
+	 * bottom-right, along with the texture coordinates of the part of the
+	 * image drawn and the alpha.
+	 */
+	private static native void quad(JavaScriptObject state, double x0, double y0, double x1, double y1,
+			double x2, double y2, double x3, double y3, double u0, double v0, double u1, double v1, double alpha) /*-{
+		if (state.quads == state.maxQuads) {
+			@com.sfeir.canvas.activities.client.render.WebGLSpriteRenderer::flush(Lcom/google/gwt/core/client/JavaScriptObject;)(state);
+		}
+		var v = state.vertices;
+		var i = state.quads * 30;
+		// two triangles : top-left, top-right, bottom-left, then bottom-left,
+		// top-right, bottom-right
+		v[i] = x0; v[i + 1] = y0; v[i + 2] = u0; v[i + 3] = v0; v[i + 4] = alpha;
+		v[i + 5] = x1; v[i + 6] = y1; v[i + 7] = u1; v[i + 8] = v0; v[i + 9] = alpha;
+		v[i + 10] = x2; v[i + 11] = y2; v[i + 12] = u0; v[i + 13] = v1; v[i + 14] = alpha;
+		v[i + 15] = x2; v[i + 16] = y2; v[i + 17] = u0; v[i + 18] = v1; v[i + 19] = alpha;
+		v[i + 20] = x1; v[i + 21] = y1; v[i + 22] = u1; v[i + 23] = v0; v[i + 24] = alpha;
+		v[i + 25] = x3; v[i + 26] = y3; v[i + 27] = u1; v[i + 28] = v1; v[i + 29] = alpha;
+		state.quads++;
+	}-*/;
+
+	/**
+	 * Draws the quads accumulated in the vertex buffer
+	 * 
+	 * @param state
+	 *            the WebGL state
+	 */
+	private static native void flush(JavaScriptObject state) /*-{
+		if (state.quads == 0) {
+			return;
+		}
+		var gl = state.gl;
+		gl.bufferSubData(gl.ARRAY_BUFFER, 0, state.vertices.subarray(0, state.quads * 30));
+		gl.drawArrays(gl.TRIANGLES, 0, state.quads * 6);
+		state.quads = 0;
+	}-*/;
+}
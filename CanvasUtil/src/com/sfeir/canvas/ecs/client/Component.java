@@ -0,0 +1,82 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.ecs.client;
+
+/**
+ * Storage of a type of component, for all the entities of a {@link World}.<br>
+ * The values are stored field by field, one primitive array per field indexed
+ * by entity, so that a system iterates over contiguous values instead of
+ * following references to objects.
+ * 
+ * @author François LAROCHE
+ */
+public abstract class Component {
+
+	/**
+	 * the number of fields of the component
+	 */
+	private final int fields;
+	/**
+	 * the bit of the component in the masks of the entities, 0 until
+	 * registered
+	 */
+	private int mask;
+
+	/**
+	 * Constructor initializing the component
+	 * 
+	 * @param fields
+	 *            the number of fields, 0 for a tag without data
+	 */
+	protected Component(int fields) {
+		if (fields < 0) {
+			throw new IllegalArgumentException("fields can't be negative");
+		}
+		this.fields = fields;
+	}
+
+	/**
+	 * Gets the number of fields
+	 * 
+	 * @return the number of fields
+	 */
+	public int getFields() {
+		return fields;
+	}
+
+	/**
+	 * Gets the bit of the component in the masks of the entities
+	 * 
+	 * @return the bit of the component, 0 if it isn't registered in a world
+	 */
+	public int getMask() {
+		return mask;
+	}
+
+	/**
+	 * Sets the bit of the component, when registered in a world
+	 * 
+	 * @param mask
+	 *            the bit of the component
+	 */
+	void setMask(int mask) {
+		this.mask = mask;
+	}
+
+	/**
+	 * Grows the storage to hold more entities, keeping the values
+	 * 
+	 * @param capacity
+	 *            the new number of entities
+	 */
+	protected abstract void grow(int capacity);
+
+	/**
+	 * Resets the values of an entity, when the component is added to it
+	 * 
+	 * @param entity
+	 *            the entity
+	 */
+	protected abstract void reset(int entity);
+}
@@ -0,0 +1,87 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.ecs.client;
+
+/**
+ * Component whose fields are numbers, such as a position or a velocity
+ * 
+ * @author François LAROCHE
+ */
+public class DoubleComponent extends Component {
+
+	/**
+	 * the values, by field then by entity
+	 */
+	private final double[][] data;
+
+	/**
+	 * Constructor initializing the component
+	 * 
+	 * @param fields
+	 *            the number of fields
+	 */
+	public DoubleComponent(int fields) {
+		super(fields);
+		this.data = new double[fields][];
+		for (int i = 0; i < fields; i++) {
+			this.data[i] = new double[0];
+		}
+	}
+
+	/**
+	 * Gets the value of a field
+	 * 
+	 * @param entity
+	 *            the entity
+	 * @param field
+	 *            the index of the field
+	 * @return the value
+	 */
+	public double get(int entity, int field) {
+		return this.data[field][entity];
+	}
+
+	/**
+	 * Sets the value of a field
+	 * 
+	 * @param entity
+	 *            the entity
+	 * @param field
+	 *            the index of the field
+	 * @param value
+	 *            the value
+	 */
+	public void set(int entity, int field, double value) {
+		this.data[field][entity] = value;
+	}
+
+	/**
+	 * Gets the values of a field for all the entities, to be iterated by a
+	 * system without a call per value. The array is replaced when the world
+	 * grows, so it must not be kept from one tick to another.
+	 * 
+	 * @param field
+	 *            the index of the field
+	 * @return the values, indexed by entity
+	 */
+	public double[] getField(int field) {
+		return this.data[field];
+	}
+
+	@Override
+	protected void grow(int capacity) {
+		for (int i = 0; i < this.data.length; i++) {
+			double[] values = new double[capacity];
+			System.arraycopy(this.data[i], 0, values, 0, this.data[i].length);
+			this.data[i] = values;
+		}
+	}
+
+	@Override
+	protected void reset(int entity) {
+		for (int i = 0; i < this.data.length; i++) {
+			this.data[i][entity] = 0;
+		}
+	}
+}
@@ -0,0 +1,95 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.ecs.client;
+
+import com.google.gwt.canvas.client.Canvas;
+import com.google.gwt.canvas.dom.client.Context2d;
+import com.google.web.bindery.event.shared.EventBus;
+import com.sfeir.canvas.activities.client.AbstractCanvasActivity;
+
+/**
+ * Activity running a {@link World}. The world is created when the activity
+ * starts, set up by {@link #setUp(World, Canvas, EventBus)}, updated and
+ * rendered by the game loop, and torn down when the activity stops.
+ * 
+ * @author François LAROCHE
+ */
+public abstract class EcsCanvasActivity extends AbstractCanvasActivity {
+
+	/**
+	 * the world, null while the activity isn't running
+	 */
+	private World world;
+
+	@Override
+	public void start(Canvas canvas, EventBus bus) {
+		this.world = this.createWorld();
+		this.setUp(this.world, canvas, bus);
+	}
+
+	@Override
+	public void stop() {
+		if (this.world != null) {
+			this.tearDown(this.world);
+			this.world.clear();
+			this.world = null;
+		}
+	}
+
+	@Override
+	public void update(double dt) {
+		if (this.world != null) {
+			this.world.update(dt);
+		}
+	}
+
+	@Override
+	public void render(Context2d ctx, double alpha) {
+		if (this.world != null) {
+			this.world.render(ctx, alpha);
+		}
+	}
+
+	/**
+	 * Gets the world
+	 * 
+	 * @return the world, null while the activity isn't running
+	 */
+	public World getWorld() {
+		return world;
+	}
+
+	/**
+	 * Creates the world of the activity. Override it to size the world for
+	 * the expected number of entities.
+	 * 
+	 * @return a new world
+	 */
+	protected World createWorld() {
+		return new World();
+	}
+
+	/**
+	 * Sets up the world : registers the components, adds the systems and
+	 * creates the first entities
+	 * 
+	 * @param world
+	 *            the new world
+	 * @param canvas
+	 *            the canvas on which the activity is displayed
+	 * @param bus
+	 *            the bus on which to send or receive events
+	 */
+	protected abstract void setUp(World world, Canvas canvas, EventBus bus);
+
+	/**
+	 * Called when the activity stops, before the world is cleared, to release
+	 * what the systems hold
+	 * 
+	 * @param world
+	 *            the world
+	 */
+	protected void tearDown(World world) {
+	}
+}
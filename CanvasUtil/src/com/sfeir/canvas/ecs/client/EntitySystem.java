@@ -0,0 +1,23 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.ecs.client;
+
+/**
+ * System updating the entities of a {@link World} on the ticks of the game
+ * loop
+ * 
+ * @author François LAROCHE
+ */
+public interface EntitySystem {
+
+	/**
+	 * Updates the entities
+	 * 
+	 * @param world
+	 *            the world of the entities
+	 * @param dt
+	 *            the time elapsed since the system last ran, in milliseconds
+	 */
+	public void update(World world, double dt);
+}
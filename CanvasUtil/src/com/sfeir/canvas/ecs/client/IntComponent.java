@@ -0,0 +1,88 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.ecs.client;
+
+/**
+ * Component whose fields are integers, such as a sprite frame or a counter.
+ * A component with no field is a tag, only marking entities.
+ * 
+ * @author François LAROCHE
+ */
+public class IntComponent extends Component {
+
+	/**
+	 * the values, by field then by entity
+	 */
+	private final int[][] data;
+
+	/**
+	 * Constructor initializing the component
+	 * 
+	 * @param fields
+	 *            the number of fields
+	 */
+	public IntComponent(int fields) {
+		super(fields);
+		this.data = new int[fields][];
+		for (int i = 0; i < fields; i++) {
+			this.data[i] = new int[0];
+		}
+	}
+
+	/**
+	 * Gets the value of a field
+	 * 
+	 * @param entity
+	 *            the entity
+	 * @param field
+	 *            the index of the field
+	 * @return the value
+	 */
+	public int get(int entity, int field) {
+		return this.data[field][entity];
+	}
+
+	/**
+	 * Sets the value of a field
+	 * 
+	 * @param entity
+	 *            the entity
+	 * @param field
+	 *            the index of the field
+	 * @param value
+	 *            the value
+	 */
+	public void set(int entity, int field, int value) {
+		this.data[field][entity] = value;
+	}
+
+	/**
+	 * Gets the values of a field for all the entities, to be iterated by a
+	 * system without a call per value. The array is replaced when the world
+	 * grows, so it must not be kept from one tick to another.
+	 * 
+	 * @param field
+	 *            the index of the field
+	 * @return the values, indexed by entity
+	 */
+	public int[] getField(int field) {
+		return this.data[field];
+	}
+
+	@Override
+	protected void grow(int capacity) {
+		for (int i = 0; i < this.data.length; i++) {
+			int[] values = new int[capacity];
+			System.arraycopy(this.data[i], 0, values, 0, this.data[i].length);
+			this.data[i] = values;
+		}
+	}
+
+	@Override
+	protected void reset(int entity) {
+		for (int i = 0; i < this.data.length; i++) {
+			this.data[i][entity] = 0;
+		}
+	}
+}
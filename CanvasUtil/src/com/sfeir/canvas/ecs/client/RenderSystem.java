@@ -0,0 +1,27 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.ecs.client;
+
+import com.google.gwt.canvas.dom.client.Context2d;
+
+/**
+ * System drawing the entities of a {@link World}, once per frame
+ * 
+ * @author François LAROCHE
+ */
+public interface RenderSystem {
+
+	/**
+	 * Draws the entities
+	 * 
+	 * @param world
+	 *            the world of the entities
+	 * @param ctx
+	 *            the context on which to draw
+	 * @param alpha
+	 *            the interpolation factor between the previous state and the
+	 *            current one, between 0 and 1
+	 */
+	public void render(World world, Context2d ctx, double alpha);
+}
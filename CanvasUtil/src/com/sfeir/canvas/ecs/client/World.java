@@ -0,0 +1,394 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.ecs.client;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.gwt.canvas.dom.client.Context2d;
+
+/**
+ * Set of entities, their components and the systems running them.<br>
+ * An entity is only an index in the arrays of the components, and the
+ * components it has are the bits of its mask. The indexes of the destroyed
+ * entities are recycled, and the arrays only grow when more entities are
+ * alive than ever before, so a world in a steady state doesn't allocate.
+ * Systems iterate over the entities with
+ * {@link #next(int, int)} :
+ * 
+ * <pre>
+ * for (int e = world.next(mask, 0); e &gt;= 0; e = world.next(mask, e + 1)) {
+ * 	...
+ * }
+ * </pre>
+ * 
+ * @author François LAROCHE
+ */
+public class World {
+
+	/**
+	 * Default number of entities a world is created for
+	 */
+	public static final int DEFAULT_CAPACITY = 256;
+	/**
+	 * Maximum number of components in a world, one per bit of a mask
+	 */
+	public static final int MAX_COMPONENTS = 32;
+
+	/**
+	 * the components registered
+	 */
+	private final List<Component> components;
+	/**
+	 * the update systems, in their order of execution
+	 */
+	private final List<EntitySystem> systems;
+	/**
+	 * the number of ticks between two runs of each update system
+	 */
+	private int[] intervals;
+	/**
+	 * the render systems, in their order of execution
+	 */
+	private final List<RenderSystem> renderSystems;
+	/**
+	 * the components of each entity
+	 */
+	private int[] masks;
+	/**
+	 * whether each entity is alive
+	 */
+	private boolean[] alive;
+	/**
+	 * the number of times each entity index has been reused
+	 */
+	private int[] generations;
+	/**
+	 * the destroyed entities, to be reused
+	 */
+	private int[] free;
+	/**
+	 * the number of destroyed entities
+	 */
+	private int freeCount;
+	/**
+	 * the number of entity indexes used so far
+	 */
+	private int highWater;
+	/**
+	 * the number of entities alive
+	 */
+	private int count;
+	/**
+	 * the number of ticks run
+	 */
+	private int tick;
+
+	/**
+	 * Constructor initializing the world with the default capacity
+	 */
+	public World() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructor initializing the world
+	 * 
+	 * @param capacity
+	 *            the number of entities the world is created for, it grows
+	 *            beyond if needed
+	 */
+	public World(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("capacity must be at least 1");
+		}
+		this.components = new ArrayList<Component>();
+		this.systems = new ArrayList<EntitySystem>();
+		this.intervals = new int[4];
+		this.renderSystems = new ArrayList<RenderSystem>();
+		this.masks = new int[capacity];
+		this.alive = new boolean[capacity];
+		this.generations = new int[capacity];
+		this.free = new int[capacity];
+	}
+
+	/**
+	 * Registers a component
+	 * 
+	 * @param component
+	 *            the component, not registered in another world
+	 * @return the component
+	 * @throws IllegalStateException
+	 *             if the world already has {@link #MAX_COMPONENTS} components
+	 */
+	public <C extends Component> C register(C component) {
+		if (component.getMask() != 0) {
+			throw new IllegalArgumentException("component already registered");
+		}
+		if (this.components.size() >= MAX_COMPONENTS) {
+			throw new IllegalStateException("A world can't hold more than " + MAX_COMPONENTS + " components");
+		}
+		component.setMask(1 << this.components.size());
+		component.grow(this.masks.length);
+		this.components.add(component);
+		return component;
+	}
+
+	/**
+	 * Adds an update system, run on each tick
+	 * 
+	 * @param system
+	 *            the system
+	 */
+	public void addSystem(EntitySystem system) {
+		this.addSystem(system, 1);
+	}
+
+	/**
+	 * Adds an update system, run every given number of ticks
+	 * 
+	 * @param system
+	 *            the system
+	 * @param interval
+	 *            the number of ticks between two runs, at least 1
+	 */
+	public void addSystem(EntitySystem system, int interval) {
+		if (interval < 1) {
+			throw new IllegalArgumentException("interval must be at least 1");
+		}
+		int index = this.systems.size();
+		if (index == this.intervals.length) {
+			int[] intervals = new int[index * 2];
+			System.arraycopy(this.intervals, 0, intervals, 0, index);
+			this.intervals = intervals;
+		}
+		this.intervals[index] = interval;
+		this.systems.add(system);
+	}
+
+	/**
+	 * Adds a render system
+	 * 
+	 * @param system
+	 *            the system
+	 */
+	public void addRenderSystem(RenderSystem system) {
+		this.renderSystems.add(system);
+	}
+
+	/**
+	 * Creates an entity, without any component
+	 * 
+	 * @return the entity
+	 */
+	public int create() {
+		int entity;
+		if (this.freeCount > 0) {
+			entity = this.free[--this.freeCount];
+		} else {
+			if (this.highWater == this.masks.length) {
+				this.grow(this.highWater * 2);
+			}
+			entity = this.highWater++;
+		}
+		this.alive[entity] = true;
+		this.masks[entity] = 0;
+		this.count++;
+		return entity;
+	}
+
+	/**
+	 * Destroys an entity. Its index is reused by the next entities created,
+	 * with another {@link #getGeneration(int) generation}.
+	 * 
+	 * @param entity
+	 *            the entity
+	 */
+	public void destroy(int entity) {
+		if (!this.isAlive(entity)) {
+			return;
+		}
+		this.alive[entity] = false;
+		this.masks[entity] = 0;
+		this.generations[entity]++;
+		this.free[this.freeCount++] = entity;
+		this.count--;
+	}
+
+	/**
+	 * Checks whether an entity is alive
+	 * 
+	 * @param entity
+	 *            the entity
+	 * @return true if the entity has been created and not destroyed
+	 */
+	public boolean isAlive(int entity) {
+		return entity >= 0 && entity < this.highWater && this.alive[entity];
+	}
+
+	/**
+	 * Gets the generation of an entity index, incremented each time the
+	 * entity is destroyed. Keeping it along with the index allows to detect
+	 * that an entity referenced has been destroyed and its index reused.
+	 * 
+	 * @param entity
+	 *            the entity
+	 * @return the generation
+	 */
+	public int getGeneration(int entity) {
+		return this.generations[entity];
+	}
+
+	/**
+	 * Adds a component to an entity, resetting its values
+	 * 
+	 * @param entity
+	 *            the entity
+	 * @param component
+	 *            the component, registered in this world
+	 */
+	public void add(int entity, Component component) {
+		component.reset(entity);
+		this.masks[entity] |= component.getMask();
+	}
+
+	/**
+	 * Removes a component from an entity
+	 * 
+	 * @param entity
+	 *            the entity
+	 * @param component
+	 *            the component
+	 */
+	public void remove(int entity, Component component) {
+		this.masks[entity] &= ~component.getMask();
+	}
+
+	/**
+	 * Checks whether an entity has a component
+	 * 
+	 * @param entity
+	 *            the entity
+	 * @param component
+	 *            the component
+	 * @return true if the entity has the component
+	 */
+	public boolean has(int entity, Component component) {
+		return (this.masks[entity] & component.getMask()) != 0;
+	}
+
+	/**
+	 * Finds the next entity having a set of components
+	 * 
+	 * @param mask
+	 *            the bits of the components, combined with |
+	 * @param from
+	 *            the index from which to search
+	 * @return the entity, or -1 if there is none
+	 */
+	public int next(int mask, int from) {
+		int[] masks = this.masks;
+		for (int entity = from; entity < this.highWater; entity++) {
+			if (this.alive[entity] && (masks[entity] & mask) == mask) {
+				return entity;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Runs a tick : each update system whose interval is reached
+	 * 
+	 * @param dt
+	 *            the duration of a tick, in milliseconds
+	 */
+	public void update(double dt) {
+		this.tick++;
+		for (int i = 0, n = this.systems.size(); i < n; i++) {
+			int interval = this.intervals[i];
+			if (this.tick % interval == 0) {
+				this.systems.get(i).update(this, dt * interval);
+			}
+		}
+	}
+
+	/**
+	 * Runs the render systems
+	 * 
+	 * @param ctx
+	 *            the context on which to draw
+	 * @param alpha
+	 *            the interpolation factor between the previous state and the
+	 *            current one, between 0 and 1
+	 */
+	public void render(Context2d ctx, double alpha) {
+		for (int i = 0, n = this.renderSystems.size(); i < n; i++) {
+			this.renderSystems.get(i).render(this, ctx, alpha);
+		}
+	}
+
+	/**
+	 * Destroys all the entities and removes the systems. The components stay
+	 * registered.
+	 */
+	public void clear() {
+		for (int entity = 0; entity < this.highWater; entity++) {
+			this.destroy(entity);
+		}
+		this.systems.clear();
+		this.renderSystems.clear();
+		this.tick = 0;
+	}
+
+	/**
+	 * Gets the number of entities alive
+	 * 
+	 * @return the number of entities
+	 */
+	public int getEntityCount() {
+		return count;
+	}
+
+	/**
+	 * Gets the number of ticks run
+	 * 
+	 * @return the number of ticks
+	 */
+	public int getTick() {
+		return tick;
+	}
+
+	/**
+	 * Gets the number of entities the arrays can hold before growing
+	 * 
+	 * @return the capacity
+	 */
+	public int getCapacity() {
+		return this.masks.length;
+	}
+
+	/**
+	 * Grows the arrays of the world and its components
+	 * 
+	 * @param capacity
+	 *            the new capacity
+	 */
+	private void grow(int capacity) {
+		int[] masks = new int[capacity];
+		System.arraycopy(this.masks, 0, masks, 0, this.masks.length);
+		this.masks = masks;
+		boolean[] alive = new boolean[capacity];
+		System.arraycopy(this.alive, 0, alive, 0, this.alive.length);
+		this.alive = alive;
+		int[] generations = new int[capacity];
+		System.arraycopy(this.generations, 0, generations, 0, this.generations.length);
+		this.generations = generations;
+		int[] free = new int[capacity];
+		System.arraycopy(this.free, 0, free, 0, this.freeCount);
+		this.free = free;
+		for (int i = 0, n = this.components.size(); i < n; i++) {
+			this.components.get(i).grow(capacity);
+		}
+	}
+}
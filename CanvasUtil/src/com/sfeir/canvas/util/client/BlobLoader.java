@@ -0,0 +1,296 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.util.client;
+
+import com.google.gwt.core.client.JavaScriptObject;
+
+/**
+ * Loads a resource through an XMLHttpRequest, reporting the bytes
+ * transferred, and hands it back as an object URL that Image and Audio
+ * elements can use without another request, or as an ArrayBuffer.
+ * 
+ * @author François LAROCHE
+ */
+public class BlobLoader {
+
+	/**
+	 * Callback of a {@link BlobLoader}
+	 * 
+	 * @author François LAROCHE
+	 */
+	public static interface Callback {
+		/**
+		 * Called when bytes have been received
+		 * 
+		 * @param loaded
+		 *            the number of bytes received so far
+		 * @param total
+		 *            the total number of bytes, from the Content-Length, or
+		 *            -1 if unknown
+		 */
+		public void onProgress(double loaded, double total);
+
+		/**
+		 * Called when the resource has been received
+		 * 
+		 * @param objectUrl
+		 *            the object URL of the resource, to be revoked with
+		 *            {@link BlobLoader#revoke(String)} when no longer used
+		 * @param bytes
+		 *            the number of bytes of the resource
+		 */
+		public void onLoad(String objectUrl, double bytes);
+
+		/**
+		 * Called when the resource couldn't be loaded
+		 */
+		public void onError();
+	}
+
+	/**
+	 * Callback of a {@link BlobLoader} loading an ArrayBuffer
+	 * 
+	 * @author François LAROCHE
+	 */
+	public static interface BufferCallback {
+		/**
+		 * Called when bytes have been received
+		 * 
+		 * @param loaded
+		 *            the number of bytes received so far
+		 * @param total
+		 *            the total number of bytes, or -1 if unknown
+		 */
+		public void onProgress(double loaded, double total);
+
+		/**
+		 * Called when the resource has been received
+		 * 
+		 * @param buffer
+		 *            the ArrayBuffer holding the resource
+		 * @param bytes
+		 *            the number of bytes of the resource
+		 */
+		public void onLoad(JavaScriptObject buffer, double bytes);
+
+		/**
+		 * Called when the resource couldn't be loaded
+		 */
+		public void onError();
+	}
+
+	/**
+	 * the request, null once it is over
+	 */
+	private JavaScriptObject xhr;
+	/**
+	 * the callback of a blob request, null for an ArrayBuffer request
+	 */
+	private final Callback callback;
+	/**
+	 * the callback of an ArrayBuffer request, null for a blob request
+	 */
+	private final BufferCallback bufferCallback;
+	/**
+	 * the blob or ArrayBuffer received, null until then
+	 */
+	private JavaScriptObject response;
+
+	/**
+	 * Constructor, requests are created through {@link #load(String, Callback)}
+	 * and {@link #loadBuffer(String, BufferCallback)}
+	 * 
+	 * @param callback
+	 *            the callback of a blob request
+	 * @param bufferCallback
+	 *            the callback of an ArrayBuffer request
+	 */
+	private BlobLoader(Callback callback, BufferCallback bufferCallback) {
+		this.callback = callback;
+		this.bufferCallback = bufferCallback;
+	}
+
+	/**
+	 * Checks whether the browser supports loading resources as blobs
+	 * 
+	 * @return true if blobs and object URLs are supported
+	 */
+	public static native boolean isSupported() /*-{
+		return !!($wnd.XMLHttpRequest && $wnd.Blob && ($wnd.URL || $wnd.webkitURL)
+				&& ('responseType' in new $wnd.XMLHttpRequest()));
+	}-*/;
+
+	/**
+	 * Starts loading a resource
+	 * 
+	 * @param url
+	 *            the url of the resource
+	 * @param callback
+	 *            the callback to notify
+	 * @return the loader, that can be aborted
+	 */
+	public static BlobLoader load(String url, Callback callback) {
+		BlobLoader loader = new BlobLoader(callback, null);
+		loader.xhr = loader.send(url, "blob");
+		return loader;
+	}
+
+	/**
+	 * Starts loading a resource as an ArrayBuffer
+	 * 
+	 * @param url
+	 *            the url of the resource
+	 * @param callback
+	 *            the callback to notify
+	 * @return the loader, that can be aborted
+	 */
+	public static BlobLoader loadBuffer(String url, BufferCallback callback) {
+		BlobLoader loader = new BlobLoader(null, callback);
+		loader.xhr = loader.send(url, "arraybuffer");
+		return loader;
+	}
+
+	/**
+	 * Creates an object URL for a blob
+	 * 
+	 * @param blob
+	 *            the blob
+	 * @return the object URL
+	 */
+	public static native String createObjectUrl(JavaScriptObject blob) /*-{
+		return ($wnd.URL || $wnd.webkitURL).createObjectURL(blob);
+	}-*/;
+
+	/**
+	 * Revokes an object URL, so that the browser can free its data
+	 * 
+	 * @param objectUrl
+	 *            the object URL, may be null
+	 */
+	public static native void revoke(String objectUrl) /*-{
+		if (objectUrl) {
+			($wnd.URL || $wnd.webkitURL).revokeObjectURL(objectUrl);
+		}
+	}-*/;
+
+	/**
+	 * Aborts the request, if it isn't over. The callback won't be called
+	 * anymore.
+	 */
+	public void abort() {
+		if (this.xhr != null) {
+			abort(this.xhr);
+			this.xhr = null;
+		}
+	}
+
+	/**
+	 * Gets the resource received, for instance to store it
+	 * 
+	 * @return the Blob or ArrayBuffer received, null if the request isn't
+	 *         over
+	 */
+	public JavaScriptObject getResponse() {
+		return this.response;
+	}
+
+	/**
+	 * Called by the request when bytes have been received
+	 * 
+	 * @param loaded
+	 *            the number of bytes received so far
+	 * @param total
+	 *            the total number of bytes, or -1 if unknown
+	 */
+	private void progress(double loaded, double total) {
+		if (this.callback != null) {
+			this.callback.onProgress(loaded, total);
+		} else {
+			this.bufferCallback.onProgress(loaded, total);
+		}
+	}
+
+	/**
+	 * Called by the request when the resource has been received
+	 * 
+	 * @param response
+	 *            the blob or ArrayBuffer received
+	 */
+	private void received(JavaScriptObject response) {
+		this.xhr = null;
+		this.response = response;
+		if (this.callback != null) {
+			this.callback.onLoad(createObjectUrl(response), size(response));
+		} else {
+			this.bufferCallback.onLoad(response, size(response));
+		}
+	}
+
+	/**
+	 * Called by the request when it failed
+	 */
+	private void error() {
+		this.xhr = null;
+		if (this.callback != null) {
+			this.callback.onError();
+		} else {
+			this.bufferCallback.onError();
+		}
+	}
+
+	/**
+	 * Gets the size of a blob or an ArrayBuffer
+	 * 
+	 * @param response
+	 *            the blob or ArrayBuffer
+	 * @return the number of bytes
+	 */
+	private static native double size(JavaScriptObject response) /*-{
+		return response.size !== undefined ? response.size : response.byteLength;
+	}-*/;
+
+	/**
+	 * Aborts a request, detaching its listeners first so that it doesn't
+	 * report an error
+	 * 
+	 * @param xhr
+	 *            the XMLHttpRequest
+	 */
+	private static native void abort(JavaScriptObject xhr) /*-{
+		xhr.onprogress = xhr.onload = xhr.onerror = null;
+		xhr.abort();
+	}-*/;
+
+	/**
+	 * Sends the request, routing its progress, load and error events to this
+	 * loader
+	 * 
+	 * @param url
+	 *            the url of the resource
+	 * @param responseType
+	 *            the type of the response, "blob" or "arraybuffer"
+	 * @return the XMLHttpRequest
+	 */
+	private native JavaScriptObject send(String url, String responseType) /*-{
+		var self = this;
+		var xhr = new $wnd.XMLHttpRequest();
+		xhr.open("GET", url, true);
+		xhr.responseType = responseType;
+		xhr.onprogress = $entry(function(e) {
+			self.@com.sfeir.canvas.util.client.BlobLoader::progress(DD)(e.loaded, e.lengthComputable ? e.total : -1);
+		});
+		xhr.onload = $entry(function() {
+			if ((xhr.status >= 200 && xhr.status < 300) || (xhr.status == 0 && xhr.response)) {
+				self.@com.sfeir.canvas.util.client.BlobLoader::received(Lcom/google/gwt/core/client/JavaScriptObject;)(xhr.response);
+			} else {
+				self.@com.sfeir.canvas.util.client.BlobLoader::error()();
+			}
+		});
+		xhr.onerror = $entry(function() {
+			self.@com.sfeir.canvas.util.client.BlobLoader::error()();
+		});
+		xhr.send();
+		return xhr;
+	}-*/;
+}
@@ -0,0 +1,177 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.util.client;
+
+/**
+ * Accounting of the loading progress of a set of resources.<br>
+ * Each resource contributes the number of bytes expected and the number of
+ * bytes loaded so far. The expected number can change while loading, for
+ * instance when the real size of a resource becomes known. A smoothed
+ * percentage, which never goes backwards while the same resources load, is
+ * also maintained for display.
+ * 
+ * @author François LAROCHE
+ */
+public class LoadingProgress {
+
+	/**
+	 * Default fraction of the remaining gap covered by each sample of the
+	 * smoothed percentage
+	 */
+	public static final double DEFAULT_SMOOTHING = 0.3;
+
+	/**
+	 * the number of bytes expected
+	 */
+	private double expected;
+	/**
+	 * the number of bytes loaded
+	 */
+	private double loaded;
+	/**
+	 * the smoothed percentage
+	 */
+	private double smoothed;
+	/**
+	 * the fraction of the remaining gap covered by each sample
+	 */
+	private double smoothing;
+
+	/**
+	 * Constructor creating an empty progress
+	 */
+	public LoadingProgress() {
+		this.smoothing = DEFAULT_SMOOTHING;
+	}
+
+	/**
+	 * Forgets all the resources
+	 */
+	public void reset() {
+		this.expected = 0;
+		this.loaded = 0;
+		this.smoothed = 0;
+	}
+
+	/**
+	 * Adds a resource
+	 * 
+	 * @param expectedBytes
+	 *            the number of bytes expected for the resource
+	 * @param loadedBytes
+	 *            the number of bytes of the resource already loaded
+	 */
+	public void add(double expectedBytes, double loadedBytes) {
+		this.expected += expectedBytes;
+		this.loaded += loadedBytes;
+		// more to load : the smoothed percentage has to go back
+		double ratio = this.getRatio();
+		if (this.smoothed > ratio) {
+			this.smoothed = ratio;
+		}
+	}
+
+	/**
+	 * Removes a resource
+	 * 
+	 * @param expectedBytes
+	 *            the number of bytes expected for the resource
+	 * @param loadedBytes
+	 *            the number of bytes of the resource loaded
+	 */
+	public void remove(double expectedBytes, double loadedBytes) {
+		this.expected -= expectedBytes;
+		this.loaded -= loadedBytes;
+	}
+
+	/**
+	 * Updates the progress of a resource
+	 * 
+	 * @param expectedDelta
+	 *            the change of the number of bytes expected
+	 * @param loadedDelta
+	 *            the number of bytes loaded since the last update
+	 */
+	public void update(double expectedDelta, double loadedDelta) {
+		this.expected += expectedDelta;
+		this.loaded += loadedDelta;
+	}
+
+	/**
+	 * Checks whether everything expected has been loaded
+	 * 
+	 * @return true if the progress is complete
+	 */
+	public boolean isComplete() {
+		return this.loaded >= this.expected;
+	}
+
+	/**
+	 * Gets the exact loading percentage, between 0 and 1
+	 * 
+	 * @return the ratio of bytes loaded
+	 */
+	public float getRatio() {
+		if (this.expected <= 0) {
+			return 0;
+		}
+		return (float) Math.min(1, this.loaded / this.expected);
+	}
+
+	/**
+	 * Moves the smoothed percentage towards the exact one, and returns it
+	 * 
+	 * @return the smoothed percentage, between 0 and 1
+	 */
+	public float sample() {
+		double ratio = this.getRatio();
+		if (this.expected > 0 && this.isComplete()) {
+			this.smoothed = 1;
+		} else if (ratio > this.smoothed) {
+			this.smoothed += (ratio - this.smoothed) * this.smoothing;
+		}
+		return (float) this.smoothed;
+	}
+
+	/**
+	 * Gets the smoothed percentage, as computed by the last {@link #sample()}
+	 * 
+	 * @return the smoothed percentage, between 0 and 1
+	 */
+	public float getSmoothedRatio() {
+		return (float) this.smoothed;
+	}
+
+	/**
+	 * Sets the fraction of the remaining gap covered by each sample
+	 * 
+	 * @param smoothing
+	 *            the smoothing factor, between 0 (excluded) and 1 (no
+	 *            smoothing)
+	 */
+	public void setSmoothing(double smoothing) {
+		if (smoothing <= 0 || smoothing > 1) {
+			throw new IllegalArgumentException("smoothing must be in ]0, 1]");
+		}
+		this.smoothing = smoothing;
+	}
+
+	/**
+	 * Gets the number of bytes expected
+	 * 
+	 * @return the number of bytes expected
+	 */
+	public double getExpected() {
+		return expected;
+	}
+
+	/**
+	 * Gets the number of bytes loaded
+	 * 
+	 * @return the number of bytes loaded
+	 */
+	public double getLoaded() {
+		return loaded;
+	}
+}
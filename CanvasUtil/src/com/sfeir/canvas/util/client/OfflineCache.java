@@ -0,0 +1,269 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.util.client;
+
+import com.google.gwt.core.client.JavaScriptObject;
+
+/**
+ * Persistent cache of the resources downloaded, based on the Cache Storage
+ * API, so that the next sessions load them without going to the network.<br>
+ * Each resource is stored under its url along with its content hash, as
+ * given by a {@link ResourceManifest} : a resource is only taken from the
+ * cache if its hash is the expected one, and a stale copy is deleted when
+ * found. Resources without a hash are never cached, since they couldn't be
+ * validated.
+ * 
+ * @author François LAROCHE
+ */
+public class OfflineCache {
+
+	/**
+	 * Callback of a lookup in the cache
+	 * 
+	 * @author François LAROCHE
+	 */
+	public static interface LookupCallback {
+		/**
+		 * Called when the resource is in the cache, with the expected hash
+		 * 
+		 * @param data
+		 *            the Blob or ArrayBuffer of the resource
+		 * @param bytes
+		 *            the size of the resource
+		 */
+		public void onHit(JavaScriptObject data, double bytes);
+
+		/**
+		 * Called when the resource isn't in the cache, or is stale
+		 */
+		public void onMiss();
+	}
+
+	/**
+	 * Default name of the cache
+	 */
+	public static final String DEFAULT_NAME = "gwt-game-util";
+
+	/**
+	 * Header holding the hash of a resource in the cache
+	 */
+	private static final String HASH_HEADER = "X-Content-Hash";
+
+	/**
+	 * the name of the cache in the Cache Storage
+	 */
+	private final String name;
+	/**
+	 * the number of resources found in the cache
+	 */
+	private int hits;
+	/**
+	 * the number of resources not found in the cache, or stale
+	 */
+	private int misses;
+
+	/**
+	 * Constructor initializing the cache with the default name
+	 */
+	public OfflineCache() {
+		this(DEFAULT_NAME);
+	}
+
+	/**
+	 * Constructor initializing the cache
+	 * 
+	 * @param name
+	 *            the name of the cache in the Cache Storage, different
+	 *            applications on the same origin should use different names
+	 */
+	public OfflineCache(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Checks whether the browser supports the Cache Storage API. It is only
+	 * available on secure origins.
+	 * 
+	 * @return true if the cache can be used
+	 */
+	public static native boolean isSupported() /*-{
+		return !!($wnd.caches && $wnd.Response && $wnd.Promise);
+	}-*/;
+
+	/**
+	 * Looks a resource up in the cache
+	 * 
+	 * @param url
+	 *            the url of the resource
+	 * @param hash
+	 *            the expected hash of the resource, null if unknown
+	 * @param buffer
+	 *            whether to get the resource as an ArrayBuffer rather than
+	 *            a Blob
+	 * @param callback
+	 *            the callback notified of the result
+	 */
+	public void get(String url, String hash, boolean buffer, LookupCallback callback) {
+		if (hash == null || !isSupported()) {
+			this.misses++;
+			callback.onMiss();
+			return;
+		}
+		this.match(url, hash, buffer, callback);
+	}
+
+	/**
+	 * Stores a resource in the cache, replacing any previous copy. Failures,
+	 * such as an exceeded quota, are ignored.
+	 * 
+	 * @param url
+	 *            the url of the resource
+	 * @param hash
+	 *            the hash of the resource, nothing is stored if null
+	 * @param data
+	 *            the Blob or ArrayBuffer of the resource
+	 */
+	public void put(String url, String hash, JavaScriptObject data) {
+		if (hash != null && isSupported()) {
+			this.store(url, hash, data);
+		}
+	}
+
+	/**
+	 * Deletes all the resources of the cache
+	 */
+	public native void clear() /*-{
+		if ($wnd.caches) {
+			$wnd.caches["delete"](this.@com.sfeir.canvas.util.client.OfflineCache::name);
+		}
+	}-*/;
+
+	/**
+	 * Gets the number of resources found in the cache
+	 * 
+	 * @return the number of hits
+	 */
+	public int getHits() {
+		return this.hits;
+	}
+
+	/**
+	 * Gets the number of resources not found in the cache, or stale
+	 * 
+	 * @return the number of misses
+	 */
+	public int getMisses() {
+		return this.misses;
+	}
+
+	/**
+	 * Gets the fraction of the lookups that found the resource
+	 * 
+	 * @return the hit rate, between 0 and 1, 0 if there was no lookup
+	 */
+	public double getHitRate() {
+		int lookups = this.hits + this.misses;
+		return lookups == 0 ? 0 : (double) this.hits / lookups;
+	}
+
+	/**
+	 * Called when a lookup found the resource
+	 * 
+	 * @param callback
+	 *            the callback of the lookup
+	 * @param data
+	 *            the Blob or ArrayBuffer of the resource
+	 * @param bytes
+	 *            the size of the resource
+	 */
+	private void hit(LookupCallback callback, JavaScriptObject data, double bytes) {
+		this.hits++;
+		callback.onHit(data, bytes);
+	}
+
+	/**
+	 * Called when a lookup didn't find the resource
+	 * 
+	 * @param callback
+	 *            the callback of the lookup
+	 */
+	private void miss(LookupCallback callback) {
+		this.misses++;
+		callback.onMiss();
+	}
+
+	/**
+	 * Looks a resource up in the Cache Storage. A copy whose hash isn't the
+	 * expected one is deleted, and counts as a miss. The callback is notified
+	 * once, a failure of the storage being a miss.
+	 * 
+	 * @param url
+	 *            the url of the resource
+	 * @param hash
+	 *            the expected hash of the resource
+	 * @param buffer
+	 *            whether to get the resource as an ArrayBuffer rather than
+	 *            a Blob
+	 * @param callback
+	 *            the callback notified of the result
+	 */
+	private native void match(String url, String hash, boolean buffer, LookupCallback callback) /*-{
+		var self = this;
+		var done = false;
+		var miss = $entry(function() {
+			if (!done) {
+				done = true;
+				self.@com.sfeir.canvas.util.client.OfflineCache::miss(Lcom/sfeir/canvas/util/client/OfflineCache$LookupCallback;)(callback);
+			}
+		});
+		var hit = $entry(function(data) {
+			if (!done) {
+				done = true;
+				var bytes = data.size !== undefined ? data.size : data.byteLength;
+				self.@com.sfeir.canvas.util.client.OfflineCache::hit(Lcom/sfeir/canvas/util/client/OfflineCache$LookupCallback;Lcom/google/gwt/core/client/JavaScriptObject;D)(callback, data, bytes);
+			}
+		});
+		var name = this.@com.sfeir.canvas.util.client.OfflineCache::name;
+		$wnd.caches.open(name).then(function(cache) {
+			return cache.match(url).then(function(response) {
+				if (!response) {
+					miss();
+				} else if (response.headers.get(@com.sfeir.canvas.util.client.OfflineCache::HASH_HEADER) != hash) {
+					// stale copy, the resource has changed
+					cache["delete"](url);
+					miss();
+				} else {
+					return (buffer ? response.arrayBuffer() : response.blob()).then(hit);
+				}
+			});
+		})["catch"](miss);
+	}-*/;
+
+	/**
+	 * Stores a resource in the Cache Storage, with its hash in the
+	 * {@link #HASH_HEADER} header and its type when it is a Blob
+	 * 
+	 * @param url
+	 *            the url of the resource
+	 * @param hash
+	 *            the hash of the resource
+	 * @param data
+	 *            the Blob or ArrayBuffer of the resource
+	 */
+	private native void store(String url, String hash, JavaScriptObject data) /*-{
+		var name = this.@com.sfeir.canvas.util.client.OfflineCache::name;
+		$wnd.caches.open(name).then(function(cache) {
+			var headers = {};
+			headers[@com.sfeir.canvas.util.client.OfflineCache::HASH_HEADER] = hash;
+			if (data.type) {
+				headers["Content-Type"] = data.type;
+			}
+			return cache.put(url, new $wnd.Response(data, {
+				headers : headers
+			}));
+		})["catch"](function() {
+			// quota exceeded or storage unavailable, the resource is just not cached
+		});
+	}-*/;
+}
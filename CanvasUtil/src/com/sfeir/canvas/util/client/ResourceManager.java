@@ -1,410 +1,2391 @@
-package com.sfeir.canvas.util.client;
-
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-
-import com.google.gwt.event.dom.client.CanPlayThroughEvent;
-import com.google.gwt.event.dom.client.CanPlayThroughHandler;
-import com.google.gwt.event.dom.client.EndedEvent;
-import com.google.gwt.event.dom.client.EndedHandler;
-import com.google.gwt.event.dom.client.LoadEvent;
-import com.google.gwt.event.dom.client.LoadHandler;
-import com.google.gwt.media.client.Audio;
-import com.google.gwt.user.client.ui.HasWidgets;
-import com.google.gwt.user.client.ui.Image;
-import com.google.gwt.user.client.ui.Widget;
-import com.google.web.bindery.event.shared.EventBus;
-import com.sfeir.canvas.util.client.event.AllResourcesLoadedEvent;
-import com.sfeir.canvas.util.client.event.ResourceLoadedEvent;
-
-/**
- * Class used to manage resources. <br>
- * 
- * It will be used to store all resources, load them asynchronously, send events
- * when loading and, at last, make these resources available to other resources
- * in the application <br>
- * <br>
- * <span style="color: red;font-decoration: underline; font-weight: bold;">
- * Important note on audio : in order to have the loading percentage work
- * correctly, you MUST give the browser sources that are compatible with it, so
- * don't forget to supply sources in the different formats to be compatible with
- * all. </span>
- * 
- * @author François LAROCHE
- */
-public class ResourceManager {
-
-	/**
-	 * This interface defines objects used to apply modifications on all objects
-	 * of a given type
-	 * 
-	 * @author François LAROCHE
-	 * 
-	 * @param <T>
-	 *            the kind of object on which to bring a modification
-	 */
-	public static interface ObjectMofier<T> {
-		/**
-		 * Modify the object
-		 * 
-		 * @param object the object to modify
-		 */
-		public void modify(T object);
-	}
-
-	/**
-	 * Class defined to load a single resource and know when it is loaded
-	 * 
-	 * @author François LAROCHE
-	 * @param <T>
-	 *            the kind of widget needing to be loaded, for instance Image,
-	 *            Audio, Video
-	 */
-	private abstract class ResourceLoader<T extends Widget> {
-
-		/**
-		 * The size of the resource
-		 */
-		private final int size;
-
-		/**
-		 * Constructor initializing the size of the resource
-		 * 
-		 * @param size
-		 *            the size of the resource
-		 */
-		public ResourceLoader(int size) {
-			this.size = size;
-		}
-
-		/**
-		 * Abstract function used to get the widget associated with this
-		 * resource, to be loaded asynchronously
-		 * 
-		 * @return the widget corresponding to this resource
-		 */
-		protected abstract T getElement();
-
-		/**
-		 * Function called after the widget associated with this resource has
-		 * been added to the DOM of the page, and is beginning to be loaded
-		 */
-		protected abstract void afterLoad();
-
-		/**
-		 * Loads the resource, adding it to the DOM of the page
-		 */
-		public void load() {
-			loaderPanel.add(getElement());
-			afterLoad();
-		}
-
-		/**
-		 * Returns the size of this resource
-		 * 
-		 * @return the size of the resource, as configured by the user
-		 */
-		public int getSize() {
-			return size;
-		}
-	}
-
-	/**
-	 * Implementation of the {@link ResourceLoader} for images
-	 * 
-	 * @author François LAROCHE
-	 */
-	private class ImageResourceLoader extends ResourceLoader<Image> {
-		/**
-		 * The Image widget associated with this loader
-		 */
-		private final Image image;
-		/**
-		 * the URL of the image
-		 */
-		private final String url;
-
-		/**
-		 * Constructor initializing fields
-		 * 
-		 * @param url
-		 *            the url of the image
-		 * @param size
-		 *            the size of the image
-		 */
-		public ImageResourceLoader(String url, int size) {
-			super(size);
-			this.image = new Image();
-			this.image.addLoadHandler(new LoadHandler() {
-				@Override
-				public void onLoad(LoadEvent event) {
-					addLoadedSize(getSize());
-					bus.fireEvent(new ResourceLoadedEvent(
-							getLoadedPercentage(), image));
-				}
-			});
-			this.url = url;
-		}
-
-		@Override
-		protected void afterLoad() {
-			this.image.setUrl(this.url);
-		}
-
-		@Override
-		protected Image getElement() {
-			return image;
-		}
-	}
-
-	/**
-	 * Implementation of the {@link ResourceLoader} for audio. <br>
-	 * The specificity of audio elements is that there can be several resources
-	 * for the same audio.
-	 * 
-	 * @author François LAROCHE
-	 */
-	private class AudioResourceLoader extends ResourceLoader<Audio> {
-		/**
-		 * The audio widget managed by this loader
-		 */
-		private final Audio audio;
-		/**
-		 * the list of sources corresponding to this audio
-		 */
-		private List<String> urls;
-
-		/**
-		 * Constructor initializing the size
-		 * 
-		 * @param size
-		 *            the size of the audio
-		 */
-		public AudioResourceLoader(int size) {
-			super(size);
-			this.urls = new ArrayList<String>();
-			this.audio = Audio.createIfSupported();
-			this.audio.addCanPlayThroughHandler(new CanPlayThroughHandler() {
-
-				@Override
-				public void onCanPlayThrough(CanPlayThroughEvent event) {
-					// Do not wait for audio, some browsers can't handle it
-					addLoadedSize(getSize());
-				}
-			});
-			this.audio.addEndedHandler(new EndedHandler() {
-				@Override
-				public void onEnded(EndedEvent event) {
-					audio.load();
-				}
-			});
-		}
-
-		@Override
-		protected void afterLoad() {
-			for (String url : this.urls) {
-				this.audio.addSource(url);
-			}
-			this.audio.load();
-		}
-
-		@Override
-		protected Audio getElement() {
-			return audio;
-		}
-
-		/**
-		 * Adds a source for this audio element
-		 * 
-		 * @param url
-		 *            the url of the source to add
-		 */
-		public void addUrl(String url) {
-			this.urls.add(url);
-		}
-	}
-
-	/**
-	 * Loaders for images
-	 */
-	private final Map<String, ImageResourceLoader> imageLoaders;
-	/**
-	 * Loaders for audio
-	 */
-	private final Map<String, AudioResourceLoader> audioLoaders;
-	/**
-	 * Panel that will be used to store all the elements. The elements need to
-	 * be attached to the DOM to begin loading
-	 */
-	private final HasWidgets loaderPanel;
-	/**
-	 * the size of the resources currently loaded
-	 */
-	private int loadedSize;
-	/**
-	 * the total size of the resources
-	 */
-	private int totalSize;
-	/**
-	 * the bus on which to throw events
-	 */
-	private final EventBus bus;
-	/**
-	 * whether this manager has already fired the final event or not
-	 */
-	private boolean hasFired;
-
-	/**
-	 * Constructor initializing the fields
-	 * 
-	 * @param loaderPanel
-	 *            the panel in which to load the data
-	 * @param bus
-	 *            the bus on which to fire the events
-	 */
-	public ResourceManager(HasWidgets loaderPanel, EventBus bus) {
-		this.loaderPanel = loaderPanel;
-		this.bus = bus;
-		this.hasFired = false;
-		this.imageLoaders = new HashMap<String, ImageResourceLoader>();
-		this.audioLoaders = new HashMap<String, AudioResourceLoader>();
-	}
-
-	/**
-	 * register an image in this {@link ResourceManager}
-	 * 
-	 * @param key
-	 *            the key of the image in this {@link ResourceManager}
-	 * @param url
-	 *            the url of the image
-	 * @param size
-	 *            the size of the image. This size can be arbitrary. For
-	 *            example, you can decide that all resources have a size of "1",
-	 *            or have all of them relative to the real sizes
-	 */
-	public void registerImage(String key, String url, int size) {
-		this.imageLoaders.put(key, new ImageResourceLoader(url, size));
-	}
-
-	/**
-	 * Register an audio or a new source for an existing audio in this
-	 * {@link ResourceManager}
-	 * 
-	 * @param key
-	 *            the key of the audio in this {@link ResourceManager}
-	 * @param url
-	 *            the url of the source
-	 * @param size
-	 *            the size of audio. This size can be arbitrary. For example,
-	 *            you can decide that all resources have a size of "1", or have
-	 *            all of them relative to the real sizes
-	 */
-	public void registerAudio(String key, String url, int size) {
-		if (!this.audioLoaders.containsKey(key)) {
-			this.audioLoaders.put(key, new AudioResourceLoader(size));
-		}
-		AudioResourceLoader loader = this.audioLoaders.get(key);
-		loader.addUrl(url);
-	}
-
-	/**
-	 * gets an Image that has been registered
-	 * 
-	 * @param key
-	 *            the key the wanted image is registered under
-	 * @return the Image associated to the key
-	 */
-	public Image getImage(String key) {
-		ResourceLoader<Image> image = this.imageLoaders.get(key);
-		if (image != null) {
-			return image.getElement();
-		}
-		return null;
-	}
-
-	/**
-	 * get an Audio that has been registered
-	 * 
-	 * @param key
-	 *            the key under which the audio has been registered
-	 * @return the audio corresponding to the key
-	 */
-	public Audio getAudio(String key) {
-		ResourceLoader<Audio> audio = this.audioLoaders.get(key);
-		if (audio != null) {
-			return audio.getElement();
-		}
-		return null;
-	}
-
-	/**
-	 * Pre-load the resources
-	 */
-	public void preloadResources() {
-		this.loadedSize = 0;
-		this.totalSize = 0;
-		this.hasFired = false;
-		this.loaderPanel.clear();
-
-		for (ResourceLoader<Image> loader : this.imageLoaders.values()) {
-			loader.load();
-			this.totalSize += loader.getSize();
-		}
-		if (Audio.isSupported()) {
-			for (ResourceLoader<Audio> loader : this.audioLoaders.values()) {
-				loader.load();
-				this.totalSize += loader.getSize();
-			}
-		}
-	}
-
-	private void addLoadedSize(int size) {
-		this.loadedSize += size;
-		if (this.loadedSize >= totalSize && !this.hasFired) {
-			this.hasFired = true;
-			this.bus.fireEvent(new AllResourcesLoadedEvent());
-		}
-	}
-
-	/**
-	 * Gets the loading percentage. This percentage is between 0 and 1.
-	 * 
-	 * @return the loading percentage
-	 */
-	public float getLoadedPercentage() {
-		if (this.totalSize == 0) {
-			return 0;
-		}
-		return (float) this.loadedSize / (float) this.totalSize;
-	}
-
-	/**
-	 * Applies a modification on all audio resources
-	 * 
-	 * @see ObjectMofier
-	 * 
-	 * @param modifier
-	 *            the modification to apply
-	 */
-	public void modifAudio(ObjectMofier<Audio> modifier) {
-		for (AudioResourceLoader loader : this.audioLoaders.values()) {
-			modifier.modify(loader.getElement());
-		}
-	}
-
-	/**
-	 * Applies a modification on all image resources
-	 * 
-	 * @see ObjectMofier
-	 * 
-	 * @param modifier
-	 *            the modification to apply
-	 */
-	public void modifImages(ObjectMofier<Image> modifier) {
-		for (ImageResourceLoader loader : this.imageLoaders.values()) {
-			modifier.modify(loader.getElement());
-		}
-	}
-}
+package com.sfeir.canvas.util.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gwt.canvas.dom.client.Context2d;
+import com.google.gwt.core.client.Callback;
+import com.google.gwt.core.client.Duration;
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.dom.client.CanvasElement;
+import com.google.gwt.dom.client.Document;
+import com.google.gwt.dom.client.Element;
+import com.google.gwt.dom.client.ImageElement;
+import com.google.gwt.dom.client.MediaElement;
+import com.google.gwt.event.dom.client.CanPlayThroughEvent;
+import com.google.gwt.event.dom.client.CanPlayThroughHandler;
+import com.google.gwt.event.dom.client.EndedEvent;
+import com.google.gwt.event.dom.client.EndedHandler;
+import com.google.gwt.event.dom.client.ErrorEvent;
+import com.google.gwt.event.dom.client.ErrorHandler;
+import com.google.gwt.event.dom.client.LoadEvent;
+import com.google.gwt.event.dom.client.LoadHandler;
+import com.google.gwt.http.client.Request;
+import com.google.gwt.http.client.RequestBuilder;
+import com.google.gwt.http.client.RequestCallback;
+import com.google.gwt.http.client.RequestException;
+import com.google.gwt.http.client.Response;
+import com.google.gwt.media.client.Audio;
+import com.google.gwt.user.client.Timer;
+import com.google.gwt.user.client.ui.HasWidgets;
+import com.google.gwt.user.client.ui.Image;
+import com.google.gwt.user.client.ui.Widget;
+import com.google.web.bindery.event.shared.EventBus;
+import com.sfeir.canvas.util.client.event.AllResourcesLoadedEvent;
+import com.sfeir.canvas.util.client.event.ResourceGroupLoadedEvent;
+import com.sfeir.canvas.util.client.event.ResourceLoadedEvent;
+import com.sfeir.canvas.util.client.metrics.Instrumentation;
+import com.sfeir.canvas.util.client.metrics.Metrics;
+
+/**
+ * Class used to manage resources. <br>
+ * 
+ * It will be used to store all resources, load them asynchronously, send events
+ * when loading and, at last, make these resources available to other resources
+ * in the application <br>
+ * <br>
+ * Resources are loaded through a queue : at most
+ * {@link #setMaxConcurrentLoads(int) a given number} of resources are loading
+ * at the same time, and resources with a higher priority are loaded first.
+ * <br>
+ * Resources can be registered in named groups, which are loaded with
+ * {@link #loadGroup(String)} and released with {@link #releaseGroup(String)}
+ * independently from the others. Resources registered without a group belong
+ * to the {@link #DEFAULT_GROUP default group}.
+ * <br>
+ * Small images can be packed in a {@link SpriteAtlas} registered with
+ * {@link #registerAtlas(String, String, String, int)} : the atlas is loaded in
+ * a single request, and its frames are drawn by name.
+ * <br>
+ * Resources can also be described in a {@link ResourceManifest}, loaded at
+ * runtime with {@link #loadManifest(String, Callback)} and registered in a
+ * single batch.
+ * <br>
+ * A {@link #setMemoryBudget(long) memory budget} can be set : when the
+ * resources loaded exceed it, the least recently used ones are evicted, and
+ * loaded again transparently the next time they are asked for.
+ * <br>
+ * With {@link #setByteProgress(boolean) byte progress} enabled, resources are
+ * downloaded as blobs, and the loading percentage follows the bytes actually
+ * received instead of the sizes given when registering them.
+ * <br>
+ * With {@link #setWebAudio(boolean) Web Audio} enabled, sounds are decoded
+ * once and played by {@link #playAudio(String)} with a low latency, several
+ * times at once if needed.
+ * <br>
+ * <br>
+ * <span style="color: red;font-decoration: underline; font-weight: bold;">
+ * Important note on audio : in order to have the loading percentage work
+ * correctly, you MUST give the browser sources that are compatible with it, so
+ * don't forget to supply sources in the different formats to be compatible with
+ * all. </span>
+ * 
+ * @author François LAROCHE
+ */
+public class ResourceManager {
+
+	/**
+	 * This interface defines objects used to apply modifications on all objects
+	 * of a given type
+	 * 
+	 * @author François LAROCHE
+	 * 
+	 * @param <T>
+	 *            the kind of object on which to bring a modification
+	 */
+	public static interface ObjectMofier<T> {
+		/**
+		 * Modify the object
+		 * 
+		 * @param object the object to modify
+		 */
+		public void modify(T object);
+	}
+
+	/**
+	 * Class defined to load a single resource and know when it is loaded
+	 * 
+	 * @author François LAROCHE
+	 * @param <T>
+	 *            the kind of widget needing to be loaded, for instance Image,
+	 *            Audio, Video
+	 */
+	private abstract class ResourceLoader<T extends Widget> {
+
+		/**
+		 * The size of the resource
+		 */
+		private final int size;
+		/**
+		 * The group the resource belongs to
+		 */
+		private final ResourceGroup group;
+		/**
+		 * The priority of the resource, higher priorities are loaded first
+		 */
+		private int priority;
+		/**
+		 * the loading state of the resource, one of the STATE_ constants
+		 */
+		private int state;
+		/**
+		 * whether the size of the resource is counted in the loading
+		 * percentage of the manager
+		 */
+		private boolean counted;
+		/**
+		 * whether the resource has been evicted, and must be loaded again
+		 * when asked for
+		 */
+		private boolean evicted;
+		/**
+		 * the memory used by the resource once loaded, in bytes, as
+		 * estimated when it was loaded
+		 */
+		private long memorySize;
+		/**
+		 * the number of bytes expected for the resource : the size given when
+		 * registering it, until the real size is known
+		 */
+		private double expectedBytes;
+		/**
+		 * the number of bytes of the resource received so far
+		 */
+		private double loadedBytes;
+		/**
+		 * the request downloading the resource as a blob, null if none is
+		 * running
+		 */
+		private BlobLoader request;
+		/**
+		 * the object URL of the blob downloaded, null if none
+		 */
+		private String objectUrl;
+		/**
+		 * the time at which the resource started loading, when the metrics
+		 * are enabled
+		 */
+		private double loadStart;
+		/**
+		 * the number of downloads started, to ignore the lookups in the
+		 * offline cache answered after the download was released
+		 */
+		private int fetchCount;
+
+		/**
+		 * Constructor initializing the size of the resource
+		 * 
+		 * @param size
+		 *            the size of the resource
+		 * @param priority
+		 *            the priority of the resource
+		 * @param group
+		 *            the group of the resource
+		 */
+		public ResourceLoader(int size, int priority, ResourceGroup group) {
+			this.size = size;
+			this.priority = priority;
+			this.group = group;
+			this.state = STATE_IDLE;
+			this.expectedBytes = size;
+			group.add(this);
+		}
+
+		/**
+		 * Abstract function used to get the widget associated with this
+		 * resource, to be loaded asynchronously
+		 * 
+		 * @return the widget corresponding to this resource
+		 */
+		protected abstract T getElement();
+
+		/**
+		 * Function called after the widget associated with this resource has
+		 * been added to the DOM of the page, and is beginning to be loaded
+		 */
+		protected abstract void afterLoad();
+
+		/**
+		 * Replaces the widget of this resource with a new one, not loaded, so
+		 * that the browser can free the data of the previous one
+		 */
+		protected abstract void reset();
+
+		/**
+		 * Estimates the memory used by the resource once loaded
+		 * 
+		 * @return the estimated memory used, in bytes
+		 */
+		protected long estimateMemorySize() {
+			return getSize();
+		}
+
+		/**
+		 * Whether this kind of resource can be loaded by the browser
+		 * 
+		 * @return true if the resource is supported
+		 */
+		protected boolean isSupported() {
+			return true;
+		}
+
+		/**
+		 * Function called when the resource has been downloaded as a blob,
+		 * to have the widget load it
+		 * 
+		 * @param objectUrl
+		 *            the object URL of the blob
+		 */
+		protected void fetched(String objectUrl) {}
+
+		/**
+		 * Downloads the resource as a blob, following the bytes received.
+		 * {@link #fetched(String)} is called once it is downloaded. The
+		 * offline cache, if any, is looked up first.
+		 * 
+		 * @param url
+		 *            the url of the resource
+		 */
+		protected void fetch(final String url) {
+			final String hash = getHash(url);
+			if (offlineCache == null || hash == null) {
+				this.download(url, null);
+				return;
+			}
+			final int fetch = ++this.fetchCount;
+			offlineCache.get(url, hash, false, new OfflineCache.LookupCallback() {
+				@Override
+				public void onHit(JavaScriptObject data, double bytes) {
+					if (fetch == fetchCount) {
+						objectUrl = BlobLoader.createObjectUrl(data);
+						setBytes(bytes, bytes);
+						fetched(objectUrl);
+					}
+				}
+
+				@Override
+				public void onMiss() {
+					if (fetch == fetchCount) {
+						download(url, hash);
+					}
+				}
+			});
+		}
+
+		/**
+		 * Downloads the resource as a blob from the network
+		 * 
+		 * @param url
+		 *            the url of the resource
+		 * @param hash
+		 *            the hash under which to store the resource in the
+		 *            offline cache, null not to store it
+		 */
+		private void download(final String url, final String hash) {
+			this.request = BlobLoader.load(url, new BlobLoader.Callback() {
+				@Override
+				public void onProgress(double loaded, double total) {
+					setBytes(total > 0 ? total : Math.max(expectedBytes, loaded), loaded);
+				}
+
+				@Override
+				public void onLoad(String objectUrl, double bytes) {
+					if (hash != null && offlineCache != null) {
+						offlineCache.put(url, hash, request.getResponse());
+					}
+					request = null;
+					ResourceLoader.this.objectUrl = objectUrl;
+					setBytes(bytes, bytes);
+					fetched(objectUrl);
+				}
+
+				@Override
+				public void onError() {
+					request = null;
+					failed();
+				}
+			});
+		}
+
+		/**
+		 * Downloads the resource as an ArrayBuffer, following the bytes
+		 * received. {@link #buffered(JavaScriptObject)} is called once it is
+		 * downloaded. The offline cache, if any, is looked up first.
+		 * 
+		 * @param url
+		 *            the url of the resource
+		 */
+		protected void fetchBuffer(final String url) {
+			final String hash = getHash(url);
+			if (offlineCache == null || hash == null) {
+				this.downloadBuffer(url, null);
+				return;
+			}
+			final int fetch = ++this.fetchCount;
+			offlineCache.get(url, hash, true, new OfflineCache.LookupCallback() {
+				@Override
+				public void onHit(JavaScriptObject data, double bytes) {
+					if (fetch == fetchCount) {
+						setBytes(bytes, bytes);
+						buffered(data);
+					}
+				}
+
+				@Override
+				public void onMiss() {
+					if (fetch == fetchCount) {
+						downloadBuffer(url, hash);
+					}
+				}
+			});
+		}
+
+		/**
+		 * Downloads the resource as an ArrayBuffer from the network
+		 * 
+		 * @param url
+		 *            the url of the resource
+		 * @param hash
+		 *            the hash under which to store the resource in the
+		 *            offline cache, null not to store it
+		 */
+		private void downloadBuffer(final String url, final String hash) {
+			this.request = BlobLoader.loadBuffer(url, new BlobLoader.BufferCallback() {
+				@Override
+				public void onProgress(double loaded, double total) {
+					setBytes(total > 0 ? total : Math.max(expectedBytes, loaded), loaded);
+				}
+
+				@Override
+				public void onLoad(JavaScriptObject buffer, double bytes) {
+					if (hash != null && offlineCache != null) {
+						offlineCache.put(url, hash, buffer);
+					}
+					request = null;
+					setBytes(bytes, bytes);
+					buffered(buffer);
+				}
+
+				@Override
+				public void onError() {
+					request = null;
+					failed();
+				}
+			});
+		}
+
+		/**
+		 * Function called when the resource has been downloaded as an
+		 * ArrayBuffer
+		 * 
+		 * @param buffer
+		 *            the ArrayBuffer holding the resource
+		 */
+		protected void buffered(JavaScriptObject buffer) {}
+
+		/**
+		 * Aborts the download of the resource and frees its blob, if any
+		 */
+		protected void releaseFetch() {
+			// a lookup in the offline cache still running is ignored
+			this.fetchCount++;
+			if (this.request != null) {
+				this.request.abort();
+				this.request = null;
+			}
+			BlobLoader.revoke(this.objectUrl);
+			this.objectUrl = null;
+		}
+
+		/**
+		 * Updates the number of bytes of the resource, and the loading
+		 * percentage of the manager if the resource is counted in it
+		 * 
+		 * @param expected
+		 *            the number of bytes expected
+		 * @param loaded
+		 *            the number of bytes received
+		 */
+		private void setBytes(double expected, double loaded) {
+			if (this.counted) {
+				progress.update(expected - this.expectedBytes, loaded - this.loadedBytes);
+			}
+			this.expectedBytes = expected;
+			this.loadedBytes = loaded;
+			if (this.counted) {
+				progressChanged(this);
+			}
+		}
+
+		/**
+		 * Loads the resource, adding it to the DOM of the page
+		 */
+		public void load() {
+			this.state = STATE_LOADING;
+			if (metrics.isEnabled()) {
+				this.loadStart = Duration.currentTimeMillis();
+			}
+			loaderPanel.add(getElement());
+			afterLoad();
+		}
+
+		/**
+		 * Called when the resource is loaded. Only the first call after
+		 * {@link #load()} is taken into account.
+		 */
+		protected void loaded() {
+			if (this.state != STATE_LOADING) {
+				return;
+			}
+			this.state = STATE_LOADED;
+			this.evicted = false;
+			if (metrics.isEnabled()) {
+				metrics.getHistogram(Metrics.RESOURCE_LOAD_TIME).record(Duration.currentTimeMillis() - this.loadStart);
+				// the bytes really received : the declared size is only an
+				// estimate, and the browser doesn't count the bytes of the
+				// resources it loads by itself
+				metrics.getCounter(Metrics.RESOURCE_BYTES).add(this.loadedBytes);
+			}
+			loadFinished();
+			track(this);
+			this.group.addLoadedSize(getSize());
+			if (this.counted) {
+				progress.update(0, this.expectedBytes - this.loadedBytes);
+				checkAllLoaded();
+			}
+			this.loadedBytes = this.expectedBytes;
+		}
+
+		/**
+		 * Called when the resource failed to load, to release its slot in the
+		 * loading queue. The resource is settled : it no longer counts in the
+		 * loading percentage, and doesn't keep its group from being loaded.
+		 * It is queued again the next time its group is loaded.
+		 */
+		protected void failed() {
+			if (this.state == STATE_LOADING) {
+				this.state = STATE_FAILED;
+				if (metrics.isEnabled()) {
+					metrics.getCounter(Metrics.RESOURCE_FAILURES).increment();
+				}
+				this.uncount();
+				this.loadedBytes = 0;
+				loadFinished();
+				this.group.checkLoaded();
+				checkAllLoaded();
+			}
+		}
+
+		/**
+		 * Adds this resource to the loading queue, if it isn't loaded or
+		 * loading yet, and counts it in the loading percentage
+		 */
+		public void queue() {
+			if (!this.counted) {
+				this.counted = true;
+				progress.add(this.expectedBytes, this.loadedBytes);
+			}
+			if (this.state == STATE_IDLE || this.state == STATE_FAILED) {
+				this.state = STATE_QUEUED;
+				pendingLoaders.add(this);
+			}
+		}
+
+		/**
+		 * Loads again a resource that has been evicted, without counting it in
+		 * the loading percentage
+		 */
+		public void reload() {
+			if (this.evicted && this.state == STATE_IDLE) {
+				this.evicted = false;
+				this.state = STATE_QUEUED;
+				pendingLoaders.add(this);
+				Collections.sort(pendingLoaders, PRIORITY_ORDER);
+				loadNext();
+			}
+		}
+
+		/**
+		 * Unloads the resource : removes it from the loading queue and from
+		 * the DOM, and forgets the data loaded
+		 */
+		public void unload() {
+			if (this.state == STATE_IDLE) {
+				return;
+			}
+			if (this.state == STATE_QUEUED) {
+				pendingLoaders.remove(this);
+			} else if (this.state == STATE_LOADING) {
+				loadFinished();
+			}
+			if (this.state == STATE_LOADED) {
+				this.group.addLoadedSize(-getSize());
+				untrack(this);
+			}
+			this.uncount();
+			loaderPanel.remove(getElement());
+			this.reset();
+			this.loadedBytes = 0;
+			this.state = STATE_IDLE;
+		}
+
+		/**
+		 * Removes this resource from the loading percentage
+		 */
+		public void uncount() {
+			if (this.counted) {
+				this.counted = false;
+				progress.remove(this.expectedBytes, this.loadedBytes);
+			}
+		}
+
+		/**
+		 * Returns whether the resource has been loaded
+		 * 
+		 * @return true if the resource is loaded
+		 */
+		public boolean isLoaded() {
+			return this.state == STATE_LOADED;
+		}
+
+		/**
+		 * Returns whether the resource is done loading, successfully or not
+		 * 
+		 * @return true if the resource is loaded or failed to load
+		 */
+		public boolean isSettled() {
+			return this.state == STATE_LOADED || this.state == STATE_FAILED;
+		}
+
+		/**
+		 * Returns whether the last attempt to load the resource failed
+		 * 
+		 * @return true if the resource failed to load
+		 */
+		public boolean isFailed() {
+			return this.state == STATE_FAILED;
+		}
+
+		/**
+		 * Returns the priority of this resource
+		 * 
+		 * @return the priority of the resource
+		 */
+		public int getPriority() {
+			return priority;
+		}
+
+		/**
+		 * Sets the priority of this resource
+		 * 
+		 * @param priority
+		 *            the new priority of the resource
+		 */
+		public void setPriority(int priority) {
+			this.priority = priority;
+		}
+
+		/**
+		 * Returns the size of this resource
+		 * 
+		 * @return the size of the resource, as configured by the user
+		 */
+		public int getSize() {
+			return size;
+		}
+	}
+
+	/**
+	 * Implementation of the {@link ResourceLoader} for images
+	 * 
+	 * @author François LAROCHE
+	 */
+	private class ImageResourceLoader extends ResourceLoader<Image> {
+		/**
+		 * The Image widget associated with this loader
+		 */
+		private Image image;
+		/**
+		 * the URL of the image
+		 */
+		private final String url;
+		/**
+		 * the image rasterized in an offscreen canvas, null if not done yet
+		 */
+		private CanvasElement drawable;
+
+		/**
+		 * Constructor initializing fields
+		 * 
+		 * @param url
+		 *            the url of the image
+		 * @param size
+		 *            the size of the image
+		 * @param priority
+		 *            the priority of the image
+		 * @param group
+		 *            the group of the image
+		 */
+		public ImageResourceLoader(String url, int size, int priority, ResourceGroup group) {
+			super(size, priority, group);
+			this.url = url;
+			this.reset();
+		}
+
+		@Override
+		protected void reset() {
+			final Image image = new Image();
+			image.addLoadHandler(new LoadHandler() {
+				@Override
+				public void onLoad(LoadEvent event) {
+					if (image != ImageResourceLoader.this.image) {
+						// the image has been unloaded meanwhile
+						return;
+					}
+					loaded();
+					if (prerenderImages) {
+						getDrawable();
+					}
+					fireResourceLoaded(image);
+				}
+			});
+			image.addErrorHandler(new ErrorHandler() {
+				@Override
+				public void onError(ErrorEvent event) {
+					if (image == ImageResourceLoader.this.image) {
+						// don't block the queue on a missing image
+						failed();
+					}
+				}
+			});
+			this.releaseFetch();
+			this.image = image;
+			this.drawable = null;
+		}
+
+		@Override
+		protected void afterLoad() {
+			if (usesBlobs()) {
+				this.fetch(this.url);
+			} else {
+				this.image.setUrl(this.url);
+			}
+		}
+
+		@Override
+		protected void fetched(String objectUrl) {
+			this.image.setUrl(objectUrl);
+		}
+
+		@Override
+		protected Image getElement() {
+			return image;
+		}
+
+		@Override
+		protected long estimateMemorySize() {
+			ImageElement element = ImageElement.as(this.image.getElement());
+			long pixels = (long) getNaturalWidth(element) * getNaturalHeight(element);
+			// 4 bytes per decoded pixel, twice when rasterized
+			return pixels * 4 * (prerenderImages ? 2 : 1);
+		}
+
+		/**
+		 * Gets the image rasterized in an offscreen canvas, rasterizing it
+		 * the first time
+		 * 
+		 * @return the canvas, or null if the image isn't loaded yet
+		 */
+		public CanvasElement getDrawable() {
+			if (this.drawable == null && this.isLoaded()) {
+				ImageElement element = ImageElement.as(this.image.getElement());
+				int width = getNaturalWidth(element);
+				int height = getNaturalHeight(element);
+				if (width > 0 && height > 0) {
+					CanvasElement canvas = Document.get().createCanvasElement();
+					canvas.setWidth(width);
+					canvas.setHeight(height);
+					Context2d ctx = canvas.getContext2d();
+					ctx.drawImage(element, 0, 0);
+					this.drawable = canvas;
+				}
+			}
+			return this.drawable;
+		}
+	}
+
+	/**
+	 * Implementation of the {@link ResourceLoader} for audio. <br>
+	 * The specificity of audio elements is that there can be several resources
+	 * for the same audio.
+	 * 
+	 * @author François LAROCHE
+	 */
+	private class AudioResourceLoader extends ResourceLoader<Audio> {
+		/**
+		 * The audio widget managed by this loader
+		 */
+		private Audio audio;
+		/**
+		 * the list of sources corresponding to this audio
+		 */
+		private List<String> urls;
+		/**
+		 * the sound decoded by the Web Audio engine, null if not decoded
+		 */
+		private JavaScriptObject decoded;
+
+		/**
+		 * Constructor initializing the size
+		 * 
+		 * @param size
+		 *            the size of the audio
+		 * @param priority
+		 *            the priority of the audio
+		 * @param group
+		 *            the group of the audio
+		 */
+		public AudioResourceLoader(int size, int priority, ResourceGroup group) {
+			super(size, priority, group);
+			this.urls = new ArrayList<String>();
+			this.reset();
+		}
+
+		@Override
+		protected void reset() {
+			this.releaseFetch();
+			this.decoded = null;
+			final Audio audio = Audio.createIfSupported();
+			this.audio = audio;
+			if (audio == null) {
+				return;
+			}
+			audio.addCanPlayThroughHandler(new CanPlayThroughHandler() {
+
+				@Override
+				public void onCanPlayThrough(CanPlayThroughEvent event) {
+					// Do not wait for audio, some browsers can't handle it
+					if (audio == AudioResourceLoader.this.audio) {
+						loaded();
+					}
+				}
+			});
+			audio.addDomHandler(new ErrorHandler() {
+				@Override
+				public void onError(ErrorEvent event) {
+					if (audio == AudioResourceLoader.this.audio) {
+						failed();
+					}
+				}
+			}, ErrorEvent.getType());
+			audio.addEndedHandler(new EndedHandler() {
+				@Override
+				public void onEnded(EndedEvent event) {
+					audio.load();
+				}
+			});
+		}
+
+		@Override
+		protected boolean isSupported() {
+			return this.audio != null;
+		}
+
+		@Override
+		protected void afterLoad() {
+			if (webAudio && WebAudioEngine.isSupported() && BlobLoader.isSupported()) {
+				String url = this.getPlayableUrl();
+				if (url != null) {
+					this.fetchBuffer(url);
+					return;
+				}
+			}
+			String playable = usesBlobs() ? this.getPlayableUrl() : null;
+			if (playable != null) {
+				this.fetch(playable);
+				return;
+			}
+			if (this.audio.getElement().getChildCount() == 0) {
+				for (String url : this.urls) {
+					this.audio.addSource(url);
+				}
+			}
+			this.audio.load();
+		}
+
+		@Override
+		protected void fetched(String objectUrl) {
+			this.audio.setSrc(objectUrl);
+			this.audio.load();
+		}
+
+		@Override
+		protected void buffered(JavaScriptObject buffer) {
+			final Audio audio = this.audio;
+			WebAudioEngine.get().decode(buffer, new WebAudioEngine.DecodeCallback() {
+				@Override
+				public void onDecoded(JavaScriptObject buffer) {
+					if (audio == AudioResourceLoader.this.audio) {
+						decoded = buffer;
+						loaded();
+					}
+				}
+
+				@Override
+				public void onError() {
+					if (audio == AudioResourceLoader.this.audio) {
+						failed();
+					}
+				}
+			});
+		}
+
+		@Override
+		protected long estimateMemorySize() {
+			if (this.decoded != null) {
+				return (long) WebAudioEngine.getMemorySize(this.decoded);
+			}
+			return super.estimateMemorySize();
+		}
+
+		/**
+		 * Gets the first source the browser can play, guessing its type from
+		 * the extension of its url
+		 * 
+		 * @return the url of the source, or null if none is known to be
+		 *         playable
+		 */
+		private String getPlayableUrl() {
+			for (String url : this.urls) {
+				String type = audioType(url);
+				if (type != null && !MediaElement.CANNOT_PLAY.equals(this.audio.canPlayType(type))) {
+					return url;
+				}
+			}
+			return null;
+		}
+
+		@Override
+		protected Audio getElement() {
+			return audio;
+		}
+
+		/**
+		 * Adds a source for this audio element
+		 * 
+		 * @param url
+		 *            the url of the source to add
+		 */
+		public void addUrl(String url) {
+			this.urls.add(url);
+		}
+	}
+
+	/**
+	 * A named group of resources, loaded and released together
+	 * 
+	 * @author François LAROCHE
+	 */
+	private class ResourceGroup {
+		/**
+		 * the name of the group
+		 */
+		private final String name;
+		/**
+		 * the resources of the group
+		 */
+		private final List<ResourceLoader<?>> loaders;
+		/**
+		 * the size of the resources of the group that are loaded
+		 */
+		private int loadedSize;
+		/**
+		 * whether the group has been asked to load and not released since
+		 */
+		private boolean requested;
+		/**
+		 * whether the event signaling the group is loaded has been fired
+		 */
+		private boolean hasFired;
+		/**
+		 * whether the group is used by what is displayed
+		 */
+		private boolean active;
+
+		/**
+		 * Constructor initializing the group
+		 * 
+		 * @param name
+		 *            the name of the group
+		 */
+		public ResourceGroup(String name) {
+			this.name = name;
+			this.loaders = new ArrayList<ResourceLoader<?>>();
+		}
+
+		/**
+		 * Adds a resource to the group
+		 * 
+		 * @param loader
+		 *            the loader of the resource
+		 */
+		public void add(ResourceLoader<?> loader) {
+			this.loaders.add(loader);
+			this.hasFired = false;
+		}
+
+		/**
+		 * Removes a resource from the group
+		 * 
+		 * @param loader
+		 *            the loader of the resource
+		 */
+		public void remove(ResourceLoader<?> loader) {
+			this.loaders.remove(loader);
+		}
+
+		/**
+		 * Queues all the resources of the group
+		 */
+		public void load() {
+			this.requested = true;
+			for (ResourceLoader<?> loader : this.loaders) {
+				if (loader.isSupported()) {
+					if (loader.isFailed()) {
+						// the failed resource is retried, the group is loading again
+						this.hasFired = false;
+					}
+					loader.queue();
+				}
+			}
+			this.checkLoaded();
+		}
+
+		/**
+		 * Unloads all the resources of the group
+		 */
+		public void release() {
+			this.requested = false;
+			this.hasFired = false;
+			this.active = false;
+			for (ResourceLoader<?> loader : this.loaders) {
+				loader.unload();
+			}
+		}
+
+		/**
+		 * Called when a resource of the group has been evicted : the group
+		 * is no longer loaded, and fires its event again the next time it is
+		 * asked to load
+		 */
+		public void evicted() {
+			this.requested = false;
+			this.hasFired = false;
+		}
+
+		/**
+		 * Adds the size of a resource that has been loaded, or removes it
+		 * when the size is negative
+		 * 
+		 * @param size
+		 *            the size to add
+		 */
+		public void addLoadedSize(int size) {
+			this.loadedSize += size;
+			if (size > 0) {
+				this.checkLoaded();
+			}
+		}
+
+		/**
+		 * Fires the group event if all the resources of the group have been
+		 * loaded, or failed to load
+		 */
+		public void checkLoaded() {
+			if (this.requested && !this.hasFired && this.isLoaded()) {
+				this.hasFired = true;
+				bus.fireEvent(new ResourceGroupLoadedEvent(this.name, this.getFailedCount()));
+			}
+		}
+
+		/**
+		 * Checks whether the resources of the group must not be evicted : the
+		 * group is active, or still loading. Evicting a resource of a group
+		 * that is loading would keep it from ever being loaded.
+		 * 
+		 * @return true if the resources of the group must be kept
+		 */
+		public boolean isProtected() {
+			return this.active || (this.requested && !this.hasFired);
+		}
+
+		/**
+		 * Checks whether all the supported resources of the group are loaded.
+		 * The resources that failed to load are settled, and don't keep the
+		 * group from being loaded.
+		 * 
+		 * @return true if the group is loaded
+		 */
+		public boolean isLoaded() {
+			for (ResourceLoader<?> loader : this.loaders) {
+				if (loader.isSupported() && !loader.isSettled()) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Counts the supported resources of the group that failed to load
+		 * 
+		 * @return the number of resources that failed to load
+		 */
+		public int getFailedCount() {
+			int failed = 0;
+			for (ResourceLoader<?> loader : this.loaders) {
+				if (loader.isSupported() && loader.isFailed()) {
+					failed++;
+				}
+			}
+			return failed;
+		}
+
+		/**
+		 * Gets the loading percentage of the group, between 0 and 1
+		 * 
+		 * @return the loading percentage
+		 */
+		public float getLoadedPercentage() {
+			int total = 0;
+			for (ResourceLoader<?> loader : this.loaders) {
+				if (loader.isSupported()) {
+					total += loader.getSize();
+				}
+			}
+			if (total == 0) {
+				return this.isLoaded() ? 1 : 0;
+			}
+			return (float) this.loadedSize / (float) total;
+		}
+	}
+
+	/**
+	 * Default priority of the resources
+	 */
+	public static final int DEFAULT_PRIORITY = 0;
+	/**
+	 * Group of the resources registered without a group
+	 */
+	public static final String DEFAULT_GROUP = "default";
+
+	/**
+	 * State of a resource not loaded nor queued
+	 */
+	private static final int STATE_IDLE = 0;
+	/**
+	 * State of a resource waiting in the loading queue
+	 */
+	private static final int STATE_QUEUED = 1;
+	/**
+	 * State of a resource loading
+	 */
+	private static final int STATE_LOADING = 2;
+	/**
+	 * State of a resource loaded
+	 */
+	private static final int STATE_LOADED = 3;
+	/**
+	 * State of a resource that failed to load
+	 */
+	private static final int STATE_FAILED = 4;
+	/**
+	 * Default maximum number of resources loading at the same time, the usual
+	 * number of connections a browser opens per host
+	 */
+	public static final int DEFAULT_MAX_CONCURRENT_LOADS = 6;
+	/**
+	 * Minimum delay between two {@link ResourceLoadedEvent} fired while
+	 * resources are downloading, in milliseconds
+	 */
+	public static final int PROGRESS_EVENT_INTERVAL = 100;
+
+	/**
+	 * Gets the width of an image as stored in its file, whatever the size it
+	 * is displayed with
+	 * 
+	 * @param image
+	 *            the image
+	 * @return the natural width of the image, 0 if it isn't loaded
+	 */
+	public static native int getNaturalWidth(ImageElement image) /*-{
+		return image.naturalWidth || image.width || 0;
+	}-*/;
+
+	/**
+	 * Gets the height of an image as stored in its file, whatever the size it
+	 * is displayed with
+	 * 
+	 * @param image
+	 *            the image
+	 * @return the natural height of the image, 0 if it isn't loaded
+	 */
+	public static native int getNaturalHeight(ImageElement image) /*-{
+		return image.naturalHeight || image.height || 0;
+	}-*/;
+
+	/**
+	 * Guesses the MIME type of an audio file from the extension of its url
+	 * 
+	 * @param url
+	 *            the url of the audio file
+	 * @return the MIME type, or null if the extension is unknown
+	 */
+	private static String audioType(String url) {
+		String path = url;
+		int end = path.indexOf('?');
+		if (end >= 0) {
+			path = path.substring(0, end);
+		}
+		String extension = path.substring(path.lastIndexOf('.') + 1).toLowerCase();
+		if ("mp3".equals(extension)) {
+			return "audio/mpeg";
+		} else if ("ogg".equals(extension) || "oga".equals(extension)) {
+			return "audio/ogg";
+		} else if ("wav".equals(extension)) {
+			return "audio/wav";
+		} else if ("m4a".equals(extension) || "aac".equals(extension) || "mp4".equals(extension)) {
+			return "audio/mp4";
+		} else if ("webm".equals(extension)) {
+			return "audio/webm";
+		}
+		return null;
+	}
+
+	/**
+	 * Sorts loaders by decreasing priority
+	 */
+	private static final Comparator<ResourceLoader<?>> PRIORITY_ORDER = new Comparator<ResourceLoader<?>>() {
+		@Override
+		public int compare(ResourceLoader<?> o1, ResourceLoader<?> o2) {
+			// no subtraction : it overflows for priorities far apart
+			int p1 = o1.getPriority();
+			int p2 = o2.getPriority();
+			return p1 > p2 ? -1 : p1 < p2 ? 1 : 0;
+		}
+	};
+
+	/**
+	 * Loaders for images
+	 */
+	private final Map<String, ImageResourceLoader> imageLoaders;
+	/**
+	 * Loaders for audio
+	 */
+	private final Map<String, AudioResourceLoader> audioLoaders;
+	/**
+	 * Groups of resources, by name
+	 */
+	private final Map<String, ResourceGroup> groups;
+	/**
+	 * Sprite atlases, by key of their image
+	 */
+	private final Map<String, SpriteAtlas> atlases;
+	/**
+	 * Hashes of the content of the resources given by manifests, by url
+	 */
+	private final Map<String, String> hashes;
+	/**
+	 * Resources waiting for a slot in the loading queue, sorted by priority
+	 */
+	private final List<ResourceLoader<?>> pendingLoaders;
+	/**
+	 * Number of resources currently loading
+	 */
+	private int loadsInFlight;
+	/**
+	 * Maximum number of resources loading at the same time
+	 */
+	private int maxConcurrentLoads;
+	/**
+	 * Panel that will be used to store all the elements. The elements need to
+	 * be attached to the DOM to begin loading
+	 */
+	private final HasWidgets loaderPanel;
+	/**
+	 * the progress of the resources counted in the loading percentage
+	 */
+	private final LoadingProgress progress;
+	/**
+	 * whether resources are downloaded as blobs to follow the bytes received
+	 */
+	private boolean byteProgress;
+	/**
+	 * whether sounds are decoded and played by the Web Audio engine
+	 */
+	private boolean webAudio;
+	/**
+	 * the time the last {@link ResourceLoadedEvent} was fired
+	 */
+	private double lastProgressEvent;
+	/**
+	 * the resource whose progress is to be notified by the delayed event
+	 */
+	private ResourceLoader<?> progressSource;
+	/**
+	 * the timer firing the delayed progress event
+	 */
+	private final Timer progressTimer;
+	/**
+	 * the bus on which to throw events
+	 */
+	private final EventBus bus;
+	/**
+	 * whether this manager has already fired the final event or not
+	 */
+	private boolean hasFired;
+	/**
+	 * whether images are rasterized in offscreen canvases once loaded
+	 */
+	private boolean prerenderImages;
+	/**
+	 * the loaded resources, from the least recently used to the most recently
+	 * used
+	 */
+	private final Map<ResourceLoader<?>, Boolean> recentlyUsed;
+	/**
+	 * the maximum memory used by the loaded resources, in bytes, 0 for no
+	 * limit
+	 */
+	private long memoryBudget;
+	/**
+	 * the estimated memory used by the loaded resources, in bytes
+	 */
+	private long memoryUsed;
+	/**
+	 * number of times a resource was asked for and was loaded
+	 */
+	private int cacheHits;
+	/**
+	 * number of times a resource was asked for and wasn't loaded
+	 */
+	private int cacheMisses;
+	/**
+	 * number of resources evicted to stay within the memory budget
+	 */
+	private int evictions;
+	/**
+	 * the metrics of the application
+	 */
+	private final Metrics metrics;
+	/**
+	 * the persistent cache of the resources downloaded, null if none
+	 */
+	private OfflineCache offlineCache;
+
+	/**
+	 * Constructor initializing the fields
+	 * 
+	 * @param loaderPanel
+	 *            the panel in which to load the data
+	 * @param bus
+	 *            the bus on which to fire the events
+	 */
+	public ResourceManager(HasWidgets loaderPanel, EventBus bus) {
+		this.loaderPanel = loaderPanel;
+		this.bus = bus;
+		this.hasFired = false;
+		this.imageLoaders = new LinkedHashMap<String, ImageResourceLoader>();
+		this.audioLoaders = new LinkedHashMap<String, AudioResourceLoader>();
+		this.pendingLoaders = new ArrayList<ResourceLoader<?>>();
+		this.groups = new LinkedHashMap<String, ResourceGroup>();
+		this.atlases = new HashMap<String, SpriteAtlas>();
+		this.hashes = new HashMap<String, String>();
+		this.recentlyUsed = new LinkedHashMap<ResourceLoader<?>, Boolean>(16, 0.75f, true);
+		this.metrics = Instrumentation.get();
+		this.maxConcurrentLoads = DEFAULT_MAX_CONCURRENT_LOADS;
+		this.progress = new LoadingProgress();
+		this.progressTimer = new Timer() {
+			@Override
+			public void run() {
+				if (progressSource != null) {
+					fireResourceLoaded(progressSource.getElement());
+				}
+			}
+		};
+	}
+
+	/**
+	 * register an image in this {@link ResourceManager}
+	 * 
+	 * @param key
+	 *            the key of the image in this {@link ResourceManager}
+	 * @param url
+	 *            the url of the image
+	 * @param size
+	 *            the size of the image. This size can be arbitrary. For
+	 *            example, you can decide that all resources have a size of "1",
+	 *            or have all of them relative to the real sizes
+	 */
+	public void registerImage(String key, String url, int size) {
+		this.registerImage(key, url, size, DEFAULT_PRIORITY);
+	}
+
+	/**
+	 * register an image in this {@link ResourceManager}, with a loading
+	 * priority
+	 * 
+	 * @param key
+	 *            the key of the image in this {@link ResourceManager}
+	 * @param url
+	 *            the url of the image
+	 * @param size
+	 *            the size of the image
+	 * @param priority
+	 *            the priority of the image : resources with a higher priority
+	 *            are loaded first
+	 * @see #registerImage(String, String, int)
+	 */
+	public void registerImage(String key, String url, int size, int priority) {
+		this.registerImage(key, url, size, priority, DEFAULT_GROUP);
+	}
+
+	/**
+	 * register an image in a group of this {@link ResourceManager}
+	 * 
+	 * @param key
+	 *            the key of the image in this {@link ResourceManager}
+	 * @param url
+	 *            the url of the image
+	 * @param size
+	 *            the size of the image
+	 * @param priority
+	 *            the priority of the image
+	 * @param group
+	 *            the name of the group of the image
+	 * @see #registerImage(String, String, int, int)
+	 */
+	public void registerImage(String key, String url, int size, int priority, String group) {
+		ImageResourceLoader previous = this.imageLoaders.get(key);
+		if (previous != null) {
+			this.forget(previous);
+		}
+		this.imageLoaders.put(key, new ImageResourceLoader(url, size, priority, this.getGroup(group)));
+	}
+
+	/**
+	 * Register an audio or a new source for an existing audio in this
+	 * {@link ResourceManager}
+	 * 
+	 * @param key
+	 *            the key of the audio in this {@link ResourceManager}
+	 * @param url
+	 *            the url of the source
+	 * @param size
+	 *            the size of audio. This size can be arbitrary. For example,
+	 *            you can decide that all resources have a size of "1", or have
+	 *            all of them relative to the real sizes
+	 */
+	public void registerAudio(String key, String url, int size) {
+		this.registerAudio(key, url, size, DEFAULT_PRIORITY);
+	}
+
+	/**
+	 * Register an audio or a new source for an existing audio in this
+	 * {@link ResourceManager}, with a loading priority
+	 * 
+	 * @param key
+	 *            the key of the audio in this {@link ResourceManager}
+	 * @param url
+	 *            the url of the source
+	 * @param size
+	 *            the size of audio
+	 * @param priority
+	 *            the priority of the audio : resources with a higher priority
+	 *            are loaded first. The priority given for the last source
+	 *            registered is used.
+	 * @see #registerAudio(String, String, int)
+	 */
+	public void registerAudio(String key, String url, int size, int priority) {
+		this.registerAudio(key, url, size, priority, DEFAULT_GROUP);
+	}
+
+	/**
+	 * Register an audio or a new source for an existing audio in a group of
+	 * this {@link ResourceManager}
+	 * 
+	 * @param key
+	 *            the key of the audio in this {@link ResourceManager}
+	 * @param url
+	 *            the url of the source
+	 * @param size
+	 *            the size of audio
+	 * @param priority
+	 *            the priority of the audio
+	 * @param group
+	 *            the name of the group of the audio. The audio stays in the
+	 *            group given when registering its first source.
+	 * @see #registerAudio(String, String, int, int)
+	 */
+	public void registerAudio(String key, String url, int size, int priority, String group) {
+		if (!this.audioLoaders.containsKey(key)) {
+			this.audioLoaders.put(key, new AudioResourceLoader(size, priority, this.getGroup(group)));
+		}
+		AudioResourceLoader loader = this.audioLoaders.get(key);
+		loader.setPriority(priority);
+		loader.addUrl(url);
+	}
+
+	/**
+	 * register a sprite atlas in this {@link ResourceManager} : its image is
+	 * registered as any other image, under the same key
+	 * 
+	 * @param key
+	 *            the key of the atlas and of its image
+	 * @param url
+	 *            the url of the atlas image
+	 * @param index
+	 *            the JSON index of the frames of the atlas, as described in
+	 *            {@link SpriteAtlas}. It can be bundled in the application with
+	 *            a TextResource, so that no other request is needed.
+	 * @param size
+	 *            the size of the atlas image
+	 */
+	public void registerAtlas(String key, String url, String index, int size) {
+		this.registerAtlas(key, url, index, size, DEFAULT_PRIORITY, DEFAULT_GROUP);
+	}
+
+	/**
+	 * register a sprite atlas in a group of this {@link ResourceManager}
+	 * 
+	 * @param key
+	 *            the key of the atlas and of its image
+	 * @param url
+	 *            the url of the atlas image
+	 * @param index
+	 *            the JSON index of the frames of the atlas
+	 * @param size
+	 *            the size of the atlas image
+	 * @param priority
+	 *            the priority of the atlas image
+	 * @param group
+	 *            the name of the group of the atlas
+	 * @see #registerAtlas(String, String, String, int)
+	 */
+	public void registerAtlas(String key, String url, String index, int size, int priority, String group) {
+		this.registerImage(key, url, size, priority, group);
+		this.atlases.put(key, SpriteAtlas.parse(key, index));
+	}
+
+	/**
+	 * Registers all the resources of a manifest. The resources are only
+	 * registered : their groups must then be loaded as usual.<br>
+	 * Registering a manifest again is harmless : the resources already
+	 * registered with the same sources, size and group are kept as they are,
+	 * loaded or not, and only their priority is updated. The others replace
+	 * the resources registered under their key.
+	 * 
+	 * @param manifest
+	 *            the manifest
+	 */
+	public void registerManifest(ResourceManifest manifest) {
+		for (ResourceManifest.Entry entry : manifest.getEntries()) {
+			boolean audio = ResourceManifest.TYPE_AUDIO.equals(entry.getType());
+			ResourceLoader<?> registered = audio ? this.audioLoaders.get(entry.getKey()) : this.imageLoaders
+					.get(entry.getKey());
+			if (registered != null && this.isRegistered(registered, entry)) {
+				registered.setPriority(entry.getPriority());
+				continue;
+			}
+			if (audio && registered != null) {
+				// new sources replace the previous ones instead of adding up
+				this.forget(registered);
+				this.audioLoaders.remove(entry.getKey());
+			}
+			for (String url : entry.getUrls()) {
+				if (audio) {
+					this.registerAudio(entry.getKey(), url, entry.getSize(), entry.getPriority(), entry.getGroup());
+				} else {
+					// only one source for an image, the last one wins
+					this.registerImage(entry.getKey(), url, entry.getSize(), entry.getPriority(), entry.getGroup());
+				}
+				if (entry.getHash() != null) {
+					this.hashes.put(url, entry.getHash());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Checks whether a resource is registered as a manifest entry describes it
+	 * 
+	 * @param loader
+	 *            the loader registered under the key of the entry
+	 * @param entry
+	 *            the entry
+	 * @return true if the loader has the sources, size and group of the entry
+	 */
+	private boolean isRegistered(ResourceLoader<?> loader, ResourceManifest.Entry entry) {
+		String group = entry.getGroup() == null ? DEFAULT_GROUP : entry.getGroup();
+		if (loader.getSize() != entry.getSize() || !loader.group.name.equals(group)) {
+			return false;
+		}
+		List<String> urls = entry.getUrls();
+		if (loader instanceof AudioResourceLoader) {
+			return ((AudioResourceLoader) loader).urls.equals(urls);
+		}
+		// only the last source of an image is used
+		return !urls.isEmpty() && ((ImageResourceLoader) loader).url.equals(urls.get(urls.size() - 1));
+	}
+
+	/**
+	 * Registers all the resources of a JSON manifest
+	 * 
+	 * @param json
+	 *            the manifest, in the format described in
+	 *            {@link ResourceManifest}
+	 * @see #registerManifest(ResourceManifest)
+	 */
+	public void registerManifest(String json) {
+		this.registerManifest(ResourceManifest.parse(json));
+	}
+
+	/**
+	 * Downloads a JSON manifest and registers all its resources
+	 * 
+	 * @param url
+	 *            the url of the manifest
+	 * @param callback
+	 *            the callback notified once the resources are registered, or
+	 *            if the manifest couldn't be loaded. Can be null.
+	 * @see #registerManifest(ResourceManifest)
+	 */
+	public void loadManifest(final String url, final Callback<ResourceManifest, Throwable> callback) {
+		RequestBuilder builder = new RequestBuilder(RequestBuilder.GET, url);
+		builder.setCallback(new RequestCallback() {
+			@Override
+			public void onResponseReceived(Request request, Response response) {
+				if (response.getStatusCode() != Response.SC_OK) {
+					this.onError(request, new RequestException("Can't load the manifest " + url + " : "
+							+ response.getStatusCode() + " " + response.getStatusText()));
+					return;
+				}
+				ResourceManifest manifest;
+				try {
+					manifest = ResourceManifest.parse(response.getText());
+				} catch (IllegalArgumentException e) {
+					this.onError(request, e);
+					return;
+				}
+				registerManifest(manifest);
+				if (callback != null) {
+					callback.onSuccess(manifest);
+				}
+			}
+
+			@Override
+			public void onError(Request request, Throwable exception) {
+				if (callback != null) {
+					callback.onFailure(exception);
+				}
+			}
+		});
+		try {
+			builder.send();
+		} catch (RequestException e) {
+			if (callback != null) {
+				callback.onFailure(e);
+			}
+		}
+	}
+
+	/**
+	 * Gets the hash of the content of a resource, as given by a manifest
+	 * 
+	 * @param url
+	 *            the url of the resource
+	 * @return the hash, or null if none is known
+	 */
+	public String getHash(String url) {
+		return this.hashes.get(url);
+	}
+
+	/**
+	 * Gets a sprite atlas that has been registered
+	 * 
+	 * @param key
+	 *            the key of the atlas
+	 * @return the atlas, or null if there is none under this key
+	 */
+	public SpriteAtlas getAtlas(String key) {
+		return this.atlases.get(key);
+	}
+
+	/**
+	 * Gets a frame of a sprite atlas
+	 * 
+	 * @param atlasKey
+	 *            the key of the atlas
+	 * @param frame
+	 *            the name of the frame in the atlas
+	 * @return the frame, or null if there is none
+	 */
+	public SpriteFrame getSprite(String atlasKey, String frame) {
+		SpriteAtlas atlas = this.atlases.get(atlasKey);
+		if (atlas != null) {
+			return atlas.getFrame(frame);
+		}
+		return null;
+	}
+
+	/**
+	 * Draws a frame of a sprite atlas, at its natural size. Nothing is drawn
+	 * if the atlas or the frame is unknown.
+	 * 
+	 * @param ctx
+	 *            the context on which to draw
+	 * @param atlasKey
+	 *            the key of the atlas
+	 * @param frame
+	 *            the name of the frame in the atlas
+	 * @param x
+	 *            the x coordinate where to draw the frame
+	 * @param y
+	 *            the y coordinate where to draw the frame
+	 */
+	public void drawSprite(Context2d ctx, String atlasKey, String frame, double x, double y) {
+		SpriteFrame sprite = this.getSprite(atlasKey, frame);
+		if (sprite == null) {
+			return;
+		}
+		CanvasElement drawable = this.getDrawable(atlasKey);
+		if (drawable != null) {
+			ctx.drawImage(drawable, sprite.getX(), sprite.getY(), sprite.getWidth(), sprite.getHeight(), x, y,
+					sprite.getWidth(), sprite.getHeight());
+			return;
+		}
+		Image image = this.getImage(atlasKey);
+		if (image != null) {
+			ctx.drawImage(ImageElement.as(image.getElement()), sprite.getX(), sprite.getY(), sprite.getWidth(),
+					sprite.getHeight(), x, y, sprite.getWidth(), sprite.getHeight());
+		}
+	}
+
+	/**
+	 * Sets the maximum number of resources loading at the same time. Limiting
+	 * it prevents the browser from saturating its connections, so that the
+	 * resources with the highest priority arrive first.
+	 * 
+	 * @param maxConcurrentLoads
+	 *            the maximum number of resources loading at the same time, a
+	 *            value lower than 1 means no limit
+	 */
+	public void setMaxConcurrentLoads(int maxConcurrentLoads) {
+		this.maxConcurrentLoads = maxConcurrentLoads;
+		this.loadNext();
+	}
+
+	/**
+	 * Gets the maximum number of resources loading at the same time
+	 * 
+	 * @return the maximum number of resources loading at the same time, a
+	 *         value lower than 1 means no limit
+	 */
+	public int getMaxConcurrentLoads() {
+		return maxConcurrentLoads;
+	}
+
+	/**
+	 * gets an Image that has been registered
+	 * 
+	 * @param key
+	 *            the key the wanted image is registered under
+	 * @return the Image associated to the key
+	 */
+	public Image getImage(String key) {
+		ResourceLoader<Image> image = this.imageLoaders.get(key);
+		if (image != null) {
+			this.access(image);
+			return image.getElement();
+		}
+		return null;
+	}
+
+	/**
+	 * Enables or disables the rasterization of the images once loaded. When
+	 * enabled, each image is drawn once in an offscreen canvas, that
+	 * {@link #getDrawable(String)} gives back : drawing it is cheaper than
+	 * drawing the image element, which the browser may have to resolve or
+	 * decode again.
+	 * 
+	 * @param prerenderImages
+	 *            whether to rasterize the images
+	 */
+	public void setPrerenderImages(boolean prerenderImages) {
+		this.prerenderImages = prerenderImages;
+	}
+
+	/**
+	 * Checks whether the images are rasterized once loaded
+	 * 
+	 * @return true if the images are rasterized
+	 */
+	public boolean isPrerenderImages() {
+		return prerenderImages;
+	}
+
+	/**
+	 * Gets an image rasterized in an offscreen canvas, ready to be drawn with
+	 * {@link Context2d#drawImage(CanvasElement, double, double)}. Only
+	 * available when {@link #setPrerenderImages(boolean)} is enabled.
+	 * 
+	 * @param key
+	 *            the key the wanted image is registered under
+	 * @return the canvas holding the image, or null if the image isn't loaded
+	 *         or rasterization is disabled
+	 */
+	public CanvasElement getDrawable(String key) {
+		ImageResourceLoader loader = this.imageLoaders.get(key);
+		if (loader != null && this.prerenderImages) {
+			this.access(loader);
+			return loader.getDrawable();
+		}
+		return null;
+	}
+
+	/**
+	 * Gets what to draw for an image : its rasterized version when available,
+	 * the image element otherwise. The access to the image is recorded once,
+	 * where calling {@link #getDrawable(String)} then
+	 * {@link #getImage(String)} would record it twice.
+	 * 
+	 * @param key
+	 *            the key the wanted image is registered under
+	 * @return the canvas or the image element, null if no image is registered
+	 *         under the key
+	 */
+	public Element getImageSource(String key) {
+		ImageResourceLoader loader = this.imageLoaders.get(key);
+		if (loader == null) {
+			return null;
+		}
+		this.access(loader);
+		if (this.prerenderImages) {
+			CanvasElement drawable = loader.getDrawable();
+			if (drawable != null) {
+				return drawable;
+			}
+		}
+		return loader.getElement().getElement();
+	}
+
+	/**
+	 * Draws a whole image, using its rasterized version when available
+	 * 
+	 * @param ctx
+	 *            the context on which to draw
+	 * @param key
+	 *            the key of the image
+	 * @param x
+	 *            the x coordinate where to draw the image
+	 * @param y
+	 *            the y coordinate where to draw the image
+	 */
+	public void drawImage(Context2d ctx, String key, double x, double y) {
+		Element source = this.getImageSource(key);
+		if (source == null) {
+			return;
+		}
+		if (CanvasElement.TAG.equalsIgnoreCase(source.getTagName())) {
+			ctx.drawImage(source.<CanvasElement> cast(), x, y);
+		} else {
+			ctx.drawImage(ImageElement.as(source), x, y);
+		}
+	}
+
+	/**
+	 * get an Audio that has been registered
+	 * 
+	 * @param key
+	 *            the key under which the audio has been registered
+	 * @return the audio corresponding to the key
+	 */
+	public Audio getAudio(String key) {
+		ResourceLoader<Audio> audio = this.audioLoaders.get(key);
+		if (audio != null) {
+			this.access(audio);
+			return audio.getElement();
+		}
+		return null;
+	}
+
+	/**
+	 * Enables or disables Web Audio. When enabled, and when the browser
+	 * supports it, each sound is downloaded once, for its first source the
+	 * browser can play, and decoded by the {@link WebAudioEngine} : it is then
+	 * played by {@link #playAudio(String)} with a low latency, several times
+	 * at once if needed, and {@link #getAudio(String)} gives an element
+	 * without sources. Otherwise, sounds are loaded and played by their
+	 * Audio element.<br>
+	 * It must be set before loading the resources.
+	 * 
+	 * @param webAudio
+	 *            whether to use Web Audio
+	 */
+	public void setWebAudio(boolean webAudio) {
+		this.webAudio = webAudio;
+	}
+
+	/**
+	 * Checks whether Web Audio is enabled
+	 * 
+	 * @return true if Web Audio is enabled
+	 */
+	public boolean isWebAudio() {
+		return webAudio;
+	}
+
+	/**
+	 * Plays a sound from its beginning, at full volume
+	 * 
+	 * @param key
+	 *            the key under which the audio has been registered
+	 * @return true if the sound is played, false if it isn't loaded
+	 */
+	public boolean playAudio(String key) {
+		return this.playAudio(key, 1, false);
+	}
+
+	/**
+	 * Plays a sound from its beginning. With Web Audio, the sound can be
+	 * played again while already playing, up to the
+	 * {@link #setAudioPolyphony(String, int) polyphony} of the sound. Without
+	 * it, playing the sound again restarts it.
+	 * 
+	 * @param key
+	 *            the key under which the audio has been registered
+	 * @param volume
+	 *            the volume, between 0 and 1
+	 * @param loop
+	 *            whether to play the sound in loop, until stopped
+	 * @return true if the sound is played, false if it isn't loaded
+	 */
+	public boolean playAudio(String key, double volume, boolean loop) {
+		AudioResourceLoader loader = this.audioLoaders.get(key);
+		if (loader == null) {
+			return false;
+		}
+		this.access(loader);
+		if (!loader.isLoaded()) {
+			return false;
+		}
+		if (loader.decoded != null) {
+			WebAudioEngine.get().play(key, loader.decoded, volume, loop);
+		} else {
+			Audio audio = loader.getElement();
+			audio.setVolume(volume);
+			audio.setLoop(loop);
+			audio.setCurrentTime(0);
+			audio.play();
+		}
+		return true;
+	}
+
+	/**
+	 * Stops a sound
+	 * 
+	 * @param key
+	 *            the key under which the audio has been registered
+	 */
+	public void stopAudio(String key) {
+		AudioResourceLoader loader = this.audioLoaders.get(key);
+		if (loader == null) {
+			return;
+		}
+		if (loader.decoded != null) {
+			WebAudioEngine.get().stop(key);
+		} else if (loader.getElement() != null) {
+			loader.getElement().pause();
+		}
+	}
+
+	/**
+	 * Sets the maximum number of times a sound can play at the same time
+	 * with Web Audio. When the limit is reached, playing the sound again
+	 * stops its oldest play.
+	 * 
+	 * @param key
+	 *            the key under which the audio has been registered
+	 * @param voices
+	 *            the maximum number of plays at the same time, at least 1
+	 */
+	public void setAudioPolyphony(String key, int voices) {
+		WebAudioEngine engine = WebAudioEngine.get();
+		if (engine != null) {
+			engine.setPolyphony(key, voices);
+		}
+	}
+
+	/**
+	 * Pre-load the resources of the default group, by decreasing priority.
+	 * The loading percentage is reset, and only takes into account the
+	 * default group and the groups loaded afterwards.
+	 */
+	public void preloadResources() {
+		this.progress.reset();
+		this.hasFired = false;
+		for (ResourceLoader<?> loader : this.imageLoaders.values()) {
+			loader.uncount();
+		}
+		for (ResourceLoader<?> loader : this.audioLoaders.values()) {
+			loader.uncount();
+		}
+		this.loadGroup(DEFAULT_GROUP);
+	}
+
+	/**
+	 * Loads the resources of a group, by decreasing priority. A
+	 * {@link ResourceGroupLoadedEvent} is fired once all of them are loaded,
+	 * and the {@link AllResourcesLoadedEvent} once all the resources
+	 * requested so far are loaded.
+	 * 
+	 * @param name
+	 *            the name of the group
+	 */
+	public void loadGroup(String name) {
+		ResourceGroup group = this.getGroup(name);
+		group.load();
+		// the sort is stable : same priorities keep the registration order
+		Collections.sort(this.pendingLoaders, PRIORITY_ORDER);
+		this.checkAllLoaded();
+		this.loadNext();
+	}
+
+	/**
+	 * Releases the resources of a group : they are removed from the page and
+	 * from the loading queue, so that the browser can free them. Their
+	 * widgets are recreated, so modifications made with
+	 * {@link #modifImages(ObjectMofier)} or {@link #modifAudio(ObjectMofier)}
+	 * must be made again after the group is loaded again.
+	 * 
+	 * @param name
+	 *            the name of the group
+	 */
+	public void releaseGroup(String name) {
+		ResourceGroup group = this.groups.get(name);
+		if (group != null) {
+			group.release();
+			this.checkAllLoaded();
+			this.loadNext();
+		}
+	}
+
+	/**
+	 * Marks a group as used, or no longer used, by what is displayed. The
+	 * resources of an active group are never evicted to stay within the
+	 * memory budget. Releasing a group makes it inactive.
+	 * 
+	 * @param name
+	 *            the name of the group
+	 * @param active
+	 *            whether the group is used
+	 */
+	public void setGroupActive(String name, boolean active) {
+		ResourceGroup group = this.groups.get(name);
+		if (group != null) {
+			group.active = active;
+			if (!active) {
+				this.evict(null);
+			}
+		}
+	}
+
+	/**
+	 * Checks whether all the resources of a group are loaded. The resources
+	 * that failed to load don't keep the group from being loaded.
+	 * 
+	 * @param name
+	 *            the name of the group
+	 * @return true if the group is loaded, or has no resource
+	 */
+	public boolean isGroupLoaded(String name) {
+		ResourceGroup group = this.groups.get(name);
+		return group == null || group.isLoaded();
+	}
+
+	/**
+	 * Gets the loading percentage of a group. This percentage is between 0
+	 * and 1.
+	 * 
+	 * @param name
+	 *            the name of the group
+	 * @return the loading percentage of the group
+	 */
+	public float getGroupLoadedPercentage(String name) {
+		ResourceGroup group = this.groups.get(name);
+		if (group == null) {
+			return 1;
+		}
+		return group.getLoadedPercentage();
+	}
+
+	/**
+	 * Gets a group, creating it if needed
+	 * 
+	 * @param name
+	 *            the name of the group
+	 * @return the group
+	 */
+	private ResourceGroup getGroup(String name) {
+		String groupName = name == null ? DEFAULT_GROUP : name;
+		ResourceGroup group = this.groups.get(groupName);
+		if (group == null) {
+			group = new ResourceGroup(groupName);
+			this.groups.put(groupName, group);
+		}
+		return group;
+	}
+
+	/**
+	 * Forgets a resource that is replaced by another one
+	 * 
+	 * @param loader
+	 *            the loader of the resource
+	 */
+	private void forget(ResourceLoader<?> loader) {
+		loader.unload();
+		loader.group.remove(loader);
+	}
+
+	/**
+	 * Starts loading the pending resources, as long as there are free slots
+	 */
+	private void loadNext() {
+		while (!this.pendingLoaders.isEmpty()
+				&& (this.maxConcurrentLoads < 1 || this.loadsInFlight < this.maxConcurrentLoads)) {
+			ResourceLoader<?> loader = this.pendingLoaders.remove(0);
+			this.loadsInFlight++;
+			loader.load();
+		}
+	}
+
+	/**
+	 * Called when a resource has finished loading, successfully or not, to
+	 * free its slot
+	 */
+	private void loadFinished() {
+		if (this.loadsInFlight > 0) {
+			this.loadsInFlight--;
+		}
+		this.loadNext();
+	}
+
+	/**
+	 * Called when bytes of a resource have been received, fires a
+	 * {@link ResourceLoadedEvent} at most every
+	 * {@link #PROGRESS_EVENT_INTERVAL} milliseconds
+	 * 
+	 * @param loader
+	 *            the loader of the resource
+	 */
+	private void progressChanged(ResourceLoader<?> loader) {
+		this.progressSource = loader;
+		double wait = this.lastProgressEvent + PROGRESS_EVENT_INTERVAL - Duration.currentTimeMillis();
+		if (wait <= 0) {
+			this.fireResourceLoaded(loader.getElement());
+		} else {
+			// a single delayed event for all the progress until then
+			this.progressTimer.schedule((int) Math.ceil(wait));
+		}
+	}
+
+	/**
+	 * Fires a {@link ResourceLoadedEvent} with the current loading percentage
+	 * 
+	 * @param source
+	 *            the widget of the resource that made progress
+	 */
+	private void fireResourceLoaded(Object source) {
+		this.progressTimer.cancel();
+		this.progressSource = null;
+		this.lastProgressEvent = Duration.currentTimeMillis();
+		ResourceLoadedEvent event = ResourceLoadedEvent.obtain(this.sampleLoadedPercentage(), source);
+		if (this.offlineCache != null) {
+			event.setOfflineStatistics(this.offlineCache.getHits(), this.offlineCache.getMisses());
+		}
+		try {
+			this.bus.fireEvent(event);
+		} finally {
+			event.release();
+		}
+	}
+
+	/**
+	 * Fires the {@link AllResourcesLoadedEvent} if all the resources requested
+	 * are loaded, and allows firing it again once more resources are requested
+	 */
+	private void checkAllLoaded() {
+		if (!this.progress.isComplete()) {
+			this.hasFired = false;
+		} else if (!this.hasFired && this.pendingLoaders.isEmpty() && this.loadsInFlight == 0) {
+			this.hasFired = true;
+			this.bus.fireEvent(new AllResourcesLoadedEvent());
+		}
+	}
+
+	/**
+	 * Sets the memory budget of the loaded resources. The memory used by an
+	 * image is estimated from its decoded dimensions, the one used by an audio
+	 * from the size given when registering it. When the budget is exceeded,
+	 * the least recently used resources are evicted, and loaded again the
+	 * next time they are asked for. The resources of the active groups and of
+	 * the groups still loading are never evicted : when they alone exceed the
+	 * budget, the memory used stays over it.
+	 * 
+	 * @param bytes
+	 *            the memory budget, in bytes, 0 or less for no limit
+	 */
+	public void setMemoryBudget(long bytes) {
+		this.memoryBudget = bytes;
+		this.evict(null);
+	}
+
+	/**
+	 * Gets the memory budget of the loaded resources
+	 * 
+	 * @return the memory budget, in bytes, 0 or less for no limit
+	 */
+	public long getMemoryBudget() {
+		return memoryBudget;
+	}
+
+	/**
+	 * Gets the estimated memory used by the loaded resources
+	 * 
+	 * @return the memory used, in bytes
+	 */
+	public long getMemoryUsed() {
+		return memoryUsed;
+	}
+
+	/**
+	 * Gets the number of times a resource was asked for and was loaded
+	 * 
+	 * @return the number of hits
+	 */
+	public int getCacheHits() {
+		return cacheHits;
+	}
+
+	/**
+	 * Gets the number of times a resource was asked for and wasn't loaded
+	 * 
+	 * @return the number of misses
+	 */
+	public int getCacheMisses() {
+		return cacheMisses;
+	}
+
+	/**
+	 * Gets the number of resources evicted to stay within the memory budget
+	 * 
+	 * @return the number of evictions
+	 */
+	public int getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * Records an access to a resource : marks it as recently used, or loads
+	 * it again if it has been evicted. A resource still loading, or never
+	 * requested, is neither a hit nor a miss.
+	 * 
+	 * @param loader
+	 *            the loader of the resource
+	 */
+	private void access(ResourceLoader<?> loader) {
+		if (loader.isLoaded()) {
+			this.cacheHits++;
+			this.recentlyUsed.get(loader);
+		} else if (loader.evicted) {
+			this.cacheMisses++;
+			loader.reload();
+		}
+	}
+
+	/**
+	 * Starts tracking the memory used by a resource that has just been loaded
+	 * 
+	 * @param loader
+	 *            the loader of the resource
+	 */
+	private void track(ResourceLoader<?> loader) {
+		loader.memorySize = loader.estimateMemorySize();
+		this.memoryUsed += loader.memorySize;
+		this.recentlyUsed.put(loader, Boolean.TRUE);
+		this.evict(loader);
+	}
+
+	/**
+	 * Stops tracking the memory used by a resource that is unloaded
+	 * 
+	 * @param loader
+	 *            the loader of the resource
+	 */
+	private void untrack(ResourceLoader<?> loader) {
+		if (this.recentlyUsed.remove(loader) != null) {
+			this.memoryUsed -= loader.memorySize;
+		}
+	}
+
+	/**
+	 * Evicts the least recently used resources until the memory used is
+	 * within the budget, or until only protected resources are left
+	 * 
+	 * @param kept
+	 *            a resource never to evict, may be null
+	 */
+	private void evict(ResourceLoader<?> kept) {
+		if (this.memoryBudget <= 0 || this.memoryUsed <= this.memoryBudget) {
+			return;
+		}
+		long excess = this.memoryUsed - this.memoryBudget;
+		List<ResourceLoader<?>> victims = new ArrayList<ResourceLoader<?>>();
+		for (ResourceLoader<?> loader : this.recentlyUsed.keySet()) {
+			if (excess <= 0) {
+				break;
+			}
+			if (loader != kept && !loader.group.isProtected()) {
+				victims.add(loader);
+				excess -= loader.memorySize;
+			}
+		}
+		for (ResourceLoader<?> loader : victims) {
+			loader.unload();
+			loader.evicted = true;
+			loader.group.evicted();
+			this.evictions++;
+		}
+		this.loadNext();
+	}
+
+	/**
+	 * Enables or disables the byte progress. When enabled, and when the
+	 * browser supports it, each resource is downloaded as a blob before its
+	 * widget loads it from memory : the loading percentage follows the bytes
+	 * received, {@link ResourceLoadedEvent}s are fired while resources
+	 * download, and the sizes given when registering the resources are only
+	 * used as estimates, in bytes, until the real sizes are known. For audio,
+	 * only the first source the browser can play is downloaded.<br>
+	 * It must be set before loading the resources.
+	 * 
+	 * @param byteProgress
+	 *            whether to follow the bytes received
+	 */
+	public void setByteProgress(boolean byteProgress) {
+		this.byteProgress = byteProgress;
+	}
+
+	/**
+	 * Checks whether the loading percentage follows the bytes received
+	 * 
+	 * @return true if byte progress is enabled
+	 */
+	public boolean isByteProgress() {
+		return byteProgress;
+	}
+
+	/**
+	 * Sets the persistent cache of the resources. The resources whose hash
+	 * is known from a {@link ResourceManifest} are then downloaded as blobs
+	 * and stored in it, and the next sessions load them from it as long as
+	 * their hash doesn't change. The hit rate of the cache is given by the
+	 * {@link ResourceLoadedEvent}s.<br>
+	 * It must be set before loading the resources.
+	 * 
+	 * @param offlineCache
+	 *            the cache, null not to use any
+	 * @see OfflineCache#isSupported()
+	 */
+	public void setOfflineCache(OfflineCache offlineCache) {
+		this.offlineCache = offlineCache;
+	}
+
+	/**
+	 * Gets the persistent cache of the resources
+	 * 
+	 * @return the cache, null if none is used
+	 */
+	public OfflineCache getOfflineCache() {
+		return offlineCache;
+	}
+
+	/**
+	 * Checks whether the resources are downloaded as blobs before their
+	 * widgets load them : with byte progress or an offline cache, when the
+	 * browser supports it
+	 * 
+	 * @return true if the resources are downloaded as blobs
+	 */
+	private boolean usesBlobs() {
+		return (this.byteProgress || this.offlineCache != null) && BlobLoader.isSupported();
+	}
+
+	/**
+	 * Gets the loading percentage. This percentage is between 0 and 1.<br>
+	 * With byte progress enabled, it is smoothed so that it doesn't jump when
+	 * the real size of a resource becomes known, and only goes back when new
+	 * resources are requested.
+	 * 
+	 * @return the loading percentage
+	 */
+	public float getLoadedPercentage() {
+		if (this.byteProgress) {
+			return this.progress.getSmoothedRatio();
+		}
+		return this.progress.getRatio();
+	}
+
+	/**
+	 * Updates the smoothed loading percentage, and gets the loading
+	 * percentage
+	 * 
+	 * @return the loading percentage
+	 */
+	private float sampleLoadedPercentage() {
+		this.progress.sample();
+		return this.getLoadedPercentage();
+	}
+
+	/**
+	 * Applies a modification on all audio resources
+	 * 
+	 * @see ObjectMofier
+	 * 
+	 * @param modifier
+	 *            the modification to apply
+	 */
+	public void modifAudio(ObjectMofier<Audio> modifier) {
+		for (AudioResourceLoader loader : this.audioLoaders.values()) {
+			modifier.modify(loader.getElement());
+		}
+	}
+
+	/**
+	 * Applies a modification on all image resources
+	 * 
+	 * @see ObjectMofier
+	 * 
+	 * @param modifier
+	 *            the modification to apply
+	 */
+	public void modifImages(ObjectMofier<Image> modifier) {
+		for (ImageResourceLoader loader : this.imageLoaders.values()) {
+			modifier.modify(loader.getElement());
+		}
+	}
+}
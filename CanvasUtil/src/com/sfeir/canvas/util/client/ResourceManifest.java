@@ -0,0 +1,231 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.util.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.JsonUtils;
+
+/**
+ * List of resources to register in a {@link ResourceManager}, described in
+ * JSON so that it can be loaded at runtime instead of being compiled in the
+ * application :
+ * 
+ * <pre>
+ * {"resources": [
+ *   {"key": "hero", "type": "image", "url": "img/hero.png", "size": 5120,
+ *    "group": "level1", "priority": 2, "hash": "0b1d..."},
+ *   {"key": "theme", "type": "audio", "urls": ["snd/theme.ogg", "snd/theme.mp3"],
+ *    "size": 204800}
+ * ]}
+ * </pre>
+ * 
+ * <code>type</code> is <code>image</code> or <code>audio</code>,
+ * <code>url</code> or <code>urls</code> gives the sources (several sources
+ * are only meaningful for audio), and <code>size</code>, <code>group</code>,
+ * <code>priority</code> and <code>hash</code> are optional. Such a manifest
+ * can be generated with {@link com.sfeir.canvas.util.tools.ManifestGenerator}.
+ * 
+ * @author François LAROCHE
+ */
+public class ResourceManifest {
+
+	/**
+	 * Type of the image entries
+	 */
+	public static final String TYPE_IMAGE = "image";
+	/**
+	 * Type of the audio entries
+	 */
+	public static final String TYPE_AUDIO = "audio";
+
+	/**
+	 * A resource of the manifest
+	 * 
+	 * @author François LAROCHE
+	 */
+	public static class Entry {
+		/**
+		 * the key of the resource
+		 */
+		private final String key;
+		/**
+		 * the type of the resource, one of the TYPE_ constants
+		 */
+		private final String type;
+		/**
+		 * the urls of the sources of the resource
+		 */
+		private final List<String> urls;
+		/**
+		 * the size of the resource
+		 */
+		private final int size;
+		/**
+		 * the group of the resource, null for the default group
+		 */
+		private final String group;
+		/**
+		 * the priority of the resource
+		 */
+		private final int priority;
+		/**
+		 * the hash of the content of the resource, may be null
+		 */
+		private final String hash;
+
+		/**
+		 * Constructor initializing the entry
+		 * 
+		 * @param key
+		 *            the key of the resource
+		 * @param type
+		 *            the type of the resource
+		 * @param size
+		 *            the size of the resource
+		 * @param group
+		 *            the group of the resource, null for the default group
+		 * @param priority
+		 *            the priority of the resource
+		 * @param hash
+		 *            the hash of the content of the resource, may be null
+		 */
+		public Entry(String key, String type, int size, String group, int priority, String hash) {
+			this.key = key;
+			this.type = type;
+			this.size = size;
+			this.group = group;
+			this.priority = priority;
+			this.hash = hash;
+			this.urls = new ArrayList<String>();
+		}
+
+		/**
+		 * Adds a source to the resource
+		 * 
+		 * @param url
+		 *            the url of the source
+		 */
+		public void addUrl(String url) {
+			this.urls.add(url);
+		}
+
+		public String getKey() {
+			return key;
+		}
+
+		public String getType() {
+			return type;
+		}
+
+		public List<String> getUrls() {
+			return Collections.unmodifiableList(urls);
+		}
+
+		public int getSize() {
+			return size;
+		}
+
+		public String getGroup() {
+			return group;
+		}
+
+		public int getPriority() {
+			return priority;
+		}
+
+		public String getHash() {
+			return hash;
+		}
+	}
+
+	/**
+	 * the resources of the manifest
+	 */
+	private final List<Entry> entries;
+
+	/**
+	 * Constructor creating an empty manifest
+	 */
+	public ResourceManifest() {
+		this.entries = new ArrayList<Entry>();
+	}
+
+	/**
+	 * Creates a manifest from its JSON form
+	 * 
+	 * @param json
+	 *            the JSON manifest
+	 * @return the manifest
+	 */
+	public static ResourceManifest parse(String json) {
+		ResourceManifest manifest = new ResourceManifest();
+		manifest.addEntries(JsonUtils.safeEval(json));
+		return manifest;
+	}
+
+	/**
+	 * Adds a resource to the manifest
+	 * 
+	 * @param entry
+	 *            the resource
+	 */
+	public void add(Entry entry) {
+		this.entries.add(entry);
+	}
+
+	/**
+	 * Gets the resources of the manifest, in the order they were given
+	 * 
+	 * @return the resources
+	 */
+	public List<Entry> getEntries() {
+		return Collections.unmodifiableList(entries);
+	}
+
+	/**
+	 * Creates an entry and adds it, called while parsing
+	 * 
+	 * @param key
+	 *            the key of the resource
+	 * @param type
+	 *            the type of the resource
+	 * @param size
+	 *            the size of the resource
+	 * @param group
+	 *            the group of the resource
+	 * @param priority
+	 *            the priority of the resource
+	 * @param hash
+	 *            the hash of the content of the resource
+	 * @return the entry, to which the sources are added
+	 */
+	private Entry addEntry(String key, String type, int size, String group, int priority, String hash) {
+		Entry entry = new Entry(key, type, size, group, priority, hash);
+		this.entries.add(entry);
+		return entry;
+	}
+
+	/**
+	 * Adds the resources of a parsed JSON manifest
+	 * 
+	 * @param manifest
+	 *            the parsed manifest
+	 */
+	private native void addEntries(JavaScriptObject manifest) /*-{
+		var resources = manifest.resources || [];
+		for (var i = 0; i < resources.length; i++) {
+			var r = resources[i];
+			var entry = this.@com.sfeir.canvas.util.client.ResourceManifest::addEntry(Ljava/lang/String;Ljava/lang/String;ILjava/lang/String;ILjava/lang/String;)(
+					r.key, r.type || "image", r.size || 1, r.group || null, r.priority || 0, r.hash || null);
+			var urls = r.urls || (r.url ? [ r.url ] : []);
+			for (var j = 0; j < urls.length; j++) {
+				entry.@com.sfeir.canvas.util.client.ResourceManifest.Entry::addUrl(Ljava/lang/String;)(urls[j]);
+			}
+		}
+	}-*/;
+}
@@ -0,0 +1,137 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.util.client;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.JsonUtils;
+
+/**
+ * Index of the frames packed in an atlas image.<br>
+ * The index is given as JSON, in the "hash" or "array" formats used by most
+ * texture packers, only the <code>frame</code> rectangle of each entry being
+ * read :
+ * 
+ * <pre>
+ * {"frames": {"hero.png": {"frame": {"x": 0, "y": 0, "w": 32, "h": 48}}, ...}}
+ * {"frames": [{"filename": "hero.png", "frame": {"x": 0, "y": 0, "w": 32, "h": 48}}, ...]}
+ * </pre>
+ * 
+ * @author François LAROCHE
+ */
+public class SpriteAtlas {
+
+	/**
+	 * the key of the atlas image in the {@link ResourceManager}
+	 */
+	private final String imageKey;
+	/**
+	 * the frames of the atlas, by name
+	 */
+	private final Map<String, SpriteFrame> frames;
+
+	/**
+	 * Constructor creating an empty atlas
+	 * 
+	 * @param imageKey
+	 *            the key of the atlas image in the {@link ResourceManager}
+	 */
+	public SpriteAtlas(String imageKey) {
+		this.imageKey = imageKey;
+		this.frames = new HashMap<String, SpriteFrame>();
+	}
+
+	/**
+	 * Creates an atlas from its JSON index
+	 * 
+	 * @param imageKey
+	 *            the key of the atlas image in the {@link ResourceManager}
+	 * @param json
+	 *            the JSON index of the atlas
+	 * @return the atlas
+	 */
+	public static SpriteAtlas parse(String imageKey, String json) {
+		SpriteAtlas atlas = new SpriteAtlas(imageKey);
+		atlas.addFrames(JsonUtils.safeEval(json));
+		return atlas;
+	}
+
+	/**
+	 * Adds a frame to the atlas
+	 * 
+	 * @param name
+	 *            the name of the frame
+	 * @param x
+	 *            the x coordinate of the frame in the atlas image
+	 * @param y
+	 *            the y coordinate of the frame in the atlas image
+	 * @param width
+	 *            the width of the frame
+	 * @param height
+	 *            the height of the frame
+	 */
+	public void addFrame(String name, int x, int y, int width, int height) {
+		this.frames.put(name, new SpriteFrame(name, x, y, width, height));
+	}
+
+	/**
+	 * Gets a frame of the atlas
+	 * 
+	 * @param name
+	 *            the name of the frame
+	 * @return the frame, or null if there is none with that name
+	 */
+	public SpriteFrame getFrame(String name) {
+		return this.frames.get(name);
+	}
+
+	/**
+	 * Gets all the frames of the atlas
+	 * 
+	 * @return the frames
+	 */
+	public Collection<SpriteFrame> getFrames() {
+		return this.frames.values();
+	}
+
+	/**
+	 * Gets the key of the atlas image
+	 * 
+	 * @return the key of the atlas image in the {@link ResourceManager}
+	 */
+	public String getImageKey() {
+		return imageKey;
+	}
+
+	/**
+	 * Adds the frames of a parsed JSON index
+	 * 
+	 * @param index
+	 *            the parsed index
+	 */
+	private native void addFrames(JavaScriptObject index) /*-{
+		var frames = index.frames;
+		if (!frames) {
+			return;
+		}
+		var add = function(name, entry) {
+			var f = entry.frame || entry;
+			this.@com.sfeir.canvas.util.client.SpriteAtlas::addFrame(Ljava/lang/String;IIII)(name, f.x, f.y, f.w, f.h);
+		};
+		if (frames.length !== undefined) {
+			for (var i = 0; i < frames.length; i++) {
+				add.call(this, frames[i].filename, frames[i]);
+			}
+		} else {
+			for (var name in frames) {
+				if (frames.hasOwnProperty(name)) {
+					add.call(this, name, frames[name]);
+				}
+			}
+		}
+	}-*/;
+}
@@ -0,0 +1,75 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.util.client;
+
+/**
+ * A named rectangle of a {@link SpriteAtlas} image
+ * 
+ * @author François LAROCHE
+ */
+public class SpriteFrame {
+
+	/**
+	 * the name of the frame in its atlas
+	 */
+	private final String name;
+	/**
+	 * the x coordinate of the frame in the atlas image
+	 */
+	private final int x;
+	/**
+	 * the y coordinate of the frame in the atlas image
+	 */
+	private final int y;
+	/**
+	 * the width of the frame
+	 */
+	private final int width;
+	/**
+	 * the height of the frame
+	 */
+	private final int height;
+
+	/**
+	 * Constructor initializing the frame
+	 * 
+	 * @param name
+	 *            the name of the frame
+	 * @param x
+	 *            the x coordinate of the frame in the atlas image
+	 * @param y
+	 *            the y coordinate of the frame in the atlas image
+	 * @param width
+	 *            the width of the frame
+	 * @param height
+	 *            the height of the frame
+	 */
+	public SpriteFrame(String name, int x, int y, int width, int height) {
+		this.name = name;
+		this.x = x;
+		this.y = y;
+		this.width = width;
+		this.height = height;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getX() {
+		return x;
+	}
+
+	public int getY() {
+		return y;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+}
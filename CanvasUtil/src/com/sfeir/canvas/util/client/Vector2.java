@@ -0,0 +1,183 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.util.client;
+
+import com.sfeir.canvas.util.client.pool.ObjectPool;
+
+/**
+ * Mutable 2D vector. The operations modify the vector and return it, so that
+ * they can be chained without allocating intermediate vectors. Vectors used
+ * temporarily can be taken from an {@link ObjectPool} built with
+ * {@link #FACTORY}.
+ * 
+ * @author François LAROCHE
+ */
+public class Vector2 {
+
+	/**
+	 * Factory of vectors for an {@link ObjectPool}, resetting them to zero
+	 */
+	public static final ObjectPool.Factory<Vector2> FACTORY = new ObjectPool.Factory<Vector2>() {
+		@Override
+		public Vector2 create() {
+			return new Vector2();
+		}
+
+		@Override
+		public void reset(Vector2 object) {
+			object.set(0, 0);
+		}
+	};
+
+	/**
+	 * the x coordinate
+	 */
+	private double x;
+	/**
+	 * the y coordinate
+	 */
+	private double y;
+
+	/**
+	 * Constructor creating a zero vector
+	 */
+	public Vector2() {}
+
+	/**
+	 * Constructor initializing the coordinates
+	 * 
+	 * @param x
+	 *            the x coordinate
+	 * @param y
+	 *            the y coordinate
+	 */
+	public Vector2(double x, double y) {
+		this.x = x;
+		this.y = y;
+	}
+
+	/**
+	 * Sets the coordinates
+	 * 
+	 * @param x
+	 *            the x coordinate
+	 * @param y
+	 *            the y coordinate
+	 * @return this vector
+	 */
+	public Vector2 set(double x, double y) {
+		this.x = x;
+		this.y = y;
+		return this;
+	}
+
+	/**
+	 * Copies the coordinates of another vector
+	 * 
+	 * @param other
+	 *            the vector to copy
+	 * @return this vector
+	 */
+	public Vector2 set(Vector2 other) {
+		return this.set(other.x, other.y);
+	}
+
+	/**
+	 * Adds another vector
+	 * 
+	 * @param other
+	 *            the vector to add
+	 * @return this vector
+	 */
+	public Vector2 add(Vector2 other) {
+		this.x += other.x;
+		this.y += other.y;
+		return this;
+	}
+
+	/**
+	 * Subtracts another vector
+	 * 
+	 * @param other
+	 *            the vector to subtract
+	 * @return this vector
+	 */
+	public Vector2 sub(Vector2 other) {
+		this.x -= other.x;
+		this.y -= other.y;
+		return this;
+	}
+
+	/**
+	 * Multiplies the coordinates by a factor
+	 * 
+	 * @param factor
+	 *            the factor
+	 * @return this vector
+	 */
+	public Vector2 scale(double factor) {
+		this.x *= factor;
+		this.y *= factor;
+		return this;
+	}
+
+	/**
+	 * Computes the dot product with another vector
+	 * 
+	 * @param other
+	 *            the other vector
+	 * @return the dot product
+	 */
+	public double dot(Vector2 other) {
+		return this.x * other.x + this.y * other.y;
+	}
+
+	/**
+	 * Computes the length of the vector
+	 * 
+	 * @return the length
+	 */
+	public double length() {
+		return Math.sqrt(this.x * this.x + this.y * this.y);
+	}
+
+	/**
+	 * Scales the vector to a length of 1, if it isn't zero
+	 * 
+	 * @return this vector
+	 */
+	public Vector2 normalize() {
+		double length = this.length();
+		if (length > 0) {
+			this.scale(1 / length);
+		}
+		return this;
+	}
+
+	/**
+	 * Computes the distance to another vector
+	 * 
+	 * @param other
+	 *            the other vector
+	 * @return the distance
+	 */
+	public double distance(Vector2 other) {
+		double dx = this.x - other.x;
+		double dy = this.y - other.y;
+		return Math.sqrt(dx * dx + dy * dy);
+	}
+
+	public double getX() {
+		return x;
+	}
+
+	public double getY() {
+		return y;
+	}
+
+	@Override
+	public String toString() {
+		return "(" + this.x + ", " + this.y + ")";
+	}
+}
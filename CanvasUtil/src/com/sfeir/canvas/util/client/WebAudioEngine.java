@@ -0,0 +1,393 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.util.client;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gwt.core.client.JavaScriptObject;
+
+/**
+ * Audio engine based on the Web Audio API : sounds are decoded once, and
+ * played with a low latency, several times at once if needed.<br>
+ * Each sound is played by a voice, a gain node connected to the output. The
+ * source node of a sound can only be started once, so a new one is created
+ * for each play, but the voices are pooled and reused. The number of voices
+ * playing the same sound at the same time is limited : when the limit is
+ * reached, the oldest voice is stolen.
+ * 
+ * @author François LAROCHE
+ */
+public class WebAudioEngine {
+
+	/**
+	 * Callback of the decoding of a sound
+	 * 
+	 * @author François LAROCHE
+	 */
+	public static interface DecodeCallback {
+		/**
+		 * Called when the sound has been decoded
+		 * 
+		 * @param buffer
+		 *            the decoded AudioBuffer
+		 */
+		public void onDecoded(JavaScriptObject buffer);
+
+		/**
+		 * Called when the sound couldn't be decoded
+		 */
+		public void onError();
+	}
+
+	/**
+	 * A gain node playing a sound
+	 * 
+	 * @author François LAROCHE
+	 */
+	private static class Voice {
+		/**
+		 * the gain node of the voice, connected to the output
+		 */
+		private final JavaScriptObject gain;
+		/**
+		 * the source node playing, null if the voice is free
+		 */
+		private JavaScriptObject source;
+		/**
+		 * the key of the sound playing
+		 */
+		private String key;
+
+		/**
+		 * Constructor initializing the voice
+		 * 
+		 * @param gain
+		 *            the gain node of the voice
+		 */
+		public Voice(JavaScriptObject gain) {
+			this.gain = gain;
+		}
+	}
+
+	/**
+	 * Default maximum number of voices playing the same sound at the same
+	 * time
+	 */
+	public static final int DEFAULT_POLYPHONY = 4;
+
+	/**
+	 * the engine, null until it is first asked for
+	 */
+	private static WebAudioEngine instance;
+
+	/**
+	 * the AudioContext
+	 */
+	private final JavaScriptObject context;
+	/**
+	 * the voices not playing
+	 */
+	private final List<Voice> freeVoices;
+	/**
+	 * the voices playing, by key, from the oldest to the newest
+	 */
+	private final Map<String, List<Voice>> playingVoices;
+	/**
+	 * the maximum number of voices per key, for the keys that don't use the
+	 * default
+	 */
+	private final Map<String, Integer> polyphony;
+	/**
+	 * the maximum number of voices for the other keys
+	 */
+	private int defaultPolyphony;
+
+	/**
+	 * Constructor initializing the engine
+	 * 
+	 * @param context
+	 *            the AudioContext
+	 */
+	private WebAudioEngine(JavaScriptObject context) {
+		this.context = context;
+		this.freeVoices = new ArrayList<Voice>();
+		this.playingVoices = new HashMap<String, List<Voice>>();
+		this.polyphony = new HashMap<String, Integer>();
+		this.defaultPolyphony = DEFAULT_POLYPHONY;
+	}
+
+	/**
+	 * Checks whether the browser supports the Web Audio API
+	 * 
+	 * @return true if Web Audio is supported
+	 */
+	public static native boolean isSupported() /*-{
+		return !!($wnd.AudioContext || $wnd.webkitAudioContext);
+	}-*/;
+
+	/**
+	 * Gets the engine. Browsers limit the number of audio contexts, so a
+	 * single one is shared.
+	 * 
+	 * @return the engine, or null if Web Audio isn't supported
+	 */
+	public static WebAudioEngine get() {
+		if (instance == null && isSupported()) {
+			instance = new WebAudioEngine(createContext());
+		}
+		return instance;
+	}
+
+	/**
+	 * Decodes a sound
+	 * 
+	 * @param data
+	 *            the ArrayBuffer holding the encoded sound
+	 * @param callback
+	 *            the callback notified once decoded
+	 */
+	public native void decode(JavaScriptObject data, DecodeCallback callback) /*-{
+		var ok = $entry(function(buffer) {
+			callback.@com.sfeir.canvas.util.client.WebAudioEngine.DecodeCallback::onDecoded(Lcom/google/gwt/core/client/JavaScriptObject;)(buffer);
+		});
+		var ko = $entry(function() {
+			callback.@com.sfeir.canvas.util.client.WebAudioEngine.DecodeCallback::onError()();
+		});
+		try {
+			this.@com.sfeir.canvas.util.client.WebAudioEngine::context.decodeAudioData(data, ok, ko);
+		} catch (e) {
+			ko();
+		}
+	}-*/;
+
+	/**
+	 * Plays a decoded sound
+	 * 
+	 * @param key
+	 *            the key of the sound, used to limit its polyphony
+	 * @param buffer
+	 *            the decoded AudioBuffer
+	 * @param volume
+	 *            the volume, between 0 and 1
+	 * @param loop
+	 *            whether to play the sound in loop, until stopped
+	 */
+	public void play(String key, JavaScriptObject buffer, double volume, boolean loop) {
+		List<Voice> voices = this.playingVoices.get(key);
+		if (voices == null) {
+			voices = new ArrayList<Voice>();
+			this.playingVoices.put(key, voices);
+		}
+		Voice voice;
+		if (voices.size() >= this.getPolyphony(key)) {
+			// steal the oldest voice
+			voice = voices.remove(0);
+			stopSource(voice.source);
+		} else if (!this.freeVoices.isEmpty()) {
+			voice = this.freeVoices.remove(this.freeVoices.size() - 1);
+		} else {
+			voice = new Voice(this.createGain());
+		}
+		voice.key = key;
+		voice.source = this.startSource(voice, buffer, volume, loop);
+		voices.add(voice);
+	}
+
+	/**
+	 * Stops all the voices playing a sound
+	 * 
+	 * @param key
+	 *            the key of the sound
+	 */
+	public void stop(String key) {
+		List<Voice> voices = this.playingVoices.get(key);
+		if (voices == null) {
+			return;
+		}
+		for (Voice voice : voices) {
+			stopSource(voice.source);
+			voice.source = null;
+			this.freeVoices.add(voice);
+		}
+		voices.clear();
+	}
+
+	/**
+	 * Gets the number of voices playing a sound
+	 * 
+	 * @param key
+	 *            the key of the sound
+	 * @return the number of voices playing it
+	 */
+	public int getPlayingCount(String key) {
+		List<Voice> voices = this.playingVoices.get(key);
+		return voices == null ? 0 : voices.size();
+	}
+
+	/**
+	 * Sets the maximum number of voices playing a sound at the same time
+	 * 
+	 * @param key
+	 *            the key of the sound
+	 * @param voices
+	 *            the maximum number of voices, at least 1
+	 */
+	public void setPolyphony(String key, int voices) {
+		if (voices < 1) {
+			throw new IllegalArgumentException("polyphony must be at least 1");
+		}
+		this.polyphony.put(key, Integer.valueOf(voices));
+	}
+
+	/**
+	 * Gets the maximum number of voices playing a sound at the same time
+	 * 
+	 * @param key
+	 *            the key of the sound
+	 * @return the maximum number of voices
+	 */
+	public int getPolyphony(String key) {
+		Integer voices = this.polyphony.get(key);
+		return voices == null ? this.defaultPolyphony : voices.intValue();
+	}
+
+	/**
+	 * Sets the maximum number of voices playing a sound at the same time,
+	 * for the sounds without a specific limit
+	 * 
+	 * @param voices
+	 *            the maximum number of voices, at least 1
+	 */
+	public void setDefaultPolyphony(int voices) {
+		if (voices < 1) {
+			throw new IllegalArgumentException("polyphony must be at least 1");
+		}
+		this.defaultPolyphony = voices;
+	}
+
+	/**
+	 * Resumes the audio context. Browsers keep it suspended until a user
+	 * gesture, so this is to be called from an input handler.
+	 */
+	public native void resume() /*-{
+		var context = this.@com.sfeir.canvas.util.client.WebAudioEngine::context;
+		if (context.resume && context.state == "suspended") {
+			context.resume();
+		}
+	}-*/;
+
+	/**
+	 * Estimates the memory used by a decoded sound
+	 * 
+	 * @param buffer
+	 *            the decoded AudioBuffer
+	 * @return the memory used, in bytes
+	 */
+	public static native double getMemorySize(JavaScriptObject buffer) /*-{
+		// 32 bits float samples
+		return buffer.length * buffer.numberOfChannels * 4;
+	}-*/;
+
+	/**
+	 * Called when a voice has finished playing
+	 * 
+	 * @param voice
+	 *            the voice
+	 * @param source
+	 *            the source node that has finished
+	 */
+	private void ended(Voice voice, JavaScriptObject source) {
+		if (voice.source != source) {
+			// the voice has been stolen meanwhile
+			return;
+		}
+		voice.source = null;
+		List<Voice> voices = this.playingVoices.get(voice.key);
+		if (voices != null) {
+			voices.remove(voice);
+		}
+		this.freeVoices.add(voice);
+	}
+
+	/**
+	 * Creates the audio context
+	 * 
+	 * @return the AudioContext
+	 */
+	private static native JavaScriptObject createContext() /*-{
+		var AudioContext = $wnd.AudioContext || $wnd.webkitAudioContext;
+		return new AudioContext();
+	}-*/;
+
+	/**
+	 * Creates the gain node of a voice, connected to the output
+	 * 
+	 * @return the gain node
+	 */
+	private native JavaScriptObject createGain() /*-{
+		var context = this.@com.sfeir.canvas.util.client.WebAudioEngine::context;
+		var gain = context.createGain ? context.createGain() : context.createGainNode();
+		gain.connect(context.destination);
+		return gain;
+	}-*/;
+
+	/**
+	 * Starts playing a sound on a voice
+	 * 
+	 * @param voice
+	 *            the voice
+	 * @param buffer
+	 *            the decoded AudioBuffer
+	 * @param volume
+	 *            the volume
+	 * @param loop
+	 *            whether to play in loop
+	 * @return the source node playing
+	 */
+	private native JavaScriptObject startSource(Voice voice, JavaScriptObject buffer, double volume, boolean loop) /*-{
+		var self = this;
+		var context = this.@com.sfeir.canvas.util.client.WebAudioEngine::context;
+		var gain = voice.@com.sfeir.canvas.util.client.WebAudioEngine.Voice::gain;
+		var source = context.createBufferSource();
+		source.buffer = buffer;
+		source.loop = loop;
+		gain.gain.value = volume;
+		source.connect(gain);
+		source.onended = $entry(function() {
+			source.disconnect();
+			self.@com.sfeir.canvas.util.client.WebAudioEngine::ended(Lcom/sfeir/canvas/util/client/WebAudioEngine$Voice;Lcom/google/gwt/core/client/JavaScriptObject;)(voice, source);
+		});
+		if (source.start) {
+			source.start(0);
+		} else {
+			source.noteOn(0);
+		}
+		return source;
+	}-*/;
+
+	/**
+	 * Stops a source node
+	 * 
+	 * @param source
+	 *            the source node, may be null
+	 */
+	private static native void stopSource(JavaScriptObject source) /*-{
+		if (source) {
+			source.onended = null;
+			try {
+				if (source.stop) {
+					source.stop(0);
+				} else {
+					source.noteOff(0);
+				}
+			} catch (e) {
+				// already stopped
+			}
+			source.disconnect();
+		}
+	}-*/;
+}
@@ -1,15 +1,15 @@
-/**
- * 
- */
-package com.sfeir.canvas.util.client.event;
-
-import com.google.gwt.event.shared.EventHandler;
-
-/**
- * @author François LAROCHE
- *
- */
-public interface AllResourcesLoadedHandler extends EventHandler {
-
-	public void onAllResourcesLoaded(AllResourcesLoadedEvent event);
-}
+/**
+ * 
+ */
+package com.sfeir.canvas.util.client.event;
+
+import com.google.gwt.event.shared.EventHandler;
+
+/**
+ * @author François LAROCHE
+ *
+ */
+public interface AllResourcesLoadedHandler extends EventHandler {
+
+	public void onAllResourcesLoaded(AllResourcesLoadedEvent event);
+}
@@ -0,0 +1,64 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.util.client.event;
+
+import com.google.gwt.event.shared.GwtEvent;
+
+/**
+ * Event fired when all the resources of a group are loaded. The resources
+ * that failed to load don't keep the event from being fired : they are
+ * counted by {@link #getFailedCount()}.
+ * 
+ * @author François LAROCHE
+ *
+ */
+public class ResourceGroupLoadedEvent extends GwtEvent<ResourceGroupLoadedHandler> {
+
+	public static final Type<ResourceGroupLoadedHandler> TYPE = new Type<ResourceGroupLoadedHandler>();
+
+	private final String group;
+	private final int failedCount;
+
+	public ResourceGroupLoadedEvent(String group) {
+		this(group, 0);
+	}
+
+	public ResourceGroupLoadedEvent(String group, int failedCount) {
+		this.group = group;
+		this.failedCount = failedCount;
+	}
+
+	@Override
+	public com.google.gwt.event.shared.GwtEvent.Type<ResourceGroupLoadedHandler> getAssociatedType() {
+		return TYPE;
+	}
+
+	@Override
+	protected void dispatch(ResourceGroupLoadedHandler handler) {
+		handler.onResourceGroupLoaded(this);
+	}
+
+	public String getGroup() {
+		return group;
+	}
+
+	/**
+	 * Gets the number of resources of the group that failed to load
+	 * 
+	 * @return the number of resources that failed, 0 if all were loaded
+	 */
+	public int getFailedCount() {
+		return failedCount;
+	}
+
+	/**
+	 * Checks whether some resources of the group failed to load
+	 * 
+	 * @return true if at least one resource failed to load
+	 */
+	public boolean hasFailures() {
+		return failedCount > 0;
+	}
+
+}
@@ -0,0 +1,15 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.util.client.event;
+
+import com.google.gwt.event.shared.EventHandler;
+
+/**
+ * @author François LAROCHE
+ *
+ */
+public interface ResourceGroupLoadedHandler extends EventHandler {
+
+	public void onResourceGroupLoaded(ResourceGroupLoadedEvent event);
+}
@@ -1,38 +1,127 @@
-/**
- * 
- */
-package com.sfeir.canvas.util.client.event;
-
-import com.google.gwt.event.shared.GwtEvent;
-
-/**
- * @author François LAROCHE
- *
- */
-public class ResourceLoadedEvent extends GwtEvent<ResourceLoadedHandler> {
-
-	public static final Type<ResourceLoadedHandler> TYPE = new Type<ResourceLoadedHandler>();
-	
-	private final float percentage;
-	
-	public ResourceLoadedEvent(float percent, Object source) {
-		setSource(source);
-		this.percentage = percent;
-		
-	}
-
-	@Override
-	public com.google.gwt.event.shared.GwtEvent.Type<ResourceLoadedHandler> getAssociatedType() {
-		return TYPE;
-	}
-
-	@Override
-	protected void dispatch(ResourceLoadedHandler handler) {
-		handler.onResourcesLoaded(this);
-	}
-
-	public float getPercentage() {
-		return percentage;
-	}
-	
-}
+/**
+ * 
+ */
+package com.sfeir.canvas.util.client.event;
+
+import com.google.gwt.event.shared.GwtEvent;
+import com.sfeir.canvas.util.client.pool.ObjectPool;
+
+/**
+ * Event fired while resources are loading.<br>
+ * The events fired by the
+ * {@link com.sfeir.canvas.util.client.ResourceManager} are taken from a pool,
+ * and given back once dispatched : handlers must not keep them.
+ * 
+ * @author François LAROCHE
+ *
+ */
+public class ResourceLoadedEvent extends GwtEvent<ResourceLoadedHandler> {
+
+	public static final Type<ResourceLoadedHandler> TYPE = new Type<ResourceLoadedHandler>();
+	
+	/**
+	 * the events not being dispatched
+	 */
+	private static final ObjectPool<ResourceLoadedEvent> POOL = new ObjectPool<ResourceLoadedEvent>(
+			new ObjectPool.Factory<ResourceLoadedEvent>() {
+				@Override
+				public ResourceLoadedEvent create() {
+					return new ResourceLoadedEvent(0, null);
+				}
+
+				@Override
+				public void reset(ResourceLoadedEvent event) {
+					event.revive();
+					event.percentage = 0;
+					event.offlineHits = 0;
+					event.offlineMisses = 0;
+				}
+			}, 2, 8);
+
+	private float percentage;
+	/**
+	 * the number of resources found in the offline cache so far
+	 */
+	private int offlineHits;
+	/**
+	 * the number of resources not found in the offline cache so far
+	 */
+	private int offlineMisses;
+	
+	public ResourceLoadedEvent(float percent, Object source) {
+		setSource(source);
+		this.percentage = percent;
+		
+	}
+
+	/**
+	 * Gets an event from the pool, to be given back with {@link #release()}
+	 * once fired
+	 * 
+	 * @param percent
+	 *            the loading percentage
+	 * @param source
+	 *            the resource loaded
+	 * @return the event
+	 */
+	public static ResourceLoadedEvent obtain(float percent, Object source) {
+		ResourceLoadedEvent event = POOL.obtain();
+		event.setSource(source);
+		event.percentage = percent;
+		return event;
+	}
+
+	/**
+	 * Gives an event obtained with {@link #obtain(float, Object)} back to the
+	 * pool
+	 */
+	public void release() {
+		POOL.release(this);
+	}
+
+	@Override
+	public com.google.gwt.event.shared.GwtEvent.Type<ResourceLoadedHandler> getAssociatedType() {
+		return TYPE;
+	}
+
+	@Override
+	protected void dispatch(ResourceLoadedHandler handler) {
+		handler.onResourcesLoaded(this);
+	}
+
+	public float getPercentage() {
+		return percentage;
+	}
+
+	/**
+	 * Sets the statistics of the offline cache
+	 * 
+	 * @param hits
+	 *            the number of resources found in the cache so far
+	 * @param misses
+	 *            the number of resources not found in the cache so far
+	 */
+	public void setOfflineStatistics(int hits, int misses) {
+		this.offlineHits = hits;
+		this.offlineMisses = misses;
+	}
+
+	public int getOfflineHits() {
+		return offlineHits;
+	}
+
+	public int getOfflineMisses() {
+		return offlineMisses;
+	}
+
+	/**
+	 * Gets the fraction of the resources found in the offline cache
+	 * 
+	 * @return the hit rate, between 0 and 1, 0 if no offline cache is used
+	 */
+	public float getOfflineHitRate() {
+		int lookups = this.offlineHits + this.offlineMisses;
+		return lookups == 0 ? 0 : (float) this.offlineHits / lookups;
+	}
+	
+}
@@ -1,15 +1,15 @@
-/**
- * 
- */
-package com.sfeir.canvas.util.client.event;
-
-import com.google.gwt.event.shared.EventHandler;
-
-/**
- * @author François LAROCHE
- *
- */
-public interface ResourceLoadedHandler extends EventHandler {
-
-	public void onResourcesLoaded(ResourceLoadedEvent event);
-}
+/**
+ * 
+ */
+package com.sfeir.canvas.util.client.event;
+
+import com.google.gwt.event.shared.EventHandler;
+
+/**
+ * @author François LAROCHE
+ *
+ */
+public interface ResourceLoadedHandler extends EventHandler {
+
+	public void onResourcesLoaded(ResourceLoadedEvent event);
+}
@@ -0,0 +1,50 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.util.client.metrics;
+
+/**
+ * Counter of a quantity, such as a number of bytes or of events
+ * 
+ * @author François LAROCHE
+ */
+public final class Counter {
+
+	/**
+	 * the value of the counter
+	 */
+	private double value;
+
+	/**
+	 * Adds 1 to the counter
+	 */
+	public void increment() {
+		this.value++;
+	}
+
+	/**
+	 * Adds a quantity to the counter
+	 * 
+	 * @param delta
+	 *            the quantity to add
+	 */
+	public void add(double delta) {
+		this.value += delta;
+	}
+
+	/**
+	 * Gets the value of the counter
+	 * 
+	 * @return the sum of the quantities added
+	 */
+	public double getValue() {
+		return value;
+	}
+
+	/**
+	 * Resets the counter to 0
+	 */
+	public void reset() {
+		this.value = 0;
+	}
+}
@@ -0,0 +1,167 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.util.client.metrics;
+
+/**
+ * Distribution of measured values, such as durations.<br>
+ * The values are counted in buckets whose bounds double from one to the next,
+ * starting at {@link #BASE} : recording a value costs a few operations and no
+ * allocation, and percentiles are known within a factor of 2.
+ * 
+ * @author François LAROCHE
+ */
+public final class Histogram {
+
+	/**
+	 * Upper bound of the first bucket
+	 */
+	public static final double BASE = 0.125;
+	/**
+	 * Number of buckets, the last one holding all the values too large for
+	 * the others
+	 */
+	public static final int BUCKETS = 32;
+
+	/**
+	 * the number of values in each bucket
+	 */
+	private final int[] buckets;
+	/**
+	 * the number of values recorded
+	 */
+	private int count;
+	/**
+	 * the sum of the values recorded
+	 */
+	private double sum;
+	/**
+	 * the smallest value recorded
+	 */
+	private double min;
+	/**
+	 * the largest value recorded
+	 */
+	private double max;
+	/**
+	 * the last value recorded
+	 */
+	private double last;
+
+	/**
+	 * Constructor initializing an empty histogram
+	 */
+	public Histogram() {
+		this.buckets = new int[BUCKETS];
+		this.reset();
+	}
+
+	/**
+	 * Records a value
+	 * 
+	 * @param value
+	 *            the value
+	 */
+	public void record(double value) {
+		int bucket = 0;
+		double bound = BASE;
+		while (value > bound && bucket < BUCKETS - 1) {
+			bound *= 2;
+			bucket++;
+		}
+		this.buckets[bucket]++;
+		this.count++;
+		this.sum += value;
+		this.last = value;
+		if (value < this.min) {
+			this.min = value;
+		}
+		if (value > this.max) {
+			this.max = value;
+		}
+	}
+
+	/**
+	 * Gets the number of values recorded
+	 * 
+	 * @return the number of values
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * Gets the mean of the values recorded
+	 * 
+	 * @return the mean, 0 if no value has been recorded
+	 */
+	public double getMean() {
+		return this.count == 0 ? 0 : this.sum / this.count;
+	}
+
+	/**
+	 * Gets the smallest value recorded
+	 * 
+	 * @return the smallest value, 0 if no value has been recorded
+	 */
+	public double getMin() {
+		return this.count == 0 ? 0 : this.min;
+	}
+
+	/**
+	 * Gets the largest value recorded
+	 * 
+	 * @return the largest value, 0 if no value has been recorded
+	 */
+	public double getMax() {
+		return this.count == 0 ? 0 : this.max;
+	}
+
+	/**
+	 * Gets the last value recorded
+	 * 
+	 * @return the last value, 0 if no value has been recorded
+	 */
+	public double getLast() {
+		return last;
+	}
+
+	/**
+	 * Gets an upper bound of a percentile of the values
+	 * 
+	 * @param percentile
+	 *            the percentile, between 0 and 100
+	 * @return the upper bound of the bucket holding the percentile, capped
+	 *         to the largest value recorded
+	 */
+	public double getPercentile(double percentile) {
+		if (this.count == 0) {
+			return 0;
+		}
+		double rank = this.count * percentile / 100;
+		int seen = 0;
+		double bound = BASE;
+		for (int i = 0; i < BUCKETS - 1; i++) {
+			seen += this.buckets[i];
+			if (seen >= rank) {
+				return Math.min(bound, this.max);
+			}
+			bound *= 2;
+		}
+		return this.max;
+	}
+
+	/**
+	 * Forgets all the values recorded
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++) {
+			this.buckets[i] = 0;
+		}
+		this.count = 0;
+		this.sum = 0;
+		this.min = Double.MAX_VALUE;
+		this.max = -Double.MAX_VALUE;
+		this.last = 0;
+	}
+}
@@ -0,0 +1,35 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.util.client.metrics;
+
+import com.google.gwt.core.client.GWT;
+
+/**
+ * Access to the {@link Metrics} of the application, created by deferred
+ * binding
+ * 
+ * @author François LAROCHE
+ */
+public final class Instrumentation {
+
+	/**
+	 * the metrics of the application
+	 */
+	private static final Metrics METRICS = GWT.create(Metrics.class);
+
+	/**
+	 * Private constructor, the class only holds the metrics
+	 */
+	private Instrumentation() {
+	}
+
+	/**
+	 * Gets the metrics of the application
+	 * 
+	 * @return the metrics, recording nothing unless enabled in the module
+	 */
+	public static Metrics get() {
+		return METRICS;
+	}
+}
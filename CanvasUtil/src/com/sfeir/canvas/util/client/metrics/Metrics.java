@@ -0,0 +1,109 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.util.client.metrics;
+
+import java.util.Collection;
+
+/**
+ * Collector of counters and histograms measuring the game.<br>
+ * The implementation is chosen by deferred binding on the
+ * <code>canvas.metrics</code> property of the resources-util module :
+ * {@link NullMetrics} when it is <code>disabled</code> (the default), and
+ * {@link RecordingMetrics} when it is <code>enabled</code>. Another
+ * implementation can be plugged with a <code>replace-with</code> rule.<br>
+ * The instrumented code checks {@link #isEnabled()} before measuring : with
+ * the metrics disabled, the compiler sees a constant false and removes the
+ * measurements entirely.
+ * 
+ * @author François LAROCHE
+ */
+public interface Metrics {
+
+	/**
+	 * Histogram of the duration of the frames, in milliseconds
+	 */
+	public static final String FRAME_TIME = "frame";
+	/**
+	 * Histogram of the time spent updating in a frame, in milliseconds
+	 */
+	public static final String UPDATE_TIME = "update";
+	/**
+	 * Histogram of the time spent rendering in a frame, in milliseconds
+	 */
+	public static final String RENDER_TIME = "render";
+	/**
+	 * Histogram of the time spent dispatching the buffered input to the
+	 * activities, in milliseconds
+	 */
+	public static final String INPUT_TIME = "input";
+	/**
+	 * Histogram of the duration of the page changes, in milliseconds
+	 */
+	public static final String TRANSITION_TIME = "transition";
+	/**
+	 * Histogram of the time spent in the lifecycle methods of the
+	 * activities (init, start, stop...), in milliseconds
+	 */
+	public static final String LIFECYCLE_TIME = "lifecycle";
+	/**
+	 * Histogram of the loading time of each resource, in milliseconds
+	 */
+	public static final String RESOURCE_LOAD_TIME = "resource.load";
+	/**
+	 * Counter of the bytes of resources received, by a download or from the
+	 * offline cache. The resources loaded by the browser from their url are
+	 * not counted, their size being unknown.
+	 */
+	public static final String RESOURCE_BYTES = "resource.bytes";
+	/**
+	 * Counter of the resources that failed to load
+	 */
+	public static final String RESOURCE_FAILURES = "resource.failures";
+
+	/**
+	 * Checks whether the metrics are recorded
+	 * 
+	 * @return true if they are, false if nothing is measured
+	 */
+	public boolean isEnabled();
+
+	/**
+	 * Gets a counter, creating it the first time. Better fetched once and
+	 * kept than fetched for each measurement.
+	 * 
+	 * @param name
+	 *            the name of the counter
+	 * @return the counter
+	 */
+	public Counter getCounter(String name);
+
+	/**
+	 * Gets a histogram, creating it the first time. Better fetched once and
+	 * kept than fetched for each measurement.
+	 * 
+	 * @param name
+	 *            the name of the histogram
+	 * @return the histogram
+	 */
+	public Histogram getHistogram(String name);
+
+	/**
+	 * Gets the names of the counters, in their order of creation
+	 * 
+	 * @return the names of the counters
+	 */
+	public Collection<String> getCounterNames();
+
+	/**
+	 * Gets the names of the histograms, in their order of creation
+	 * 
+	 * @return the names of the histograms
+	 */
+	public Collection<String> getHistogramNames();
+
+	/**
+	 * Resets all the counters and histograms
+	 */
+	public void reset();
+}
@@ -0,0 +1,98 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.util.client.metrics;
+
+import com.google.gwt.canvas.dom.client.Context2d;
+
+/**
+ * Overlay drawing the current {@link Metrics} on a canvas : one line per
+ * histogram (last value, mean, 95th percentile and maximum) and one per
+ * counter.
+ * 
+ * @author François LAROCHE
+ */
+public class MetricsOverlay {
+
+	/**
+	 * Height of a line of text, in pixels
+	 */
+	private static final int LINE_HEIGHT = 14;
+	/**
+	 * Width of the overlay, in pixels
+	 */
+	private static final int WIDTH = 300;
+
+	/**
+	 * the metrics drawn
+	 */
+	private final Metrics metrics;
+
+	/**
+	 * Constructor initializing the overlay with the metrics of the
+	 * application
+	 */
+	public MetricsOverlay() {
+		this(Instrumentation.get());
+	}
+
+	/**
+	 * Constructor initializing the overlay
+	 * 
+	 * @param metrics
+	 *            the metrics to draw
+	 */
+	public MetricsOverlay(Metrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Draws the metrics, over a background so that they stay readable. The
+	 * rectangle of the overlay is cleared before, so that the overlay can be
+	 * drawn again and again on a canvas that isn't redrawn in between.
+	 * 
+	 * @param ctx
+	 *            the context on which to draw
+	 * @param x
+	 *            the x coordinate of the top left corner of the overlay
+	 * @param y
+	 *            the y coordinate of the top left corner of the overlay
+	 */
+	public void draw(Context2d ctx, double x, double y) {
+		if (!this.metrics.isEnabled()) {
+			return;
+		}
+		int lines = this.metrics.getHistogramNames().size() + this.metrics.getCounterNames().size();
+		int height = lines * LINE_HEIGHT + 6;
+		ctx.save();
+		ctx.clearRect(x, y, WIDTH, height);
+		ctx.setFillStyle("rgba(0, 0, 0, 0.6)");
+		ctx.fillRect(x, y, WIDTH, height);
+		ctx.setFillStyle("#fff");
+		ctx.setFont("11px monospace");
+		ctx.setTextBaseline(Context2d.TextBaseline.TOP);
+		double line = y + 3;
+		for (String name : this.metrics.getHistogramNames()) {
+			Histogram histogram = this.metrics.getHistogram(name);
+			ctx.fillText(name + " " + format(histogram.getLast()) + " avg " + format(histogram.getMean()) + " p95 "
+					+ format(histogram.getPercentile(95)) + " max " + format(histogram.getMax()), x + 4, line);
+			line += LINE_HEIGHT;
+		}
+		for (String name : this.metrics.getCounterNames()) {
+			ctx.fillText(name + " " + format(this.metrics.getCounter(name).getValue()), x + 4, line);
+			line += LINE_HEIGHT;
+		}
+		ctx.restore();
+	}
+
+	/**
+	 * Formats a value with 2 decimals at most
+	 * 
+	 * @param value
+	 *            the value
+	 * @return the formatted value
+	 */
+	private static String format(double value) {
+		return String.valueOf(Math.round(value * 100) / 100d);
+	}
+}
@@ -0,0 +1,54 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.util.client.metrics;
+
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Metrics recording nothing, used when the <code>canvas.metrics</code>
+ * property is <code>disabled</code>
+ * 
+ * @author François LAROCHE
+ */
+public class NullMetrics implements Metrics {
+
+	/**
+	 * the counter given for any name, never read
+	 */
+	private final Counter counter = new Counter();
+	/**
+	 * the histogram given for any name, never read
+	 */
+	private final Histogram histogram = new Histogram();
+
+	@Override
+	public boolean isEnabled() {
+		return false;
+	}
+
+	@Override
+	public Counter getCounter(String name) {
+		return this.counter;
+	}
+
+	@Override
+	public Histogram getHistogram(String name) {
+		return this.histogram;
+	}
+
+	@Override
+	public Collection<String> getCounterNames() {
+		return Collections.emptyList();
+	}
+
+	@Override
+	public Collection<String> getHistogramNames() {
+		return Collections.emptyList();
+	}
+
+	@Override
+	public void reset() {
+	}
+}
@@ -0,0 +1,79 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.util.client.metrics;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Metrics recorded in memory, used when the <code>canvas.metrics</code>
+ * property is <code>enabled</code>
+ * 
+ * @author François LAROCHE
+ */
+public class RecordingMetrics implements Metrics {
+
+	/**
+	 * the counters, by name
+	 */
+	private final Map<String, Counter> counters;
+	/**
+	 * the histograms, by name
+	 */
+	private final Map<String, Histogram> histograms;
+
+	/**
+	 * Constructor initializing empty metrics
+	 */
+	public RecordingMetrics() {
+		this.counters = new LinkedHashMap<String, Counter>();
+		this.histograms = new LinkedHashMap<String, Histogram>();
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return true;
+	}
+
+	@Override
+	public Counter getCounter(String name) {
+		Counter counter = this.counters.get(name);
+		if (counter == null) {
+			counter = new Counter();
+			this.counters.put(name, counter);
+		}
+		return counter;
+	}
+
+	@Override
+	public Histogram getHistogram(String name) {
+		Histogram histogram = this.histograms.get(name);
+		if (histogram == null) {
+			histogram = new Histogram();
+			this.histograms.put(name, histogram);
+		}
+		return histogram;
+	}
+
+	@Override
+	public Collection<String> getCounterNames() {
+		return this.counters.keySet();
+	}
+
+	@Override
+	public Collection<String> getHistogramNames() {
+		return this.histograms.keySet();
+	}
+
+	@Override
+	public void reset() {
+		for (Counter counter : this.counters.values()) {
+			counter.reset();
+		}
+		for (Histogram histogram : this.histograms.values()) {
+			histogram.reset();
+		}
+	}
+}
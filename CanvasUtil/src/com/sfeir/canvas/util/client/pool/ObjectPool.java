@@ -0,0 +1,253 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.util.client.pool;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import com.google.gwt.core.client.GWT;
+
+/**
+ * Pool of reusable objects, to avoid allocating short-lived objects on every
+ * frame, which causes garbage collection pauses.<br>
+ * Objects are {@link #obtain() obtained} from the pool, and
+ * {@link #release(Object) released} once no longer used, to be
+ * {@link Factory#reset(Object) reset} and given again by a later call. The
+ * pool can be filled in advance, and records the highest number of objects
+ * in use at the same time, to size it.<br>
+ * Outside of production mode, the pool also checks that objects are released
+ * only once, and can report the objects obtained long ago and never released
+ * : call {@link #nextGeneration()} once per frame, and
+ * {@link #findLeaks(int)} from time to time.
+ * 
+ * @author François LAROCHE
+ * 
+ * @param <T>
+ *            the type of the pooled objects
+ */
+public class ObjectPool<T> {
+
+	/**
+	 * Creates and resets the objects of a pool
+	 * 
+	 * @author François LAROCHE
+	 * 
+	 * @param <T>
+	 *            the type of the pooled objects
+	 */
+	public static interface Factory<T> {
+		/**
+		 * Creates a new object
+		 * 
+		 * @return the new object
+		 */
+		public T create();
+
+		/**
+		 * Resets an object released, before it is reused
+		 * 
+		 * @param object
+		 *            the object to reset
+		 */
+		public void reset(T object);
+	}
+
+	/**
+	 * the factory of the objects
+	 */
+	private final Factory<T> factory;
+	/**
+	 * the free objects, as a stack
+	 */
+	private Object[] free;
+	/**
+	 * the number of free objects
+	 */
+	private int freeCount;
+	/**
+	 * the maximum number of free objects kept, 0 for no limit
+	 */
+	private final int maxFree;
+	/**
+	 * the number of objects in use
+	 */
+	private int inUse;
+	/**
+	 * the highest number of objects in use at the same time
+	 */
+	private int highWater;
+	/**
+	 * the number of objects created
+	 */
+	private int created;
+	/**
+	 * the objects in use, with the generation in which they were obtained,
+	 * null in production mode
+	 */
+	private final Map<T, Integer> outstanding;
+	/**
+	 * the current generation, usually the frame number
+	 */
+	private int generation;
+
+	/**
+	 * Constructor creating an empty pool, without limit
+	 * 
+	 * @param factory
+	 *            the factory of the objects
+	 */
+	public ObjectPool(Factory<T> factory) {
+		this(factory, 0, 0);
+	}
+
+	/**
+	 * Constructor initializing the pool
+	 * 
+	 * @param factory
+	 *            the factory of the objects
+	 * @param preallocate
+	 *            the number of objects to create right away
+	 * @param maxFree
+	 *            the maximum number of free objects kept, the others being
+	 *            left to the garbage collector, 0 for no limit
+	 */
+	public ObjectPool(Factory<T> factory, int preallocate, int maxFree) {
+		this.factory = factory;
+		this.maxFree = maxFree;
+		this.free = new Object[Math.max(preallocate, 16)];
+		this.outstanding = GWT.isProdMode() ? null : new IdentityHashMap<T, Integer>();
+		for (int i = 0; i < preallocate; i++) {
+			this.free[this.freeCount++] = this.create();
+		}
+	}
+
+	/**
+	 * Gets an object from the pool, creating it if none is free
+	 * 
+	 * @return the object
+	 */
+	@SuppressWarnings("unchecked")
+	public T obtain() {
+		T object;
+		if (this.freeCount > 0) {
+			object = (T) this.free[--this.freeCount];
+			this.free[this.freeCount] = null;
+		} else {
+			object = this.create();
+		}
+		this.inUse++;
+		if (this.inUse > this.highWater) {
+			this.highWater = this.inUse;
+		}
+		if (this.outstanding != null) {
+			this.outstanding.put(object, Integer.valueOf(this.generation));
+		}
+		return object;
+	}
+
+	/**
+	 * Gives an object back to the pool. The object must not be used
+	 * afterwards.
+	 * 
+	 * @param object
+	 *            the object, obtained from this pool
+	 * @throws IllegalStateException
+	 *             outside of production mode, if the object isn't in use
+	 */
+	public void release(T object) {
+		if (this.outstanding != null && this.outstanding.remove(object) == null) {
+			throw new IllegalStateException("Object released twice, or not obtained from this pool : " + object);
+		}
+		this.inUse--;
+		this.factory.reset(object);
+		if (this.maxFree > 0 && this.freeCount >= this.maxFree) {
+			return;
+		}
+		if (this.freeCount == this.free.length) {
+			Object[] grown = new Object[this.free.length * 2];
+			System.arraycopy(this.free, 0, grown, 0, this.freeCount);
+			this.free = grown;
+		}
+		this.free[this.freeCount++] = object;
+	}
+
+	/**
+	 * Starts a new generation, usually once per frame, for the leak
+	 * detection
+	 */
+	public void nextGeneration() {
+		this.generation++;
+	}
+
+	/**
+	 * Finds the objects in use for more than a given number of generations,
+	 * and logs them. Always finds nothing in production mode.
+	 * 
+	 * @param maxAge
+	 *            the number of generations after which an object is
+	 *            considered leaked
+	 * @return the number of leaked objects
+	 */
+	public int findLeaks(int maxAge) {
+		if (this.outstanding == null) {
+			return 0;
+		}
+		int leaks = 0;
+		for (Map.Entry<T, Integer> entry : this.outstanding.entrySet()) {
+			int age = this.generation - entry.getValue().intValue();
+			if (age > maxAge) {
+				leaks++;
+				GWT.log("Pooled object not released for " + age + " generations : " + entry.getKey());
+			}
+		}
+		return leaks;
+	}
+
+	/**
+	 * Gets the number of objects in use
+	 * 
+	 * @return the number of objects obtained and not released
+	 */
+	public int getInUse() {
+		return inUse;
+	}
+
+	/**
+	 * Gets the number of free objects
+	 * 
+	 * @return the number of objects ready to be obtained
+	 */
+	public int getFree() {
+		return freeCount;
+	}
+
+	/**
+	 * Gets the highest number of objects in use at the same time, to size
+	 * the preallocation
+	 * 
+	 * @return the high-water mark
+	 */
+	public int getHighWater() {
+		return highWater;
+	}
+
+	/**
+	 * Gets the number of objects created by the pool
+	 * 
+	 * @return the number of objects created
+	 */
+	public int getCreated() {
+		return created;
+	}
+
+	/**
+	 * Creates an object
+	 * 
+	 * @return the new object
+	 */
+	private T create() {
+		this.created++;
+		return this.factory.create();
+	}
+}
@@ -0,0 +1,100 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.util.client.spatial;
+
+/**
+ * An object indexed and its bounds, shared by the {@link SpatialIndex}
+ * implementations
+ * 
+ * @author François LAROCHE
+ * 
+ * @param <T>
+ *            the type of the object
+ */
+class Bounds<T> {
+	/**
+	 * the object
+	 */
+	final T item;
+	/**
+	 * the left coordinate
+	 */
+	double left;
+	/**
+	 * the top coordinate
+	 */
+	double top;
+	/**
+	 * the right coordinate
+	 */
+	double right;
+	/**
+	 * the bottom coordinate
+	 */
+	double bottom;
+	/**
+	 * the number of the last query that found the object, not to return it
+	 * twice
+	 */
+	int stamp;
+
+	/**
+	 * Constructor initializing the object
+	 * 
+	 * @param item
+	 *            the object
+	 */
+	Bounds(T item) {
+		this.item = item;
+	}
+
+	/**
+	 * Sets the bounds
+	 * 
+	 * @param x
+	 *            the x coordinate
+	 * @param y
+	 *            the y coordinate
+	 * @param width
+	 *            the width
+	 * @param height
+	 *            the height
+	 */
+	void set(double x, double y, double width, double height) {
+		this.left = x;
+		this.top = y;
+		this.right = x + width;
+		this.bottom = y + height;
+	}
+
+	/**
+	 * Checks whether the bounds intersect an area
+	 * 
+	 * @param left
+	 *            the left coordinate of the area
+	 * @param top
+	 *            the top coordinate of the area
+	 * @param right
+	 *            the right coordinate of the area
+	 * @param bottom
+	 *            the bottom coordinate of the area
+	 * @return true if they intersect
+	 */
+	boolean intersects(double left, double top, double right, double bottom) {
+		return this.left <= right && left <= this.right && this.top <= bottom && top <= this.bottom;
+	}
+
+	/**
+	 * Checks whether the bounds contain a point
+	 * 
+	 * @param x
+	 *            the x coordinate of the point
+	 * @param y
+	 *            the y coordinate of the point
+	 * @return true if the point is inside
+	 */
+	boolean contains(double x, double y) {
+		return this.left <= x && x <= this.right && this.top <= y && y <= this.bottom;
+	}
+}
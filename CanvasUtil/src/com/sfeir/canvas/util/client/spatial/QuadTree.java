@@ -0,0 +1,408 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.util.client.spatial;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Spatial index recursively dividing an area in four quadrants. An object is
+ * kept in the smallest node fully containing its bounds, objects outside of
+ * the area being kept in the root.<br>
+ * Best suited to objects of very different sizes, or gathered in some parts of
+ * the area. An object moving inside its node is updated in place, without
+ * walking the tree.
+ * 
+ * @author François LAROCHE
+ * 
+ * @param <T>
+ *            the type of the objects indexed
+ */
+public class QuadTree<T> implements SpatialIndex<T> {
+
+	/**
+	 * Default number of objects in a node above which it is split
+	 */
+	public static final int DEFAULT_NODE_CAPACITY = 8;
+	/**
+	 * Default maximum depth of the tree
+	 */
+	public static final int DEFAULT_MAX_DEPTH = 8;
+
+	/**
+	 * An object and the node it is kept in
+	 * 
+	 * @author François LAROCHE
+	 * 
+	 * @param <T>
+	 *            the type of the object
+	 */
+	private static class Entry<T> extends Bounds<T> {
+		/**
+		 * the node the object is kept in
+		 */
+		private Node<T> node;
+
+		/**
+		 * Constructor initializing the entry
+		 * 
+		 * @param item
+		 *            the object
+		 */
+		public Entry(T item) {
+			super(item);
+		}
+	}
+
+	/**
+	 * A node of the tree
+	 * 
+	 * @author François LAROCHE
+	 * 
+	 * @param <T>
+	 *            the type of the objects
+	 */
+	private static class Node<T> {
+		/**
+		 * the left coordinate
+		 */
+		private final double left;
+		/**
+		 * the top coordinate
+		 */
+		private final double top;
+		/**
+		 * the right coordinate
+		 */
+		private final double right;
+		/**
+		 * the bottom coordinate
+		 */
+		private final double bottom;
+		/**
+		 * the depth of the node, 0 for the root
+		 */
+		private final int depth;
+		/**
+		 * the objects kept in this node
+		 */
+		private final List<Entry<T>> entries;
+		/**
+		 * the four quadrants, null until the node is split
+		 */
+		private Node<T>[] children;
+
+		/**
+		 * Constructor initializing the node
+		 * 
+		 * @param left
+		 *            the left coordinate
+		 * @param top
+		 *            the top coordinate
+		 * @param right
+		 *            the right coordinate
+		 * @param bottom
+		 *            the bottom coordinate
+		 * @param depth
+		 *            the depth of the node
+		 */
+		public Node(double left, double top, double right, double bottom, int depth) {
+			this.left = left;
+			this.top = top;
+			this.right = right;
+			this.bottom = bottom;
+			this.depth = depth;
+			this.entries = new ArrayList<Entry<T>>();
+		}
+
+		/**
+		 * Checks whether the node fully contains the bounds of an object
+		 * 
+		 * @param entry
+		 *            the object
+		 * @return true if the object is inside the node
+		 */
+		public boolean contains(Bounds<T> entry) {
+			return this.left <= entry.left && entry.right < this.right && this.top <= entry.top
+					&& entry.bottom < this.bottom;
+		}
+
+		/**
+		 * Gets the quadrant fully containing the bounds of an object
+		 * 
+		 * @param entry
+		 *            the object
+		 * @return the quadrant, or null if the node isn't split or the object
+		 *         overlaps several quadrants
+		 */
+		public Node<T> childFor(Bounds<T> entry) {
+			if (this.children == null) {
+				return null;
+			}
+			for (Node<T> child : this.children) {
+				if (child.contains(entry)) {
+					return child;
+				}
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * the root of the tree
+	 */
+	private final Node<T> root;
+	/**
+	 * the number of objects in a node above which it is split
+	 */
+	private final int nodeCapacity;
+	/**
+	 * the maximum depth of the tree
+	 */
+	private final int maxDepth;
+	/**
+	 * the entries, by object
+	 */
+	private final Map<T, Entry<T>> entries;
+
+	/**
+	 * Constructor initializing the tree with the default node capacity and
+	 * depth
+	 * 
+	 * @param width
+	 *            the width of the area covered
+	 * @param height
+	 *            the height of the area covered
+	 */
+	public QuadTree(double width, double height) {
+		this(width, height, DEFAULT_NODE_CAPACITY, DEFAULT_MAX_DEPTH);
+	}
+
+	/**
+	 * Constructor initializing the tree
+	 * 
+	 * @param width
+	 *            the width of the area covered
+	 * @param height
+	 *            the height of the area covered
+	 * @param nodeCapacity
+	 *            the number of objects in a node above which it is split
+	 * @param maxDepth
+	 *            the maximum depth of the tree
+	 */
+	public QuadTree(double width, double height, int nodeCapacity, int maxDepth) {
+		if (nodeCapacity < 1) {
+			throw new IllegalArgumentException("nodeCapacity must be at least 1");
+		}
+		this.root = new Node<T>(0, 0, width, height, 0);
+		this.nodeCapacity = nodeCapacity;
+		this.maxDepth = maxDepth;
+		this.entries = new HashMap<T, Entry<T>>();
+	}
+
+	@Override
+	public void insert(T item, double x, double y, double width, double height) {
+		this.update(item, x, y, width, height);
+	}
+
+	@Override
+	public void update(T item, double x, double y, double width, double height) {
+		Entry<T> entry = this.entries.get(item);
+		if (entry == null) {
+			entry = new Entry<T>(item);
+			entry.set(x, y, width, height);
+			this.entries.put(item, entry);
+			this.add(this.root, entry);
+			return;
+		}
+		entry.set(x, y, width, height);
+		Node<T> node = entry.node;
+		if ((node == this.root || node.contains(entry)) && node.childFor(entry) == null) {
+			// still in the smallest node containing it
+			return;
+		}
+		node.entries.remove(entry);
+		// climb up to the first node containing the object, then down again
+		while (node != this.root && !node.contains(entry)) {
+			node = this.parentOf(node);
+		}
+		this.add(node, entry);
+	}
+
+	@Override
+	public boolean remove(T item) {
+		Entry<T> entry = this.entries.remove(item);
+		if (entry == null) {
+			return false;
+		}
+		entry.node.entries.remove(entry);
+		entry.node = null;
+		return true;
+	}
+
+	@Override
+	public int query(double x, double y, double width, double height, List<T> results) {
+		return this.query(this.root, x, y, x + width, y + height, results);
+	}
+
+	@Override
+	public int queryPoint(double x, double y, List<T> results) {
+		int found = 0;
+		Node<T> node = this.root;
+		while (node != null) {
+			List<Entry<T>> list = node.entries;
+			for (int i = 0, n = list.size(); i < n; i++) {
+				Entry<T> entry = list.get(i);
+				if (entry.contains(x, y)) {
+					results.add(entry.item);
+					found++;
+				}
+			}
+			node = this.childAt(node, x, y);
+		}
+		return found;
+	}
+
+	@Override
+	public void clear() {
+		this.root.entries.clear();
+		this.root.children = null;
+		this.entries.clear();
+	}
+
+	@Override
+	public int size() {
+		return this.entries.size();
+	}
+
+	/**
+	 * Adds an entry below a node containing it, splitting the nodes that get
+	 * too crowded
+	 * 
+	 * @param node
+	 *            the node
+	 * @param entry
+	 *            the entry
+	 */
+	private void add(Node<T> node, Entry<T> entry) {
+		Node<T> child = node.childFor(entry);
+		while (child != null) {
+			node = child;
+			child = node.childFor(entry);
+		}
+		node.entries.add(entry);
+		entry.node = node;
+		if (node.children == null && node.entries.size() > this.nodeCapacity && node.depth < this.maxDepth) {
+			this.split(node);
+		}
+	}
+
+	/**
+	 * Splits a node in four quadrants, moving down the objects that fit in one
+	 * 
+	 * @param node
+	 *            the node
+	 */
+	private void split(Node<T> node) {
+		double x = (node.left + node.right) / 2;
+		double y = (node.top + node.bottom) / 2;
+		int depth = node.depth + 1;
+		// arrays of a generic type can't be created
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		Node<T>[] children = new Node[] { new Node<T>(node.left, node.top, x, y, depth),
+				new Node<T>(x, node.top, node.right, y, depth), new Node<T>(node.left, y, x, node.bottom, depth),
+				new Node<T>(x, y, node.right, node.bottom, depth) };
+		node.children = children;
+		List<Entry<T>> list = node.entries;
+		for (int i = list.size() - 1; i >= 0; i--) {
+			Entry<T> entry = list.get(i);
+			if (node.childFor(entry) != null) {
+				list.remove(i);
+				this.add(node, entry);
+			}
+		}
+	}
+
+	/**
+	 * Gets the quadrant of a node containing a point
+	 * 
+	 * @param node
+	 *            the node
+	 * @param x
+	 *            the x coordinate of the point
+	 * @param y
+	 *            the y coordinate of the point
+	 * @return the quadrant, or null if the node isn't split or the point is
+	 *         outside of it
+	 */
+	private Node<T> childAt(Node<T> node, double x, double y) {
+		if (node.children == null) {
+			return null;
+		}
+		for (Node<T> child : node.children) {
+			if (child.left <= x && x < child.right && child.top <= y && y < child.bottom) {
+				return child;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Finds the parent of a node, from the root
+	 * 
+	 * @param node
+	 *            the node, not the root
+	 * @return the parent node
+	 */
+	private Node<T> parentOf(Node<T> node) {
+		double x = (node.left + node.right) / 2;
+		double y = (node.top + node.bottom) / 2;
+		Node<T> parent = this.root;
+		Node<T> child = this.childAt(parent, x, y);
+		while (child != node) {
+			parent = child;
+			child = this.childAt(parent, x, y);
+		}
+		return parent;
+	}
+
+	/**
+	 * Adds the objects of a node and its quadrants intersecting an area
+	 * 
+	 * @param node
+	 *            the node
+	 * @param left
+	 *            the left coordinate of the area
+	 * @param top
+	 *            the top coordinate of the area
+	 * @param right
+	 *            the right coordinate of the area
+	 * @param bottom
+	 *            the bottom coordinate of the area
+	 * @param results
+	 *            the list to which the objects are added
+	 * @return the number of objects added
+	 */
+	private int query(Node<T> node, double left, double top, double right, double bottom, List<T> results) {
+		int found = 0;
+		List<Entry<T>> list = node.entries;
+		for (int i = 0, n = list.size(); i < n; i++) {
+			Entry<T> entry = list.get(i);
+			if (entry.intersects(left, top, right, bottom)) {
+				results.add(entry.item);
+				found++;
+			}
+		}
+		if (node.children != null) {
+			for (Node<T> child : node.children) {
+				if (child.left <= right && left < child.right && child.top <= bottom && top < child.bottom) {
+					found += this.query(child, left, top, right, bottom, results);
+				}
+			}
+		}
+		return found;
+	}
+}
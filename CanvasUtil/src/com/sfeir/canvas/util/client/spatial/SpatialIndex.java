@@ -0,0 +1,104 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.util.client.spatial;
+
+import java.util.List;
+
+/**
+ * Index of objects by their bounding rectangles, to find the objects at a
+ * point or in an area without scanning all of them.<br>
+ * Moving objects are {@link #update(Object, double, double, double, double)
+ * updated} in place, which is cheaper than removing and inserting them
+ * again.
+ * 
+ * @author François LAROCHE
+ * 
+ * @param <T>
+ *            the type of the objects indexed
+ */
+public interface SpatialIndex<T> {
+
+	/**
+	 * Adds an object, or moves it if it is already in the index
+	 * 
+	 * @param item
+	 *            the object
+	 * @param x
+	 *            the x coordinate of its bounds
+	 * @param y
+	 *            the y coordinate of its bounds
+	 * @param width
+	 *            the width of its bounds
+	 * @param height
+	 *            the height of its bounds
+	 */
+	public void insert(T item, double x, double y, double width, double height);
+
+	/**
+	 * Moves an object, adding it if it isn't in the index
+	 * 
+	 * @param item
+	 *            the object
+	 * @param x
+	 *            the new x coordinate of its bounds
+	 * @param y
+	 *            the new y coordinate of its bounds
+	 * @param width
+	 *            the new width of its bounds
+	 * @param height
+	 *            the new height of its bounds
+	 */
+	public void update(T item, double x, double y, double width, double height);
+
+	/**
+	 * Removes an object
+	 * 
+	 * @param item
+	 *            the object
+	 * @return true if the object was in the index
+	 */
+	public boolean remove(T item);
+
+	/**
+	 * Finds the objects whose bounds intersect an area
+	 * 
+	 * @param x
+	 *            the x coordinate of the area
+	 * @param y
+	 *            the y coordinate of the area
+	 * @param width
+	 *            the width of the area
+	 * @param height
+	 *            the height of the area
+	 * @param results
+	 *            the list to which the objects are added, each only once
+	 * @return the number of objects added
+	 */
+	public int query(double x, double y, double width, double height, List<T> results);
+
+	/**
+	 * Finds the objects whose bounds contain a point
+	 * 
+	 * @param x
+	 *            the x coordinate of the point
+	 * @param y
+	 *            the y coordinate of the point
+	 * @param results
+	 *            the list to which the objects are added, each only once
+	 * @return the number of objects added
+	 */
+	public int queryPoint(double x, double y, List<T> results);
+
+	/**
+	 * Removes all the objects
+	 */
+	public void clear();
+
+	/**
+	 * Gets the number of objects indexed
+	 * 
+	 * @return the number of objects
+	 */
+	public int size();
+}
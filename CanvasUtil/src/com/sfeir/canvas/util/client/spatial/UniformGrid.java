@@ -0,0 +1,307 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.util.client.spatial;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Spatial index dividing a fixed area in square cells of the same size. An
+ * object is referenced by all the cells its bounds overlap, objects outside of
+ * the area being kept in the border cells.<br>
+ * Best suited to objects of similar sizes, spread over the whole area : the
+ * cost of an update doesn't depend on the number of objects, and an object
+ * moving inside the same cells isn't even re-bucketed.
+ * 
+ * @author François LAROCHE
+ * 
+ * @param <T>
+ *            the type of the objects indexed
+ */
+public class UniformGrid<T> implements SpatialIndex<T> {
+
+	/**
+	 * An object and the range of cells it is referenced by
+	 * 
+	 * @author François LAROCHE
+	 * 
+	 * @param <T>
+	 *            the type of the object
+	 */
+	private static class Entry<T> extends Bounds<T> {
+		/**
+		 * the first column
+		 */
+		private int column0;
+		/**
+		 * the first row
+		 */
+		private int row0;
+		/**
+		 * the last column
+		 */
+		private int column1;
+		/**
+		 * the last row
+		 */
+		private int row1;
+
+		/**
+		 * Constructor initializing the entry
+		 * 
+		 * @param item
+		 *            the object
+		 */
+		public Entry(T item) {
+			super(item);
+		}
+	}
+
+	/**
+	 * the size of a cell
+	 */
+	private final double cellSize;
+	/**
+	 * the number of columns
+	 */
+	private final int columns;
+	/**
+	 * the number of rows
+	 */
+	private final int rows;
+	/**
+	 * the cells, row by row, created when first used
+	 */
+	private final List<Entry<T>>[] cells;
+	/**
+	 * the entries, by object
+	 */
+	private final Map<T, Entry<T>> entries;
+	/**
+	 * the number of the last query
+	 */
+	private int stamp;
+
+	/**
+	 * Constructor initializing the grid
+	 * 
+	 * @param width
+	 *            the width of the area covered
+	 * @param height
+	 *            the height of the area covered
+	 * @param cellSize
+	 *            the size of a cell, typically about twice the size of the
+	 *            objects
+	 */
+	public UniformGrid(double width, double height, double cellSize) {
+		if (cellSize <= 0) {
+			throw new IllegalArgumentException("cellSize must be positive");
+		}
+		this.cellSize = cellSize;
+		this.columns = Math.max(1, (int) Math.ceil(width / cellSize));
+		this.rows = Math.max(1, (int) Math.ceil(height / cellSize));
+		// arrays of a generic type can't be created
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		List<Entry<T>>[] cells = new List[this.columns * this.rows];
+		this.cells = cells;
+		this.entries = new HashMap<T, Entry<T>>();
+	}
+
+	@Override
+	public void insert(T item, double x, double y, double width, double height) {
+		this.update(item, x, y, width, height);
+	}
+
+	@Override
+	public void update(T item, double x, double y, double width, double height) {
+		Entry<T> entry = this.entries.get(item);
+		if (entry == null) {
+			entry = new Entry<T>(item);
+			entry.set(x, y, width, height);
+			this.entries.put(item, entry);
+			this.locate(entry);
+			this.link(entry);
+			return;
+		}
+		int column0 = entry.column0;
+		int row0 = entry.row0;
+		int column1 = entry.column1;
+		int row1 = entry.row1;
+		entry.set(x, y, width, height);
+		this.locate(entry);
+		if (column0 == entry.column0 && row0 == entry.row0 && column1 == entry.column1 && row1 == entry.row1) {
+			// still in the same cells
+			return;
+		}
+		this.unlink(entry, column0, row0, column1, row1);
+		this.link(entry);
+	}
+
+	@Override
+	public boolean remove(T item) {
+		Entry<T> entry = this.entries.remove(item);
+		if (entry == null) {
+			return false;
+		}
+		this.unlink(entry, entry.column0, entry.row0, entry.column1, entry.row1);
+		return true;
+	}
+
+	@Override
+	public int query(double x, double y, double width, double height, List<T> results) {
+		double right = x + width;
+		double bottom = y + height;
+		int column0 = this.column(x);
+		int column1 = this.column(right);
+		int row0 = this.row(y);
+		int row1 = this.row(bottom);
+		int stamp = ++this.stamp;
+		int found = 0;
+		for (int row = row0; row <= row1; row++) {
+			for (int column = column0; column <= column1; column++) {
+				List<Entry<T>> cell = this.cells[row * this.columns + column];
+				if (cell == null) {
+					continue;
+				}
+				for (int i = 0, n = cell.size(); i < n; i++) {
+					Entry<T> entry = cell.get(i);
+					if (entry.stamp != stamp && entry.intersects(x, y, right, bottom)) {
+						entry.stamp = stamp;
+						results.add(entry.item);
+						found++;
+					}
+				}
+			}
+		}
+		return found;
+	}
+
+	@Override
+	public int queryPoint(double x, double y, List<T> results) {
+		// a point is in a single cell, no object can be found twice
+		List<Entry<T>> cell = this.cells[this.row(y) * this.columns + this.column(x)];
+		if (cell == null) {
+			return 0;
+		}
+		int found = 0;
+		for (int i = 0, n = cell.size(); i < n; i++) {
+			Entry<T> entry = cell.get(i);
+			if (entry.contains(x, y)) {
+				results.add(entry.item);
+				found++;
+			}
+		}
+		return found;
+	}
+
+	@Override
+	public void clear() {
+		for (List<Entry<T>> cell : this.cells) {
+			if (cell != null) {
+				cell.clear();
+			}
+		}
+		this.entries.clear();
+	}
+
+	@Override
+	public int size() {
+		return this.entries.size();
+	}
+
+	/**
+	 * Gets the size of a cell
+	 * 
+	 * @return the size of a cell
+	 */
+	public double getCellSize() {
+		return cellSize;
+	}
+
+	/**
+	 * Computes the range of cells overlapped by an entry
+	 * 
+	 * @param entry
+	 *            the entry
+	 */
+	private void locate(Entry<T> entry) {
+		entry.column0 = this.column(entry.left);
+		entry.row0 = this.row(entry.top);
+		entry.column1 = this.column(entry.right);
+		entry.row1 = this.row(entry.bottom);
+	}
+
+	/**
+	 * Adds an entry to the cells it overlaps
+	 * 
+	 * @param entry
+	 *            the entry
+	 */
+	private void link(Entry<T> entry) {
+		for (int row = entry.row0; row <= entry.row1; row++) {
+			for (int column = entry.column0; column <= entry.column1; column++) {
+				int index = row * this.columns + column;
+				List<Entry<T>> cell = this.cells[index];
+				if (cell == null) {
+					cell = new ArrayList<Entry<T>>();
+					this.cells[index] = cell;
+				}
+				cell.add(entry);
+			}
+		}
+	}
+
+	/**
+	 * Removes an entry from a range of cells
+	 * 
+	 * @param entry
+	 *            the entry
+	 * @param column0
+	 *            the first column
+	 * @param row0
+	 *            the first row
+	 * @param column1
+	 *            the last column
+	 * @param row1
+	 *            the last row
+	 */
+	private void unlink(Entry<T> entry, int column0, int row0, int column1, int row1) {
+		for (int row = row0; row <= row1; row++) {
+			for (int column = column0; column <= column1; column++) {
+				List<Entry<T>> cell = this.cells[row * this.columns + column];
+				// swap with the last one, the order of a cell doesn't matter
+				int index = cell.indexOf(entry);
+				int last = cell.size() - 1;
+				cell.set(index, cell.get(last));
+				cell.remove(last);
+			}
+		}
+	}
+
+	/**
+	 * Gets the column of a coordinate, clamped to the grid
+	 * 
+	 * @param x
+	 *            the x coordinate
+	 * @return the column
+	 */
+	private int column(double x) {
+		int column = (int) Math.floor(x / this.cellSize);
+		return column < 0 ? 0 : column >= this.columns ? this.columns - 1 : column;
+	}
+
+	/**
+	 * Gets the row of a coordinate, clamped to the grid
+	 * 
+	 * @param y
+	 *            the y coordinate
+	 * @return the row
+	 */
+	private int row(double y) {
+		int row = (int) Math.floor(y / this.cellSize);
+		return row < 0 ? 0 : row >= this.rows ? this.rows - 1 : row;
+	}
+}
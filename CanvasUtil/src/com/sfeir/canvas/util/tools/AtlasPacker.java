@@ -0,0 +1,231 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.util.tools;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Build-time tool packing a directory of PNG images into a single atlas image
+ * and its JSON index, in the format read by
+ * {@link com.sfeir.canvas.util.client.SpriteAtlas}.<br>
+ * The frames are named after their path relative to the directory. It is
+ * meant to be run from the build of the game, for instance with the
+ * exec-maven-plugin :
+ * 
+ * <pre>
+ * mvn exec:java -Dexec.mainClass=com.sfeir.canvas.util.tools.AtlasPacker
+ *     -Dexec.args="src/main/sprites target/generated/sprites.png target/generated/sprites.json"
+ * </pre>
+ * 
+ * This class runs on the JVM only, it is not part of the GWT modules.
+ * 
+ * @author François LAROCHE
+ */
+public class AtlasPacker {
+
+	/**
+	 * Default maximum width of the atlas
+	 */
+	public static final int DEFAULT_MAX_WIDTH = 1024;
+	/**
+	 * Default number of transparent pixels between two frames
+	 */
+	public static final int DEFAULT_PADDING = 1;
+
+	/**
+	 * An image to pack and its position in the atlas
+	 * 
+	 * @author François LAROCHE
+	 */
+	private static class Entry {
+		private final String name;
+		private final BufferedImage image;
+		private int x;
+		private int y;
+
+		public Entry(String name, BufferedImage image) {
+			this.name = name;
+			this.image = image;
+		}
+	}
+
+	/**
+	 * the maximum width of the atlas
+	 */
+	private final int maxWidth;
+	/**
+	 * the number of transparent pixels between two frames
+	 */
+	private final int padding;
+
+	/**
+	 * Constructor initializing the packer
+	 * 
+	 * @param maxWidth
+	 *            the maximum width of the atlas
+	 * @param padding
+	 *            the number of transparent pixels between two frames
+	 */
+	public AtlasPacker(int maxWidth, int padding) {
+		this.maxWidth = maxWidth;
+		this.padding = padding;
+	}
+
+	/**
+	 * Entry point : <code>AtlasPacker inputDir atlas.png index.json [maxWidth] [padding]</code>
+	 * 
+	 * @param args
+	 *            the arguments of the command line
+	 * @throws IOException
+	 *             if the images can't be read or the atlas can't be written
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 3) {
+			System.err.println("usage: AtlasPacker <inputDir> <atlas.png> <index.json> [maxWidth] [padding]");
+			System.exit(1);
+		}
+		int maxWidth = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_MAX_WIDTH;
+		int padding = args.length > 4 ? Integer.parseInt(args[4]) : DEFAULT_PADDING;
+		new AtlasPacker(maxWidth, padding).pack(new File(args[0]), new File(args[1]), new File(args[2]));
+	}
+
+	/**
+	 * Packs the PNG images of a directory and its sub-directories
+	 * 
+	 * @param inputDir
+	 *            the directory containing the images
+	 * @param atlasFile
+	 *            the PNG file to write the atlas to
+	 * @param indexFile
+	 *            the JSON file to write the index to
+	 * @throws IOException
+	 *             if the images can't be read or the atlas can't be written
+	 */
+	public void pack(File inputDir, File atlasFile, File indexFile) throws IOException {
+		List<Entry> entries = new ArrayList<Entry>();
+		this.collect(inputDir, "", entries);
+
+		// shelf packing, tallest images first
+		Collections.sort(entries, new Comparator<Entry>() {
+			@Override
+			public int compare(Entry o1, Entry o2) {
+				return o2.image.getHeight() - o1.image.getHeight();
+			}
+		});
+		int x = 0;
+		int y = 0;
+		int shelfHeight = 0;
+		int width = 0;
+		for (Entry entry : entries) {
+			int w = entry.image.getWidth();
+			if (w > this.maxWidth) {
+				throw new IOException(entry.name + " is wider than the atlas (" + this.maxWidth + ")");
+			}
+			if (x + w > this.maxWidth) {
+				x = 0;
+				y += shelfHeight + this.padding;
+				shelfHeight = 0;
+			}
+			entry.x = x;
+			entry.y = y;
+			x += w + this.padding;
+			shelfHeight = Math.max(shelfHeight, entry.image.getHeight());
+			width = Math.max(width, entry.x + w);
+		}
+		int height = y + shelfHeight;
+
+		BufferedImage atlas = new BufferedImage(Math.max(width, 1), Math.max(height, 1),
+				BufferedImage.TYPE_INT_ARGB);
+		Graphics2D graphics = atlas.createGraphics();
+		for (Entry entry : entries) {
+			graphics.drawImage(entry.image, entry.x, entry.y, null);
+		}
+		graphics.dispose();
+		mkParent(atlasFile);
+		ImageIO.write(atlas, "png", atlasFile);
+
+		mkParent(indexFile);
+		Writer writer = new OutputStreamWriter(new FileOutputStream(indexFile), "UTF-8");
+		try {
+			writer.write("{\"frames\": {");
+			for (int i = 0; i < entries.size(); i++) {
+				Entry entry = entries.get(i);
+				writer.write(i == 0 ? "\n" : ",\n");
+				writer.write("  \"" + escape(entry.name) + "\": {\"frame\": {\"x\": " + entry.x + ", \"y\": "
+						+ entry.y + ", \"w\": " + entry.image.getWidth() + ", \"h\": " + entry.image.getHeight()
+						+ "}}");
+			}
+			writer.write("\n},\n\"meta\": {\"image\": \"" + escape(atlasFile.getName()) + "\", \"size\": {\"w\": "
+					+ atlas.getWidth() + ", \"h\": " + atlas.getHeight() + "}}}\n");
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Reads the PNG images of a directory, recursively
+	 * 
+	 * @param dir
+	 *            the directory
+	 * @param prefix
+	 *            the path of the directory relative to the input directory
+	 * @param entries
+	 *            the list to which to add the images
+	 * @throws IOException
+	 *             if an image can't be read
+	 */
+	private void collect(File dir, String prefix, List<Entry> entries) throws IOException {
+		File[] files = dir.listFiles();
+		if (files == null) {
+			throw new IOException(dir + " is not a directory");
+		}
+		for (File file : files) {
+			if (file.isDirectory()) {
+				this.collect(file, prefix + file.getName() + "/", entries);
+			} else if (file.getName().toLowerCase().endsWith(".png")) {
+				BufferedImage image = ImageIO.read(file);
+				if (image == null) {
+					throw new IOException("Can't read " + file);
+				}
+				entries.add(new Entry(prefix + file.getName(), image));
+			}
+		}
+	}
+
+	/**
+	 * Creates the parent directory of a file if needed
+	 * 
+	 * @param file
+	 *            the file
+	 */
+	private static void mkParent(File file) {
+		File parent = file.getAbsoluteFile().getParentFile();
+		if (parent != null) {
+			parent.mkdirs();
+		}
+	}
+
+	/**
+	 * Escapes a string for JSON
+	 * 
+	 * @param value
+	 *            the string
+	 * @return the escaped string
+	 */
+	static String escape(String value) {
+		return value.replace("\\", "\\\\").replace("\"", "\\\"");
+	}
+}
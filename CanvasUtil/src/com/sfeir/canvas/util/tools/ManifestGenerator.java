@@ -0,0 +1,247 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.util.tools;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Build-time tool generating the JSON manifest of a resource directory, in
+ * the format read by {@link com.sfeir.canvas.util.client.ResourceManifest}.
+ * <br>
+ * Each image or audio file becomes a resource whose key is its path relative
+ * to the directory, without extension. Audio files differing only by their
+ * extension are the alternate sources of the same resource. The files
+ * directly in the directory belong to the default group, the files of a
+ * sub-directory to the group named after it. The size of a resource is the
+ * size of its file, and its hash the SHA-1 of its content.<br>
+ * It is run by the <code>manifest</code> profile of the build, or directly :
+ * 
+ * <pre>
+ * mvn exec:java -Dexec.mainClass=com.sfeir.canvas.util.tools.ManifestGenerator
+ *     -Dexec.args="src/main/webapp/res target/generated/manifest.json res/"
+ * </pre>
+ * 
+ * This class runs on the JVM only, it is not part of the GWT modules.
+ * 
+ * @author François LAROCHE
+ */
+public class ManifestGenerator {
+
+	/**
+	 * Extensions of the image files
+	 */
+	private static final List<String> IMAGE_EXTENSIONS = Arrays.asList("png", "jpg", "jpeg", "gif", "webp");
+	/**
+	 * Extensions of the audio files
+	 */
+	private static final List<String> AUDIO_EXTENSIONS = Arrays.asList("ogg", "oga", "mp3", "wav", "m4a", "aac",
+			"webm");
+
+	/**
+	 * A resource of the manifest
+	 * 
+	 * @author François LAROCHE
+	 */
+	private static class Entry {
+		private final String key;
+		private final String type;
+		private final String group;
+		private final List<String> urls = new ArrayList<String>();
+		private long size;
+		private String hash;
+
+		public Entry(String key, String type, String group) {
+			this.key = key;
+			this.type = type;
+			this.group = group;
+		}
+	}
+
+	/**
+	 * the prefix added to the paths of the files to make their urls
+	 */
+	private final String baseUrl;
+
+	/**
+	 * Constructor initializing the generator
+	 * 
+	 * @param baseUrl
+	 *            the prefix added to the paths of the files to make their
+	 *            urls
+	 */
+	public ManifestGenerator(String baseUrl) {
+		this.baseUrl = baseUrl;
+	}
+
+	/**
+	 * Entry point : <code>ManifestGenerator inputDir manifest.json [baseUrl]</code>
+	 * 
+	 * @param args
+	 *            the arguments of the command line
+	 * @throws IOException
+	 *             if the files can't be read or the manifest can't be written
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("usage: ManifestGenerator <inputDir> <manifest.json> [baseUrl]");
+			System.exit(1);
+		}
+		String baseUrl = args.length > 2 && args[2] != null ? args[2] : "";
+		new ManifestGenerator(baseUrl).generate(new File(args[0]), new File(args[1]));
+	}
+
+	/**
+	 * Generates the manifest of the resources of a directory and its
+	 * sub-directories
+	 * 
+	 * @param inputDir
+	 *            the directory containing the resources
+	 * @param manifestFile
+	 *            the JSON file to write the manifest to
+	 * @throws IOException
+	 *             if the files can't be read or the manifest can't be written
+	 */
+	public void generate(File inputDir, File manifestFile) throws IOException {
+		Map<String, Entry> entries = new LinkedHashMap<String, Entry>();
+		this.collect(inputDir, "", null, entries);
+
+		File parent = manifestFile.getAbsoluteFile().getParentFile();
+		if (parent != null) {
+			parent.mkdirs();
+		}
+		Writer writer = new OutputStreamWriter(new FileOutputStream(manifestFile), "UTF-8");
+		try {
+			writer.write("{\"resources\": [");
+			boolean first = true;
+			for (Entry entry : entries.values()) {
+				writer.write(first ? "\n" : ",\n");
+				first = false;
+				writer.write("  {\"key\": \"" + AtlasPacker.escape(entry.key) + "\", \"type\": \"" + entry.type
+						+ "\", \"urls\": [");
+				for (int i = 0; i < entry.urls.size(); i++) {
+					writer.write((i == 0 ? "\"" : ", \"") + AtlasPacker.escape(entry.urls.get(i)) + "\"");
+				}
+				writer.write("], \"size\": " + entry.size);
+				if (entry.group != null) {
+					writer.write(", \"group\": \"" + AtlasPacker.escape(entry.group) + "\"");
+				}
+				writer.write(", \"hash\": \"" + entry.hash + "\"}");
+			}
+			writer.write("\n]}\n");
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Reads the resources of a directory, recursively
+	 * 
+	 * @param dir
+	 *            the directory
+	 * @param prefix
+	 *            the path of the directory relative to the input directory
+	 * @param group
+	 *            the group of the resources of the directory, null for the
+	 *            default group
+	 * @param entries
+	 *            the resources read so far, by key
+	 * @throws IOException
+	 *             if a file can't be read
+	 */
+	private void collect(File dir, String prefix, String group, Map<String, Entry> entries) throws IOException {
+		File[] files = dir.listFiles();
+		if (files == null) {
+			throw new IOException(dir + " is not a directory");
+		}
+		// sorted, so that the manifest doesn't change from one build to another
+		Arrays.sort(files, new Comparator<File>() {
+			@Override
+			public int compare(File o1, File o2) {
+				return o1.getName().compareTo(o2.getName());
+			}
+		});
+		for (File file : files) {
+			String name = file.getName();
+			if (file.isDirectory()) {
+				this.collect(file, prefix + name + "/", group == null ? name : group, entries);
+				continue;
+			}
+			int dot = name.lastIndexOf('.');
+			if (dot < 0) {
+				continue;
+			}
+			String extension = name.substring(dot + 1).toLowerCase();
+			String type;
+			if (IMAGE_EXTENSIONS.contains(extension)) {
+				type = "image";
+			} else if (AUDIO_EXTENSIONS.contains(extension)) {
+				type = "audio";
+			} else {
+				continue;
+			}
+			String key = prefix + name.substring(0, dot);
+			Entry entry = entries.get(key);
+			if (entry != null && !("audio".equals(type) && "audio".equals(entry.type))) {
+				throw new IOException("Several resources have the key " + key);
+			}
+			if (entry == null) {
+				entry = new Entry(key, type, group);
+				entries.put(key, entry);
+			}
+			entry.urls.add(this.baseUrl + prefix + name);
+			// the size and hash of an audio are the ones of its first source
+			if (entry.hash == null) {
+				entry.size = file.length();
+				entry.hash = hash(file);
+			}
+		}
+	}
+
+	/**
+	 * Computes the SHA-1 of the content of a file
+	 * 
+	 * @param file
+	 *            the file
+	 * @return the hash, in hexadecimal
+	 * @throws IOException
+	 *             if the file can't be read
+	 */
+	private static String hash(File file) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException("SHA-1 is not available", e);
+		}
+		InputStream in = new FileInputStream(file);
+		try {
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = in.read(buffer)) > 0) {
+				digest.update(buffer, 0, read);
+			}
+		} finally {
+			in.close();
+		}
+		StringBuilder hex = new StringBuilder();
+		for (byte b : digest.digest()) {
+			hex.append(Integer.toHexString((b & 0xff) | 0x100).substring(1));
+		}
+		return hex.toString();
+	}
+}
@@ -0,0 +1,489 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.activities.client;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.gwt.canvas.client.Canvas;
+import com.google.gwt.canvas.dom.client.Context2d;
+import com.google.gwt.dom.client.Document;
+import com.google.gwt.dom.client.NativeEvent;
+import com.google.gwt.event.dom.client.ClickEvent;
+import com.google.gwt.event.dom.client.DomEvent;
+import com.google.gwt.event.dom.client.TouchCancelEvent;
+import com.google.gwt.junit.client.GWTTestCase;
+import com.google.gwt.user.client.Timer;
+import com.google.gwt.user.client.ui.FlowPanel;
+import com.google.gwt.user.client.ui.Widget;
+import com.google.web.bindery.event.shared.EventBus;
+import com.google.web.bindery.event.shared.SimpleEventBus;
+import com.sfeir.canvas.activities.client.event.PageChangeEvent;
+import com.sfeir.canvas.activities.client.render.SpriteRenderer;
+import com.sfeir.canvas.util.client.ResourceManager;
+
+/**
+ * Tests of the {@link CanvasActivityManager} needing a browser
+ * 
+ * @author François LAROCHE
+ */
+public class CanvasActivityManagerGwtTest extends GWTTestCase {
+
+	/**
+	 * the time left to the manager to prepare the activities while idle, in
+	 * milliseconds
+	 */
+	private static final int IDLE_DELAY = 300;
+
+	/**
+	 * Activity counting the clicks and cancelled touches it receives
+	 */
+	private static class ClickCounter extends AbstractCanvasActivity {
+		/**
+		 * the number of clicks received
+		 */
+		private int clicks;
+		/**
+		 * the number of touch cancels received
+		 */
+		private int cancels;
+
+		@Override
+		public void start(Canvas canvas, EventBus bus) {}
+
+		@Override
+		public void onClick(ClickEvent event) {
+			this.clicks++;
+		}
+
+		@Override
+		public void onTouchCancel(TouchCancelEvent event) {
+			this.cancels++;
+		}
+	}
+
+	/**
+	 * Activity counting its preparations, and the starts not preceded by a
+	 * preparation since it was last stopped
+	 */
+	private static class PreparedActivity extends AbstractCanvasActivity implements PreparableActivity {
+		/**
+		 * the number of preparations
+		 */
+		private int prepares;
+		/**
+		 * the number of starts without preparation
+		 */
+		private int unprepared;
+		/**
+		 * whether the activity is prepared
+		 */
+		private boolean prepared;
+
+		@Override
+		public void prepare() {
+			this.prepares++;
+			this.prepared = true;
+		}
+
+		@Override
+		public void start(Canvas canvas, EventBus bus) {
+			if (!this.prepared) {
+				this.unprepared++;
+			}
+			this.prepared = false;
+		}
+
+		@Override
+		public void stop() {
+			this.prepared = false;
+		}
+	}
+
+	/**
+	 * Prepared activity kept in the history when left
+	 */
+	private static class SuspendedActivity extends PreparedActivity implements SuspendableActivity {
+		@Override
+		public void suspend() {}
+
+		@Override
+		public void resume(Canvas canvas, EventBus bus) {}
+	}
+
+	/**
+	 * Activity recording how its layers are rendered : in 2D, with the
+	 * context given, or with a sprite renderer
+	 */
+	private static class LayersRecorder extends AbstractCanvasActivity implements SpriteLayerActivity {
+		/**
+		 * the renderings, as "2d" or "sprites" followed by the layer
+		 */
+		private final List<String> renderings = new ArrayList<String>();
+		/**
+		 * the renderers given, in order
+		 */
+		private final List<SpriteRenderer> renderers = new ArrayList<SpriteRenderer>();
+
+		@Override
+		public void start(Canvas canvas, EventBus bus) {}
+
+		@Override
+		public boolean isLayerDirty(int layer) {
+			return false;
+		}
+
+		@Override
+		public void renderLayer(int layer, Context2d ctx, double alpha) {
+			assertNotNull(ctx);
+			this.renderings.add("2d" + layer);
+		}
+
+		@Override
+		public void renderSprites(int layer, SpriteRenderer renderer, double alpha) {
+			this.renderings.add("sprites" + layer);
+			this.renderers.add(renderer);
+		}
+	}
+
+	/**
+	 * Renderer standing for a WebGL one, drawing nothing
+	 */
+	private static class NullSpriteRenderer implements SpriteRenderer {
+		@Override
+		public void begin() {}
+
+		@Override
+		public boolean bindTexture(String key) {
+			return false;
+		}
+
+		@Override
+		public double getTextureWidth() {
+			return 0;
+		}
+
+		@Override
+		public double getTextureHeight() {
+			return 0;
+		}
+
+		@Override
+		public void setAlpha(double alpha) {}
+
+		@Override
+		public void draw(double sx, double sy, double sw, double sh, double dx, double dy, double dw, double dh,
+				double rotation) {}
+
+		@Override
+		public void end() {}
+	}
+
+	/**
+	 * Steps of a test, each one run once the manager had time to prepare the
+	 * next activities while idle
+	 */
+	private abstract class IdleSteps extends Timer {
+		/**
+		 * the number of the next step
+		 */
+		private int step;
+
+		/**
+		 * Runs a step
+		 * 
+		 * @param step
+		 *            the number of the step, from 0
+		 * @return false once the last step is run
+		 */
+		protected abstract boolean run(int step);
+
+		/**
+		 * Runs the steps, the test finishing after the last one
+		 */
+		public void start() {
+			delayTestFinish(10000);
+			this.schedule(IDLE_DELAY);
+		}
+
+		@Override
+		public void run() {
+			if (this.run(this.step++)) {
+				this.schedule(IDLE_DELAY);
+			} else {
+				finishTest();
+			}
+		}
+	}
+
+	/**
+	 * the canvas of the view
+	 */
+	private Canvas canvas;
+	/**
+	 * the bus on which the page changes are fired
+	 */
+	private EventBus bus;
+	/**
+	 * the navigation between the activities
+	 */
+	private CanvasNavigationManager navigation;
+	/**
+	 * the view holding the canvas
+	 */
+	private CanvasView view;
+	/**
+	 * the manager tested
+	 */
+	private CanvasActivityManager manager;
+
+	@Override
+	public String getModuleName() {
+		return "com.sfeir.canvas.activities.ActivitiesTest";
+	}
+
+	@Override
+	protected void gwtSetUp() {
+		this.canvas = Canvas.createIfSupported();
+		this.bus = new SimpleEventBus();
+		this.navigation = new CanvasNavigationManager();
+		// the default activity is registered under the "default" key
+		this.navigation.registerNavigation("default", PageChangeEvent.NEXT, "level");
+		this.navigation.registerNavigation("level", PageChangeEvent.NEXT, "default");
+		this.view = new CanvasView() {
+			@Override
+			public Canvas getCanvas() {
+				return canvas;
+			}
+
+			@Override
+			public Widget asWidget() {
+				return canvas;
+			}
+		};
+		this.manager = new CanvasActivityManager(this.bus, this.navigation, this.view);
+	}
+
+	@Override
+	protected void gwtTearDown() {
+		this.manager.stop();
+	}
+
+	/**
+	 * Fires a click on the canvas
+	 */
+	private void click() {
+		NativeEvent event = Document.get().createClickEvent(1, 0, 0, 10, 10, false, false, false, false);
+		DomEvent.fireNativeEvent(event, this.canvas);
+	}
+
+	/**
+	 * Navigating between the activities must not add input handlers to the
+	 * canvas : each event is still dispatched once to the current activity
+	 */
+	public void testNavigationKeepsOneHandlerPerEvent() {
+		ClickCounter menu = new ClickCounter();
+		ClickCounter level = new ClickCounter();
+		this.manager.registerActivity("level", level);
+		this.manager.setDefaultActivity(menu);
+		this.manager.start();
+		// the page changes are made right away once the loop is stopped
+		this.manager.stop();
+
+		this.click();
+		assertEquals(1, menu.clicks);
+
+		for (int i = 0; i < 5000; i++) {
+			this.bus.fireEvent(new PageChangeEvent(PageChangeEvent.NEXT, null));
+		}
+		// an even number of changes leads back to the menu
+		this.click();
+		assertEquals(2, menu.clicks);
+		assertEquals(0, level.clicks);
+
+		this.bus.fireEvent(new PageChangeEvent(PageChangeEvent.NEXT, null));
+		this.click();
+		assertEquals(2, menu.clicks);
+		assertEquals(1, level.clicks);
+	}
+
+	/**
+	 * Without input buffering, a cancelled touch is given to the activity as
+	 * the other touch events are
+	 */
+	public void testTouchCancelIsDispatchedWithoutBuffering() {
+		ClickCounter menu = new ClickCounter();
+		this.manager.setDefaultActivity(menu);
+		this.manager.start();
+		this.manager.stop();
+		NativeEvent event = Document.get().createHtmlEvent(TouchCancelEvent.getType().getName(), true, true);
+		DomEvent.fireNativeEvent(event, this.canvas);
+		assertEquals(1, menu.cancels);
+	}
+
+	/**
+	 * Fires a page change request
+	 * 
+	 * @param request
+	 *            the request
+	 */
+	private void request(String request) {
+		this.bus.fireEvent(new PageChangeEvent(request, null));
+	}
+
+	/**
+	 * An activity prepared while suspended in the history is prepared again
+	 * once stopped, before it starts again
+	 */
+	public void testStoppedActivitiesArePreparedAgain() {
+		final PreparedActivity level = new SuspendedActivity();
+		this.manager.setDefaultActivity(new PreparedActivity());
+		this.manager.registerActivity("level", level);
+		this.manager.registerActivity("pause", new PreparedActivity());
+		this.navigation.registerNavigation("level", "pause", "pause");
+		this.navigation.registerNavigation("pause", "restart", "level");
+		this.manager.setHistorySize(5);
+		this.manager.setPreloading(true);
+		this.manager.start();
+		this.manager.stop();
+		new IdleSteps() {
+			@Override
+			protected boolean run(int step) {
+				switch (step) {
+				case 0:
+					assertEquals(1, level.prepares);
+					request(PageChangeEvent.NEXT);
+					return true;
+				case 1:
+					// the level is suspended, and prepared while the pause
+					// menu is idle
+					request("pause");
+					return true;
+				default:
+					assertEquals(2, level.prepares);
+					// restarting stops the suspended level
+					request("restart");
+					assertEquals(3, level.prepares);
+					assertEquals(0, level.unprepared);
+					return false;
+				}
+			}
+		}.start();
+	}
+
+	/**
+	 * An activity prepared for the next page is prepared again once its groups
+	 * were released
+	 */
+	public void testReleasingAGroupForgetsThePreparation() {
+		ResourceManager resources = new ResourceManager(new FlowPanel(), this.bus);
+		final PreparedActivity level = new PreparedActivity();
+		this.manager.setResourceManager(resources);
+		this.manager.setDefaultActivity(new PreparedActivity());
+		this.manager.registerActivity("level", level, "level");
+		this.manager.registerActivity("credits", new PreparedActivity());
+		this.navigation.registerNavigation("default", "credits", "credits");
+		this.navigation.registerNavigation("credits", PageChangeEvent.NEXT, "default");
+		this.manager.setPreloading(true);
+		this.manager.start();
+		this.manager.stop();
+		new IdleSteps() {
+			@Override
+			protected boolean run(int step) {
+				switch (step) {
+				case 0:
+					assertEquals(1, level.prepares);
+					// the credits can't lead to the level : its group is released
+					request("credits");
+					return true;
+				case 1:
+					request(PageChangeEvent.NEXT);
+					return true;
+				default:
+					assertEquals(2, level.prepares);
+					request(PageChangeEvent.NEXT);
+					assertEquals(2, level.prepares);
+					assertEquals(0, level.unprepared);
+					return false;
+				}
+			}
+		}.start();
+	}
+
+	/**
+	 * Counts the visibilitychange listeners added to the document minus the
+	 * ones removed, from now on
+	 */
+	private static native void countVisibilityListeners() /*-{
+		var doc = $doc;
+		var add = doc.addEventListener;
+		var remove = doc.removeEventListener;
+		doc.visibilityListeners = 0;
+		doc.addEventListener = function(type, listener, capture) {
+			if (type == "visibilitychange") {
+				doc.visibilityListeners++;
+			}
+			add.call(doc, type, listener, capture);
+		};
+		doc.removeEventListener = function(type, listener, capture) {
+			if (type == "visibilitychange") {
+				doc.visibilityListeners--;
+			}
+			remove.call(doc, type, listener, capture);
+		};
+	}-*/;
+
+	/**
+	 * Stops counting the visibilitychange listeners
+	 * 
+	 * @return the listeners added and not removed since the count started
+	 */
+	private static native int stopCountingVisibilityListeners() /*-{
+		var doc = $doc;
+		delete doc.addEventListener;
+		delete doc.removeEventListener;
+		return doc.visibilityListeners;
+	}-*/;
+
+	/**
+	 * The game loop listens to the visibility of the page only while it runs,
+	 * so that a manager stopped leaves no listener behind
+	 */
+	public void testStoppedManagerLeavesNoVisibilityListener() {
+		countVisibilityListeners();
+		CanvasActivityManager other = new CanvasActivityManager(this.bus, this.navigation, this.view);
+		other.start();
+		other.stop();
+		other.start();
+		other.stop();
+		assertEquals(0, stopCountingVisibilityListeners());
+	}
+
+	/**
+	 * A layer drawn with WebGL has no 2D context : it is rendered with its
+	 * sprite renderer instead
+	 */
+	public void testWebGLLayersAreRenderedWithTheirRenderer() {
+		final LayeredCanvasPanel layers = new LayeredCanvasPanel(10, 10, 2);
+		final SpriteRenderer webGL = new NullSpriteRenderer();
+		final LayersRecorder activity = new LayersRecorder();
+		this.manager = new CanvasActivityManager(this.bus, this.navigation, layers);
+		this.manager.setWebGLRenderer(layers.getLayer(1), webGL);
+		this.manager.setDefaultActivity(activity);
+		this.manager.start();
+		delayTestFinish(10000);
+		new Timer() {
+			@Override
+			public void run() {
+				manager.stop();
+				assertFalse(activity.renderings.isEmpty());
+				assertEquals("2d0", activity.renderings.get(0));
+				assertEquals("sprites1", activity.renderings.get(1));
+				assertFalse(activity.renderings.contains("2d1"));
+				assertSame(webGL, activity.renderers.get(0));
+				finishTest();
+			}
+		}.schedule(IDLE_DELAY);
+	}
+}
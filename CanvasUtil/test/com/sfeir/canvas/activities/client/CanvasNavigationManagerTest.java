@@ -0,0 +1,168 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.activities.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests of the {@link CanvasNavigationManager}
+ * 
+ * @author François LAROCHE
+ */
+public class CanvasNavigationManagerTest {
+
+	/**
+	 * the navigation tested
+	 */
+	private CanvasNavigationManager navigation;
+
+	@Before
+	public void setUp() {
+		this.navigation = new CanvasNavigationManager();
+		this.navigation.registerNavigation("menu", "play", "level");
+		this.navigation.registerNavigation("level", "win", "score");
+		this.navigation.registerNavigation("level", "lose", "menu");
+		this.navigation.registerNavigation("score", "next", "menu");
+	}
+
+	@Test
+	public void rulesLeadToTheirView() {
+		assertEquals("level", this.navigation.computeNextState("menu", "play"));
+		assertEquals("score", this.navigation.computeNextState("level", "win"));
+		assertEquals("menu", this.navigation.computeNextState("level", "lose"));
+		assertEquals("menu", this.navigation.computeNextState("score", "next"));
+	}
+
+	@Test
+	public void unknownRequestsStayOnTheOrigin() {
+		assertEquals("menu", this.navigation.computeNextState("menu", "win"));
+		assertEquals("level", this.navigation.computeNextState("level", "unknown"));
+		assertEquals("nowhere", this.navigation.computeNextState("nowhere", "play"));
+	}
+
+	@Test
+	public void rulesRegisteredAfterALookupAreApplied() {
+		assertEquals("score", this.navigation.computeNextState("score", "replay"));
+		this.navigation.registerNavigation("score", "replay", "level");
+		assertEquals("level", this.navigation.computeNextState("score", "replay"));
+		// a rule registered again replaces the previous one
+		this.navigation.registerNavigation("score", "replay", "menu");
+		assertEquals("menu", this.navigation.computeNextState("score", "replay"));
+	}
+
+	@Test
+	public void wildcardsMatchAnyViewOrRequest() {
+		this.navigation.registerNavigation(CanvasNavigationManager.WILDCARD, "quit", "menu");
+		this.navigation.registerNavigation("score", CanvasNavigationManager.WILDCARD, "menu");
+		assertEquals("menu", this.navigation.computeNextState("level", "quit"));
+		assertEquals("menu", this.navigation.computeNextState("nowhere", "quit"));
+		assertEquals("menu", this.navigation.computeNextState("score", "anything"));
+		// the other views keep ignoring unknown requests
+		assertEquals("level", this.navigation.computeNextState("level", "anything"));
+	}
+
+	@Test
+	public void mostSpecificRuleAppliesFirst() {
+		String any = CanvasNavigationManager.WILDCARD;
+		this.navigation.registerNavigation(any, any, "anyViewAnyRequest");
+		this.navigation.registerNavigation(any, "win", "anyViewThisRequest");
+		this.navigation.registerNavigation("level", any, "thisViewAnyRequest");
+		assertEquals("score", this.navigation.computeNextState("level", "win"));
+		assertEquals("thisViewAnyRequest", this.navigation.computeNextState("level", "other"));
+		assertEquals("anyViewThisRequest", this.navigation.computeNextState("menu", "win"));
+		assertEquals("anyViewThisRequest", this.navigation.computeNextState("nowhere", "win"));
+		assertEquals("anyViewAnyRequest", this.navigation.computeNextState("menu", "other"));
+		assertEquals("anyViewAnyRequest", this.navigation.computeNextState("nowhere", "other"));
+	}
+
+	@Test
+	public void refusedRulesFallBackToTheLessSpecificOnes() {
+		String any = CanvasNavigationManager.WILDCARD;
+		NavigationGuard refuse = new NavigationGuard() {
+			@Override
+			public boolean canNavigate(String origin, String request) {
+				return false;
+			}
+		};
+		this.navigation.registerNavigation("level", "win", "score", refuse);
+		this.navigation.registerNavigation(any, "win", "anyViewThisRequest");
+		this.navigation.registerNavigation(any, any, "anyViewAnyRequest");
+		assertEquals("anyViewThisRequest", this.navigation.computeNextState("level", "win"));
+		this.navigation.registerNavigation("level", any, "thisViewAnyRequest");
+		assertEquals("thisViewAnyRequest", this.navigation.computeNextState("level", "win"));
+		this.navigation.registerNavigation("level", any, "thisViewAnyRequest", refuse);
+		this.navigation.registerNavigation(any, "win", "anyViewThisRequest", refuse);
+		assertEquals("anyViewAnyRequest", this.navigation.computeNextState("level", "win"));
+	}
+
+	@Test
+	public void guardsDecideWhetherTheRuleApplies() {
+		final boolean[] unlocked = { false };
+		this.navigation.registerNavigation("menu", "bonus", "secret", new NavigationGuard() {
+			@Override
+			public boolean canNavigate(String origin, String request) {
+				return unlocked[0];
+			}
+		});
+		assertEquals("menu", this.navigation.computeNextState("menu", "bonus"));
+		unlocked[0] = true;
+		assertEquals("secret", this.navigation.computeNextState("menu", "bonus"));
+	}
+
+	@Test
+	public void possibleNextStatesIncludeWildcardRules() {
+		this.navigation.registerNavigation(CanvasNavigationManager.WILDCARD, "quit", "menu");
+		this.navigation.registerNavigation("level", "pause", "level");
+		List<String> next = this.navigation.getPossibleNextStates("level");
+		assertEquals(Arrays.asList("score", "menu"), next);
+		assertEquals(Arrays.asList("level"), this.navigation.getPossibleNextStates("menu"));
+	}
+
+	@Test
+	public void validNavigationHasNoProblem() {
+		List<String> views = Arrays.asList("menu", "level", "score");
+		assertTrue(this.navigation.validate("menu", views).isEmpty());
+	}
+
+	@Test
+	public void validationReportsUnregisteredAndUnreachableViews() {
+		this.navigation.registerNavigation("score", "share", "social");
+		List<String> problems = this.navigation.validate("menu", Arrays.asList("menu", "level", "score", "credits"));
+		assertEquals(2, problems.size());
+		assertTrue(problems.get(0).contains("social"));
+		assertTrue(problems.get(1).contains("credits"));
+	}
+
+	@Test
+	public void validationReportsRulesFromUnregisteredViews() {
+		this.navigation.registerNavigation("credits", "back", "menu");
+		this.navigation.registerNavigation(CanvasNavigationManager.WILDCARD, "quit", "menu");
+		List<String> problems = this.navigation.validate("menu", Arrays.asList("menu", "level", "score"));
+		assertEquals(1, problems.size());
+		assertTrue(problems.get(0).contains("starts from the unregistered view credits"));
+	}
+
+	@Test
+	public void validationFollowsWildcardAndGuardedRules() {
+		List<String> views = Arrays.asList("menu", "level", "score", "options", "secret");
+		assertEquals(2, this.navigation.validate("menu", views).size());
+		// reachable from any view, so from the initial one
+		this.navigation.registerNavigation(CanvasNavigationManager.WILDCARD, "options", "options");
+		// a guard may accept the navigation
+		this.navigation.registerNavigation("options", "code", "secret", new NavigationGuard() {
+			@Override
+			public boolean canNavigate(String origin, String request) {
+				return false;
+			}
+		});
+		assertTrue(this.navigation.validate("menu", views).isEmpty());
+	}
+}
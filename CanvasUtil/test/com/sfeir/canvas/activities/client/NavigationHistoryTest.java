@@ -0,0 +1,177 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.activities.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sfeir.canvas.activities.client.NavigationHistory.EvictionHandler;
+import com.sfeir.canvas.activities.client.NavigationHistory.Page;
+import com.sfeir.canvas.activities.client.event.PageChangeEvent;
+
+/**
+ * Tests of the {@link NavigationHistory}
+ * 
+ * @author François LAROCHE
+ */
+public class NavigationHistoryTest {
+
+	/**
+	 * the history tested, on a menu -> level -> score navigation
+	 */
+	private NavigationHistory history;
+	/**
+	 * the pages evicted, in order
+	 */
+	private List<Page> evicted;
+
+	@Before
+	public void setUp() {
+		CanvasNavigationManager navigation = new CanvasNavigationManager();
+		navigation.registerNavigation("menu", PageChangeEvent.NEXT, "level");
+		navigation.registerNavigation("level", PageChangeEvent.NEXT, "score");
+		navigation.registerNavigation("score", PageChangeEvent.NEXT, "menu");
+		navigation.registerNavigation("level", PageChangeEvent.BACK, "menu");
+		this.evicted = new ArrayList<Page>();
+		this.history = new NavigationHistory(navigation, new EvictionHandler() {
+			@Override
+			public void onEvict(Page page) {
+				evicted.add(page);
+			}
+		});
+	}
+
+	/**
+	 * Walks the history through some requests, then trims it, as the manager
+	 * does on each frame
+	 * 
+	 * @param origin
+	 *            the page navigated from
+	 * @param requests
+	 *            the requests made during the frame
+	 * @return the page reached
+	 */
+	private Page navigate(Page origin, String... requests) {
+		Page page = this.history.navigate(origin, Arrays.asList(requests), null);
+		this.history.trim();
+		return page;
+	}
+
+	@Test
+	public void disabledHistoryFollowsTheRules() {
+		Page menu = new Page("menu", null);
+		Page level = this.navigate(menu, PageChangeEvent.NEXT);
+		assertEquals("level", level.getKey());
+		assertEquals("menu", this.navigate(level, PageChangeEvent.BACK).getKey());
+		assertFalse(this.history.canGoBack());
+		assertEquals(0, this.history.getPageCount());
+	}
+
+	@Test
+	public void backAndForwardReturnTheSamePages() {
+		this.history.setSize(5);
+		Page menu = new Page("menu", null);
+		Page level = this.navigate(menu, PageChangeEvent.NEXT);
+		Page score = this.navigate(level, PageChangeEvent.NEXT);
+		assertTrue(this.history.canGoBack());
+		assertFalse(this.history.canGoForward());
+
+		assertSame(level, this.navigate(score, PageChangeEvent.BACK));
+		// back from the level goes through the history, not the level rule
+		assertSame(menu, this.navigate(level, PageChangeEvent.BACK));
+		assertFalse(this.history.canGoBack());
+		assertTrue(this.history.canGoForward());
+		assertSame(level, this.navigate(menu, PageChangeEvent.FORWARD));
+		assertSame(score, this.navigate(level, PageChangeEvent.FORWARD));
+		assertTrue(this.evicted.isEmpty());
+	}
+
+	@Test
+	public void requestsOfTheSameFrameAreWalkedInOrder() {
+		this.history.setSize(5);
+		Page menu = new Page("menu", null);
+		Page score = this.navigate(menu, PageChangeEvent.NEXT, PageChangeEvent.NEXT);
+		assertEquals("score", score.getKey());
+		// the level, never displayed, isn't recorded
+		assertEquals(1, this.history.getPageCount());
+		assertSame(menu, this.history.getPage(0));
+		// back and forth in the same frame leads to the same page
+		assertSame(score, this.navigate(score, PageChangeEvent.BACK, PageChangeEvent.FORWARD));
+		assertSame(menu, this.navigate(score, PageChangeEvent.BACK));
+	}
+
+	@Test
+	public void pagesCrossedInTheSameFrameAreNotRecorded() {
+		this.history.setSize(5);
+		Page menu = new Page("menu", null);
+		Page level = this.navigate(menu, PageChangeEvent.NEXT);
+		// two requests coalesced in one frame
+		Page next = this.navigate(level, PageChangeEvent.NEXT, PageChangeEvent.NEXT);
+		assertEquals("menu", next.getKey());
+		assertEquals(2, this.history.getPageCount());
+		assertSame(level, this.navigate(next, PageChangeEvent.BACK));
+		assertSame(menu, this.navigate(level, PageChangeEvent.BACK));
+
+		// going back from a page crossed returns to the page displayed
+		assertSame(menu, this.navigate(menu, PageChangeEvent.NEXT, PageChangeEvent.BACK));
+		assertFalse(this.history.canGoBack());
+		assertFalse(this.history.canGoForward());
+	}
+
+	@Test
+	public void newPageDropsTheForwardPages() {
+		this.history.setSize(5);
+		Page menu = new Page("menu", null);
+		Page level = this.navigate(menu, PageChangeEvent.NEXT);
+		Page score = this.navigate(level, PageChangeEvent.NEXT);
+		this.navigate(score, PageChangeEvent.BACK);
+		this.navigate(level, PageChangeEvent.NEXT);
+		assertEquals(Arrays.asList(score), this.evicted);
+		assertFalse(this.history.canGoForward());
+		assertFalse(this.history.contains(score));
+	}
+
+	@Test
+	public void oldestPagesAreDroppedBeyondTheSize() {
+		this.history.setSize(2);
+		Page page = new Page("menu", null);
+		List<Page> visited = new ArrayList<Page>();
+		for (int i = 0; i < 6; i++) {
+			visited.add(page);
+			page = this.navigate(page, PageChangeEvent.NEXT);
+		}
+		assertEquals(2, this.history.getPageCount());
+		assertEquals(visited.subList(0, 4), this.evicted);
+		assertSame(visited.get(4), this.history.getPage(0));
+		assertSame(visited.get(5), this.history.getPage(1));
+	}
+
+	@Test
+	public void disablingDropsEveryPage() {
+		this.history.setSize(5);
+		Page menu = new Page("menu", null);
+		Page level = this.navigate(menu, PageChangeEvent.NEXT);
+		Page score = this.navigate(level, PageChangeEvent.NEXT);
+		this.navigate(score, PageChangeEvent.BACK);
+		this.history.setSize(0);
+		assertEquals(0, this.history.getPageCount());
+		assertEquals(2, this.evicted.size());
+		assertTrue(this.evicted.contains(menu));
+		assertTrue(this.evicted.contains(score));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void sizeCantBeNegative() {
+		this.history.setSize(-1);
+	}
+}
@@ -0,0 +1,80 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.activities.client;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests of the {@link StepClock}
+ * 
+ * @author François LAROCHE
+ */
+public class StepClockTest {
+
+	/**
+	 * the clock tested, with steps of 10 ms and at most 3 steps per frame
+	 */
+	private StepClock clock;
+
+	@Before
+	public void setUp() {
+		this.clock = new StepClock(10, 3);
+	}
+
+	@Test
+	public void firstFrameRunsNoStep() {
+		assertEquals(0, this.clock.advance(1000));
+		assertEquals(0, this.clock.getAlpha(), 0);
+	}
+
+	@Test
+	public void elapsedTimeIsConsumedByWholeSteps() {
+		this.clock.advance(1000);
+		assertEquals(2, this.clock.advance(1025));
+		assertEquals(0.5, this.clock.getAlpha(), 1e-9);
+		// the remainder is carried over to the next frame
+		assertEquals(1, this.clock.advance(1030));
+		assertEquals(0, this.clock.getAlpha(), 1e-9);
+	}
+
+	@Test
+	public void lateFramesDropTheTimeBeyondMaxSteps() {
+		this.clock.advance(1000);
+		assertEquals(3, this.clock.advance(1104));
+		// the 70 ms left aren't caught up
+		assertEquals(0.4, this.clock.getAlpha(), 1e-9);
+		assertEquals(0, this.clock.advance(1105));
+	}
+
+	@Test
+	public void resetForgetsTheElapsedTime() {
+		this.clock.advance(1000);
+		this.clock.advance(1015);
+		this.clock.reset();
+		assertEquals(0, this.clock.getAlpha(), 0);
+		assertEquals(0, this.clock.advance(5000));
+		assertEquals(1, this.clock.advance(5010));
+	}
+
+	@Test
+	public void stepChangeAppliesToTheNextFrames() {
+		this.clock.advance(0);
+		this.clock.setStep(20);
+		assertEquals(1, this.clock.advance(30));
+		assertEquals(0.5, this.clock.getAlpha(), 1e-9);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void stepMustBePositive() {
+		this.clock.setStep(0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void maxStepsMustBeAtLeastOne() {
+		this.clock.setMaxSteps(0);
+	}
+}
@@ -0,0 +1,106 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.activities.client.input;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests of the {@link InputBuffer}
+ * 
+ * @author François LAROCHE
+ */
+public class InputBufferTest {
+
+	/**
+	 * the buffer tested
+	 */
+	private InputBuffer buffer;
+
+	@Before
+	public void setUp() {
+		this.buffer = new InputBuffer(8);
+	}
+
+	/**
+	 * Checks a touch record
+	 * 
+	 * @param index
+	 *            the index of the record
+	 * @param type
+	 *            the type expected
+	 * @param touchId
+	 *            the touch expected
+	 * @param x
+	 *            the x coordinate expected
+	 */
+	private void assertTouch(int index, int type, int touchId, int x) {
+		InputRecord record = this.buffer.get(index);
+		assertEquals(type, record.getType());
+		assertEquals(touchId, record.getTouchId());
+		assertEquals(x, record.getX());
+	}
+
+	@Test
+	public void consecutiveMouseMovesAreCoalesced() {
+		this.buffer.recordMouse(InputRecord.MOUSE_MOVE, 1, 1, 0, 0);
+		this.buffer.recordMouse(InputRecord.MOUSE_MOVE, 2, 2, 0, 0);
+		this.buffer.recordMouse(InputRecord.CLICK, 2, 2, 1, 0);
+		this.buffer.recordMouse(InputRecord.MOUSE_MOVE, 3, 3, 0, 0);
+		assertEquals(3, this.buffer.size());
+		assertEquals(2, this.buffer.get(0).getX());
+		assertEquals(3, this.buffer.get(2).getX());
+	}
+
+	@Test
+	public void interleavedTouchMovesAreCoalescedPerTouch() {
+		this.buffer.recordTouch(InputRecord.TOUCH_START, 1, 0, 0);
+		this.buffer.recordTouch(InputRecord.TOUCH_START, 2, 100, 0);
+		for (int i = 1; i <= 50; i++) {
+			this.buffer.recordTouch(InputRecord.TOUCH_MOVE, 1, i, 0);
+			this.buffer.recordTouch(InputRecord.TOUCH_MOVE, 2, 100 + i, 0);
+		}
+		assertEquals(4, this.buffer.size());
+		assertEquals(0, this.buffer.getDropped());
+		this.assertTouch(2, InputRecord.TOUCH_MOVE, 1, 50);
+		this.assertTouch(3, InputRecord.TOUCH_MOVE, 2, 150);
+	}
+
+	@Test
+	public void touchMovesAreNotCoalescedAcrossTheirEnd() {
+		this.buffer.recordTouch(InputRecord.TOUCH_MOVE, 1, 10, 0);
+		this.buffer.recordTouch(InputRecord.TOUCH_END, 1, 10, 0);
+		this.buffer.recordTouch(InputRecord.TOUCH_MOVE, 2, 50, 0);
+		// the identifier is reused by a new touch
+		this.buffer.recordTouch(InputRecord.TOUCH_START, 1, 20, 0);
+		this.buffer.recordTouch(InputRecord.TOUCH_MOVE, 1, 30, 0);
+		assertEquals(5, this.buffer.size());
+		this.assertTouch(0, InputRecord.TOUCH_MOVE, 1, 10);
+		this.assertTouch(4, InputRecord.TOUCH_MOVE, 1, 30);
+	}
+
+	@Test
+	public void mouseInputDoesNotBreakTouchCoalescing() {
+		this.buffer.recordTouch(InputRecord.TOUCH_MOVE, 3, 10, 0);
+		this.buffer.recordKey(InputRecord.KEY_DOWN, 32, 0, 0);
+		this.buffer.recordTouch(InputRecord.TOUCH_MOVE, 3, 20, 0);
+		assertEquals(2, this.buffer.size());
+		this.assertTouch(0, InputRecord.TOUCH_MOVE, 3, 20);
+	}
+
+	@Test
+	public void oldestRecordsAreDroppedWhenFull() {
+		for (int i = 0; i < 10; i++) {
+			this.buffer.recordKey(InputRecord.KEY_PRESS, 0, 'a' + i, 0);
+		}
+		assertEquals(8, this.buffer.size());
+		assertEquals(2, this.buffer.getDropped());
+		assertEquals('c', this.buffer.get(0).getCharCode());
+		assertEquals('j', this.buffer.get(7).getCharCode());
+		this.buffer.clear();
+		assertEquals(0, this.buffer.size());
+	}
+}
@@ -0,0 +1,229 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.activities.client.render;
+
+import com.google.gwt.canvas.client.Canvas;
+import com.google.gwt.canvas.dom.client.Context2d;
+import com.google.gwt.dom.client.Document;
+import com.google.gwt.event.dom.client.DomEvent;
+import com.google.gwt.junit.client.GWTTestCase;
+import com.google.gwt.user.client.ui.FlowPanel;
+import com.google.gwt.user.client.ui.Image;
+import com.google.gwt.user.client.ui.Widget;
+import com.google.web.bindery.event.shared.SimpleEventBus;
+import com.sfeir.canvas.util.client.ResourceManager;
+
+/**
+ * Tests of the {@link Canvas2dSpriteRenderer} : a {@link SpriteBatch} must
+ * emit the same calls to it as to any other renderer, the WebGL one being
+ * stood for by a {@link RecordingSpriteRenderer}
+ * 
+ * @author François LAROCHE
+ */
+public class Canvas2dSpriteRendererGwtTest extends GWTTestCase {
+
+	/**
+	 * the panel in which the images are loaded
+	 */
+	private FlowPanel panel;
+	/**
+	 * the resources holding the images : "a" and "b" are loaded, with 10 x 10
+	 * and 20 x 30 pixels, "loading" isn't
+	 */
+	private ResourceManager resources;
+	/**
+	 * the calls to the renderer tested
+	 */
+	private RecordingSpriteRenderer canvasCalls;
+	/**
+	 * the calls to a renderer knowing the same images, as the WebGL one
+	 */
+	private RecordingSpriteRenderer expectedCalls;
+
+	@Override
+	public String getModuleName() {
+		return "com.sfeir.canvas.activities.ActivitiesTest";
+	}
+
+	@Override
+	protected void gwtSetUp() {
+		this.panel = new FlowPanel();
+		this.resources = new ResourceManager(this.panel, new SimpleEventBus());
+		this.resources.registerImage("a", "a.png", 1, 0);
+		this.resources.registerImage("b", "b.png", 1, 0);
+		this.resources.registerImage("loading", "loading.png", 1, 0);
+		this.resources.preloadResources();
+		this.loadImage("a.png", 10, 10);
+		this.loadImage("b.png", 20, 30);
+		// the test browser gives the images not loaded the size of an icon,
+		// the browsers give them no size
+		this.findImage("loading.png").getElement().setAttribute("width", "0");
+
+		Context2d ctx = Canvas.createIfSupported().getContext2d();
+		ignoreDrawing(ctx);
+		this.canvasCalls = new RecordingSpriteRenderer(new Canvas2dSpriteRenderer(ctx, this.resources));
+		this.expectedCalls = new RecordingSpriteRenderer();
+		this.expectedCalls.setSize("a", 10, 10);
+		this.expectedCalls.setSize("b", 20, 30);
+		this.expectedCalls.setSize("loading", 0, 0);
+	}
+
+	/**
+	 * Finds an image in the panel
+	 * 
+	 * @param url
+	 *            the end of the url of the image
+	 * @return the image
+	 */
+	private Image findImage(String url) {
+		for (Widget widget : this.panel) {
+			if (widget instanceof Image && ((Image) widget).getUrl().endsWith(url)) {
+				return (Image) widget;
+			}
+		}
+		fail(url + " isn't loading");
+		return null;
+	}
+
+	/**
+	 * Makes the browser load an image in the panel
+	 * 
+	 * @param url
+	 *            the end of the url of the image
+	 * @param width
+	 *            the width of the image
+	 * @param height
+	 *            the height of the image
+	 */
+	private void loadImage(String url, int width, int height) {
+		Image image = this.findImage(url);
+		image.getElement().setAttribute("width", String.valueOf(width));
+		image.getElement().setAttribute("height", String.valueOf(height));
+		DomEvent.fireNativeEvent(Document.get().createLoadEvent(), image);
+	}
+
+	/**
+	 * Makes the functions of a context used by the renderer do nothing, the
+	 * test browser lacking some of them
+	 * 
+	 * @param ctx
+	 *            the context
+	 */
+	private static native void ignoreDrawing(Context2d ctx) /*-{
+		ctx.save = ctx.restore = ctx.translate = ctx.rotate = ctx.drawImage = function() {};
+	}-*/;
+
+	/**
+	 * Gives an image the size stored in its file, which the test browser
+	 * doesn't know
+	 * 
+	 * @param image
+	 *            the image
+	 * @param width
+	 *            the natural width
+	 * @param height
+	 *            the natural height
+	 */
+	private static native void setNaturalSize(Image image, int width, int height) /*-{
+		var element = image.@com.google.gwt.user.client.ui.UIObject::getElement()();
+		element.naturalWidth = width;
+		element.naturalHeight = height;
+	}-*/;
+
+	/**
+	 * Flushes the same commands to both renderers, and checks they received
+	 * the same calls
+	 * 
+	 * @param batch
+	 *            the batch recording the commands, twice
+	 */
+	private void assertSameCalls(SpriteBatch batch) {
+		SpriteBatch copy = new SpriteBatch(this.resources);
+		this.record(batch);
+		this.record(copy);
+		batch.flush(this.canvasCalls);
+		copy.flush(this.expectedCalls);
+		assertEquals(this.expectedCalls.getCalls(), this.canvasCalls.getCalls());
+		assertEquals(copy.getLastDrawCalls(), batch.getLastDrawCalls());
+	}
+
+	/**
+	 * Records the commands of the tests : whole images, parts of them and
+	 * images not loaded, with several depths, alphas and rotations
+	 * 
+	 * @param batch
+	 *            the batch recording the commands
+	 */
+	private void record(SpriteBatch batch) {
+		batch.setDepth(1);
+		batch.draw("b", 5, 5);
+		batch.draw("loading", 0, 0);
+		batch.setDepth(0);
+		batch.draw("a", 0, 0);
+		batch.setAlpha(0.5);
+		batch.draw("b", 2, 4, 6, 8, 10, 12, 14, 16);
+		batch.setRotation(1);
+		batch.draw("a", 20, 20);
+		batch.setAlpha(1);
+		batch.setRotation(0);
+		batch.draw("loading", 1, 2, 3, 4, 5, 6, 7, 8);
+		batch.draw("b", 30, 30);
+	}
+
+	/**
+	 * Both renderers draw the loaded images with the same calls
+	 */
+	public void testSameCallsAsTheOtherRenderers() {
+		SpriteBatch batch = new SpriteBatch(this.resources);
+		this.assertSameCalls(batch);
+		// the images not loaded are skipped
+		assertEquals(5, batch.getLastDrawCalls());
+	}
+
+	/**
+	 * An image not loaded yet isn't bound, whatever the renderer
+	 */
+	public void testImagesNotLoadedAreNotBound() {
+		Canvas2dSpriteRenderer renderer = new Canvas2dSpriteRenderer(Canvas.createIfSupported().getContext2d(),
+				this.resources);
+		assertTrue(renderer.bindTexture("a"));
+		assertEquals(10.0, renderer.getTextureWidth());
+		assertFalse(renderer.bindTexture("loading"));
+		assertFalse(renderer.bindTexture("unknown"));
+	}
+
+	/**
+	 * The size of an image bound is the one of its file, not the one it is
+	 * displayed with
+	 */
+	public void testTextureSizeIsTheNaturalSize() {
+		this.resources.registerImage("scaled", "scaled.png", 1, 0);
+		this.resources.preloadResources();
+		this.loadImage("scaled.png", 10, 10);
+		setNaturalSize(this.findImage("scaled.png"), 40, 20);
+		Canvas2dSpriteRenderer renderer = new Canvas2dSpriteRenderer(Canvas.createIfSupported().getContext2d(),
+				this.resources);
+		assertTrue(renderer.bindTexture("scaled"));
+		assertEquals(40.0, renderer.getTextureWidth());
+		assertEquals(20.0, renderer.getTextureHeight());
+	}
+
+	/**
+	 * Binding an image records a single access to it, even when it can't be
+	 * rasterized
+	 */
+	public void testBindingAnImageAccessesItOnce() {
+		ResourceManager prerendered = new ResourceManager(this.panel, new SimpleEventBus());
+		prerendered.setPrerenderImages(true);
+		prerendered.registerImage("empty", "empty.png", 1, 0);
+		prerendered.preloadResources();
+		// an empty image is loaded, but has nothing to rasterize
+		this.loadImage("empty.png", 0, 0);
+		Canvas2dSpriteRenderer renderer = new Canvas2dSpriteRenderer(Canvas.createIfSupported().getContext2d(),
+				prerendered);
+		int hits = prerendered.getCacheHits();
+		assertFalse(renderer.bindTexture("empty"));
+		assertEquals(hits + 1, prerendered.getCacheHits());
+	}
+}
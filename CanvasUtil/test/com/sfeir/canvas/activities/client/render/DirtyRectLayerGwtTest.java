@@ -0,0 +1,142 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.activities.client.render;
+
+import com.google.gwt.canvas.client.Canvas;
+import com.google.gwt.canvas.dom.client.Context2d;
+import com.google.gwt.dom.client.CanvasElement;
+import com.google.gwt.junit.client.GWTTestCase;
+
+/**
+ * Tests of the {@link DirtyRectLayer}, on a context counting its saves and
+ * restores
+ * 
+ * @author François LAROCHE
+ */
+public class DirtyRectLayerGwtTest extends GWTTestCase {
+
+	/**
+	 * the canvas drawn, of 100 x 100 pixels
+	 */
+	private Canvas canvas;
+	/**
+	 * the layer tested
+	 */
+	private DirtyRectLayer layer;
+
+	@Override
+	public String getModuleName() {
+		return "com.sfeir.canvas.activities.ActivitiesTest";
+	}
+
+	@Override
+	protected void gwtSetUp() {
+		this.canvas = Canvas.createIfSupported();
+		setSize(this.canvas.getCanvasElement(), 100, 100);
+		countStates(this.canvas.getCanvasElement());
+		this.layer = new DirtyRectLayer(this.canvas);
+		// the first frame redraws everything
+		assertTrue(this.layer.begin());
+		this.layer.end();
+	}
+
+	/**
+	 * Sets the size of a canvas. The test browser gives the width and height
+	 * of a canvas as strings, they are replaced by numbers.
+	 * 
+	 * @param canvas
+	 *            the canvas
+	 * @param width
+	 *            the width of the canvas
+	 * @param height
+	 *            the height of the canvas
+	 */
+	private static native void setSize(CanvasElement canvas, int width, int height) /*-{
+		canvas.__defineGetter__("width", function() {
+			return width;
+		});
+		canvas.__defineGetter__("height", function() {
+			return height;
+		});
+	}-*/;
+
+	/**
+	 * Makes the context of a canvas count the calls to save and restore, in
+	 * its <code>saves</code> and <code>restores</code> properties. The test
+	 * browser creates a new context on each call and lacks the path and
+	 * clipping functions : the canvas keeps one context, whose drawing
+	 * functions do nothing.
+	 * 
+	 * @param canvas
+	 *            the canvas
+	 */
+	private static native void countStates(CanvasElement canvas) /*-{
+		var ctx = canvas.getContext("2d");
+		canvas.getContext = function() {
+			return ctx;
+		};
+		ctx.saves = 0;
+		ctx.restores = 0;
+		ctx.save = function() {
+			ctx.saves++;
+		};
+		ctx.restore = function() {
+			ctx.restores++;
+		};
+		ctx.beginPath = ctx.rect = ctx.clip = ctx.clearRect = function() {};
+	}-*/;
+
+	/**
+	 * Gets the number of calls to save not matched by a restore
+	 * 
+	 * @param ctx
+	 *            the context
+	 * @return the number of states saved
+	 */
+	private static native int savedStates(Context2d ctx) /*-{
+		return ctx.saves - ctx.restores;
+	}-*/;
+
+	/**
+	 * What is invalidated while drawing is redrawn by the next frame
+	 */
+	public void testInvalidationsWhileDrawingCarryOver() {
+		assertFalse(this.layer.begin());
+		this.layer.invalidate(10, 10, 5, 5);
+		assertTrue(this.layer.begin());
+		assertEquals(25, this.layer.getLastPixels());
+		// an object moving during the frame
+		this.layer.invalidate(60, 60, 5, 5);
+		assertFalse(this.layer.intersects(60, 60, 5, 5));
+		this.layer.end();
+
+		assertTrue(this.layer.intersects(60, 60, 5, 5));
+		assertTrue(this.layer.begin());
+		assertEquals(25, this.layer.getLastPixels());
+		assertTrue(this.layer.intersects(60, 60, 5, 5));
+		this.layer.end();
+		assertFalse(this.layer.begin());
+	}
+
+	/**
+	 * The state saved to clip a frame is restored, even if the whole canvas
+	 * is invalidated while drawing
+	 */
+	public void testClippingIsRestoredOnce() {
+		Context2d ctx = this.canvas.getContext2d();
+		this.layer.invalidate(10, 10, 5, 5);
+		assertTrue(this.layer.begin());
+		assertEquals(1, savedStates(ctx));
+		this.layer.invalidateAll();
+		this.layer.end();
+		assertEquals(0, savedStates(ctx));
+
+		// a full redraw doesn't clip
+		assertTrue(this.layer.begin());
+		assertEquals(2, this.layer.getFullFrames());
+		assertEquals(0, savedStates(ctx));
+		this.layer.end();
+		assertEquals(0, savedStates(ctx));
+	}
+}
@@ -0,0 +1,144 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.activities.client.render;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests of the {@link DirtyRegion}
+ * 
+ * @author François LAROCHE
+ */
+public class DirtyRegionTest {
+
+	/**
+	 * the region tested, on a 100 x 100 surface, cleared
+	 */
+	private DirtyRegion region;
+
+	@Before
+	public void setUp() {
+		this.region = new DirtyRegion(100, 100, 4);
+		this.region.clear();
+	}
+
+	@Test
+	public void newRegionIsEntirelyDirty() {
+		DirtyRegion fresh = new DirtyRegion(100, 50);
+		assertTrue(fresh.isFull());
+		assertEquals(5000, fresh.getDirtyArea());
+		assertEquals(1, fresh.getRectCount());
+		assertEquals(100, fresh.getWidth(0));
+		assertEquals(50, fresh.getHeight(0));
+	}
+
+	@Test
+	public void rectanglesAreSnappedToPixelsAndClipped() {
+		this.region.invalidate(10.5, 20.2, 5, 5);
+		assertEquals(1, this.region.getRectCount());
+		assertEquals(10, this.region.getX(0));
+		assertEquals(20, this.region.getY(0));
+		assertEquals(6, this.region.getWidth(0));
+		assertEquals(6, this.region.getHeight(0));
+
+		this.region.clear();
+		this.region.invalidate(-10, 95, 20, 20);
+		assertEquals(0, this.region.getX(0));
+		assertEquals(95, this.region.getY(0));
+		assertEquals(10, this.region.getWidth(0));
+		assertEquals(5, this.region.getHeight(0));
+	}
+
+	@Test
+	public void rectanglesOutsideTheSurfaceAreIgnored() {
+		this.region.invalidate(150, 10, 10, 10);
+		this.region.invalidate(10, 10, 0, 10);
+		assertTrue(this.region.isEmpty());
+	}
+
+	@Test
+	public void overlappingRectanglesAreMerged() {
+		this.region.invalidate(0, 0, 10, 10);
+		this.region.invalidate(5, 5, 10, 10);
+		assertEquals(1, this.region.getRectCount());
+		assertEquals(225, this.region.getDirtyArea());
+		// touching a merged rectangle chains the merge
+		this.region.invalidate(40, 0, 10, 10);
+		this.region.invalidate(15, 0, 25, 2);
+		assertEquals(1, this.region.getRectCount());
+		assertEquals(0, this.region.getX(0));
+		assertEquals(50, this.region.getWidth(0));
+	}
+
+	@Test
+	public void disjointRectanglesAreKeptApart() {
+		this.region.invalidate(0, 0, 10, 10);
+		this.region.invalidate(50, 50, 10, 10);
+		assertEquals(2, this.region.getRectCount());
+		assertEquals(200, this.region.getDirtyArea());
+		assertTrue(this.region.intersects(55, 55, 1, 1));
+		assertFalse(this.region.intersects(20, 20, 10, 10));
+	}
+
+	@Test
+	public void closestRectanglesAreMergedBeyondTheMaximum() {
+		this.region.invalidate(0, 0, 2, 2);
+		this.region.invalidate(4, 0, 2, 2);
+		this.region.invalidate(90, 90, 2, 2);
+		this.region.invalidate(0, 90, 2, 2);
+		this.region.invalidate(90, 0, 2, 2);
+		assertEquals(4, this.region.getRectCount());
+		// the two rectangles of the top left corner became one
+		assertTrue(this.region.intersects(3, 0, 1, 1));
+		assertFalse(this.region.intersects(50, 50, 1, 1));
+	}
+
+	@Test
+	public void largeDirtyAreaFallsBackToAFullRedraw() {
+		this.region.setFullRedrawThreshold(0.5);
+		this.region.invalidate(0, 0, 100, 40);
+		assertFalse(this.region.isFull());
+		this.region.invalidate(0, 50, 100, 20);
+		assertTrue(this.region.isFull());
+		assertEquals(10000, this.region.getDirtyArea());
+		assertTrue(this.region.intersects(99, 99, 1, 1));
+	}
+
+	@Test
+	public void resizingMakesTheSurfaceDirty() {
+		this.region.setSize(200, 100);
+		assertTrue(this.region.isFull());
+		assertEquals(20000, this.region.getDirtyArea());
+	}
+
+	@Test
+	public void copyHasTheSameRectangles() {
+		this.region.invalidate(0, 0, 10, 10);
+		this.region.invalidate(50, 50, 10, 10);
+		DirtyRegion copy = new DirtyRegion(10, 10, 4);
+		copy.set(this.region);
+		this.region.clear();
+		assertEquals(2, copy.getRectCount());
+		assertEquals(200, copy.getDirtyArea());
+		assertTrue(copy.intersects(55, 55, 1, 1));
+		assertEquals(100, copy.getSurfaceWidth());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void copyMustHoldAllTheRectangles() {
+		this.region.invalidate(0, 0, 10, 10);
+		this.region.invalidate(50, 50, 10, 10);
+		new DirtyRegion(100, 100, 1).set(this.region);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void thresholdMustBeAFraction() {
+		this.region.setFullRedrawThreshold(1.5);
+	}
+}
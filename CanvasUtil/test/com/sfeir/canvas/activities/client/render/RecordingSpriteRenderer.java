@@ -0,0 +1,140 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.activities.client.render;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link SpriteRenderer} recording the calls it receives, as strings, to
+ * compare what a {@link SpriteBatch} emits. It either passes the calls to
+ * another renderer, or stands for one : like the real renderers, it then
+ * refuses to bind an image unknown or not loaded, which is an image whose
+ * width isn't positive.
+ * 
+ * @author François LAROCHE
+ */
+class RecordingSpriteRenderer implements SpriteRenderer {
+
+	/**
+	 * the renderer to which the calls are passed, null if none
+	 */
+	private final SpriteRenderer delegate;
+	/**
+	 * the calls received, in order
+	 */
+	private final List<String> calls = new ArrayList<String>();
+	/**
+	 * the width and height of the images, by key
+	 */
+	private final Map<String, double[]> sizes = new HashMap<String, double[]>();
+	/**
+	 * the size of the image bound
+	 */
+	private double[] bound;
+
+	/**
+	 * Constructor initializing a renderer standing for a real one, knowing
+	 * the images declared with {@link #setSize(String, double, double)}
+	 */
+	public RecordingSpriteRenderer() {
+		this(null);
+	}
+
+	/**
+	 * Constructor initializing a renderer passing the calls to another one
+	 * 
+	 * @param delegate
+	 *            the renderer to which the calls are passed
+	 */
+	public RecordingSpriteRenderer(SpriteRenderer delegate) {
+		this.delegate = delegate;
+	}
+
+	/**
+	 * Declares the size of an image
+	 * 
+	 * @param key
+	 *            the key of the image
+	 * @param width
+	 *            the width of the image, 0 when not loaded
+	 * @param height
+	 *            the height of the image, 0 when not loaded
+	 */
+	public void setSize(String key, double width, double height) {
+		this.sizes.put(key, new double[] { width, height });
+	}
+
+	/**
+	 * Gets the calls received since the last {@link #reset()}
+	 * 
+	 * @return the calls, in order
+	 */
+	public List<String> getCalls() {
+		return calls;
+	}
+
+	/**
+	 * Forgets the calls received
+	 */
+	public void reset() {
+		this.calls.clear();
+	}
+
+	@Override
+	public void begin() {
+		this.calls.add("begin");
+		if (this.delegate != null) {
+			this.delegate.begin();
+		}
+	}
+
+	@Override
+	public boolean bindTexture(String key) {
+		this.calls.add("bind " + key);
+		if (this.delegate != null) {
+			return this.delegate.bindTexture(key);
+		}
+		this.bound = this.sizes.get(key);
+		return this.bound != null && this.bound[0] > 0;
+	}
+
+	@Override
+	public double getTextureWidth() {
+		return this.delegate != null ? this.delegate.getTextureWidth() : this.bound[0];
+	}
+
+	@Override
+	public double getTextureHeight() {
+		return this.delegate != null ? this.delegate.getTextureHeight() : this.bound[1];
+	}
+
+	@Override
+	public void setAlpha(double alpha) {
+		this.calls.add("alpha " + alpha);
+		if (this.delegate != null) {
+			this.delegate.setAlpha(alpha);
+		}
+	}
+
+	@Override
+	public void draw(double sx, double sy, double sw, double sh, double dx, double dy, double dw, double dh,
+			double rotation) {
+		this.calls.add("draw " + sx + " " + sy + " " + sw + " " + sh + " " + dx + " " + dy + " " + dw + " " + dh
+				+ " " + rotation);
+		if (this.delegate != null) {
+			this.delegate.draw(sx, sy, sw, sh, dx, dy, dw, dh, rotation);
+		}
+	}
+
+	@Override
+	public void end() {
+		this.calls.add("end");
+		if (this.delegate != null) {
+			this.delegate.end();
+		}
+	}
+}
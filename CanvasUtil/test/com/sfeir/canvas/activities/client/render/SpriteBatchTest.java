@@ -0,0 +1,107 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.activities.client.render;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests of the {@link SpriteBatch}, flushed to a
+ * {@link RecordingSpriteRenderer}
+ * 
+ * @author François LAROCHE
+ */
+public class SpriteBatchTest {
+
+	/**
+	 * the batch tested, holding 2 commands before growing
+	 */
+	private SpriteBatch batch;
+	/**
+	 * the renderer receiving the commands, knowing the images "a" of 10 x 20
+	 * pixels and "b" of 30 x 40 pixels
+	 */
+	private RecordingSpriteRenderer renderer;
+
+	@Before
+	public void setUp() {
+		this.batch = new SpriteBatch(null, 2);
+		this.renderer = new RecordingSpriteRenderer();
+		this.renderer.setSize("a", 10, 20);
+		this.renderer.setSize("b", 30, 40);
+	}
+
+	@Test
+	public void commandsAreSortedByDepthThenImageThenAlpha() {
+		this.batch.setDepth(1);
+		this.batch.draw("a", 1, 0);
+		this.batch.setDepth(0);
+		this.batch.draw("b", 2, 0);
+		this.batch.draw("a", 3, 0);
+		this.batch.setAlpha(0.5);
+		this.batch.draw("b", 4, 0);
+		this.batch.setAlpha(1);
+		this.batch.draw("b", 5, 0);
+		this.batch.flush(this.renderer);
+		// the images are ordered by the first time they were used
+		assertEquals(Arrays.asList("begin", "bind a", "alpha 1.0", "draw 0.0 0.0 10.0 20.0 3.0 0.0 10.0 20.0 0.0",
+				"bind b", "alpha 0.5", "draw 0.0 0.0 30.0 40.0 4.0 0.0 30.0 40.0 0.0", "alpha 1.0",
+				"draw 0.0 0.0 30.0 40.0 2.0 0.0 30.0 40.0 0.0", "draw 0.0 0.0 30.0 40.0 5.0 0.0 30.0 40.0 0.0",
+				"bind a", "draw 0.0 0.0 10.0 20.0 1.0 0.0 10.0 20.0 0.0", "end"), this.renderer.getCalls());
+		assertEquals(5, this.batch.getLastDrawCalls());
+		assertEquals(3, this.batch.getLastTextureSwitches());
+		assertEquals(3, this.batch.getLastStateChanges());
+	}
+
+	@Test
+	public void partsOfImagesKeepTheirRectangles() {
+		this.batch.setRotation(1.5);
+		this.batch.draw("b", 1, 2, 3, 4, 5, 6, 7, 8);
+		this.batch.flush(this.renderer);
+		assertEquals("draw 1.0 2.0 3.0 4.0 5.0 6.0 7.0 8.0 1.5", this.renderer.getCalls().get(3));
+		// alpha and rotation
+		assertEquals(2, this.batch.getLastStateChanges());
+	}
+
+	@Test
+	public void imagesNotLoadedAreSkipped() {
+		this.renderer.setSize("loading", 0, 0);
+		this.batch.draw("loading", 0, 0);
+		this.batch.draw("unknown", 0, 0);
+		this.batch.draw("a", 0, 0);
+		this.batch.flush(this.renderer);
+		assertEquals(Arrays.asList("begin", "bind loading", "bind unknown", "bind a", "alpha 1.0",
+				"draw 0.0 0.0 10.0 20.0 0.0 0.0 10.0 20.0 0.0", "end"), this.renderer.getCalls());
+		assertEquals(1, this.batch.getLastDrawCalls());
+	}
+
+	@Test
+	public void batchGrowsAndIsEmptiedByTheFlush() {
+		for (int i = 0; i < 5; i++) {
+			this.batch.draw(i % 2 == 0 ? "a" : "b", i, 0);
+		}
+		assertEquals(5, this.batch.size());
+		assertEquals(8, this.batch.getCapacity());
+		this.batch.flush(this.renderer);
+		assertEquals(5, this.batch.getLastDrawCalls());
+		assertEquals(0, this.batch.size());
+
+		// nothing left for the next frame
+		this.renderer.reset();
+		this.batch.flush(this.renderer);
+		assertEquals(Arrays.asList("begin", "end"), this.renderer.getCalls());
+	}
+
+	@Test
+	public void clearForgetsTheCommands() {
+		this.batch.draw("a", 0, 0);
+		this.batch.clear();
+		this.batch.flush(this.renderer);
+		assertEquals(0, this.batch.getLastDrawCalls());
+	}
+}
@@ -0,0 +1,118 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.util.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests of the {@link LoadingProgress}
+ * 
+ * @author François LAROCHE
+ */
+public class LoadingProgressTest {
+
+	/**
+	 * the progress tested
+	 */
+	private LoadingProgress progress;
+
+	@Before
+	public void setUp() {
+		this.progress = new LoadingProgress();
+	}
+
+	@Test
+	public void emptyProgressIsAtZero() {
+		assertEquals(0, this.progress.getRatio(), 0);
+		assertEquals(0, this.progress.sample(), 0);
+		assertTrue(this.progress.isComplete());
+	}
+
+	@Test
+	public void ratioFollowsTheBytesLoaded() {
+		this.progress.add(1000, 0);
+		this.progress.add(3000, 0);
+		this.progress.update(0, 1000);
+		assertEquals(0.25, this.progress.getRatio(), 1e-6);
+		this.progress.update(0, 3000);
+		assertEquals(1, this.progress.getRatio(), 1e-6);
+		assertTrue(this.progress.isComplete());
+	}
+
+	@Test
+	public void expectedSizeCanBeCorrectedWhileLoading() {
+		this.progress.add(1000, 0);
+		this.progress.update(0, 500);
+		// the real size is known : twice the declared one
+		this.progress.update(1000, 0);
+		assertEquals(0.25, this.progress.getRatio(), 1e-6);
+		assertFalse(this.progress.isComplete());
+		this.progress.update(0, 1500);
+		assertTrue(this.progress.isComplete());
+		assertEquals(2000, this.progress.getExpected(), 0);
+		assertEquals(2000, this.progress.getLoaded(), 0);
+	}
+
+	@Test
+	public void ratioNeverExceedsOne() {
+		this.progress.add(100, 0);
+		this.progress.update(0, 250);
+		assertEquals(1, this.progress.getRatio(), 0);
+	}
+
+	@Test
+	public void removedResourcesNoLongerCount() {
+		this.progress.add(1000, 1000);
+		this.progress.add(1000, 0);
+		assertEquals(0.5, this.progress.getRatio(), 1e-6);
+		this.progress.remove(1000, 0);
+		assertEquals(1, this.progress.getRatio(), 1e-6);
+	}
+
+	@Test
+	public void smoothedRatioApproachesTheExactOneWithoutGoingBack() {
+		this.progress.setSmoothing(0.5);
+		this.progress.add(1000, 0);
+		this.progress.update(0, 800);
+		assertEquals(0.4, this.progress.sample(), 1e-6);
+		assertEquals(0.6, this.progress.sample(), 1e-6);
+		// the size is corrected upwards : the exact ratio drops below, the
+		// smoothed one waits for it
+		this.progress.update(1000, 0);
+		assertEquals(0.6, this.progress.sample(), 1e-6);
+		this.progress.update(0, 600);
+		assertEquals(0.65, this.progress.sample(), 1e-6);
+		this.progress.update(0, 600);
+		assertEquals(1, this.progress.sample(), 0);
+		assertEquals(1, this.progress.getSmoothedRatio(), 0);
+	}
+
+	@Test
+	public void addingResourcesLowersTheSmoothedRatio() {
+		this.progress.add(1000, 1000);
+		assertEquals(1, this.progress.sample(), 0);
+		this.progress.add(1000, 0);
+		assertEquals(0.5, this.progress.getSmoothedRatio(), 1e-6);
+	}
+
+	@Test
+	public void resetForgetsEverything() {
+		this.progress.add(1000, 500);
+		this.progress.sample();
+		this.progress.reset();
+		assertEquals(0, this.progress.getExpected(), 0);
+		assertEquals(0, this.progress.getLoaded(), 0);
+		assertEquals(0, this.progress.getSmoothedRatio(), 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void smoothingMustBePositive() {
+		this.progress.setSmoothing(0);
+	}
+}
@@ -0,0 +1,236 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.util.client;
+
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.junit.client.GWTTestCase;
+
+/**
+ * Tests of the {@link OfflineCache}, on a fake Cache Storage keeping the
+ * responses in memory and answering synchronously
+ * 
+ * @author François LAROCHE
+ */
+public class OfflineCacheGwtTest extends GWTTestCase {
+
+	/**
+	 * Callback recording the result of a lookup
+	 */
+	private static class Lookup implements OfflineCache.LookupCallback {
+		/**
+		 * the number of hits notified
+		 */
+		private int hits;
+		/**
+		 * the number of misses notified
+		 */
+		private int misses;
+		/**
+		 * the data of the last hit
+		 */
+		private JavaScriptObject data;
+		/**
+		 * the size of the last hit
+		 */
+		private double bytes;
+
+		@Override
+		public void onHit(JavaScriptObject data, double bytes) {
+			this.hits++;
+			this.data = data;
+			this.bytes = bytes;
+		}
+
+		@Override
+		public void onMiss() {
+			this.misses++;
+		}
+	}
+
+	/**
+	 * the url of the resource cached
+	 */
+	private static final String URL = "images/hero.png";
+
+	/**
+	 * the cache tested
+	 */
+	private OfflineCache cache;
+
+	@Override
+	public String getModuleName() {
+		return "com.sfeir.canvas.util.UtilTest";
+	}
+
+	@Override
+	protected void gwtSetUp() {
+		installCacheStorage();
+		this.cache = new OfflineCache();
+	}
+
+	@Override
+	protected void gwtTearDown() {
+		uninstallCacheStorage();
+	}
+
+	/**
+	 * Installs a Cache Storage, with the Response and Promise it needs, the
+	 * test browser having none. The promises are resolved right away, and
+	 * the urls deleted are listed in <code>$wnd.deletedUrls</code>.
+	 */
+	private static native void installCacheStorage() /*-{
+		function resolved(value) {
+			return {
+				then : function(f) {
+					try {
+						var result = f(value);
+						return result && result.then ? result : resolved(result);
+					} catch (e) {
+						return rejected(e);
+					}
+				},
+				"catch" : function() {
+					return this;
+				}
+			};
+		}
+		function rejected(error) {
+			return {
+				then : function() {
+					return this;
+				},
+				"catch" : function(f) {
+					return resolved(f(error));
+				}
+			};
+		}
+		var stores = {};
+		$wnd.deletedUrls = [];
+		$wnd.Promise = function() {};
+		$wnd.Response = function(data, init) {
+			this.headers = {
+				get : function(name) {
+					return init.headers[name];
+				}
+			};
+			this.blob = function() {
+				return resolved(data);
+			};
+			this.arrayBuffer = this.blob;
+		};
+		$wnd.caches = {
+			open : function(name) {
+				var entries = stores[name] || (stores[name] = {});
+				return resolved({
+					match : function(url) {
+						return resolved(entries[url]);
+					},
+					put : function(url, response) {
+						entries[url] = response;
+						return resolved();
+					},
+					"delete" : function(url) {
+						$wnd.deletedUrls.push(url);
+						delete entries[url];
+						return resolved(true);
+					}
+				});
+			},
+			"delete" : function(name) {
+				delete stores[name];
+				return resolved(true);
+			}
+		};
+	}-*/;
+
+	/**
+	 * Removes the Cache Storage installed
+	 */
+	private static native void uninstallCacheStorage() /*-{
+		delete $wnd.caches;
+		delete $wnd.Response;
+		delete $wnd.Promise;
+	}-*/;
+
+	/**
+	 * Gets the urls deleted from the Cache Storage
+	 * 
+	 * @return the urls, separated by spaces
+	 */
+	private static native String deletedUrls() /*-{
+		return $wnd.deletedUrls.join(" ");
+	}-*/;
+
+	/**
+	 * Creates the content of a resource, as a Blob would be
+	 * 
+	 * @param size
+	 *            the size of the resource
+	 * @return the content
+	 */
+	private static native JavaScriptObject blob(int size) /*-{
+		return {
+			size : size,
+			type : "image/png"
+		};
+	}-*/;
+
+	/**
+	 * A resource stored with its hash is found with the same hash
+	 */
+	public void testStoredResourceIsFound() {
+		assertTrue(OfflineCache.isSupported());
+		JavaScriptObject data = blob(300);
+		this.cache.put(URL, "v1", data);
+		Lookup lookup = new Lookup();
+		this.cache.get(URL, "v1", false, lookup);
+		assertEquals(1, lookup.hits);
+		assertSame(data, lookup.data);
+		assertEquals(300.0, lookup.bytes);
+		assertEquals(1, this.cache.getHits());
+	}
+
+	/**
+	 * A copy with another hash is deleted and reported as a miss, the
+	 * resource downloaded again then being found with its new hash
+	 */
+	public void testStaleResourceIsDeletedAndDownloadedAgain() {
+		this.cache.put(URL, "v1", blob(300));
+		final JavaScriptObject downloaded = blob(400);
+		Lookup lookup = new Lookup() {
+			@Override
+			public void onMiss() {
+				super.onMiss();
+				// as the resource manager does once the resource is downloaded
+				cache.put(URL, "v2", downloaded);
+			}
+		};
+		this.cache.get(URL, "v2", false, lookup);
+		assertEquals(1, lookup.misses);
+		assertEquals(0, lookup.hits);
+		assertEquals(URL, deletedUrls());
+		assertEquals(1, this.cache.getMisses());
+
+		Lookup again = new Lookup();
+		this.cache.get(URL, "v2", true, again);
+		assertEquals(1, again.hits);
+		assertSame(downloaded, again.data);
+		assertEquals(400.0, again.bytes);
+		assertEquals(0.5, this.cache.getHitRate());
+	}
+
+	/**
+	 * Resources without a hash can't be validated, so they are neither
+	 * stored nor looked up
+	 */
+	public void testResourcesWithoutHashAreNotCached() {
+		this.cache.put(URL, null, blob(300));
+		Lookup lookup = new Lookup();
+		this.cache.get(URL, null, false, lookup);
+		assertEquals(1, lookup.misses);
+		this.cache.get(URL, "v1", false, lookup);
+		assertEquals(2, lookup.misses);
+		assertEquals("", deletedUrls());
+	}
+}
@@ -0,0 +1,347 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.util.client;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.gwt.dom.client.Document;
+import com.google.gwt.event.dom.client.DomEvent;
+import com.google.gwt.junit.client.GWTTestCase;
+import com.google.gwt.user.client.ui.FlowPanel;
+import com.google.gwt.user.client.ui.Image;
+import com.google.gwt.user.client.ui.Widget;
+import com.google.web.bindery.event.shared.EventBus;
+import com.google.web.bindery.event.shared.SimpleEventBus;
+import com.sfeir.canvas.util.client.event.AllResourcesLoadedEvent;
+import com.sfeir.canvas.util.client.event.AllResourcesLoadedHandler;
+import com.sfeir.canvas.util.client.event.ResourceGroupLoadedEvent;
+import com.sfeir.canvas.util.client.event.ResourceGroupLoadedHandler;
+import com.sfeir.canvas.util.client.event.ResourceLoadedEvent;
+import com.sfeir.canvas.util.client.event.ResourceLoadedHandler;
+
+/**
+ * Tests of the {@link ResourceManager} needing a browser
+ * 
+ * @author François LAROCHE
+ */
+public class ResourceManagerGwtTest extends GWTTestCase {
+
+	/**
+	 * Panel recording the widgets the manager loads in it, in order
+	 */
+	private static class LoaderPanel extends FlowPanel {
+		/**
+		 * the widgets added, in order
+		 */
+		private final List<Widget> added = new ArrayList<Widget>();
+
+		@Override
+		public void add(Widget w) {
+			this.added.add(w);
+			super.add(w);
+		}
+
+		/**
+		 * Gets the urls of the images added, in order
+		 * 
+		 * @return the urls
+		 */
+		public List<String> getImageUrls() {
+			List<String> urls = new ArrayList<String>();
+			for (Widget widget : this.added) {
+				if (widget instanceof Image) {
+					urls.add(((Image) widget).getUrl());
+				}
+			}
+			return urls;
+		}
+	}
+
+	/**
+	 * the panel in which the resources are loaded
+	 */
+	private LoaderPanel panel;
+	/**
+	 * the bus on which the manager fires its events
+	 */
+	private EventBus bus;
+	/**
+	 * the manager tested
+	 */
+	private ResourceManager resources;
+
+	@Override
+	public String getModuleName() {
+		return "com.sfeir.canvas.util.UtilTest";
+	}
+
+	@Override
+	protected void gwtSetUp() {
+		this.panel = new LoaderPanel();
+		this.bus = new SimpleEventBus();
+		this.resources = new ResourceManager(this.panel, this.bus);
+	}
+
+	/**
+	 * Makes the browser load the images in the panel, each one being 10 x 10
+	 * pixels, so 400 bytes once decoded
+	 */
+	private void loadImages() {
+		List<Widget> loading = new ArrayList<Widget>();
+		for (Widget widget : this.panel) {
+			loading.add(widget);
+		}
+		for (Widget widget : loading) {
+			this.loadImage(widget);
+		}
+	}
+
+	/**
+	 * Makes the browser load an image in the panel
+	 * 
+	 * @param url
+	 *            the end of the url of the image
+	 */
+	private void loadImage(String url) {
+		for (Widget widget : this.panel) {
+			if (widget instanceof Image && ((Image) widget).getUrl().endsWith(url)) {
+				this.loadImage(widget);
+				return;
+			}
+		}
+		fail(url + " isn't loading");
+	}
+
+	/**
+	 * Makes the browser load an image, of 10 x 10 pixels
+	 * 
+	 * @param image
+	 *            the image
+	 */
+	private void loadImage(Widget image) {
+		image.getElement().setAttribute("width", "10");
+		image.getElement().setAttribute("height", "10");
+		DomEvent.fireNativeEvent(Document.get().createLoadEvent(), image);
+	}
+
+	/**
+	 * Makes an image in the panel fail to load
+	 * 
+	 * @param url
+	 *            the end of the url of the image
+	 */
+	private void failImage(String url) {
+		for (Widget widget : this.panel) {
+			if (widget instanceof Image && ((Image) widget).getUrl().endsWith(url)) {
+				DomEvent.fireNativeEvent(Document.get().createErrorEvent(), widget);
+				return;
+			}
+		}
+		fail(url + " isn't loading");
+	}
+
+	/**
+	 * Records the group events fired on the bus
+	 * 
+	 * @return the events fired, in order
+	 */
+	private List<ResourceGroupLoadedEvent> recordGroupEvents() {
+		final List<ResourceGroupLoadedEvent> events = new ArrayList<ResourceGroupLoadedEvent>();
+		this.bus.addHandler(ResourceGroupLoadedEvent.TYPE, new ResourceGroupLoadedHandler() {
+			@Override
+			public void onResourceGroupLoaded(ResourceGroupLoadedEvent event) {
+				events.add(event);
+			}
+		});
+		return events;
+	}
+
+	/**
+	 * Priorities far apart must not overflow when compared
+	 */
+	public void testExtremePrioritiesLoadInOrder() {
+		this.resources.setMaxConcurrentLoads(1);
+		this.resources.registerImage("low", "low.png", 1, -2000000000);
+		this.resources.registerImage("high", "high.png", 1, 2000000000);
+		this.resources.preloadResources();
+		List<String> urls = this.panel.getImageUrls();
+		assertFalse(urls.isEmpty());
+		assertTrue(urls.get(0).endsWith("high.png"));
+	}
+
+	/**
+	 * The resources of a group loading or active are kept over the budget,
+	 * and only the evicted resources are loaded again when asked for
+	 */
+	public void testEvictionSparesTheGroupsInUse() {
+		this.resources.setMemoryBudget(1000);
+		this.resources.registerImage("menu", "menu.png", 1, 0, "menu");
+		this.resources.registerImage("a", "a.png", 1, 0, "level");
+		this.resources.registerImage("b", "b.png", 1, 0, "level");
+		this.resources.registerImage("c", "c.png", 1, 0, "level");
+		this.resources.registerImage("unused", "unused.png", 1, 0, "other");
+		this.resources.loadGroup("menu");
+		this.loadImages();
+		assertEquals(400, this.resources.getMemoryUsed());
+
+		// the menu is evicted, not the images of the level being loaded
+		this.resources.loadGroup("level");
+		this.loadImages();
+		assertTrue(this.resources.isGroupLoaded("level"));
+		assertEquals(1, this.resources.getEvictions());
+		assertEquals(1200, this.resources.getMemoryUsed());
+
+		// an active group stays over the budget
+		this.resources.setGroupActive("level", true);
+		this.resources.setMemoryBudget(500);
+		assertTrue(this.resources.isGroupLoaded("level"));
+		assertEquals(1, this.resources.getEvictions());
+
+		// only the evicted image counts as a miss and is loaded again
+		this.resources.getImage("a");
+		this.resources.getImage("unused");
+		assertEquals(1, this.resources.getCacheHits());
+		assertEquals(0, this.resources.getCacheMisses());
+		this.resources.getImage("menu");
+		assertEquals(1, this.resources.getCacheMisses());
+		this.loadImages();
+		assertTrue(this.resources.isGroupLoaded("menu"));
+		assertFalse(this.resources.isGroupLoaded("other"));
+
+		// once inactive, the level can be evicted to stay within the budget
+		this.resources.setGroupActive("level", false);
+		assertTrue(this.resources.getMemoryUsed() <= 500);
+		assertFalse(this.resources.isGroupLoaded("level"));
+	}
+
+	/**
+	 * The loading percentage weighs the resources by their size, and an event
+	 * gives it each time a resource is loaded
+	 */
+	public void testLoadingPercentageFollowsTheSizes() {
+		final List<Float> percentages = new ArrayList<Float>();
+		final int[] completed = { 0 };
+		this.bus.addHandler(ResourceLoadedEvent.TYPE, new ResourceLoadedHandler() {
+			@Override
+			public void onResourcesLoaded(ResourceLoadedEvent event) {
+				percentages.add(event.getPercentage());
+			}
+		});
+		this.bus.addHandler(AllResourcesLoadedEvent.TYPE, new AllResourcesLoadedHandler() {
+			@Override
+			public void onAllResourcesLoaded(AllResourcesLoadedEvent event) {
+				completed[0]++;
+			}
+		});
+		this.resources.registerImage("small", "small.png", 100);
+		this.resources.registerImage("large", "large.png", 300);
+		this.resources.preloadResources();
+		assertEquals(0, this.resources.getLoadedPercentage(), 0);
+
+		this.loadImage("small.png");
+		assertEquals(0.25, this.resources.getLoadedPercentage(), 1e-6);
+		assertEquals(0, completed[0]);
+		this.loadImage("large.png");
+		assertEquals(1, this.resources.getLoadedPercentage(), 0);
+		assertEquals(1, completed[0]);
+		assertEquals(2, percentages.size());
+		assertEquals(0.25, percentages.get(0), 1e-6);
+		assertEquals(1, percentages.get(1), 0);
+	}
+
+	/**
+	 * Registering the same manifest again keeps the resources as they are,
+	 * while a changed entry replaces its resource
+	 */
+	public void testRegisteringAManifestAgainKeepsTheResources() {
+		String manifest = "{\"resources\": ["
+				+ "{\"key\": \"hero\", \"type\": \"image\", \"url\": \"hero.png\", \"size\": 100, \"group\": \"level\"},"
+				+ "{\"key\": \"theme\", \"type\": \"audio\", \"urls\": [\"theme.ogg\", \"theme.mp3\"], \"size\": 300,"
+				+ " \"group\": \"level\"}]}";
+		this.resources.registerManifest(manifest);
+		this.resources.loadGroup("level");
+		this.loadImages();
+		assertTrue(this.resources.isGroupLoaded("level"));
+		float percentage = this.resources.getLoadedPercentage();
+		int added = this.panel.added.size();
+
+		this.resources.registerManifest(manifest);
+		assertTrue(this.resources.isGroupLoaded("level"));
+		assertEquals(percentage, this.resources.getLoadedPercentage(), 0);
+		assertEquals(added, this.panel.added.size());
+
+		this.resources.registerManifest(manifest.replace("hero.png", "hero2.png"));
+		assertFalse(this.resources.isGroupLoaded("level"));
+		this.resources.loadGroup("level");
+		this.loadImage("hero2.png");
+		assertTrue(this.resources.isGroupLoaded("level"));
+	}
+
+	/**
+	 * A resource failing to load doesn't keep its group from being loaded,
+	 * and is retried the next time the group is loaded
+	 */
+	public void testFailedResourcesDontBlockTheirGroup() {
+		List<ResourceGroupLoadedEvent> events = this.recordGroupEvents();
+		final int[] completed = { 0 };
+		this.bus.addHandler(AllResourcesLoadedEvent.TYPE, new AllResourcesLoadedHandler() {
+			@Override
+			public void onAllResourcesLoaded(AllResourcesLoadedEvent event) {
+				completed[0]++;
+			}
+		});
+		this.resources.registerImage("hero", "hero.png", 1, 0, "level");
+		this.resources.registerImage("missing", "missing.png", 1, 0, "level");
+		this.resources.loadGroup("level");
+		this.loadImage("hero.png");
+		assertTrue(events.isEmpty());
+
+		this.failImage("missing.png");
+		assertTrue(this.resources.isGroupLoaded("level"));
+		assertEquals(1, events.size());
+		assertEquals("level", events.get(0).getGroup());
+		assertEquals(1, events.get(0).getFailedCount());
+		assertEquals(1, completed[0]);
+
+		// loading the group again retries the missing image
+		this.resources.loadGroup("level");
+		assertFalse(this.resources.isGroupLoaded("level"));
+		this.loadImage("missing.png");
+		assertTrue(this.resources.isGroupLoaded("level"));
+		assertEquals(2, events.size());
+		assertFalse(events.get(1).hasFailures());
+	}
+
+	/**
+	 * A group whose resources have been evicted fires its event again once
+	 * it is loaded again
+	 */
+	public void testEvictedGroupFiresItsEventAgain() {
+		List<ResourceGroupLoadedEvent> events = this.recordGroupEvents();
+		this.resources.setMemoryBudget(1000);
+		this.resources.registerImage("menu", "menu.png", 1, 0, "menu");
+		this.resources.registerImage("a", "a.png", 1, 0, "level");
+		this.resources.registerImage("b", "b.png", 1, 0, "level");
+		this.resources.registerImage("c", "c.png", 1, 0, "level");
+		this.resources.loadGroup("menu");
+		this.loadImages();
+		assertEquals(1, events.size());
+
+		// the menu is evicted while the level loads
+		this.resources.loadGroup("level");
+		this.loadImages();
+		assertEquals(1, this.resources.getEvictions());
+		assertEquals(2, events.size());
+		assertFalse(this.resources.isGroupLoaded("menu"));
+
+		// going back to the menu loads it again, and signals it
+		this.resources.loadGroup("menu");
+		assertEquals(2, events.size());
+		this.loadImage("menu.png");
+		assertTrue(this.resources.isGroupLoaded("menu"));
+		assertEquals(3, events.size());
+		assertEquals("menu", events.get(2).getGroup());
+	}
+}
@@ -0,0 +1,49 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.util.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import com.sfeir.canvas.util.client.pool.ObjectPool;
+
+/**
+ * Tests of the {@link Vector2}
+ * 
+ * @author François LAROCHE
+ */
+public class Vector2Test {
+
+	@Test
+	public void operationsModifyTheVectorAndChain() {
+		Vector2 vector = new Vector2(1, 2);
+		assertSame(vector, vector.add(new Vector2(2, 2)).scale(2).sub(new Vector2(1, 0)));
+		assertEquals(5, vector.getX(), 0);
+		assertEquals(8, vector.getY(), 0);
+		assertEquals(21, vector.dot(new Vector2(1, 2)), 0);
+	}
+
+	@Test
+	public void lengthsAndDistances() {
+		Vector2 vector = new Vector2(3, 4);
+		assertEquals(5, vector.length(), 1e-9);
+		assertEquals(5, vector.distance(new Vector2(0, 0)), 1e-9);
+		assertEquals(1, vector.normalize().length(), 1e-9);
+		assertEquals(0.6, vector.getX(), 1e-9);
+		// a zero vector stays zero
+		assertEquals(0, new Vector2().normalize().length(), 0);
+	}
+
+	@Test
+	public void pooledVectorsAreResetToZero() {
+		ObjectPool<Vector2> pool = new ObjectPool<Vector2>(Vector2.FACTORY);
+		Vector2 vector = pool.obtain().set(5, 6);
+		pool.release(vector);
+		Vector2 again = pool.obtain();
+		assertSame(vector, again);
+		assertEquals(0, again.length(), 0);
+	}
+}
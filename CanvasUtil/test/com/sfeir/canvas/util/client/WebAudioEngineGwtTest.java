@@ -0,0 +1,136 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.util.client;
+
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.junit.client.GWTTestCase;
+
+/**
+ * Tests of the {@link WebAudioEngine}, on a fake AudioContext recording the
+ * nodes created
+ * 
+ * @author François LAROCHE
+ */
+public class WebAudioEngineGwtTest extends GWTTestCase {
+
+	@Override
+	public String getModuleName() {
+		return "com.sfeir.canvas.util.UtilTest";
+	}
+
+	@Override
+	protected void gwtSetUp() {
+		installFakeContext();
+	}
+
+	/**
+	 * Installs a fake AudioContext in the window, recording the gain nodes
+	 * and the sources created in <code>$wnd.audioLog</code>. The engine
+	 * keeps the context it was created with, so the log is reset on each
+	 * call while the context stays.
+	 */
+	private static native void installFakeContext() /*-{
+		$wnd.audioLog = { gains : 0, sources : [], stopped : 0 };
+		if ($wnd.AudioContext) {
+			return;
+		}
+		$wnd.AudioContext = function() {
+			this.destination = {};
+			this.createGain = function() {
+				$wnd.audioLog.gains++;
+				return { gain : { value : 1 }, connect : function() {} };
+			};
+			this.createBufferSource = function() {
+				var source = {
+					connect : function() {},
+					disconnect : function() {},
+					start : function() {},
+					stop : function() {
+						$wnd.audioLog.stopped++;
+					}
+				};
+				$wnd.audioLog.sources.push(source);
+				return source;
+			};
+		};
+	}-*/;
+
+	/**
+	 * Gets a counter of the fake AudioContext
+	 * 
+	 * @param name
+	 *            the name of the counter : gains or stopped
+	 * @return the value of the counter
+	 */
+	private static native int count(String name) /*-{
+		return $wnd.audioLog[name];
+	}-*/;
+
+	/**
+	 * Ends a source created by the fake AudioContext, as if the sound had
+	 * finished playing
+	 * 
+	 * @param index
+	 *            the index of the source, in the order of creation
+	 */
+	private static native void end(int index) /*-{
+		var source = $wnd.audioLog.sources[index];
+		if (source.onended) {
+			source.onended();
+		}
+	}-*/;
+
+	/**
+	 * Creates an object standing for a decoded sound
+	 * 
+	 * @return the sound
+	 */
+	private static native JavaScriptObject buffer() /*-{
+		return { length : 100, numberOfChannels : 2 };
+	}-*/;
+
+	/**
+	 * The voices are limited per sound, stolen from the oldest, and reused
+	 * once free
+	 */
+	public void testVoicesArePooledAndLimited() {
+		WebAudioEngine engine = WebAudioEngine.get();
+		assertNotNull(engine);
+		JavaScriptObject sound = buffer();
+		engine.setPolyphony("shot", 2);
+
+		engine.play("shot", sound, 1, false);
+		engine.play("shot", sound, 1, false);
+		engine.play("shot", sound, 1, false);
+		assertEquals(2, engine.getPlayingCount("shot"));
+		// the third play stole the voice of the first one
+		assertEquals(2, count("gains"));
+		assertEquals(1, count("stopped"));
+
+		// the stolen source ending is ignored, the last one frees its voice
+		end(0);
+		assertEquals(2, engine.getPlayingCount("shot"));
+		end(2);
+		assertEquals(1, engine.getPlayingCount("shot"));
+		engine.play("music", sound, 0.5, true);
+		assertEquals(2, count("gains"));
+
+		engine.stop("shot");
+		assertEquals(0, engine.getPlayingCount("shot"));
+		assertEquals(1, engine.getPlayingCount("music"));
+		assertEquals(800, WebAudioEngine.getMemorySize(sound), 0);
+	}
+
+	/**
+	 * A polyphony below one voice is refused
+	 */
+	public void testPolyphonyMustBePositive() {
+		try {
+			WebAudioEngine.get().setDefaultPolyphony(0);
+			fail("a polyphony of 0 was accepted");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+}
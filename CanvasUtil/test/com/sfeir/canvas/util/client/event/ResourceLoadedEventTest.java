@@ -0,0 +1,62 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.util.client.event;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import com.google.gwt.event.shared.HandlerManager;
+
+/**
+ * Tests of the pool of {@link ResourceLoadedEvent}
+ * 
+ * @author François LAROCHE
+ */
+public class ResourceLoadedEventTest {
+
+	/**
+	 * Handler keeping the last percentage received
+	 */
+	private static class PercentageHandler implements ResourceLoadedHandler {
+		/**
+		 * the last percentage received
+		 */
+		private float percentage;
+
+		@Override
+		public void onResourcesLoaded(ResourceLoadedEvent event) {
+			this.percentage = event.getPercentage();
+		}
+	}
+
+	@Test
+	public void releasedEventsAreReusedOnceReset() {
+		ResourceLoadedEvent event = ResourceLoadedEvent.obtain(10, "first");
+		event.setOfflineStatistics(3, 1);
+		event.release();
+		ResourceLoadedEvent again = ResourceLoadedEvent.obtain(20, "second");
+		assertSame(event, again);
+		assertEquals(20, again.getPercentage(), 0);
+		assertEquals("second", again.getSource());
+		assertEquals(0, again.getOfflineHits());
+		assertEquals(0, again.getOfflineMisses());
+		again.release();
+	}
+
+	@Test
+	public void eventsCanBeFiredAgainByALegacyHandlerManager() {
+		HandlerManager manager = new HandlerManager(this);
+		PercentageHandler handler = new PercentageHandler();
+		manager.addHandler(ResourceLoadedEvent.TYPE, handler);
+		for (int i = 1; i <= 3; i++) {
+			// the handler manager kills the events it dispatched
+			ResourceLoadedEvent event = ResourceLoadedEvent.obtain(i * 10, null);
+			manager.fireEvent(event);
+			event.release();
+			assertEquals(i * 10, handler.percentage, 0);
+		}
+	}
+}
@@ -0,0 +1,67 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.util.client.metrics;
+
+import com.google.gwt.canvas.client.Canvas;
+import com.google.gwt.canvas.dom.client.Context2d;
+import com.google.gwt.junit.client.GWTTestCase;
+
+/**
+ * Tests of the {@link MetricsOverlay}, on a context recording the
+ * rectangles drawn
+ * 
+ * @author François LAROCHE
+ */
+public class MetricsOverlayGwtTest extends GWTTestCase {
+
+	@Override
+	public String getModuleName() {
+		return "com.sfeir.canvas.util.UtilTest";
+	}
+
+	/**
+	 * Makes a context record the rectangles cleared and filled, as
+	 * "clear x,y,w,h" and "fill x,y,w,h", and ignore the other drawing
+	 * functions, the test browser lacking some of them
+	 * 
+	 * @param ctx
+	 *            the context
+	 */
+	private static native void recordRectangles(Context2d ctx) /*-{
+		ctx.log = [];
+		ctx.save = ctx.restore = ctx.fillText = function() {};
+		ctx.clearRect = function(x, y, w, h) {
+			ctx.log.push("clear " + [ x, y, w, h ].join(","));
+		};
+		ctx.fillRect = function(x, y, w, h) {
+			ctx.log.push("fill " + [ x, y, w, h ].join(","));
+		};
+	}-*/;
+
+	/**
+	 * Gets the rectangles recorded by a context
+	 * 
+	 * @param ctx
+	 *            the context
+	 * @return the rectangles, separated by semicolons
+	 */
+	private static native String getRectangles(Context2d ctx) /*-{
+		return ctx.log.join(";");
+	}-*/;
+
+	/**
+	 * Drawn repeatedly on a canvas not redrawn in between, the overlay
+	 * clears its rectangle each time instead of piling up
+	 */
+	public void testOverlayClearsItsRectangle() {
+		Metrics metrics = new RecordingMetrics();
+		metrics.getCounter("frames").increment();
+		MetricsOverlay overlay = new MetricsOverlay(metrics);
+		Context2d ctx = Canvas.createIfSupported().getContext2d();
+		recordRectangles(ctx);
+		overlay.draw(ctx, 5, 10);
+		overlay.draw(ctx, 5, 10);
+		assertEquals("clear 5,10,300,20;fill 5,10,300,20;clear 5,10,300,20;fill 5,10,300,20", getRectangles(ctx));
+	}
+}
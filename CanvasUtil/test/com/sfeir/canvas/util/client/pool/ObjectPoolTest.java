@@ -0,0 +1,148 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.util.client.pool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests of the {@link ObjectPool}
+ * 
+ * @author François LAROCHE
+ */
+public class ObjectPoolTest {
+
+	/**
+	 * Object pooled by the tests
+	 */
+	private static class Particle {
+		/**
+		 * the state of the particle, cleared when reset
+		 */
+		private double x;
+	}
+
+	/**
+	 * the factory of the particles, counting the resets
+	 */
+	private static class ParticleFactory implements ObjectPool.Factory<Particle> {
+		/**
+		 * the number of particles reset
+		 */
+		private int resets;
+
+		@Override
+		public Particle create() {
+			return new Particle();
+		}
+
+		@Override
+		public void reset(Particle object) {
+			object.x = 0;
+			this.resets++;
+		}
+	}
+
+	/**
+	 * the factory of the pool tested
+	 */
+	private ParticleFactory factory;
+
+	@Before
+	public void setUp() {
+		this.factory = new ParticleFactory();
+	}
+
+	@Test
+	public void releasedObjectsAreReusedOnceReset() {
+		ObjectPool<Particle> pool = new ObjectPool<Particle>(this.factory);
+		Particle particle = pool.obtain();
+		particle.x = 12;
+		pool.release(particle);
+		assertEquals(1, this.factory.resets);
+		Particle again = pool.obtain();
+		assertSame(particle, again);
+		assertEquals(0, again.x, 0);
+		assertEquals(1, pool.getCreated());
+	}
+
+	@Test
+	public void preallocatedObjectsAreCreatedUpFront() {
+		ObjectPool<Particle> pool = new ObjectPool<Particle>(this.factory, 40, 0);
+		assertEquals(40, pool.getCreated());
+		assertEquals(40, pool.getFree());
+		for (int i = 0; i < 40; i++) {
+			pool.obtain();
+		}
+		assertEquals(40, pool.getCreated());
+		assertEquals(0, pool.getFree());
+		pool.obtain();
+		assertEquals(41, pool.getCreated());
+	}
+
+	@Test
+	public void highWaterRecordsTheMostObjectsInUse() {
+		ObjectPool<Particle> pool = new ObjectPool<Particle>(this.factory);
+		Particle[] particles = new Particle[100];
+		for (int round = 0; round < 3; round++) {
+			for (int i = 0; i < particles.length; i++) {
+				particles[i] = pool.obtain();
+			}
+			for (int i = 0; i < particles.length; i++) {
+				pool.release(particles[i]);
+			}
+		}
+		assertEquals(0, pool.getInUse());
+		assertEquals(100, pool.getHighWater());
+		assertEquals(100, pool.getCreated());
+		assertEquals(100, pool.getFree());
+	}
+
+	@Test
+	public void freeObjectsBeyondTheLimitAreDropped() {
+		ObjectPool<Particle> pool = new ObjectPool<Particle>(this.factory, 0, 2);
+		Particle a = pool.obtain();
+		Particle b = pool.obtain();
+		Particle c = pool.obtain();
+		pool.release(a);
+		pool.release(b);
+		pool.release(c);
+		assertEquals(2, pool.getFree());
+		assertEquals(3, this.factory.resets);
+		pool.obtain();
+		pool.obtain();
+		assertNotSame(c, pool.obtain());
+		assertEquals(4, pool.getCreated());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void releasingTwiceIsDetected() {
+		ObjectPool<Particle> pool = new ObjectPool<Particle>(this.factory);
+		Particle particle = pool.obtain();
+		pool.release(particle);
+		pool.release(particle);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void releasingAForeignObjectIsDetected() {
+		new ObjectPool<Particle>(this.factory).release(new Particle());
+	}
+
+	@Test
+	public void objectsKeptTooLongAreReportedAsLeaks() {
+		ObjectPool<Particle> pool = new ObjectPool<Particle>(this.factory);
+		Particle leaked = pool.obtain();
+		for (int frame = 0; frame < 10; frame++) {
+			pool.release(pool.obtain());
+			pool.nextGeneration();
+		}
+		assertEquals(1, pool.findLeaks(5));
+		pool.release(leaked);
+		assertEquals(0, pool.findLeaks(5));
+	}
+}
@@ -0,0 +1,17 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.util.client.spatial;
+
+/**
+ * Tests of the {@link QuadTree}
+ * 
+ * @author François LAROCHE
+ */
+public class QuadTreeTest extends SpatialIndexTest {
+
+	@Override
+	protected SpatialIndex<Shape> createIndex() {
+		return new QuadTree<Shape>(SIZE, SIZE, 4, 8);
+	}
+}
@@ -0,0 +1,356 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.util.client.spatial;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests shared by the {@link SpatialIndex} implementations : their results
+ * are checked against a scan of all the objects.
+ * 
+ * @author François LAROCHE
+ */
+public abstract class SpatialIndexTest {
+
+	/**
+	 * the width and height of the area covered by the indexes
+	 */
+	protected static final double SIZE = 1000;
+
+	/**
+	 * An object and its bounds, to scan all of them
+	 */
+	protected static class Shape implements Comparable<Shape> {
+		/**
+		 * the number of the shape
+		 */
+		private final int id;
+		/**
+		 * the bounds of the shape
+		 */
+		private double x, y, width, height;
+
+		/**
+		 * Constructor initializing the shape
+		 * 
+		 * @param id
+		 *            the number of the shape
+		 */
+		public Shape(int id) {
+			this.id = id;
+		}
+
+		/**
+		 * Moves the shape
+		 * 
+		 * @param x
+		 *            the x coordinate
+		 * @param y
+		 *            the y coordinate
+		 * @param width
+		 *            the width
+		 * @param height
+		 *            the height
+		 */
+		public void set(double x, double y, double width, double height) {
+			this.x = x;
+			this.y = y;
+			this.width = width;
+			this.height = height;
+		}
+
+		/**
+		 * Checks whether the shape intersects an area, edges included
+		 * 
+		 * @param x
+		 *            the x coordinate of the area
+		 * @param y
+		 *            the y coordinate of the area
+		 * @param width
+		 *            the width of the area
+		 * @param height
+		 *            the height of the area
+		 * @return true if the shape intersects the area
+		 */
+		public boolean intersects(double x, double y, double width, double height) {
+			return this.x <= x + width && x <= this.x + this.width && this.y <= y + height
+					&& y <= this.y + this.height;
+		}
+
+		@Override
+		public int compareTo(Shape other) {
+			return this.id < other.id ? -1 : this.id == other.id ? 0 : 1;
+		}
+
+		@Override
+		public String toString() {
+			return "shape " + this.id;
+		}
+	}
+
+	/**
+	 * the index tested
+	 */
+	protected SpatialIndex<Shape> index;
+	/**
+	 * the shapes indexed
+	 */
+	protected List<Shape> shapes;
+	/**
+	 * the random generator, seeded for the tests to be repeatable
+	 */
+	protected Random random;
+
+	/**
+	 * Creates the index tested, covering a {@link #SIZE} square
+	 * 
+	 * @return the index
+	 */
+	protected abstract SpatialIndex<Shape> createIndex();
+
+	@Before
+	public void setUp() {
+		this.index = this.createIndex();
+		this.shapes = new ArrayList<Shape>();
+		this.random = new Random(42);
+	}
+
+	/**
+	 * Adds a shape to the index and to the list of shapes
+	 * 
+	 * @param x
+	 *            the x coordinate of the shape
+	 * @param y
+	 *            the y coordinate of the shape
+	 * @param width
+	 *            the width of the shape
+	 * @param height
+	 *            the height of the shape
+	 * @return the shape
+	 */
+	protected Shape add(double x, double y, double width, double height) {
+		Shape shape = new Shape(this.shapes.size());
+		shape.set(x, y, width, height);
+		this.shapes.add(shape);
+		this.index.insert(shape, x, y, width, height);
+		return shape;
+	}
+
+	/**
+	 * Moves a shape, in the index and in the list of shapes
+	 * 
+	 * @param shape
+	 *            the shape
+	 * @param x
+	 *            the new x coordinate
+	 * @param y
+	 *            the new y coordinate
+	 * @param width
+	 *            the new width
+	 * @param height
+	 *            the new height
+	 */
+	protected void move(Shape shape, double x, double y, double width, double height) {
+		shape.set(x, y, width, height);
+		this.index.update(shape, x, y, width, height);
+	}
+
+	/**
+	 * Adds shapes of random positions and sizes
+	 * 
+	 * @param count
+	 *            the number of shapes
+	 * @param maxSize
+	 *            the maximum width and height of the shapes
+	 */
+	protected void addRandom(int count, double maxSize) {
+		for (int i = 0; i < count; i++) {
+			this.add(this.random.nextDouble() * SIZE, this.random.nextDouble() * SIZE,
+					this.random.nextDouble() * maxSize, this.random.nextDouble() * maxSize);
+		}
+	}
+
+	/**
+	 * Checks that the index finds the same shapes in an area as a scan of
+	 * all of them
+	 * 
+	 * @param x
+	 *            the x coordinate of the area
+	 * @param y
+	 *            the y coordinate of the area
+	 * @param width
+	 *            the width of the area
+	 * @param height
+	 *            the height of the area
+	 */
+	protected void assertQuery(double x, double y, double width, double height) {
+		List<Shape> expected = new ArrayList<Shape>();
+		for (Shape shape : this.shapes) {
+			if (shape.intersects(x, y, width, height)) {
+				expected.add(shape);
+			}
+		}
+		List<Shape> found = new ArrayList<Shape>();
+		assertEquals(expected.size(), this.index.query(x, y, width, height, found));
+		Collections.sort(found);
+		assertEquals("query " + x + ", " + y + ", " + width + ", " + height, expected, found);
+	}
+
+	/**
+	 * Checks that the index finds the same shapes at a point as a scan of
+	 * all of them
+	 * 
+	 * @param x
+	 *            the x coordinate of the point
+	 * @param y
+	 *            the y coordinate of the point
+	 */
+	protected void assertQueryPoint(double x, double y) {
+		List<Shape> expected = new ArrayList<Shape>();
+		for (Shape shape : this.shapes) {
+			if (shape.intersects(x, y, 0, 0)) {
+				expected.add(shape);
+			}
+		}
+		List<Shape> found = new ArrayList<Shape>();
+		assertEquals(expected.size(), this.index.queryPoint(x, y, found));
+		Collections.sort(found);
+		assertEquals("point " + x + ", " + y, expected, found);
+	}
+
+	@Test
+	public void queriesMatchAScanOfAllTheShapes() {
+		this.addRandom(2000, 40);
+		for (int i = 0; i < 200; i++) {
+			this.assertQuery(this.random.nextDouble() * SIZE, this.random.nextDouble() * SIZE,
+					this.random.nextDouble() * 200, this.random.nextDouble() * 200);
+			this.assertQueryPoint(this.random.nextDouble() * SIZE, this.random.nextDouble() * SIZE);
+		}
+		this.assertQuery(0, 0, SIZE, SIZE);
+	}
+
+	@Test
+	public void movedShapesAreFoundAtTheirNewPosition() {
+		this.addRandom(1000, 30);
+		for (int step = 0; step < 20; step++) {
+			for (Shape shape : this.shapes) {
+				double x = Math.max(0, Math.min(SIZE - 30, shape.x + this.random.nextDouble() * 60 - 30));
+				double y = Math.max(0, Math.min(SIZE - 30, shape.y + this.random.nextDouble() * 60 - 30));
+				this.move(shape, x, y, shape.width, shape.height);
+			}
+			for (int i = 0; i < 20; i++) {
+				this.assertQuery(this.random.nextDouble() * SIZE, this.random.nextDouble() * SIZE, 100, 100);
+				this.assertQueryPoint(this.random.nextDouble() * SIZE, this.random.nextDouble() * SIZE);
+			}
+		}
+		assertEquals(1000, this.index.size());
+	}
+
+	@Test
+	public void insertingTwiceMovesTheShape() {
+		Shape shape = this.add(10, 10, 5, 5);
+		shape.set(500, 500, 5, 5);
+		this.index.insert(shape, 500, 500, 5, 5);
+		assertEquals(1, this.index.size());
+		this.assertQueryPoint(12, 12);
+		this.assertQueryPoint(502, 502);
+	}
+
+	@Test
+	public void removedShapesAreNoLongerFound() {
+		this.addRandom(500, 50);
+		for (int i = 0; i < 250; i++) {
+			Shape shape = this.shapes.remove(this.random.nextInt(this.shapes.size()));
+			assertTrue(this.index.remove(shape));
+			assertFalse(this.index.remove(shape));
+		}
+		assertEquals(250, this.index.size());
+		this.assertQuery(0, 0, SIZE, SIZE);
+		for (int i = 0; i < 50; i++) {
+			this.assertQueryPoint(this.random.nextDouble() * SIZE, this.random.nextDouble() * SIZE);
+		}
+	}
+
+	@Test
+	public void clearRemovesEverything() {
+		this.addRandom(300, 50);
+		this.index.clear();
+		this.shapes.clear();
+		assertEquals(0, this.index.size());
+		this.assertQuery(0, 0, SIZE, SIZE);
+		// the index is still usable
+		this.addRandom(100, 50);
+		this.assertQuery(0, 0, SIZE, SIZE);
+	}
+
+	@Test
+	public void shapeMovingAcrossQuadrantsIsAlwaysFound() {
+		// enough shapes for the indexes to split the area
+		this.addRandom(500, 20);
+		Shape shape = this.add(380, 380, 40, 40);
+		// crosses the middle of the area, then comes back
+		for (int step = 0; step <= 160; step++) {
+			double position = 380 + (step <= 80 ? step : 160 - step) * 2.5;
+			this.move(shape, position, position, 40, 40);
+			this.assertQueryPoint(position + 20, position + 20);
+			this.assertQueryPoint(SIZE / 2, SIZE / 2);
+			this.assertQuery(position - 5, position - 5, 10, 10);
+			this.assertQuery(SIZE / 2 - 1, SIZE / 2 - 1, 2, 2);
+		}
+		assertEquals(501, this.index.size());
+	}
+
+	@Test
+	public void shapesOutsideTheAreaAreFound() {
+		this.addRandom(200, 40);
+		this.add(-50, -50, 20, 20);
+		this.add(SIZE + 10, SIZE / 2, 10, 10);
+		this.add(SIZE - 10, SIZE - 10, 30, 30);
+		this.add(-100, 100, SIZE + 200, 5);
+		this.assertQuery(-100, -100, 80, 80);
+		this.assertQuery(SIZE, SIZE / 2 - 20, 50, 50);
+		this.assertQuery(SIZE + 5, SIZE + 5, 10, 10);
+		this.assertQuery(-200, -200, SIZE + 400, SIZE + 400);
+		this.assertQueryPoint(-40, -40);
+		this.assertQueryPoint(SIZE + 15, SIZE / 2 + 5);
+		this.assertQueryPoint(SIZE + 15, SIZE + 15);
+		this.assertQueryPoint(-90, 102);
+		// moved inside, then out again
+		Shape shape = this.shapes.get(200);
+		this.move(shape, 100, 100, 20, 20);
+		this.assertQueryPoint(-40, -40);
+		this.assertQueryPoint(110, 110);
+		this.move(shape, -500, SIZE + 500, 20, 20);
+		this.assertQueryPoint(110, 110);
+		this.assertQueryPoint(-490, SIZE + 510);
+	}
+
+	@Test
+	public void pointsOnEdgesFindTheShapesTouchingThem() {
+		this.addRandom(300, 20);
+		// edges on the boundaries of the cells and quadrants
+		this.add(450, 450, 50, 50);
+		this.add(500, 500, 50, 50);
+		this.add(100, 100, 50, 50);
+		this.add(SIZE - 50, 0, 50, 50);
+		this.add(0, SIZE - 50, 50, 50);
+		double[] edges = { 0, 50, 100, 150, 250, 450, 500, 550, 750, SIZE - 50, SIZE };
+		for (double x : edges) {
+			for (double y : edges) {
+				this.assertQueryPoint(x, y);
+				this.assertQuery(x, y, 0, 0);
+			}
+		}
+	}
+}
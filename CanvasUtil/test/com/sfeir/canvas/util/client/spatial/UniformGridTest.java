@@ -0,0 +1,17 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.util.client.spatial;
+
+/**
+ * Tests of the {@link UniformGrid}
+ * 
+ * @author François LAROCHE
+ */
+public class UniformGridTest extends SpatialIndexTest {
+
+	@Override
+	protected SpatialIndex<Shape> createIndex() {
+		return new UniformGrid<Shape>(SIZE, SIZE, 50);
+	}
+}
@@ -0,0 +1,138 @@
+/**
+ * 
+ */
+package com.sfeir.canvas.util.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests of the {@link ManifestGenerator}
+ * 
+ * @author François LAROCHE
+ */
+public class ManifestGeneratorTest {
+
+	/**
+	 * the directory of the resources and of the manifest
+	 */
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Writes a resource file
+	 * 
+	 * @param path
+	 *            the path of the file in the resource directory
+	 * @param content
+	 *            the content of the file
+	 * @throws IOException
+	 *             if the file can't be written
+	 */
+	private void write(String path, String content) throws IOException {
+		File file = new File(this.folder.getRoot(), "res/" + path);
+		file.getParentFile().mkdirs();
+		OutputStream out = new FileOutputStream(file);
+		try {
+			out.write(content.getBytes("UTF-8"));
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Generates the manifest of the resource directory
+	 * 
+	 * @return the manifest
+	 * @throws IOException
+	 *             if the manifest can't be generated
+	 */
+	private String generate() throws IOException {
+		File manifest = new File(this.folder.getRoot(), "out/manifest.json");
+		new ManifestGenerator("res/").generate(new File(this.folder.getRoot(), "res"), manifest);
+		InputStream in = new FileInputStream(manifest);
+		try {
+			byte[] content = new byte[(int) manifest.length()];
+			int read = 0;
+			while (read < content.length) {
+				read += in.read(content, read, content.length - read);
+			}
+			return new String(content, "UTF-8");
+		} finally {
+			in.close();
+		}
+	}
+
+	@Test
+	public void resourcesAreListedWithTheirGroupSizeAndHash() throws IOException {
+		this.write("logo.png", "abc");
+		this.write("readme.txt", "ignored");
+		this.write("level1/hero.png", "hero");
+		this.write("level1/sfx/jump.ogg", "jump!");
+		this.write("level1/sfx/jump.mp3", "jump");
+		String manifest = this.generate();
+		assertEquals("{\"resources\": [\n"
+				+ "  {\"key\": \"level1/hero\", \"type\": \"image\", \"urls\": [\"res/level1/hero.png\"], \"size\": 4,"
+				+ " \"group\": \"level1\", \"hash\": \"" + sha1("hero") + "\"},\n"
+				+ "  {\"key\": \"level1/sfx/jump\", \"type\": \"audio\","
+				+ " \"urls\": [\"res/level1/sfx/jump.mp3\", \"res/level1/sfx/jump.ogg\"], \"size\": 4,"
+				+ " \"group\": \"level1\", \"hash\": \"" + sha1("jump") + "\"},\n"
+				+ "  {\"key\": \"logo\", \"type\": \"image\", \"urls\": [\"res/logo.png\"], \"size\": 3,"
+				+ " \"hash\": \"a9993e364706816aba3e25717850c26c9cd0d89d\"}\n" + "]}\n", manifest);
+	}
+
+	@Test
+	public void generatingTwiceGivesTheSameManifest() throws IOException {
+		this.write("b.png", "b");
+		this.write("a/c.wav", "c");
+		this.write("a.png", "a");
+		assertEquals(this.generate(), this.generate());
+	}
+
+	@Test
+	public void twoImagesWithTheSameKeyAreRejected() throws IOException {
+		this.write("hero.png", "png");
+		this.write("hero.jpg", "jpg");
+		try {
+			this.generate();
+		} catch (IOException e) {
+			assertTrue(e.getMessage().contains("hero"));
+			return;
+		}
+		throw new AssertionError("the duplicate key wasn't detected");
+	}
+
+	/**
+	 * Computes the SHA-1 of a text, the way the generator does for files
+	 * 
+	 * @param text
+	 *            the text
+	 * @return the hash, in hexadecimal
+	 * @throws IOException
+	 *             if SHA-1 is not available
+	 */
+	private static String sha1(String text) throws IOException {
+		try {
+			StringBuilder hex = new StringBuilder();
+			for (byte b : MessageDigest.getInstance("SHA-1").digest(text.getBytes("UTF-8"))) {
+				hex.append(Integer.toHexString((b & 0xff) | 0x100).substring(1));
+			}
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException("SHA-1 is not available", e);
+		}
+	}
+}